@@ -0,0 +1,329 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package eu.fasten.analyzer.graphplugin;
+
+import eu.fasten.core.data.graphdb.GidGraph;
+import eu.fasten.core.data.graphdb.RocksDao;
+import eu.fasten.core.data.metadatadb.MetadataDao;
+import eu.fasten.core.data.metadatadb.codegen.tables.records.EdgesRecord;
+import eu.fasten.server.connectors.PostgresConnector;
+import it.unimi.dsi.fastutil.longs.Long2ObjectMap;
+import it.unimi.dsi.fastutil.longs.Long2ObjectOpenHashMap;
+import it.unimi.dsi.fastutil.longs.LongLinkedOpenHashSet;
+import it.unimi.dsi.fastutil.longs.LongOpenHashSet;
+import it.unimi.dsi.fastutil.longs.LongRBTreeSet;
+import it.unimi.dsi.fastutil.longs.LongSortedSet;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import org.jooq.impl.DSL;
+import org.rocksdb.RocksDBException;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import picocli.CommandLine;
+
+/**
+ * Rebuilds the graph database (RocksDB) from the metadata database, e.g., when the directory of
+ * the graph database is lost or its format changes, instead of replaying the Kafka topic
+ * consumed by {@link GraphDatabasePlugin}.
+ *
+ * <p>Package versions are paged through in order of ID. The GID graph of each package version
+ * is built from its callables and from the edges from or to them, which are streamed from the
+ * metadata database, and is compressed and serialized by one of several worker threads, each
+ * reading through its own connection. Serialized graphs are written in write batches that skip
+ * the write-ahead log, and each batch is flushed to disk once written.
+ *
+ * <p>Since workers complete package versions out of order, the tool logs after each flush the
+ * greatest ID such that the graphs of all package versions up to it are on disk. Graphs already
+ * in the graph database are overwritten, so an interrupted rebuild can be restarted with
+ * {@code --after} set to the last ID logged. Package versions whose graph could not be rebuilt
+ * are logged and skipped.
+ */
+@CommandLine.Command(name = "GraphDatabaseRebuild")
+public class GraphDatabaseRebuild implements Runnable {
+
+    private static final Logger logger = LoggerFactory.getLogger(GraphDatabaseRebuild.class);
+
+    /** The number of callables or edges fetched at a time from the metadata database. */
+    private static final int FETCH_SIZE = 10000;
+
+    @CommandLine.Option(names = {"-d", "--database"},
+            paramLabel = "DB_URL",
+            description = "Database URL for connection",
+            defaultValue = "jdbc:postgresql:postgres")
+    String dbUrl;
+
+    @CommandLine.Option(names = {"-u", "--user"},
+            paramLabel = "DB_USER",
+            description = "Database user name",
+            defaultValue = "postgres")
+    String dbUser;
+
+    @CommandLine.Option(names = {"-g", "--graph_db"},
+            paramLabel = "Dir",
+            description = "The directory of the RocksDB instance",
+            required = true)
+    String graphDbDir;
+
+    @CommandLine.Option(names = {"-t", "--threads"},
+            paramLabel = "THREADS",
+            description = "Number of threads building graphs, each with a database connection "
+                    + "(defaults to the number of processors)")
+    int threads = Runtime.getRuntime().availableProcessors();
+
+    @CommandLine.Option(names = {"-b", "--batch_size"},
+            paramLabel = "VERSIONS",
+            description = "Number of package versions fetched at a time",
+            defaultValue = "1000")
+    int batchSize;
+
+    @CommandLine.Option(names = {"-w", "--write_batch"},
+            paramLabel = "MiB",
+            description = "Size of serialized graphs written to RocksDB at a time",
+            defaultValue = "64")
+    int writeBatchMiB;
+
+    @CommandLine.Option(names = {"-a", "--after"},
+            paramLabel = "ID",
+            description = "Only rebuild graphs of package versions with a greater ID",
+            defaultValue = "0")
+    long afterId;
+
+    public static void main(String[] args) {
+        final int exitCode = new CommandLine(new GraphDatabaseRebuild()).execute(args);
+        System.exit(exitCode);
+    }
+
+    @Override
+    public void run() {
+        if (threads <= 0 || batchSize <= 0 || writeBatchMiB <= 0) {
+            logger.error("The number of threads and the batch sizes must be positive");
+            return;
+        }
+        // A connection per worker, and one to page through package versions
+        try (var pool = PostgresConnector.getConnectionPool(dbUrl, dbUser, threads + 1);
+             var rocksDao = new RocksDao(graphDbDir)) {
+            var metadataDao = new MetadataDao(PostgresConnector.getDSLContext(pool));
+            rebuild(metadataDao, rocksDao);
+        } catch (IllegalArgumentException | SQLException e) {
+            logger.error("Could not connect to the database", e);
+        } catch (RocksDBException e) {
+            logger.error("Could not rebuild the graph database", e);
+        } catch (InterruptedException e) {
+            logger.error("Interrupted while rebuilding the graph database", e);
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    /**
+     * Rebuilds the graphs of the package versions of the metadata database.
+     *
+     * @param metadataDao DAO of the metadata database, shared by the worker threads
+     * @param rocksDao    DAO of the graph database
+     * @return the number of graphs saved
+     * @throws RocksDBException     if graphs could not be written to the graph database
+     * @throws InterruptedException if interrupted while waiting for the worker threads
+     */
+    long rebuild(MetadataDao metadataDao, RocksDao rocksDao)
+            throws RocksDBException, InterruptedException {
+        final var start = System.currentTimeMillis();
+        final var writer = new BatchWriter(rocksDao, (long) writeBatchMiB << 20, afterId);
+        final var saved = new AtomicLong();
+        final var failed = new AtomicLong();
+        final var inFlight = new Semaphore(2 * threads);
+        final ExecutorService workers = Executors.newFixedThreadPool(threads);
+        long submitted = 0;
+        try {
+            var after = afterId;
+            while (true) {
+                var page = metadataDao.getPackageVersions(after, batchSize);
+                if (page.isEmpty()) {
+                    break;
+                }
+                for (var packageVersion : page) {
+                    final long id = packageVersion.value1();
+                    final var artifact = packageVersion.value2() + "@" + packageVersion.value3();
+                    inFlight.acquire();
+                    writer.submitted(id);
+                    workers.execute(() -> {
+                        try {
+                            var graph = readGraph(metadataDao, id, packageVersion.value2(),
+                                    packageVersion.value3());
+                            if (graph != null) {
+                                writer.add(id, rocksDao.serializeGraph(graph.getNodes(),
+                                        graph.getNumInternalNodes(), graph.getEdges()));
+                                saved.incrementAndGet();
+                            } else {
+                                writer.done(id);
+                            }
+                        } catch (Exception e) {
+                            logger.error("Could not rebuild the graph of '" + artifact + "'", e);
+                            failed.incrementAndGet();
+                            writer.done(id);
+                        } finally {
+                            inFlight.release();
+                        }
+                    });
+                }
+                submitted += page.size();
+                after = page.get(page.size() - 1).value1();
+                logger.info("Submitted {} package versions, up to ID {}; saved {} graphs, "
+                        + "{} failed", submitted, after, saved.get(), failed.get());
+            }
+        } finally {
+            workers.shutdown();
+            workers.awaitTermination(Long.MAX_VALUE, TimeUnit.MILLISECONDS);
+            writer.write();
+        }
+        logger.info("Rebuilt {} graphs of {} package versions in {} s, {} failed", saved.get(),
+                submitted, (System.currentTimeMillis() - start) / 1000, failed.get());
+        return saved.get();
+    }
+
+    /**
+     * Reads the GID graph of a package version in a transaction, so that its callables and edges
+     * are streamed.
+     *
+     * @return the graph, or null if the package version has no callables
+     */
+    GidGraph readGraph(MetadataDao metadataDao, long packageVersionId, String product,
+                       String version) {
+        return metadataDao.getContext().transactionResult(configuration ->
+                getGraph(new MetadataDao(DSL.using(configuration)), packageVersionId, product,
+                        version));
+    }
+
+    /**
+     * Builds the GID graph of a package version from the metadata database.
+     *
+     * @return the graph, or null if the package version has no callables
+     */
+    static GidGraph getGraph(MetadataDao metadataDao, long packageVersionId, String product,
+                             String version) {
+        var internal = new ArrayList<Long>();
+        try (var callables = metadataDao.streamCallables(packageVersionId, FETCH_SIZE)) {
+            for (var callable : callables) {
+                internal.add(callable.getId());
+            }
+        }
+        if (internal.isEmpty()) {
+            return null;
+        }
+        var internalIds = new LongOpenHashSet(internal);
+        var externalIds = new LongLinkedOpenHashSet();
+        var edges = new ArrayList<EdgesRecord>();
+        try (var cursor = metadataDao.streamEdges(packageVersionId, FETCH_SIZE)) {
+            for (var edge : cursor) {
+                // Only the arc is needed
+                edge.setMetadata(null);
+                edges.add(edge);
+                if (!internalIds.contains(edge.getSourceId())) {
+                    externalIds.add(edge.getSourceId().longValue());
+                }
+                if (!internalIds.contains(edge.getTargetId())) {
+                    externalIds.add(edge.getTargetId().longValue());
+                }
+            }
+        }
+        var nodes = new ArrayList<Long>(internal.size() + externalIds.size());
+        nodes.addAll(internal);
+        nodes.addAll(externalIds);
+        return new GidGraph(packageVersionId, product, version, nodes, internal.size(), edges);
+    }
+
+    /**
+     * Accumulates serialized graphs, writes them to the graph database in a single batch once
+     * their size exceeds a threshold, and flushes each batch to disk. Keeps track of the package
+     * versions whose graphs are not on disk yet.
+     */
+    private static class BatchWriter {
+
+        private final RocksDao rocksDao;
+        private final long maxBytes;
+        private Long2ObjectMap<byte[]> graphs = new Long2ObjectOpenHashMap<>();
+        private long bytes;
+
+        /** The IDs of the package versions submitted whose graphs are not on disk yet. */
+        private final LongSortedSet pending = new LongRBTreeSet();
+
+        /** The ID of the last package version submitted. */
+        private long lastSubmitted;
+
+        BatchWriter(RocksDao rocksDao, long maxBytes, long afterId) {
+            this.rocksDao = rocksDao;
+            this.maxBytes = maxBytes;
+            this.lastSubmitted = afterId;
+        }
+
+        synchronized void submitted(long index) {
+            pending.add(index);
+            lastSubmitted = index;
+        }
+
+        /**
+         * Records that a package version has no graph to write.
+         */
+        synchronized void done(long index) {
+            pending.remove(index);
+        }
+
+        void add(long index, byte[] graph) throws RocksDBException {
+            Long2ObjectMap<byte[]> full = null;
+            synchronized (this) {
+                graphs.put(index, graph);
+                bytes += graph.length;
+                if (bytes >= maxBytes) {
+                    full = graphs;
+                    graphs = new Long2ObjectOpenHashMap<>();
+                    bytes = 0;
+                }
+            }
+            if (full != null) {
+                writeAndFlush(full);
+            }
+        }
+
+        void write() throws RocksDBException {
+            Long2ObjectMap<byte[]> last;
+            synchronized (this) {
+                last = graphs;
+                graphs = new Long2ObjectOpenHashMap<>();
+                bytes = 0;
+            }
+            writeAndFlush(last);
+        }
+
+        private void writeAndFlush(Long2ObjectMap<byte[]> batch) throws RocksDBException {
+            if (!batch.isEmpty()) {
+                rocksDao.saveToRocksDb(batch);
+            }
+            rocksDao.flush();
+            final long durable;
+            synchronized (this) {
+                pending.removeAll(batch.keySet());
+                durable = pending.isEmpty() ? lastSubmitted : pending.firstLong() - 1;
+            }
+            logger.info("Graphs of all package versions up to ID {} are on disk", durable);
+        }
+    }
+}
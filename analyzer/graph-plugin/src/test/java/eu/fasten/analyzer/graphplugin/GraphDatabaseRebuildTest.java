@@ -0,0 +1,172 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package eu.fasten.analyzer.graphplugin;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+
+import eu.fasten.core.data.graphdb.GidGraph;
+import eu.fasten.core.data.graphdb.RocksDao;
+import eu.fasten.core.data.metadatadb.MetadataDao;
+import eu.fasten.core.data.metadatadb.codegen.tables.PackageVersions;
+import eu.fasten.core.data.metadatadb.codegen.tables.Packages;
+import eu.fasten.core.data.metadatadb.codegen.tables.records.CallablesRecord;
+import eu.fasten.core.data.metadatadb.codegen.tables.records.EdgesRecord;
+import it.unimi.dsi.fastutil.longs.LongArrayList;
+import it.unimi.dsi.fastutil.longs.LongOpenHashSet;
+import java.io.File;
+import java.io.IOException;
+import java.util.Collections;
+import java.util.List;
+import org.apache.commons.io.FileUtils;
+import org.jooq.Cursor;
+import org.jooq.JSONB;
+import org.jooq.Record3;
+import org.jooq.Result;
+import org.jooq.SQLDialect;
+import org.jooq.impl.DSL;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.Mockito;
+import org.rocksdb.RocksDBException;
+
+public class GraphDatabaseRebuildTest {
+
+    private static final String GRAPH_DB = "rebuiltGraphDB";
+
+    private RocksDao rocksDao;
+    private MetadataDao metadataDao;
+
+    @BeforeEach
+    public void setUp() throws RocksDBException {
+        rocksDao = new RocksDao(GRAPH_DB);
+        metadataDao = Mockito.mock(MetadataDao.class);
+    }
+
+    @AfterEach
+    public void tearDown() throws IOException {
+        rocksDao.close();
+        FileUtils.deleteDirectory(new File(GRAPH_DB));
+    }
+
+    @Test
+    public void getGraphTest() {
+        stubGraph(1L, List.of(10L, 11L), List.of(edge(10L, 11L), edge(11L, 20L), edge(21L, 10L)));
+        var graph = GraphDatabaseRebuild.getGraph(metadataDao, 1L, "g:a", "1.0");
+        assertEquals(1L, graph.getIndex());
+        assertEquals(List.of(10L, 11L, 20L, 21L), graph.getNodes());
+        assertEquals(2, graph.getNumInternalNodes());
+        assertEquals(List.of(List.of(10L, 11L), List.of(11L, 20L), List.of(21L, 10L)),
+                graph.getEdges());
+        stubGraph(2L, Collections.emptyList(), Collections.emptyList());
+        assertNull(GraphDatabaseRebuild.getGraph(metadataDao, 2L, "g:a", "2.0"));
+    }
+
+    @Test
+    public void rebuildTest() throws RocksDBException, InterruptedException {
+        Mockito.when(metadataDao.getPackageVersions(0L, 2)).thenReturn(packageVersions(1L, 2L));
+        Mockito.when(metadataDao.getPackageVersions(2L, 2)).thenReturn(packageVersions(3L));
+        Mockito.when(metadataDao.getPackageVersions(3L, 2)).thenReturn(packageVersions());
+        stubGraph(1L, List.of(10L, 11L), List.of(edge(10L, 11L), edge(11L, 30L)));
+        stubGraph(2L, Collections.emptyList(), Collections.emptyList());
+        stubGraph(3L, List.of(30L, 31L), List.of(edge(30L, 31L), edge(11L, 30L)));
+        var rebuild = new GraphDatabaseRebuild() {
+            @Override
+            GidGraph readGraph(MetadataDao metadataDao, long packageVersionId, String product,
+                               String version) {
+                // The mocked DAO needs no transaction
+                return getGraph(metadataDao, packageVersionId, product, version);
+            }
+        };
+        rebuild.threads = 2;
+        rebuild.batchSize = 2;
+        rebuild.writeBatchMiB = 1;
+        rebuild.afterId = 0L;
+        assertEquals(2, rebuild.rebuild(metadataDao, rocksDao));
+        var graphData1 = rocksDao.getGraphData(1L);
+        assertEquals(new LongOpenHashSet(List.of(10L, 11L, 30L)), graphData1.nodes());
+        assertEquals(new LongOpenHashSet(List.of(30L)), graphData1.externalNodes());
+        assertEquals(new LongArrayList(List.of(30L)), graphData1.successors(11L));
+        var graphData3 = rocksDao.getGraphData(3L);
+        assertEquals(new LongOpenHashSet(List.of(11L)), graphData3.externalNodes());
+        assertEquals(new LongArrayList(List.of(11L)), graphData3.predecessors(30L));
+        assertEquals(2, graphData3.numArcs());
+    }
+
+    @Test
+    public void batchesAreFlushedTest() throws Exception {
+        Mockito.when(metadataDao.getPackageVersions(0L, 10)).thenReturn(packageVersions(1L, 2L));
+        Mockito.when(metadataDao.getPackageVersions(2L, 10)).thenReturn(packageVersions());
+        stubGraph(1L, List.of(10L), List.of(edge(10L, 20L)));
+        stubGraph(2L, List.of(30L), List.of(edge(30L, 20L)));
+        var mockRocksDao = Mockito.mock(RocksDao.class);
+        // Each graph fills a write batch
+        Mockito.when(mockRocksDao.serializeGraph(Mockito.anyList(), Mockito.anyInt(),
+                Mockito.anyList())).thenReturn(new byte[2 << 20]);
+        var rebuild = new GraphDatabaseRebuild() {
+            @Override
+            GidGraph readGraph(MetadataDao metadataDao, long packageVersionId, String product,
+                               String version) {
+                return getGraph(metadataDao, packageVersionId, product, version);
+            }
+        };
+        rebuild.threads = 1;
+        rebuild.batchSize = 10;
+        rebuild.writeBatchMiB = 1;
+        rebuild.afterId = 0L;
+        assertEquals(2, rebuild.rebuild(metadataDao, mockRocksDao));
+        var inOrder = Mockito.inOrder(mockRocksDao);
+        inOrder.verify(mockRocksDao).saveToRocksDb(Mockito.any());
+        inOrder.verify(mockRocksDao).flush();
+        inOrder.verify(mockRocksDao).saveToRocksDb(Mockito.any());
+        inOrder.verify(mockRocksDao, Mockito.atLeastOnce()).flush();
+        Mockito.verify(mockRocksDao, Mockito.times(2)).saveToRocksDb(Mockito.any());
+    }
+
+    @SuppressWarnings("unchecked")
+    private void stubGraph(long packageVersionId, List<Long> callableIds, List<EdgesRecord> edges) {
+        var callables = Mockito.mock(Cursor.class);
+        Mockito.when(callables.iterator()).thenAnswer(i -> callableIds.stream()
+                .map(id -> new CallablesRecord(id, 1L, "/p/C.m" + id + "()", true, null, null))
+                .iterator());
+        Mockito.when(metadataDao.streamCallables(Mockito.eq(packageVersionId), Mockito.anyInt()))
+                .thenReturn(callables);
+        var edgesCursor = Mockito.mock(Cursor.class);
+        Mockito.when(edgesCursor.iterator()).thenAnswer(i -> edges.iterator());
+        Mockito.when(metadataDao.streamEdges(Mockito.eq(packageVersionId), Mockito.anyInt()))
+                .thenReturn(edgesCursor);
+    }
+
+    private static EdgesRecord edge(long source, long target) {
+        return new EdgesRecord(source, target, JSONB.valueOf("{}"));
+    }
+
+    private static Result<Record3<Long, String, String>> packageVersions(long... ids) {
+        var context = DSL.using(SQLDialect.POSTGRES);
+        var result = context.newResult(PackageVersions.PACKAGE_VERSIONS.ID,
+                Packages.PACKAGES.PACKAGE_NAME, PackageVersions.PACKAGE_VERSIONS.VERSION);
+        for (var id : ids) {
+            result.add(context.newRecord(PackageVersions.PACKAGE_VERSIONS.ID,
+                    Packages.PACKAGES.PACKAGE_NAME, PackageVersions.PACKAGE_VERSIONS.VERSION)
+                    .values(id, "g:a", "1." + id));
+        }
+        return result;
+    }
+}
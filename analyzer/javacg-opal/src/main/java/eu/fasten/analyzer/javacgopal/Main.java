@@ -221,7 +221,7 @@ public class Main implements Runnable {
                 commands.computations.tools.merge.mergeAlgorithm);
 
         if (!this.output.isEmpty() && result != null) {
-            CallGraphUtils.writeToFile(this.output, result.toJSON(),
+            CallGraphUtils.writeToFile(this.output, result,
                     "_" + result.product + "_merged");
         }
 
@@ -270,7 +270,7 @@ public class Main implements Runnable {
                 .format((System.currentTimeMillis() - startTime) / 1000d));
 
         if (writeToFile) {
-            CallGraphUtils.writeToFile(this.output, revisionCallGraph.toJSON(), "");
+            CallGraphUtils.writeToFile(this.output, revisionCallGraph, "");
         }
         return revisionCallGraph;
     }
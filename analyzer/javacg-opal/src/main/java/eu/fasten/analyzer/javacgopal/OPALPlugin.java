@@ -24,12 +24,14 @@ import eu.fasten.core.data.ExtendedRevisionCallGraph;
 import eu.fasten.core.plugins.KafkaPlugin;
 import java.io.File;
 import java.io.FileNotFoundException;
+import java.io.StringWriter;
 import java.util.ArrayList;
 import java.util.Collections;
 import java.util.List;
 import java.util.Optional;
 import org.json.JSONException;
 import org.json.JSONObject;
+import org.json.JSONWriter;
 import org.pf4j.Extension;
 import org.pf4j.Plugin;
 import org.pf4j.PluginWrapper;
@@ -117,7 +119,9 @@ public class OPALPlugin extends Plugin {
         @Override
         public Optional<String> produce() {
             if (this.graph != null) {
-                return Optional.of(graph.toJSON().toString());
+                final var json = new StringWriter();
+                graph.writeTo(new JSONWriter(json));
+                return Optional.of(json.toString());
             } else {
                 return Optional.empty();
             }
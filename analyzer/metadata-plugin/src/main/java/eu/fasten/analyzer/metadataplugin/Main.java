@@ -50,6 +50,14 @@ public class Main implements Runnable {
             defaultValue = "postgres")
     String dbUser;
 
+    @CommandLine.Option(names = {"-n", "--normalize_call_sites"},
+            description = "Store call sites in the call_sites table instead of edges metadata")
+    boolean normalizeCallSites;
+
+    @CommandLine.Option(names = {"-c", "--copy"},
+            description = "Load callables, edges and call sites with COPY instead of batch inserts")
+    boolean copyInserts;
+
     public static void main(String[] args) {
         final int exitCode = new CommandLine(new Main()).execute(args);
         System.exit(exitCode);
@@ -58,6 +66,12 @@ public class Main implements Runnable {
     @Override
     public void run() {
         var metadataPlugin = new MetadataDatabasePlugin.MetadataDBExtension();
+        if (normalizeCallSites) {
+            metadataPlugin.setNormalizeCallSites(true);
+        }
+        if (copyInserts) {
+            metadataPlugin.setCopyInserts(true);
+        }
         try {
             metadataPlugin.setDBConnection(PostgresConnector.getDSLContext(dbUrl, dbUser));
         } catch (IllegalArgumentException | SQLException e) {
@@ -19,13 +19,15 @@
 package eu.fasten.analyzer.metadataplugin;
 
 import eu.fasten.core.data.ExtendedRevisionCallGraph;
+import eu.fasten.core.data.metadatadb.CallableIdCache;
 import eu.fasten.core.data.metadatadb.MetadataDao;
 import eu.fasten.core.data.RevisionCallGraph;
 import eu.fasten.core.data.graphdb.GidGraph;
+import eu.fasten.core.data.metadatadb.codegen.enums.CallType;
+import eu.fasten.core.data.metadatadb.codegen.tables.records.CallSitesRecord;
 import eu.fasten.core.data.metadatadb.codegen.tables.records.CallablesRecord;
 import eu.fasten.core.data.metadatadb.codegen.tables.records.EdgesRecord;
-import eu.fasten.core.plugins.DBConnector;
-import eu.fasten.core.plugins.KafkaPlugin;
+import eu.fasten.core.plugins.PipelinedDBConnector;
 import java.io.File;
 import java.io.FileNotFoundException;
 import java.io.FileReader;
@@ -53,23 +55,51 @@ public class MetadataDatabasePlugin extends Plugin {
     }
 
     @Extension
-    public static class MetadataDBExtension implements KafkaPlugin, DBConnector {
+    public static class MetadataDBExtension
+            implements PipelinedDBConnector<MetadataDBExtension.PreparedCallGraph> {
 
         private String consumerTopic = "fasten.OPAL.out";
         private static DSLContext dslContext;
         private boolean processedRecord = false;
         private Throwable pluginError = null;
         private final Logger logger = LoggerFactory.getLogger(MetadataDBExtension.class.getName());
-        private boolean restartTransaction = false;
         private final int transactionRestartLimit = 3;
+        private static final int BATCH_SIZE = 4096;
         private GidGraph gidGraph = null;
         private String outputPath;
+        private final CallableIdCache callableIdCache = new CallableIdCache();
+        private boolean normalizeCallSites =
+                Boolean.parseBoolean(System.getenv("FASTEN_NORMALIZE_CALL_SITES"));
+        private boolean copyInserts =
+                Boolean.parseBoolean(System.getenv("FASTEN_COPY_INSERTS"));
 
         @Override
         public void setDBConnection(DSLContext dslContext) {
             MetadataDBExtension.dslContext = dslContext;
         }
 
+        /**
+         * Sets whether call sites of callgraphs of the new format are stored in the 'call_sites'
+         * table, rather than as metadata of their edges. Defaults to the value of the
+         * FASTEN_NORMALIZE_CALL_SITES environment variable.
+         *
+         * @param normalizeCallSites true to store call sites in their own table
+         */
+        public void setNormalizeCallSites(boolean normalizeCallSites) {
+            this.normalizeCallSites = normalizeCallSites;
+        }
+
+        /**
+         * Sets whether internal callables, edges and call sites are loaded with the PostgreSQL
+         * COPY command, rather than inserted in batches. Defaults to the value of the
+         * FASTEN_COPY_INSERTS environment variable.
+         *
+         * @param copyInserts true to load rows with COPY
+         */
+        public void setCopyInserts(boolean copyInserts) {
+            this.copyInserts = copyInserts;
+        }
+
         @Override
         public Optional<List<String>> consumeTopic() {
             return Optional.of(Collections.singletonList(consumerTopic));
@@ -83,187 +113,135 @@ public class MetadataDatabasePlugin extends Plugin {
         @Override
         public void consume(String record) {
             this.processedRecord = false;
-            this.restartTransaction = false;
             this.pluginError = null;
+            final PreparedCallGraph callgraph;
+            try {
+                callgraph = prepare(record);
+            } catch (JSONException | IOException e) {
+                processedRecord = false;
+                setPluginError(e);
+                return;
+            }
+            outputPath = callgraph.outputPath;
+            try {
+                gidGraph = saveInTransaction(callgraph, dslContext);
+                processedRecord = true;
+            } catch (RuntimeException e) {
+                processedRecord = false;
+                setPluginError(e);
+            }
+        }
+
+        /**
+         * Parses a consumed callgraph record, of the old or of the new format.
+         *
+         * @param record consumed record
+         * @return the parsed callgraph
+         * @throws JSONException if the callgraph cannot be parsed
+         * @throws IOException   if the callgraph cannot be read from its path
+         */
+        @Override
+        public PreparedCallGraph prepare(String record) throws JSONException, IOException {
             var consumedJson = new JSONObject(record);
             if (consumedJson.has("payload")) {
                 consumedJson = consumedJson.getJSONObject("payload");
             }
             final var path = consumedJson.optString("dir");
-            if (consumedJson.has("depset")) {
-                consumeOldFormat(consumedJson, path);
-            } else {
-                consumeNewFormat(consumedJson, path);
+            try {
+                if (consumedJson.has("depset")) {
+                    return new PreparedCallGraph(readOldFormat(consumedJson, path));
+                } else {
+                    return new PreparedCallGraph(readNewFormat(consumedJson, path));
+                }
+            } catch (JSONException | IOException e) {
+                logger.error("Error parsing JSON callgraph " + (path.isEmpty() ? "" : "from path ")
+                        + "for '" + Paths.get(path).getFileName() + "'", e);
+                throw e;
             }
         }
 
         /**
-         * Consumes callgraph record of the old format.
+         * Reads callgraph record of the old format.
          *
          * @param consumedJson JSON of the consumed record
          * @param path         Path where the record is stored
+         * @return the callgraph
          */
-        private void consumeOldFormat(JSONObject consumedJson, String path) {
-            final RevisionCallGraph callgraph;
+        private RevisionCallGraph readOldFormat(JSONObject consumedJson, String path)
+                throws FileNotFoundException {
             if (!path.isEmpty()) {
-                try {
-                    JSONTokener tokener = new JSONTokener(new FileReader(path));
-                    callgraph = new RevisionCallGraph(new JSONObject(tokener));
-                } catch (JSONException | FileNotFoundException e) {
-                    logger.error("Error parsing JSON callgraph from path for '"
-                            + Paths.get(path).getFileName() + "'", e);
-                    processedRecord = false;
-                    setPluginError(e);
-                    return;
-                }
+                JSONTokener tokener = new JSONTokener(new FileReader(path));
+                return new RevisionCallGraph(new JSONObject(tokener));
             } else {
-                try {
-                    callgraph = new RevisionCallGraph(consumedJson);
-                } catch (JSONException e) {
-                    logger.error("Error parsing JSON callgraph for '"
-                            + Paths.get(path).getFileName() + "'", e);
-                    processedRecord = false;
-                    setPluginError(e);
-                    return;
-                }
+                return new RevisionCallGraph(consumedJson);
             }
-            final var artifact = callgraph.product + "@" + callgraph.version;
-            final String groupId;
-            final String artifactId;
-            if (callgraph.product.contains(":")) {
-                groupId = callgraph.product.split(":")[0];
-                artifactId = callgraph.product.split(":")[1];
-            } else {
-                final var productParts = callgraph.product.split("\\.");
-                groupId = String.join(".", Arrays.copyOf(productParts, productParts.length - 1));
-                artifactId = productParts[productParts.length - 1];
-            }
-            var version = callgraph.version;
-            var forge = callgraph.forge;
-            var product = artifactId + "_" + groupId + "_" + version;
-            var firstLetter = artifactId.substring(0, 1);
-            outputPath = File.separator + forge + File.separator
-                    + firstLetter + File.separator
-                    + artifactId + File.separator + product + ".json";
-            int transactionRestartCount = 0;
-            do {
-                try {
-                    var metadataDao = new MetadataDao(dslContext);
-                    dslContext.transaction(transaction -> {
-                        metadataDao.setContext(DSL.using(transaction));
-                        long id;
-                        try {
-                            id = saveToDatabaseOldFormat(callgraph, metadataDao);
-                        } catch (RuntimeException e) {
-                            logger.error("Error saving to the database: '" + artifact + "'", e);
-                            processedRecord = false;
-                            setPluginError(e);
-                            if (e instanceof DataAccessException) {
-                                logger.info("Restarting transaction for '" + artifact + "'");
-                                restartTransaction = true;
-                            } else {
-                                restartTransaction = false;
-                            }
-                            throw e;
-                        }
-                        if (getPluginError() == null) {
-                            processedRecord = true;
-                            restartTransaction = false;
-                            logger.info("Saved the '" + artifact + "' callgraph metadata "
-                                    + "to the database with package version ID = " + id);
-                        }
-                    });
-                } catch (Exception expected) {
-                }
-                transactionRestartCount++;
-            } while (restartTransaction && !processedRecord
-                    && transactionRestartCount < transactionRestartLimit);
         }
 
         /**
-         * Consumes callgraph record of the new format.
+         * Reads callgraph record of the new format.
          *
          * @param consumedJson JSON of the consumed record
          * @param path         Path where the record is stored
+         * @return the callgraph
          */
-        private void consumeNewFormat(JSONObject consumedJson, String path) {
-            final ExtendedRevisionCallGraph callgraph;
+        private ExtendedRevisionCallGraph readNewFormat(JSONObject consumedJson, String path)
+                throws IOException {
             if (!path.isEmpty()) {
-                try {
-                    JSONTokener tokener = new JSONTokener(new FileReader(path));
-                    callgraph = new ExtendedRevisionCallGraph(new JSONObject(tokener));
-                } catch (JSONException | IOException e) {
-                    logger.error("Error parsing JSON callgraph from path for '"
-                            + Paths.get(path).getFileName() + "'", e);
-                    processedRecord = false;
-                    setPluginError(e);
-                    return;
+                try (var reader = new FileReader(path)) {
+                    return ExtendedRevisionCallGraph.read(reader);
                 }
             } else {
-                try {
-                    callgraph = new ExtendedRevisionCallGraph(consumedJson);
-                } catch (JSONException e) {
-                    logger.error("Error parsing JSON callgraph for '"
-                            + Paths.get(path).getFileName() + "'", e);
-                    processedRecord = false;
-                    setPluginError(e);
-                    return;
-                }
-            }
-            final var artifact = callgraph.product + "@" + callgraph.version;
-            final String groupId;
-            final String artifactId;
-            if (callgraph.product.contains(":")) {
-                groupId = callgraph.product.split(":")[0];
-                artifactId = callgraph.product.split(":")[1];
-            } else {
-                final var productParts = callgraph.product.split("\\.");
-                groupId = String.join(".", Arrays.copyOf(productParts, productParts.length - 1));
-                artifactId = productParts[productParts.length - 1];
+                return new ExtendedRevisionCallGraph(consumedJson);
             }
-            var version = callgraph.version;
-            var forge = callgraph.forge;
-            var product = artifactId + "_" + groupId + "_" + version;
+        }
 
-            var firstLetter = artifactId.substring(0, 1);
+        @Override
+        public Optional<String> write(PreparedCallGraph prepared, DSLContext dslContext) {
+            return Optional.of(saveInTransaction(prepared, dslContext).toJSONString());
+        }
 
-            outputPath = File.separator + forge + File.separator
-                    + firstLetter + File.separator
-                    + artifactId + File.separator + product + ".json";
+        @Override
+        public String getOutputPath(PreparedCallGraph prepared) {
+            return prepared.outputPath;
+        }
 
+        /**
+         * Saves a callgraph to the database in a transaction, restarting the transaction
+         * up to {@code transactionRestartLimit} times in case of database errors.
+         *
+         * @param callgraph  Callgraph to save
+         * @param dslContext DSL context used for the transaction
+         * @return the graph of GIDs of the callgraph
+         * @throws RuntimeException if the callgraph could not be saved
+         */
+        private GidGraph saveInTransaction(PreparedCallGraph callgraph, DSLContext dslContext) {
             int transactionRestartCount = 0;
-            do {
+            while (true) {
                 try {
                     var metadataDao = new MetadataDao(dslContext);
-                    dslContext.transaction(transaction -> {
+                    var graph = dslContext.transactionResult(transaction -> {
                         metadataDao.setContext(DSL.using(transaction));
-                        long id;
-                        try {
-                            id = saveToDatabaseNewFormat(callgraph, metadataDao);
-                        } catch (RuntimeException e) {
-                            logger.error("Error saving to the database: '" + artifact + "'", e);
-                            processedRecord = false;
-                            setPluginError(e);
-                            if (e instanceof DataAccessException) {
-                                logger.info("Restarting transaction for '" + artifact + "'");
-                                restartTransaction = true;
-                            } else {
-                                restartTransaction = false;
-                            }
-                            throw e;
-                        }
-                        if (getPluginError() == null) {
-                            processedRecord = true;
-                            restartTransaction = false;
-                            logger.info("Saved the '" + artifact + "' callgraph metadata "
-                                    + "to the database with package version ID = " + id);
+                        if (callgraph.oldFormat != null) {
+                            return insertOldFormat(callgraph.oldFormat, metadataDao);
+                        } else {
+                            return insertNewFormat(callgraph.newFormat, metadataDao);
                         }
                     });
-                } catch (Exception expected) {
+                    callableIdCache.commit();
+                    logger.info("Saved the '" + callgraph.artifact + "' callgraph metadata "
+                            + "to the database with package version ID = " + graph.getIndex());
+                    return graph;
+                } catch (RuntimeException e) {
+                    callableIdCache.rollback();
+                    logger.error("Error saving to the database: '" + callgraph.artifact + "'", e);
+                    transactionRestartCount++;
+                    if (!(e instanceof DataAccessException)
+                            || transactionRestartCount >= transactionRestartLimit) {
+                        throw e;
+                    }
+                    logger.info("Restarting transaction for '" + callgraph.artifact + "'");
                 }
-                transactionRestartCount++;
-            } while (restartTransaction && !processedRecord
-                    && transactionRestartCount < transactionRestartLimit);
+            }
         }
 
         @Override
@@ -288,6 +266,18 @@ public class MetadataDatabasePlugin extends Plugin {
          * @return Package ID saved in the database
          */
         public long saveToDatabaseOldFormat(RevisionCallGraph callGraph, MetadataDao metadataDao) {
+            this.gidGraph = insertOldFormat(callGraph, metadataDao);
+            return gidGraph.getIndex();
+        }
+
+        /**
+         * Inserts a callgraph of old format in the database.
+         *
+         * @param callGraph   Call graph to save to the database.
+         * @param metadataDao Data Access Object to insert records in the database
+         * @return the graph of GIDs of the callgraph, whose index is the package version ID
+         */
+        private GidGraph insertOldFormat(RevisionCallGraph callGraph, MetadataDao metadataDao) {
             final var timestamp = this.getProperTimestamp(callGraph.timestamp);
             final long packageId = metadataDao.insertPackage(callGraph.product, callGraph.forge,
                     null, null, null);
@@ -346,27 +336,28 @@ public class MetadataDatabasePlugin extends Plugin {
             var nodes = new LinkedList<Long>();
             final var externalCalls = graph.getExternalCalls();
             var externalEdges = new ArrayList<EdgesRecord>(graph.getExternalCalls().size());
-            for (var callEntry : externalCalls.entrySet()) {
-                var call = callEntry.getKey();
-                var sourceLocalId = (long) call.getKey();
-                var uri = call.getValue().toString();
-                var targetId = metadataDao.insertCallable(-1L, uri, false, null, null);
-                nodes.add(targetId);
-                var edgeMetadata = new JSONObject(callEntry.getValue());
-                externalEdges.add(new EdgesRecord(sourceLocalId, targetId,
-                        JSONB.valueOf(edgeMetadata.toString())));
-            }
-            final int batchSize = 4096;
-            var internalCallablesIds = new ArrayList<Long>(internalCallables.size());
-            final var internalCallablesIterator = internalCallables.iterator();
-            while (internalCallablesIterator.hasNext()) {
-                var callablesBatch = new ArrayList<CallablesRecord>(batchSize);
-                while (internalCallablesIterator.hasNext() && callablesBatch.size() < batchSize) {
-                    callablesBatch.add(internalCallablesIterator.next());
+            final var externalCallsIterator = externalCalls.entrySet().iterator();
+            while (externalCallsIterator.hasNext()) {
+                var callsBatch = new ArrayList<EdgesRecord>(BATCH_SIZE);
+                var urisBatch = new ArrayList<String>(BATCH_SIZE);
+                while (externalCallsIterator.hasNext() && urisBatch.size() < BATCH_SIZE) {
+                    var callEntry = externalCallsIterator.next();
+                    var call = callEntry.getKey();
+                    var sourceLocalId = (long) call.getKey();
+                    var edgeMetadata = new JSONObject(callEntry.getValue());
+                    callsBatch.add(new EdgesRecord(sourceLocalId, null,
+                            JSONB.valueOf(edgeMetadata.toString())));
+                    urisBatch.add(call.getValue().toString());
+                }
+                var targetIds = metadataDao.insertExternalCallables(urisBatch,
+                        Collections.nCopies(urisBatch.size(), null), callableIdCache);
+                for (int i = 0; i < callsBatch.size(); i++) {
+                    callsBatch.get(i).setTargetId(targetIds.get(i));
                 }
-                var ids = metadataDao.batchInsertCallables(callablesBatch);
-                internalCallablesIds.addAll(ids);
+                nodes.addAll(targetIds);
+                externalEdges.addAll(callsBatch);
             }
+            var internalCallablesIds = insertCallables(metadataDao, internalCallables);
             for (var internalId : internalCallablesIds) {
                 nodes.addFirst(internalId);
             }
@@ -385,17 +376,9 @@ public class MetadataDatabasePlugin extends Plugin {
             var edges = new ArrayList<EdgesRecord>(graph.size());
             edges.addAll(internalEdges);
             edges.addAll(externalEdges);
-            final var edgesIterator = edges.iterator();
-            while (edgesIterator.hasNext()) {
-                var edgesBatch = new ArrayList<EdgesRecord>(batchSize);
-                while (edgesIterator.hasNext() && edgesBatch.size() < batchSize) {
-                    edgesBatch.add(edgesIterator.next());
-                }
-                metadataDao.batchInsertEdges(edgesBatch);
-            }
-            this.gidGraph = new GidGraph(packageVersionId, callGraph.product, callGraph.version,
+            insertEdges(metadataDao, edges);
+            return new GidGraph(packageVersionId, callGraph.product, callGraph.version,
                     nodes, internalCallablesIds.size(), edges);
-            return packageVersionId;
         }
 
         /**
@@ -407,6 +390,19 @@ public class MetadataDatabasePlugin extends Plugin {
          */
         public long saveToDatabaseNewFormat(ExtendedRevisionCallGraph callGraph,
                                             MetadataDao metadataDao) {
+            this.gidGraph = insertNewFormat(callGraph, metadataDao);
+            return gidGraph.getIndex();
+        }
+
+        /**
+         * Inserts a callgraph of new format in the database.
+         *
+         * @param callGraph   Call graph to save to the database.
+         * @param metadataDao Data Access Object to insert records in the database
+         * @return the graph of GIDs of the callgraph, whose index is the package version ID
+         */
+        private GidGraph insertNewFormat(ExtendedRevisionCallGraph callGraph,
+                                         MetadataDao metadataDao) {
             final var timestamp = this.getProperTimestamp(callGraph.timestamp);
             final long packageId = metadataDao.insertPackage(callGraph.product, callGraph.forge,
                     null, null, null);
@@ -415,6 +411,7 @@ public class MetadataDatabasePlugin extends Plugin {
             var cha = callGraph.getClassHierarchy();
             var internalTypes = cha.get(ExtendedRevisionCallGraph.Scope.internalTypes);
             var callables = new ArrayList<CallablesRecord>();
+            var moduleIds = new HashMap<String, Long>();
             for (var fastenUri : internalTypes.keySet()) {
                 var type = internalTypes.get(fastenUri);
                 var moduleMetadata = new JSONObject();
@@ -426,6 +423,7 @@ public class MetadataDatabasePlugin extends Plugin {
                 moduleMetadata.put("final", type.isFinal());
                 long moduleId = metadataDao.insertModule(packageVersionId, fastenUri.toString(),
                         null, moduleMetadata);
+                moduleIds.put(fastenUri.toString(), moduleId);
                 var fileName = type.getSourceFileName();
                 var fileId = metadataDao.insertFile(packageVersionId, fileName, null, null, null);
                 metadataDao.insertModuleContent(moduleId, fileId);
@@ -450,6 +448,7 @@ public class MetadataDatabasePlugin extends Plugin {
                 moduleMetadata.put("final", type.isFinal());
                 long moduleId = metadataDao.insertModule(packageVersionId, fastenUri.toString(),
                         null, moduleMetadata);
+                moduleIds.put(fastenUri.toString(), moduleId);
                 var fileName = type.getSourceFileName();
                 var fileId = metadataDao.insertFile(packageVersionId, fileName, null, null, null);
                 metadataDao.insertModuleContent(moduleId, fileId);
@@ -461,15 +460,20 @@ public class MetadataDatabasePlugin extends Plugin {
                             null, JSONB.valueOf(callableMetadata.toString())));
                 }
             }
-            final int batchSize = 4096;
             var callablesIds = new ArrayList<Long>(callables.size());
-            final var callablesIterator = callables.iterator();
-            while (callablesIterator.hasNext()) {
-                var callablesBatch = new ArrayList<CallablesRecord>(batchSize);
-                while (callablesIterator.hasNext() && callablesBatch.size() < batchSize) {
-                    callablesBatch.add(callablesIterator.next());
+            callablesIds.addAll(insertCallables(metadataDao, callables.subList(0, numInternal)));
+            final var externalCallablesIterator = callables.subList(numInternal, callables.size())
+                    .iterator();
+            while (externalCallablesIterator.hasNext()) {
+                var urisBatch = new ArrayList<String>(BATCH_SIZE);
+                var metadataBatch = new ArrayList<JSONB>(BATCH_SIZE);
+                while (externalCallablesIterator.hasNext() && urisBatch.size() < BATCH_SIZE) {
+                    var callable = externalCallablesIterator.next();
+                    urisBatch.add(callable.getFastenUri());
+                    metadataBatch.add(callable.getMetadata());
                 }
-                var ids = metadataDao.batchInsertCallables(callablesBatch);
+                var ids = metadataDao.insertExternalCallables(urisBatch, metadataBatch,
+                        callableIdCache);
                 callablesIds.addAll(ids);
             }
             var lidToGidMap = new HashMap<Long, Long>();
@@ -481,6 +485,29 @@ public class MetadataDatabasePlugin extends Plugin {
             var graphCalls = graph.getInternalCalls();
             graphCalls.putAll(graph.getExternalCalls());
             var edges = new ArrayList<EdgesRecord>(numEdges);
+            if (normalizeCallSites) {
+                var callSites = new ArrayList<CallSitesRecord>(numEdges);
+                for (var edgeEntry : graphCalls.entrySet()) {
+                    var globalSource = lidToGidMap.get((long) edgeEntry.getKey().get(0));
+                    var globalTarget = lidToGidMap.get((long) edgeEntry.getKey().get(1));
+                    edges.add(new EdgesRecord(globalSource, globalTarget, JSONB.valueOf("{}")));
+                    for (var callSiteEntry : edgeEntry.getValue().entrySet()) {
+                        var callSite = (Map<String, Object>) callSiteEntry.getValue();
+                        // Receivers are resolved to the modules of the class hierarchy only;
+                        // unknown receivers are stored as NULL
+                        var receiver = (String) callSite.get("receiver");
+                        var receiverId = receiver == null ? null : moduleIds.get(receiver);
+                        var line = callSite.get("line");
+                        callSites.add(new CallSitesRecord(globalSource, globalTarget,
+                                Integer.parseInt(callSiteEntry.getKey().toString()),
+                                line == null ? null : Integer.parseInt(line.toString()),
+                                getCallType((String) callSite.get("type")), receiverId));
+                    }
+                }
+                insertEdgesWithCallSites(metadataDao, edges, callSites);
+                return new GidGraph(packageVersionId, callGraph.product, callGraph.version,
+                        callablesIds, numInternal, edges);
+            }
             for (var edgeEntry : graphCalls.entrySet()) {
                 var localSource = (long) edgeEntry.getKey().get(0);
                 var localTarget = (long) edgeEntry.getKey().get(1);
@@ -500,17 +527,120 @@ public class MetadataDatabasePlugin extends Plugin {
                 edges.add(new EdgesRecord(globalSource, globalTarget,
                         JSONB.valueOf(metadata.toString())));
             }
-            final var edgesIterator = edges.iterator();
-            while (edgesIterator.hasNext()) {
-                var edgesBatch = new ArrayList<EdgesRecord>(batchSize);
-                while (edgesIterator.hasNext() && edgesBatch.size() < batchSize) {
-                    edgesBatch.add(edgesIterator.next());
+            insertEdges(metadataDao, edges);
+            return new GidGraph(packageVersionId, callGraph.product, callGraph.version,
+                    callablesIds, numInternal, edges);
+        }
+
+        /**
+         * A consumed callgraph, of the old or of the new format, ready to be saved.
+         */
+        public static class PreparedCallGraph {
+
+            private final RevisionCallGraph oldFormat;
+            private final ExtendedRevisionCallGraph newFormat;
+            private final String artifact;
+            private final String outputPath;
+
+            private PreparedCallGraph(RevisionCallGraph callgraph) {
+                this.oldFormat = callgraph;
+                this.newFormat = null;
+                this.artifact = callgraph.product + "@" + callgraph.version;
+                this.outputPath = outputPath(callgraph.forge, callgraph.product, callgraph.version);
+            }
+
+            private PreparedCallGraph(ExtendedRevisionCallGraph callgraph) {
+                this.oldFormat = null;
+                this.newFormat = callgraph;
+                this.artifact = callgraph.product + "@" + callgraph.version;
+                this.outputPath = outputPath(callgraph.forge, callgraph.product, callgraph.version);
+            }
+
+            private static String outputPath(String forge, String product, String version) {
+                final String groupId;
+                final String artifactId;
+                if (product.contains(":")) {
+                    groupId = product.split(":")[0];
+                    artifactId = product.split(":")[1];
+                } else {
+                    final var productParts = product.split("\\.");
+                    groupId = String.join(".", Arrays.copyOf(productParts, productParts.length - 1));
+                    artifactId = productParts[productParts.length - 1];
                 }
-                metadataDao.batchInsertEdges(edgesBatch);
+                var fileName = artifactId + "_" + groupId + "_" + version;
+                var firstLetter = artifactId.substring(0, 1);
+                return File.separator + forge + File.separator
+                        + firstLetter + File.separator
+                        + artifactId + File.separator + fileName + ".json";
             }
-            this.gidGraph = new GidGraph(packageVersionId, callGraph.product, callGraph.version,
-                    callablesIds, numInternal, edges);
-            return packageVersionId;
+        }
+
+        /**
+         * Inserts callables in the 'callables' table, in batches unless COPY is enabled.
+         *
+         * @return the IDs of the callables, in the same order
+         */
+        private List<Long> insertCallables(MetadataDao metadataDao,
+                                           List<CallablesRecord> callables) {
+            if (copyInserts) {
+                return metadataDao.bulkInsertCallables(callables);
+            }
+            var ids = new ArrayList<Long>(callables.size());
+            for (int from = 0; from < callables.size(); from += BATCH_SIZE) {
+                ids.addAll(metadataDao.batchInsertCallables(callables.subList(from,
+                        Math.min(from + BATCH_SIZE, callables.size()))));
+            }
+            return ids;
+        }
+
+        /**
+         * Inserts edges in the 'edges' table, in batches unless COPY is enabled.
+         */
+        private void insertEdges(MetadataDao metadataDao, List<EdgesRecord> edges) {
+            if (copyInserts) {
+                metadataDao.bulkInsertEdges(edges);
+                return;
+            }
+            for (int from = 0; from < edges.size(); from += BATCH_SIZE) {
+                metadataDao.batchInsertEdges(edges.subList(from,
+                        Math.min(from + BATCH_SIZE, edges.size())));
+            }
+        }
+
+        /**
+         * Inserts edges with empty metadata in the 'edges' table and their call sites in the
+         * 'call_sites' table, in batches unless COPY is enabled.
+         */
+        private void insertEdgesWithCallSites(MetadataDao metadataDao, List<EdgesRecord> edges,
+                                              List<CallSitesRecord> callSites) {
+            if (copyInserts) {
+                metadataDao.bulkInsertEdgesWithCallSites(edges, callSites);
+                return;
+            }
+            insertEdges(metadataDao, edges);
+            for (int from = 0; from < callSites.size(); from += BATCH_SIZE) {
+                metadataDao.batchInsertCallSites(callSites.subList(from,
+                        Math.min(from + BATCH_SIZE, callSites.size())));
+            }
+        }
+
+        /**
+         * Returns the call type of an invocation instruction.
+         *
+         * @param instruction mnemonic of the instruction, e.g. "invokevirtual"
+         * @return the call type, or null if the instruction is unknown
+         */
+        private static CallType getCallType(String instruction) {
+            if (instruction == null || !instruction.startsWith("invoke")) {
+                return null;
+            }
+            var literal = instruction.substring("invoke".length());
+            for (var callType : CallType.values()) {
+                if (callType.getLiteral().equals(literal)) {
+                    return callType;
+                }
+            }
+            return null;
         }
 
         private Timestamp getProperTimestamp(long timestamp) {
@@ -0,0 +1,262 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package eu.fasten.analyzer.metadataplugin;
+
+import eu.fasten.server.connectors.PostgresConnector;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.List;
+import org.jooq.DSLContext;
+import org.jooq.impl.DSL;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import picocli.CommandLine;
+
+/**
+ * Migrates the 'callables', 'edges' and 'call_sites' tables of a metadata database to
+ * partitioned tables.
+ *
+ * <p>Callables are partitioned by module, which leads their unique key {@code unique_uri_call}
+ * (a partitioning column must be part of it) and is what the callables of a package version are
+ * looked up by. External callables all share module -1 and are looked up by FASTEN URI instead,
+ * so they are range-partitioned apart from internal callables, and each group is then
+ * hash-partitioned by the column it is looked up by: internal callables by module, external
+ * ones by FASTEN URI. The trade-off is that lookups of callables by ID alone, e.g. to resolve
+ * the ends of edges, scan the ID index of every partition. Edges and call sites are
+ * partitioned by source callable, so that the edges of a callable are in a single partition.
+ * Tables and constraints keep their names, so {@code MetadataDao} works unchanged on both
+ * schemas, PostgreSQL routing rows to partitions. Since IDs of callables cannot be unique
+ * across partitions, the partitioned tables have no foreign keys to callables.
+ *
+ * <p>The migration renames the existing tables with an '_unpartitioned' suffix, creates the
+ * partitioned tables, and copies rows in batches of consecutive IDs, each in its own
+ * transaction. Copies ignore rows already present, so an interrupted migration can be run
+ * again. It works on an empty database as well, which makes it the way to opt into the
+ * partitioned schema after running metadata_db_init.sql. Requires PostgreSQL 11 or later.
+ */
+@CommandLine.Command(name = "PartitionedSchemaMigration")
+public class PartitionedSchemaMigration implements Runnable {
+
+    private static final Logger logger = LoggerFactory.getLogger(PartitionedSchemaMigration.class);
+
+    private static final String SUFFIX = "_unpartitioned";
+    private static final String CREATE_CALL_TYPE = "CREATE TYPE call_type AS ENUM "
+            + "('static', 'dynamic', 'virtual', 'interface', 'special')";
+
+    @CommandLine.Option(names = {"-d", "--database"},
+            paramLabel = "DB_URL",
+            description = "Database URL for connection",
+            defaultValue = "jdbc:postgresql:postgres")
+    String dbUrl;
+
+    @CommandLine.Option(names = {"-u", "--user"},
+            paramLabel = "DB_USER",
+            description = "Database user name",
+            defaultValue = "postgres")
+    String dbUser;
+
+    @CommandLine.Option(names = {"-p", "--partitions"},
+            paramLabel = "PARTITIONS",
+            description = "Number of partitions of each table",
+            defaultValue = "16")
+    int partitions;
+
+    @CommandLine.Option(names = {"-b", "--batch_size"},
+            paramLabel = "IDS",
+            description = "Number of consecutive IDs copied in each transaction",
+            defaultValue = "100000")
+    long batchSize;
+
+    @CommandLine.Option(names = {"--drop"},
+            description = "Drop the unpartitioned tables once their rows have been copied")
+    boolean drop;
+
+    @CommandLine.Option(names = {"--print"},
+            description = "Print the DDL of the partitioned tables without connecting")
+    boolean print;
+
+    public static void main(String[] args) {
+        final int exitCode = new CommandLine(new PartitionedSchemaMigration()).execute(args);
+        System.exit(exitCode);
+    }
+
+    @Override
+    public void run() {
+        if (partitions <= 0 || batchSize <= 0) {
+            logger.error("The number of partitions and the batch size must be positive");
+            return;
+        }
+        if (print) {
+            partitionedSchema(partitions).forEach(s -> System.out.println(s + ";\n"));
+            return;
+        }
+        final DSLContext context;
+        try {
+            context = PostgresConnector.getDSLContext(dbUrl, dbUser);
+        } catch (IllegalArgumentException | SQLException e) {
+            logger.error("Could not connect to the database", e);
+            return;
+        }
+        if (!exists(context, "callables" + SUFFIX)) {
+            var hasCallSites = exists(context, "call_sites");
+            var hasCallType = context.fetchValue("SELECT to_regtype('call_type')") != null;
+            context.transaction(transaction -> {
+                var ctx = DSL.using(transaction);
+                if (!hasCallType) {
+                    ctx.execute(CREATE_CALL_TYPE);
+                }
+                for (var statement : renameUnpartitioned(hasCallSites)) {
+                    ctx.execute(statement);
+                }
+                for (var statement : partitionedSchema(partitions)) {
+                    ctx.execute(statement);
+                }
+            });
+            logger.info("Created partitioned tables with {} partitions", partitions);
+        } else {
+            logger.info("Partitioned tables already exist, resuming the copy");
+        }
+        copy(context, "callables", "id",
+                "id, module_id, fasten_uri, is_internal_call, created_at, metadata");
+        copy(context, "edges", "source_id", "source_id, target_id, metadata");
+        if (exists(context, "call_sites" + SUFFIX)) {
+            copy(context, "call_sites", "source_id",
+                    "source_id, target_id, pc, line, call_type, receiver_id");
+        }
+        if (drop) {
+            context.transaction(transaction -> {
+                var ctx = DSL.using(transaction);
+                ctx.execute("DROP TABLE IF EXISTS call_sites" + SUFFIX);
+                ctx.execute("DROP TABLE edges" + SUFFIX);
+                ctx.execute("DROP TABLE callables" + SUFFIX);
+                ctx.execute("ALTER SEQUENCE callables_id_seq OWNED BY callables.id");
+            });
+            logger.info("Dropped unpartitioned tables");
+        }
+        for (var table : List.of("callables", "edges", "call_sites")) {
+            context.execute("ANALYZE " + table);
+        }
+        logger.info("Migration completed");
+    }
+
+    /**
+     * Copies the rows of an unpartitioned table to the partitioned one, in batches of
+     * consecutive values of a column.
+     */
+    private void copy(DSLContext context, String table, String column, String columns) {
+        var bounds = context.fetchOne("SELECT min(" + column + "), max(" + column + ") FROM "
+                + table + SUFFIX);
+        if (bounds.get(0) == null) {
+            return;
+        }
+        final long min = ((Number) bounds.get(0)).longValue();
+        final long max = ((Number) bounds.get(1)).longValue();
+        long copied = 0;
+        for (long from = min; from <= max; from += batchSize) {
+            copied += context.execute("INSERT INTO " + table + " (" + columns + ") SELECT "
+                    + columns + " FROM " + table + SUFFIX + " WHERE " + column + " >= ? AND "
+                    + column + " < ? ON CONFLICT DO NOTHING", from, from + batchSize);
+            logger.info("Copied {} rows of '{}' ({} / {})", copied, table,
+                    Math.min(from + batchSize - 1, max), max);
+        }
+    }
+
+    private static boolean exists(DSLContext context, String table) {
+        return context.fetchValue("SELECT to_regclass(?)", table) != null;
+    }
+
+    /**
+     * Returns the statements moving the unpartitioned tables, and the names of their
+     * constraints and indexes, out of the way.
+     *
+     * @param hasCallSites whether the database has a 'call_sites' table
+     * @return list of SQL statements
+     */
+    static List<String> renameUnpartitioned(boolean hasCallSites) {
+        var statements = new ArrayList<String>();
+        var tables = hasCallSites ? List.of("callables", "edges", "call_sites")
+                : List.of("callables", "edges");
+        for (var table : tables) {
+            statements.add("ALTER TABLE " + table + " RENAME TO " + table + SUFFIX);
+        }
+        for (var index : List.of("callables_pkey", "unique_uri_call", "unique_source_target",
+                "unique_source_target_pc", "callables_module_id", "edges_source_id",
+                "edges_target_id")) {
+            statements.add("ALTER INDEX IF EXISTS " + index + " RENAME TO " + index + SUFFIX);
+        }
+        // Keep the sequence of IDs when the unpartitioned table is dropped
+        statements.add("ALTER SEQUENCE callables_id_seq OWNED BY NONE");
+        return statements;
+    }
+
+    /**
+     * Returns the DDL of the partitioned 'callables', 'edges' and 'call_sites' tables.
+     *
+     * @param partitions number of partitions of each table, and of internal and external
+     *                   callables each
+     * @return list of SQL statements
+     */
+    static List<String> partitionedSchema(int partitions) {
+        var statements = new ArrayList<String>();
+        statements.add("CREATE TABLE callables\n"
+                + "(\n"
+                + "    id               BIGINT  NOT NULL DEFAULT nextval('callables_id_seq'),\n"
+                + "    module_id        BIGINT  NOT NULL REFERENCES modules (id),\n"
+                + "    fasten_uri       TEXT    NOT NULL,\n"
+                + "    is_internal_call BOOLEAN NOT NULL,\n"
+                + "    created_at       TIMESTAMP,\n"
+                + "    metadata         JSONB,\n"
+                + "    CONSTRAINT unique_uri_call UNIQUE (module_id, fasten_uri, is_internal_call),\n"
+                + "    CONSTRAINT check_module_id CHECK ((module_id = -1 AND is_internal_call IS false) OR\n"
+                + "                                      (module_id IS NOT NULL AND is_internal_call IS true))\n"
+                + ") PARTITION BY RANGE (module_id)");
+        statements.add("CREATE TABLE callables_external PARTITION OF callables\n"
+                + "    FOR VALUES FROM (MINVALUE) TO (0) PARTITION BY HASH (fasten_uri)");
+        statements.add("CREATE TABLE callables_internal PARTITION OF callables\n"
+                + "    FOR VALUES FROM (0) TO (MAXVALUE) PARTITION BY HASH (module_id)");
+        statements.add("CREATE TABLE edges\n"
+                + "(\n"
+                + "    source_id BIGINT NOT NULL,\n"
+                + "    target_id BIGINT NOT NULL,\n"
+                + "    metadata  JSONB  NOT NULL,\n"
+                + "    CONSTRAINT unique_source_target UNIQUE (source_id, target_id)\n"
+                + ") PARTITION BY HASH (source_id)");
+        statements.add("CREATE TABLE call_sites\n"
+                + "(\n"
+                + "    source_id   BIGINT  NOT NULL,\n"
+                + "    target_id   BIGINT  NOT NULL,\n"
+                + "    pc          INTEGER NOT NULL,\n"
+                + "    line        INTEGER,\n"
+                + "    call_type   call_type,\n"
+                + "    receiver_id BIGINT REFERENCES modules (id),\n"
+                + "    CONSTRAINT unique_source_target_pc UNIQUE (source_id, target_id, pc)\n"
+                + ") PARTITION BY HASH (source_id)");
+        for (var table : List.of("callables_external", "callables_internal", "edges",
+                "call_sites")) {
+            for (int i = 0; i < partitions; i++) {
+                statements.add("CREATE TABLE " + table + "_" + i + " PARTITION OF " + table
+                        + " FOR VALUES WITH (MODULUS " + partitions + ", REMAINDER " + i + ")");
+            }
+        }
+        statements.add("CREATE INDEX callables_id ON callables USING btree (id)");
+        statements.add("CREATE INDEX callables_module_id ON callables USING btree (module_id)");
+        statements.add("CREATE INDEX edges_target_id ON edges USING btree (target_id)");
+        return statements;
+    }
+}
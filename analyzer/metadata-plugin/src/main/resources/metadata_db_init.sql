@@ -83,6 +83,22 @@ CREATE TABLE edges
     metadata  JSONB  NOT NULL
 );
 
+-- Call sites of edges, filled instead of edges.metadata when call sites are normalized
+CREATE TYPE call_type AS ENUM ('static', 'dynamic', 'virtual', 'interface', 'special');
+
+CREATE TABLE call_sites
+(
+    source_id   BIGINT  NOT NULL REFERENCES callables (id),
+    target_id   BIGINT  NOT NULL REFERENCES callables (id),
+    pc          INTEGER NOT NULL,
+    line        INTEGER,
+    call_type   call_type,
+    receiver_id BIGINT REFERENCES modules (id)
+);
+
+-- To partition callables, edges and call_sites, run PartitionedSchemaMigration
+-- after this script (requires PostgreSQL 11 or later).
+
 -- CREATE INDEX CONCURRENTLY package_versions_package_id ON package_versions USING btree (package_id);
 -- CREATE INDEX CONCURRENTLY dependencies_package_version_id ON dependencies USING btree (package_version_id);
 -- CREATE INDEX CONCURRENTLY dependencies_dependency_id ON dependencies USING btree (dependency_id);
@@ -137,6 +153,10 @@ CREATE UNIQUE INDEX CONCURRENTLY unique_source_target ON edges USING btree (sour
 ALTER TABLE edges
     ADD CONSTRAINT unique_source_target UNIQUE USING INDEX unique_source_target;
 
+CREATE UNIQUE INDEX CONCURRENTLY unique_source_target_pc ON call_sites USING btree (source_id, target_id, pc);
+ALTER TABLE call_sites
+    ADD CONSTRAINT unique_source_target_pc UNIQUE USING INDEX unique_source_target_pc;
+
 ALTER TABLE callables
     ADD CONSTRAINT check_module_id CHECK ((module_id = -1 AND is_internal_call IS false) OR
                                           (module_id IS NOT NULL AND is_internal_call IS true));
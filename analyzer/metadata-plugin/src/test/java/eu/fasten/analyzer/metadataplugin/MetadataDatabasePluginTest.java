@@ -23,19 +23,30 @@ import java.sql.Timestamp;
 import java.util.Collections;
 import java.util.List;
 import java.util.Optional;
+import java.util.Set;
 import eu.fasten.core.data.ExtendedRevisionCallGraph;
 import eu.fasten.core.data.metadatadb.MetadataDao;
 import eu.fasten.core.data.RevisionCallGraph;
+import eu.fasten.core.data.metadatadb.codegen.enums.CallType;
+import eu.fasten.core.data.metadatadb.codegen.tables.records.CallSitesRecord;
+import eu.fasten.core.data.metadatadb.codegen.tables.records.EdgesRecord;
 import org.jooq.DSLContext;
+import org.jooq.JSONB;
 import org.json.JSONException;
 import org.json.JSONObject;
 import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.BeforeEach;
+import org.mockito.ArgumentCaptor;
 import org.mockito.Mockito;
 import static org.junit.jupiter.api.Assertions.*;
 
 public class MetadataDatabasePluginTest {
 
+    private static final long PACKAGE_ID = 8;
+    private static final long PACKAGE_VERSION_ID = 42;
+    private static final long EXTERNAL_MODULE_ID = 16;
+    private static final long INTERNAL_MODULE_ID = 17;
+
     private MetadataDatabasePlugin.MetadataDBExtension metadataDBExtension;
 
     @BeforeEach
@@ -55,7 +66,83 @@ public class MetadataDatabasePluginTest {
     @Test
     public void saveToDatabaseNewFormatTest() throws IOException {
         var metadataDao = Mockito.mock(MetadataDao.class);
-        var json = new JSONObject("{\n" +
+        var json = newFormatCallGraph();
+        stubNewFormat(metadataDao, json);
+        long id = metadataDBExtension.saveToDatabaseNewFormat(new ExtendedRevisionCallGraph(json), metadataDao);
+        assertEquals(PACKAGE_VERSION_ID, id);
+        Mockito.verify(metadataDao).insertPackage(json.getString("product"), "mvn", null, null, null);
+        Mockito.verify(metadataDao).insertPackageVersion(PACKAGE_ID, json.getString("generator"),
+                json.getString("version"), new Timestamp(json.getLong("timestamp") * 1000), null);
+        Mockito.verify(metadataDao).insertExternalCallables(Mockito.anyList(), Mockito.anyList(), Mockito.any());
+        Mockito.verify(metadataDao).batchInsertEdges(Mockito.anyList());
+        Mockito.verify(metadataDao, Mockito.never()).insertCallable(Mockito.any(), Mockito.any(),
+                Mockito.anyBoolean(), Mockito.any(), Mockito.any());
+    }
+
+    @Test
+    public void saveToDatabaseNewFormatCallSitesTest() throws IOException {
+        var metadataDao = Mockito.mock(MetadataDao.class);
+        var json = newFormatCallGraph();
+        stubNewFormat(metadataDao, json);
+        metadataDBExtension.setNormalizeCallSites(true);
+        long id = metadataDBExtension.saveToDatabaseNewFormat(new ExtendedRevisionCallGraph(json), metadataDao);
+        assertEquals(PACKAGE_VERSION_ID, id);
+        var edges = ArgumentCaptor.forClass(List.class);
+        var callSites = ArgumentCaptor.forClass(List.class);
+        Mockito.verify(metadataDao).batchInsertEdges(edges.capture());
+        Mockito.verify(metadataDao).batchInsertCallSites(callSites.capture());
+        assertEquals(List.of(new EdgesRecord(64L, 65L, JSONB.valueOf("{}"))), edges.getValue());
+        // Receivers of the class hierarchy are resolved to their modules, others are NULL
+        assertEquals(Set.of(new CallSitesRecord(64L, 65L, 1, 42, CallType.special, null),
+                new CallSitesRecord(64L, 65L, 2, 43, CallType.virtual, EXTERNAL_MODULE_ID)),
+                Set.copyOf(callSites.getValue()));
+        // No module is inserted for receivers
+        Mockito.verify(metadataDao, Mockito.times(2)).insertModule(Mockito.anyLong(),
+                Mockito.anyString(), Mockito.any(), Mockito.any());
+        Mockito.verify(metadataDao, Mockito.never()).insertModule(Mockito.anyLong(),
+                Mockito.eq("/java.lang/Object"), Mockito.any(), Mockito.any());
+    }
+
+    @Test
+    public void saveToDatabaseNewFormatCopyTest() throws IOException {
+        var metadataDao = Mockito.mock(MetadataDao.class);
+        var json = newFormatCallGraph();
+        stubNewFormat(metadataDao, json);
+        metadataDBExtension.setCopyInserts(true);
+        long id = metadataDBExtension.saveToDatabaseNewFormat(new ExtendedRevisionCallGraph(json), metadataDao);
+        assertEquals(PACKAGE_VERSION_ID, id);
+        Mockito.verify(metadataDao).bulkInsertCallables(Mockito.anyList());
+        Mockito.verify(metadataDao).bulkInsertEdges(Mockito.anyList());
+        Mockito.verify(metadataDao, Mockito.never()).batchInsertCallables(Mockito.anyList());
+        Mockito.verify(metadataDao, Mockito.never()).batchInsertEdges(Mockito.anyList());
+    }
+
+    /**
+     * Stubs the inserts of the package, package version, modules and callables of
+     * {@link #newFormatCallGraph()}.
+     */
+    private static void stubNewFormat(MetadataDao metadataDao, JSONObject json) {
+        Mockito.when(metadataDao.insertPackage(json.getString("product"), "mvn", null, null,
+                null)).thenReturn(PACKAGE_ID);
+        Mockito.when(metadataDao.insertPackageVersion(PACKAGE_ID, json.getString("generator"),
+                json.getString("version"), new Timestamp(json.getLong("timestamp") * 1000), null)).thenReturn(PACKAGE_VERSION_ID);
+        // JSONObject does not implement equals(), so modules are stubbed by namespace only
+        Mockito.when(metadataDao.insertModule(Mockito.eq(PACKAGE_VERSION_ID),
+                Mockito.eq("/external.package/A"), Mockito.any(), Mockito.any()))
+                .thenReturn(EXTERNAL_MODULE_ID);
+        long fileId1 = 3;
+        Mockito.when(metadataDao.insertFile(PACKAGE_VERSION_ID, "", null, null, null)).thenReturn(fileId1);
+        Mockito.when(metadataDao.batchInsertCallables(Mockito.anyList())).thenReturn(List.of(64L));
+        Mockito.when(metadataDao.bulkInsertCallables(Mockito.anyList())).thenReturn(List.of(64L));
+        Mockito.when(metadataDao.insertExternalCallables(Mockito.eq(List.of("/external.package/A.someMethod()%2Fjava.lang%2FObject")),
+                Mockito.anyList(), Mockito.any())).thenReturn(List.of(65L));
+        Mockito.when(metadataDao.insertModule(Mockito.eq(PACKAGE_VERSION_ID),
+                Mockito.eq("/internal.package/B"), Mockito.any(), Mockito.any()))
+                .thenReturn(INTERNAL_MODULE_ID);
+    }
+
+    private static JSONObject newFormatCallGraph() {
+        return new JSONObject("{\n" +
                 "    \"product\": \"groupID:artifactID\",\n" +
                 "    \"nodes\": 2,\n" +
                 "    \"forge\": \"mvn\",\n" +
@@ -113,6 +200,10 @@ public class MetadataDatabasePluginTest {
                 "                    \"receiver\": \"/java.lang/Object\",\n" +
                 "                    \"line\": 42,\n" +
                 "                    \"type\": \"invokespecial\"\n" +
+                "                }, \"2\": {\n" +
+                "                    \"receiver\": \"/external.package/A\",\n" +
+                "                    \"line\": 43,\n" +
+                "                    \"type\": \"invokevirtual\"\n" +
                 "                }}\n" +
                 "            ]\n" +
                 "        ],\n" +
@@ -120,40 +211,6 @@ public class MetadataDatabasePluginTest {
                 "    },\n" +
                 "    \"timestamp\": 123\n" +
                 "}\n");
-        long packageId = 8;
-        Mockito.when(metadataDao.insertPackage(json.getString("product"), "mvn", null, null,
-                null)).thenReturn(packageId);
-        long packageVersionId = 42;
-        Mockito.when(metadataDao.insertPackageVersion(packageId, json.getString("generator"),
-                json.getString("version"), new Timestamp(json.getLong("timestamp") * 1000), null)).thenReturn(packageVersionId);
-        long externalModuleId = 16;
-        var externalModuleMetadata = new JSONObject("{" +
-                "\"access\": \"\"," +
-                "\"final\": false," +
-                "\"superInterfaces\": []," +
-                "\"sourceFile\": \"\"," +
-                "\"superClasses\": []" +
-                "}");
-        Mockito.when(metadataDao.insertModule(packageVersionId, "/external.package/A", null,
-                externalModuleMetadata)).thenReturn(externalModuleId);
-        long fileId1 = 3;
-        Mockito.when(metadataDao.insertFile(packageVersionId, "", null, null, null)).thenReturn(fileId1);
-        Mockito.when(metadataDao.batchInsertCallables(Mockito.anyList())).thenReturn(List.of(64L, 65L));
-        long internalModuleId = 17;
-        var internalModuleMetadata = new JSONObject("{" +
-                "\"access\": \"public\"," +
-                "\"final\": false," +
-                "\"superInterfaces\": [\"/internal.package/BInterface\"]," +
-                "\"sourceFile\": \"B.java\"," +
-                "\"superClasses\": [\"/java.lang/Object\"]" +
-                "}");
-        Mockito.when(metadataDao.insertModule(packageVersionId, "/internal.package/B", null,
-                internalModuleMetadata)).thenReturn(internalModuleId);
-        long id = metadataDBExtension.saveToDatabaseNewFormat(new ExtendedRevisionCallGraph(json), metadataDao);
-        assertEquals(packageVersionId, id);
-        Mockito.verify(metadataDao).insertPackage(json.getString("product"), "mvn", null, null, null);
-        Mockito.verify(metadataDao).insertPackageVersion(packageId, json.getString("generator"),
-                json.getString("version"), new Timestamp(json.getLong("timestamp") * 1000), null);
     }
 
     @Test
@@ -212,13 +269,19 @@ public class MetadataDatabasePluginTest {
                 moduleMetadata)).thenReturn(moduleId);
         long fileId = 3;
         Mockito.when(metadataDao.insertFile(packageVersionId, "file.java", null, null, null)).thenReturn(fileId);
-        Mockito.when(metadataDao.batchInsertCallables(Mockito.anyList())).thenReturn(List.of(64L, 65L, 100L));
+        Mockito.when(metadataDao.batchInsertCallables(Mockito.anyList())).thenReturn(List.of(64L, 65L));
+        Mockito.when(metadataDao.insertExternalCallables(Mockito.eq(List.of("///dep/service.call()%2Fjava.lang%2FObject")),
+                Mockito.anyList(), Mockito.any())).thenReturn(List.of(100L));
         long id = metadataDBExtension.saveToDatabaseOldFormat(new RevisionCallGraph(json), metadataDao);
         assertEquals(packageVersionId, id);
 
         Mockito.verify(metadataDao).insertPackage(json.getString("product"), "mvn", null, null, null);
         Mockito.verify(metadataDao).insertPackageVersion(packageId, json.getString("generator"),
                 json.getString("version"), new Timestamp(json.getLong("timestamp") * 1000), null);
+        Mockito.verify(metadataDao).insertExternalCallables(Mockito.anyList(), Mockito.anyList(), Mockito.any());
+        Mockito.verify(metadataDao).batchInsertEdges(Mockito.anyList());
+        Mockito.verify(metadataDao, Mockito.never()).insertCallable(Mockito.any(), Mockito.any(),
+                Mockito.anyBoolean(), Mockito.any(), Mockito.any());
     }
 
     @Test
@@ -293,7 +356,9 @@ public class MetadataDatabasePluginTest {
                 moduleMetadata)).thenReturn(moduleId);
         long fileId = 3;
         Mockito.when(metadataDao.insertFile(packageVersionId, "file.java", null, null, null)).thenReturn(fileId);
-        Mockito.when(metadataDao.batchInsertCallables(Mockito.anyList())).thenReturn(List.of(64L, 65L, 100L));
+        Mockito.when(metadataDao.batchInsertCallables(Mockito.anyList())).thenReturn(List.of(64L, 65L));
+        Mockito.when(metadataDao.insertExternalCallables(Mockito.eq(List.of("///dep/service.call()%2Fjava.lang%2FObject")),
+                Mockito.anyList(), Mockito.any())).thenReturn(List.of(100L));
         long id = metadataDBExtension.saveToDatabaseOldFormat(new RevisionCallGraph(json), metadataDao);
         assertEquals(packageVersionId, id);
 
@@ -375,7 +440,9 @@ public class MetadataDatabasePluginTest {
                 moduleMetadata)).thenReturn(moduleId);
         long fileId = 3;
         Mockito.when(metadataDao.insertFile(packageVersionId, "file.java", null, null, null)).thenReturn(fileId);
-        Mockito.when(metadataDao.batchInsertCallables(Mockito.anyList())).thenReturn(List.of(64L, 65L, 100L));
+        Mockito.when(metadataDao.batchInsertCallables(Mockito.anyList())).thenReturn(List.of(64L, 65L));
+        Mockito.when(metadataDao.insertExternalCallables(Mockito.eq(List.of("///dep/service.call()%2Fjava.lang%2FObject")),
+                Mockito.anyList(), Mockito.any())).thenReturn(List.of(100L));
         metadataDBExtension.setPluginError(new RuntimeException());
         long id = metadataDBExtension.saveToDatabaseOldFormat(new RevisionCallGraph(json), metadataDao);
         assertEquals(packageVersionId, id);
@@ -0,0 +1,55 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package eu.fasten.analyzer.metadataplugin;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import org.junit.jupiter.api.Test;
+
+public class PartitionedSchemaMigrationTest {
+
+    @Test
+    public void partitionedSchemaTest() {
+        var statements = PartitionedSchemaMigration.partitionedSchema(4);
+        assertEquals(5 + 4 * 4 + 3, statements.size());
+        assertTrue(statements.get(0).endsWith("PARTITION BY RANGE (module_id)"));
+        assertTrue(statements.get(0).contains("CONSTRAINT unique_uri_call UNIQUE (module_id"));
+        // External callables (module -1) are apart from internal ones
+        assertTrue(statements.get(1).contains("FROM (MINVALUE) TO (0) PARTITION BY HASH (fasten_uri)"));
+        assertTrue(statements.get(2).contains("FROM (0) TO (MAXVALUE) PARTITION BY HASH (module_id)"));
+        assertTrue(statements.get(3).endsWith("PARTITION BY HASH (source_id)"));
+        assertTrue(statements.contains("CREATE TABLE callables_internal_3 PARTITION OF "
+                + "callables_internal FOR VALUES WITH (MODULUS 4, REMAINDER 3)"));
+        assertTrue(statements.contains("CREATE TABLE edges_3 PARTITION OF edges "
+                + "FOR VALUES WITH (MODULUS 4, REMAINDER 3)"));
+    }
+
+    @Test
+    public void renameUnpartitionedTest() {
+        var statements = PartitionedSchemaMigration.renameUnpartitioned(false);
+        assertTrue(statements.contains("ALTER TABLE callables RENAME TO callables_unpartitioned"));
+        assertTrue(statements.contains("ALTER INDEX IF EXISTS unique_uri_call "
+                + "RENAME TO unique_uri_call_unpartitioned"));
+        assertFalse(statements.contains("ALTER TABLE call_sites RENAME TO call_sites_unpartitioned"));
+        assertTrue(PartitionedSchemaMigration.renameUnpartitioned(true)
+                .contains("ALTER TABLE call_sites RENAME TO call_sites_unpartitioned"));
+    }
+}
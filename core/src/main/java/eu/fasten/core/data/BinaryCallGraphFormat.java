@@ -0,0 +1,480 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package eu.fasten.core.data;
+
+import com.esotericsoftware.kryo.KryoException;
+import com.esotericsoftware.kryo.io.Input;
+import com.esotericsoftware.kryo.io.Output;
+import com.google.common.collect.HashBiMap;
+import it.unimi.dsi.fastutil.objects.Object2IntOpenHashMap;
+import it.unimi.dsi.fastutil.objects.ObjectArrayList;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.io.Reader;
+import java.io.Writer;
+import java.math.BigDecimal;
+import java.math.BigInteger;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.LinkedList;
+import java.util.List;
+import java.util.Map;
+import java.util.zip.Deflater;
+import java.util.zip.DeflaterOutputStream;
+import java.util.zip.Inflater;
+import java.util.zip.InflaterInputStream;
+
+/**
+ * A versioned binary format for {@link ExtendedRevisionCallGraph}, more compact and faster to
+ * read and write than JSON.
+ *
+ * <p>A stream starts with the four {@linkplain #MAGIC magic} bytes, a version byte and a flag
+ * byte; if the {@link #COMPRESSED} flag is set, the rest of the stream is deflated. The body
+ * contains, in this order, the header (forge, product, version, generator, timestamp and number
+ * of nodes), the class hierarchy (internal, external and resolved types) and the graph (internal,
+ * external and resolved calls). Integers are written as variable-length integers.
+ *
+ * <ul>
+ * <li>Strings are written through a dictionary: the first occurrence of a string is written
+ * inline, and later occurrences as a reference. URIs are split in a namespace part, a type part
+ * and a member part, so that namespaces and types are stored once.
+ * <li>Calls are stored by column: first all sources, then all targets, both delta coded, and
+ * then all metadata.
+ * <li>Metadata maps are written through a dictionary, too, so equal call-site metadata are stored
+ * once.
+ * </ul>
+ *
+ * <p>Metadata values may be strings, numbers, booleans, maps and lists, as in JSON. Values of
+ * other types are stored as strings, which is what their JSON representation would be.
+ */
+public final class BinaryCallGraphFormat {
+
+    /** The magic bytes at the start of a stream. */
+    public static final byte[] MAGIC = {'F', 'C', 'G', 'B'};
+
+    /** The current version of the format. */
+    public static final byte VERSION = 1;
+
+    /** The flag signalling that the body of a stream is deflated. */
+    public static final byte COMPRESSED = 1;
+
+    private static final int BUFFER_SIZE = 64 * 1024;
+
+    // Tags of metadata values
+    private static final byte NULL = 0;
+    private static final byte STRING = 1;
+    private static final byte INT = 2;
+    private static final byte LONG = 3;
+    private static final byte DOUBLE = 4;
+    private static final byte DECIMAL = 5;
+    private static final byte TRUE = 6;
+    private static final byte FALSE = 7;
+    private static final byte MAP = 8;
+    private static final byte LIST = 9;
+
+    private BinaryCallGraphFormat() {
+    }
+
+    /**
+     * Writes a revision call graph. The stream is flushed, but not closed.
+     *
+     * @param graph    a revision call graph
+     * @param stream   the stream to write to
+     * @param compress whether the body must be deflated
+     * @throws IOException if an I/O error occurs
+     */
+    public static void write(final ExtendedRevisionCallGraph graph, final OutputStream stream,
+                             final boolean compress) throws IOException {
+        stream.write(MAGIC);
+        stream.write(VERSION);
+        stream.write(compress ? COMPRESSED : 0);
+        final var deflater = compress ? new Deflater() : null;
+        final var body = compress ? new DeflaterOutputStream(stream, deflater, BUFFER_SIZE) : stream;
+        try {
+            new GraphWriter(new Output(body, BUFFER_SIZE)).write(graph);
+            if (compress) {
+                ((DeflaterOutputStream) body).finish();
+            }
+        } catch (final KryoException e) {
+            throw e.getCause() instanceof IOException ? (IOException) e.getCause() : new IOException(e);
+        } finally {
+            if (deflater != null) {
+                deflater.end();
+            }
+        }
+        stream.flush();
+    }
+
+    /**
+     * Reads a revision call graph. Input is buffered, so the stream might be read past the end of
+     * the call graph.
+     *
+     * @param stream the stream to read from
+     * @return the revision call graph
+     * @throws IOException if an I/O error occurs, or if the stream is not in this format
+     */
+    public static ExtendedRevisionCallGraph read(final InputStream stream) throws IOException {
+        final var header = stream.readNBytes(MAGIC.length + 2);
+        if (header.length < MAGIC.length + 2) {
+            throw new IOException("Truncated call graph header");
+        }
+        for (int i = 0; i < MAGIC.length; i++) {
+            if (header[i] != MAGIC[i]) {
+                throw new IOException("Not a binary call graph");
+            }
+        }
+        if (header[MAGIC.length] > VERSION) {
+            throw new IOException("Unsupported binary call graph version " + header[MAGIC.length]);
+        }
+        final boolean compressed = (header[MAGIC.length + 1] & COMPRESSED) != 0;
+        final var inflater = compressed ? new Inflater() : null;
+        final var body = compressed ? new InflaterInputStream(stream, inflater, BUFFER_SIZE) : stream;
+        try {
+            return new GraphReader(new Input(body, BUFFER_SIZE)).read();
+        } catch (final KryoException e) {
+            throw e.getCause() instanceof IOException ? (IOException) e.getCause() : new IOException(e);
+        } finally {
+            if (inflater != null) {
+                inflater.end();
+            }
+        }
+    }
+
+    /**
+     * Converts the JSON representation of a revision call graph to this format.
+     *
+     * @param json     a reader returning the JSON representation of a revision call graph
+     * @param stream   the stream to write to
+     * @param compress whether the body must be deflated
+     * @throws IOException if an I/O error occurs
+     */
+    public static void fromJSON(final Reader json, final OutputStream stream, final boolean compress)
+            throws IOException {
+        write(ExtendedRevisionCallGraph.read(json), stream, compress);
+    }
+
+    /**
+     * Converts a revision call graph in this format to its JSON representation.
+     *
+     * @param stream the stream to read from
+     * @param json   the writer to write the JSON representation to
+     * @throws IOException if an I/O error occurs, or if the stream is not in this format
+     */
+    public static void toJSON(final InputStream stream, final Writer json) throws IOException {
+        read(stream).writeTo(json);
+    }
+
+    /** The offsets splitting a URI in a namespace part, a type part and a member part. */
+    private static int[] split(final String uri) {
+        final int slash = uri.lastIndexOf('/') + 1;
+        final int dot = uri.indexOf('.', slash);
+        return new int[]{slash, dot == -1 ? uri.length() : dot};
+    }
+
+    private static final class GraphWriter {
+        private final Output output;
+        private final Object2IntOpenHashMap<String> strings = new Object2IntOpenHashMap<>();
+        private final Object2IntOpenHashMap<Map<Object, Object>> metadata = new Object2IntOpenHashMap<>();
+
+        private GraphWriter(final Output output) {
+            this.output = output;
+            strings.defaultReturnValue(-1);
+            metadata.defaultReturnValue(-1);
+        }
+
+        private void write(final ExtendedRevisionCallGraph graph) {
+            writeString(graph.forge);
+            writeString(graph.product);
+            writeString(graph.version);
+            writeString(graph.getCgGenerator());
+            output.writeVarLong(graph.timestamp, false);
+            output.writeVarInt(graph.getNodeCount(), true);
+
+            final var cha = graph.getClassHierarchy();
+            for (final var scope : ExtendedRevisionCallGraph.Scope.values()) {
+                final var types = cha.get(scope);
+                output.writeVarInt(types.size(), true);
+                for (final var entry : types.entrySet()) {
+                    writeURI(entry.getKey());
+                    writeType(entry.getValue());
+                }
+            }
+
+            final var calls = graph.getGraph();
+            writeCalls(calls.getInternalCalls());
+            writeCalls(calls.getExternalCalls());
+            writeCalls(calls.getResolvedCalls());
+            output.flush();
+        }
+
+        /** Writes a string inline with a 0 marker the first time, and as a 1-based reference later. */
+        private void writeString(final String s) {
+            final int id = strings.getInt(s);
+            if (id != -1) {
+                output.writeVarInt(id + 1, true);
+            } else {
+                strings.put(s, strings.size());
+                output.writeVarInt(0, true);
+                output.writeString(s);
+            }
+        }
+
+        private void writeURI(final FastenURI uri) {
+            final String s = uri.toString();
+            final int[] split = split(s);
+            writeString(s.substring(0, split[0]));
+            writeString(s.substring(split[0], split[1]));
+            writeString(s.substring(split[1]));
+        }
+
+        private void writeType(final ExtendedRevisionCallGraph.Type type) {
+            writeString(type.getSourceFileName());
+            writeString(type.getAccess());
+            output.writeBoolean(type.isFinal());
+            output.writeVarInt(type.getSuperClasses().size(), true);
+            for (final var superClass : type.getSuperClasses()) {
+                writeURI(superClass);
+            }
+            output.writeVarInt(type.getSuperInterfaces().size(), true);
+            for (final var superInterface : type.getSuperInterfaces()) {
+                writeURI(superInterface);
+            }
+            final var methods = type.getMethods();
+            output.writeVarInt(methods.size(), true);
+            for (final var entry : methods.entrySet()) {
+                output.writeVarInt(entry.getKey(), false);
+                writeURI(entry.getValue().getUri());
+                writeValue(entry.getValue().getMetadata());
+            }
+        }
+
+        private void writeCalls(final Map<List<Integer>, Map<Object, Object>> calls) {
+            final var compact = calls instanceof CompactCallMap ? (CompactCallMap) calls : new CompactCallMap(calls);
+            final int size = compact.size();
+            output.writeVarInt(size, true);
+            int prev = 0;
+            for (int i = 0; i < size; i++) {
+                output.writeVarInt(compact.source(i) - prev, false);
+                prev = compact.source(i);
+            }
+            prev = 0;
+            for (int i = 0; i < size; i++) {
+                output.writeVarInt(compact.target(i) - prev, false);
+                prev = compact.target(i);
+            }
+            for (int i = 0; i < size; i++) {
+                final var m = compact.metadata(i);
+                final int id = metadata.getInt(m);
+                if (id != -1) {
+                    output.writeVarInt(id + 1, true);
+                } else {
+                    metadata.put(m, metadata.size());
+                    output.writeVarInt(0, true);
+                    writeValue(m);
+                }
+            }
+        }
+
+        private void writeValue(final Object value) {
+            if (value == null) {
+                output.writeByte(NULL);
+            } else if (value instanceof Integer || value instanceof Short || value instanceof Byte) {
+                output.writeByte(INT);
+                output.writeVarInt(((Number) value).intValue(), false);
+            } else if (value instanceof Long) {
+                output.writeByte(LONG);
+                output.writeVarLong((Long) value, false);
+            } else if (value instanceof Double || value instanceof Float) {
+                output.writeByte(DOUBLE);
+                output.writeDouble(((Number) value).doubleValue());
+            } else if (value instanceof BigDecimal || value instanceof BigInteger) {
+                output.writeByte(DECIMAL);
+                output.writeString(value.toString());
+            } else if (value instanceof Boolean) {
+                output.writeByte((Boolean) value ? TRUE : FALSE);
+            } else if (value instanceof Map) {
+                final var map = (Map<?, ?>) value;
+                output.writeByte(MAP);
+                output.writeVarInt(map.size(), true);
+                for (final var entry : map.entrySet()) {
+                    writeValue(entry.getKey());
+                    writeValue(entry.getValue());
+                }
+            } else if (value instanceof List) {
+                final var list = (List<?>) value;
+                output.writeByte(LIST);
+                output.writeVarInt(list.size(), true);
+                for (final var element : list) {
+                    writeValue(element);
+                }
+            } else {
+                output.writeByte(STRING);
+                writeString(value.toString());
+            }
+        }
+    }
+
+    private static final class GraphReader {
+        private final Input input;
+        private final ObjectArrayList<String> strings = new ObjectArrayList<>();
+        private final ObjectArrayList<Map<Object, Object>> metadata = new ObjectArrayList<>();
+        private final FastenURIPool pool = new FastenURIPool();
+
+        private GraphReader(final Input input) {
+            this.input = input;
+        }
+
+        private ExtendedRevisionCallGraph read() {
+            final var builder = ExtendedRevisionCallGraph.extendedBuilder()
+                    .forge(readString())
+                    .product(readString())
+                    .version(readString())
+                    .cgGenerator(readString())
+                    .timestamp(input.readVarLong(false))
+                    .nodeCount(input.readVarInt(true));
+
+            final Map<ExtendedRevisionCallGraph.Scope, Map<FastenURI, ExtendedRevisionCallGraph.Type>> cha = new HashMap<>();
+            for (final var scope : ExtendedRevisionCallGraph.Scope.values()) {
+                final int size = input.readVarInt(true);
+                final Map<FastenURI, ExtendedRevisionCallGraph.Type> types = new HashMap<>(size * 4 / 3 + 1);
+                for (int i = 0; i < size; i++) {
+                    types.put(readURI(), readType());
+                }
+                cha.put(scope, types);
+            }
+            builder.classHierarchy(Map.of(
+                    ExtendedRevisionCallGraph.Scope.internalTypes, cha.get(ExtendedRevisionCallGraph.Scope.internalTypes),
+                    ExtendedRevisionCallGraph.Scope.externalTypes, cha.get(ExtendedRevisionCallGraph.Scope.externalTypes),
+                    ExtendedRevisionCallGraph.Scope.resolvedTypes, cha.get(ExtendedRevisionCallGraph.Scope.resolvedTypes)));
+
+            final var internalCalls = readCalls();
+            final var externalCalls = readCalls();
+            final var resolvedCalls = readCalls();
+            return builder.graph(new ExtendedRevisionCallGraph.Graph(internalCalls, externalCalls, resolvedCalls))
+                    .build();
+        }
+
+        private String readString() {
+            final int id = input.readVarInt(true);
+            if (id != 0) {
+                return strings.get(id - 1);
+            }
+            final String s = input.readString();
+            strings.add(s);
+            return s;
+        }
+
+        private FastenURI readURI() {
+            return pool.create(readString() + readString() + readString());
+        }
+
+        @SuppressWarnings("unchecked")
+        private ExtendedRevisionCallGraph.Type readType() {
+            final String sourceFile = readString();
+            final String access = readString();
+            final boolean isFinal = input.readBoolean();
+            int size = input.readVarInt(true);
+            final var superClasses = new LinkedList<FastenURI>();
+            for (int i = 0; i < size; i++) {
+                superClasses.add(readURI());
+            }
+            size = input.readVarInt(true);
+            final var superInterfaces = new ArrayList<FastenURI>(size);
+            for (int i = 0; i < size; i++) {
+                superInterfaces.add(readURI());
+            }
+            size = input.readVarInt(true);
+            final var methods = HashBiMap.<Integer, ExtendedRevisionCallGraph.Node>create(size);
+            for (int i = 0; i < size; i++) {
+                final int id = input.readVarInt(false);
+                methods.put(id, new ExtendedRevisionCallGraph.Node(readURI(), (Map<String, Object>) readValue()));
+            }
+            return new ExtendedRevisionCallGraph.Type(sourceFile, methods, superClasses, superInterfaces, access, isFinal);
+        }
+
+        @SuppressWarnings("unchecked")
+        private CompactCallMap readCalls() {
+            final int size = input.readVarInt(true);
+            final int[] sources = new int[size];
+            final int[] targets = new int[size];
+            int prev = 0;
+            for (int i = 0; i < size; i++) {
+                sources[i] = prev += input.readVarInt(false);
+            }
+            prev = 0;
+            for (int i = 0; i < size; i++) {
+                targets[i] = prev += input.readVarInt(false);
+            }
+            final var calls = new CompactCallMap(size);
+            for (int i = 0; i < size; i++) {
+                final int id = input.readVarInt(true);
+                final Map<Object, Object> m;
+                if (id != 0) {
+                    m = metadata.get(id - 1);
+                } else {
+                    m = (Map<Object, Object>) readValue();
+                    metadata.add(m);
+                }
+                calls.put(sources[i], targets[i], m);
+            }
+            return calls;
+        }
+
+        private Object readValue() {
+            final byte tag = input.readByte();
+            switch (tag) {
+                case NULL:
+                    return null;
+                case STRING:
+                    return readString();
+                case INT:
+                    return input.readVarInt(false);
+                case LONG:
+                    return input.readVarLong(false);
+                case DOUBLE:
+                    return input.readDouble();
+                case DECIMAL:
+                    return new BigDecimal(input.readString());
+                case TRUE:
+                    return true;
+                case FALSE:
+                    return false;
+                case MAP:
+                    final int mapSize = input.readVarInt(true);
+                    final Map<Object, Object> map = new LinkedHashMap<>(mapSize * 4 / 3 + 1);
+                    for (int i = 0; i < mapSize; i++) {
+                        final var key = readValue();
+                        map.put(key, readValue());
+                    }
+                    return map;
+                case LIST:
+                    final int listSize = input.readVarInt(true);
+                    final List<Object> list = new ArrayList<>(listSize);
+                    for (int i = 0; i < listSize; i++) {
+                        list.add(readValue());
+                    }
+                    return list;
+                default:
+                    throw new KryoException("Unknown value tag " + tag);
+            }
+        }
+    }
+}
@@ -0,0 +1,562 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package eu.fasten.core.data;
+
+import it.unimi.dsi.fastutil.bytes.ByteArrayList;
+import it.unimi.dsi.fastutil.ints.IntArrayList;
+import it.unimi.dsi.fastutil.longs.Long2IntOpenHashMap;
+import it.unimi.dsi.fastutil.objects.Object2IntOpenHashMap;
+import it.unimi.dsi.fastutil.objects.ObjectArrayList;
+import java.util.AbstractMap;
+import java.util.AbstractSet;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.NoSuchElementException;
+import java.util.Objects;
+import java.util.Set;
+
+/**
+ * A compact map from calls (pairs of node identifiers) to call metadata, used by
+ * {@link ExtendedRevisionCallGraph.Graph}.
+ *
+ * <p>Calls are stored in parallel arrays of sources and targets, and are indexed by a hash table
+ * on arcs encoded as longs. The metadata of a call normally map the program counter of each of
+ * its call sites to a map with a "line" (an integer), a "type" and a "receiver" (strings); call
+ * sites are then stored in parallel arrays of program counters, lines, types and receivers, the
+ * latter two as indices in a table of distinct strings, and each call keeps the range of its
+ * call sites. Metadata of any other form are kept as they are in a separate table.
+ *
+ * <p>This class implements the {@link Map} interface, so it can be used wherever the previous
+ * representation was. Keys are created on the fly as (immutable) two-element lists, and the
+ * metadata of call sites are rebuilt on the fly as new maps, so modifying them does not modify
+ * this map. Calls are iterated in insertion order, except that a removal moves the last call in
+ * place of the removed one. The call sites of removed calls, and the previous call sites of calls
+ * whose metadata are replaced, are not reclaimed.
+ */
+public class CompactCallMap extends AbstractMap<List<Integer>, Map<Object, Object>> {
+
+    /** The call sites of a call are stored in columns, and program counters are integer keys. */
+    private static final byte INTEGER_PCS = 0;
+
+    /** The call sites of a call are stored in columns, and program counters are string keys. */
+    private static final byte STRING_PCS = 1;
+
+    /** The metadata of a call are stored as they are in {@link #irregular}. */
+    private static final byte IRREGULAR = 2;
+
+    /** The line of call sites without a line. */
+    private static final int NO_LINE = Integer.MIN_VALUE;
+
+    /** Maps each call, encoded by {@link #arc(int, int)}, to its position. */
+    private final Long2IntOpenHashMap positions;
+
+    /** The source of each call. */
+    private final IntArrayList sources;
+
+    /** The target of each call. */
+    private final IntArrayList targets;
+
+    /** How the metadata of each call are stored. */
+    private final ByteArrayList kinds;
+
+    /**
+     * The index of the first call site of each call, or the index in {@link #irregular} of its
+     * metadata.
+     */
+    private final IntArrayList firstSites;
+
+    /** The number of call sites of each call. */
+    private final IntArrayList numSites;
+
+    /** The program counter of each call site. */
+    private final IntArrayList pcs;
+
+    /** The line of each call site, or {@link #NO_LINE}. */
+    private final IntArrayList lines;
+
+    /** The index in {@link #strings} of the type of each call site, or -1. */
+    private final IntArrayList types;
+
+    /** The index in {@link #strings} of the receiver of each call site, or -1. */
+    private final IntArrayList receivers;
+
+    /** The table of distinct types and receivers. */
+    private final ObjectArrayList<String> strings;
+
+    /** Maps each string in {@link #strings} to its index. */
+    private final Object2IntOpenHashMap<String> stringIds;
+
+    /** The metadata that cannot be stored in columns. */
+    private final ObjectArrayList<Map<Object, Object>> irregular;
+
+    /**
+     * Creates an empty map.
+     */
+    public CompactCallMap() {
+        this(16);
+    }
+
+    /**
+     * Creates an empty map.
+     *
+     * @param expectedCalls the expected number of calls
+     */
+    public CompactCallMap(final int expectedCalls) {
+        this.positions = new Long2IntOpenHashMap(expectedCalls);
+        this.positions.defaultReturnValue(-1);
+        this.sources = new IntArrayList(expectedCalls);
+        this.targets = new IntArrayList(expectedCalls);
+        this.kinds = new ByteArrayList(expectedCalls);
+        this.firstSites = new IntArrayList(expectedCalls);
+        this.numSites = new IntArrayList(expectedCalls);
+        this.pcs = new IntArrayList(expectedCalls);
+        this.lines = new IntArrayList(expectedCalls);
+        this.types = new IntArrayList(expectedCalls);
+        this.receivers = new IntArrayList(expectedCalls);
+        this.strings = new ObjectArrayList<>();
+        this.stringIds = new Object2IntOpenHashMap<>();
+        this.stringIds.defaultReturnValue(-1);
+        this.irregular = new ObjectArrayList<>();
+    }
+
+    /**
+     * Creates a map containing the calls of a given map.
+     *
+     * @param calls a map from calls to metadata
+     */
+    public CompactCallMap(final Map<? extends List<Integer>, ? extends Map<Object, Object>> calls) {
+        this(calls.size());
+        putAll(calls);
+    }
+
+    private static long arc(final int source, final int target) {
+        return (long) source << 32 | target & 0xFFFFFFFFL;
+    }
+
+    private int stringId(final String s) {
+        int id = stringIds.getInt(s);
+        if (id == -1) {
+            id = strings.size();
+            stringIds.put(s, id);
+            strings.add(s);
+        }
+        return id;
+    }
+
+    /**
+     * Returns how metadata can be stored.
+     *
+     * @return {@link #INTEGER_PCS} or {@link #STRING_PCS} if they can be stored in columns,
+     *         {@link #IRREGULAR} otherwise
+     */
+    private static byte kind(final Map<Object, Object> metadata) {
+        if (metadata.isEmpty()) {
+            return INTEGER_PCS;
+        }
+        final var first = metadata.keySet().iterator().next();
+        final byte kind = first instanceof Integer ? INTEGER_PCS : first instanceof String ? STRING_PCS : IRREGULAR;
+        if (kind == IRREGULAR) {
+            return IRREGULAR;
+        }
+        for (final var entry : metadata.entrySet()) {
+            final var pc = entry.getKey();
+            if (kind == INTEGER_PCS ? !(pc instanceof Integer) : !(pc instanceof String) || !isInteger((String) pc)) {
+                return IRREGULAR;
+            }
+            if (!(entry.getValue() instanceof Map)) {
+                return IRREGULAR;
+            }
+            final var callSite = (Map<?, ?>) entry.getValue();
+            for (final var site : callSite.entrySet()) {
+                final var value = site.getValue();
+                if ("line".equals(site.getKey())) {
+                    if (!(value instanceof Integer) || (Integer) value == NO_LINE) {
+                        return IRREGULAR;
+                    }
+                } else if ("type".equals(site.getKey()) || "receiver".equals(site.getKey())) {
+                    if (!(value instanceof String)) {
+                        return IRREGULAR;
+                    }
+                } else {
+                    return IRREGULAR;
+                }
+            }
+        }
+        return kind;
+    }
+
+    /** Returns whether a string is the canonical representation of an integer. */
+    private static boolean isInteger(final String s) {
+        try {
+            return Integer.toString(Integer.parseInt(s)).equals(s);
+        } catch (final NumberFormatException e) {
+            return false;
+        }
+    }
+
+    /**
+     * Stores metadata, and returns their kind and location.
+     *
+     * @param metadata the metadata to store
+     * @param location an array where the first call site (or the index in {@link #irregular}) and
+     *                 the number of call sites are stored
+     * @return the kind of the metadata
+     */
+    private byte store(final Map<Object, Object> metadata, final int[] location) {
+        final byte kind = kind(metadata);
+        if (kind == IRREGULAR) {
+            location[0] = irregular.size();
+            location[1] = 0;
+            irregular.add(metadata);
+            return kind;
+        }
+        location[0] = pcs.size();
+        location[1] = metadata.size();
+        for (final var entry : metadata.entrySet()) {
+            final var pc = entry.getKey();
+            final var callSite = (Map<?, ?>) entry.getValue();
+            pcs.add(kind == INTEGER_PCS ? (Integer) pc : Integer.parseInt((String) pc));
+            final var line = callSite.get("line");
+            lines.add(line == null ? NO_LINE : (Integer) line);
+            final var type = callSite.get("type");
+            types.add(type == null ? -1 : stringId((String) type));
+            final var receiver = callSite.get("receiver");
+            receivers.add(receiver == null ? -1 : stringId((String) receiver));
+        }
+        return kind;
+    }
+
+    /**
+     * Rebuilds the metadata of the call in a given position.
+     */
+    private Map<Object, Object> load(final int pos) {
+        final byte kind = kinds.getByte(pos);
+        final int first = firstSites.getInt(pos);
+        if (kind == IRREGULAR) {
+            return irregular.get(first);
+        }
+        final int n = numSites.getInt(pos);
+        final var metadata = new HashMap<Object, Object>(n * 4 / 3 + 1);
+        for (int i = first; i < first + n; i++) {
+            final var callSite = new HashMap<String, Object>(4);
+            final int line = lines.getInt(i);
+            if (line != NO_LINE) {
+                callSite.put("line", line);
+            }
+            final int type = types.getInt(i);
+            if (type != -1) {
+                callSite.put("type", strings.get(type));
+            }
+            final int receiver = receivers.getInt(i);
+            if (receiver != -1) {
+                callSite.put("receiver", strings.get(receiver));
+            }
+            final int pc = pcs.getInt(i);
+            metadata.put(kind == INTEGER_PCS ? (Object) pc : Integer.toString(pc), callSite);
+        }
+        return metadata;
+    }
+
+    /**
+     * Returns the position of a call given as a map key.
+     *
+     * @return the position of the call, or -1 if {@code key} is not a call in this map
+     */
+    private int position(final Object key) {
+        if (!(key instanceof List)) {
+            return -1;
+        }
+        final var list = (List<?>) key;
+        if (list.size() != 2 || !(list.get(0) instanceof Integer) || !(list.get(1) instanceof Integer)) {
+            return -1;
+        }
+        return positions.get(arc((Integer) list.get(0), (Integer) list.get(1)));
+    }
+
+    /**
+     * Adds a call, or replaces its metadata.
+     *
+     * @param source   the source of the call
+     * @param target   the target of the call
+     * @param metadata the metadata of the call
+     * @return the previous metadata of the call, or {@code null}
+     */
+    public Map<Object, Object> put(final int source, final int target, final Map<Object, Object> metadata) {
+        final long arc = arc(source, target);
+        final int pos = positions.get(arc);
+        final Map<Object, Object> old = pos == -1 ? null : load(pos);
+        final int[] location = new int[2];
+        final byte kind = store(metadata, location);
+        if (pos != -1) {
+            kinds.set(pos, kind);
+            firstSites.set(pos, location[0]);
+            numSites.set(pos, location[1]);
+            return old;
+        }
+        positions.put(arc, sources.size());
+        sources.add(source);
+        targets.add(target);
+        kinds.add(kind);
+        firstSites.add(location[0]);
+        numSites.add(location[1]);
+        return null;
+    }
+
+    /**
+     * Returns the metadata of a call.
+     *
+     * @param source the source of the call
+     * @param target the target of the call
+     * @return the metadata of the call, or {@code null} if the call is not in this map
+     */
+    public Map<Object, Object> get(final int source, final int target) {
+        final int pos = positions.get(arc(source, target));
+        return pos == -1 ? null : load(pos);
+    }
+
+    /**
+     * Returns whether this map contains a call.
+     *
+     * @param source the source of the call
+     * @param target the target of the call
+     * @return true if this map contains the call
+     */
+    public boolean contains(final int source, final int target) {
+        return positions.containsKey(arc(source, target));
+    }
+
+    /**
+     * Returns the source of the call in a given position of the iteration order.
+     *
+     * @param pos a position smaller than {@link #size()}
+     * @return the source of the call
+     */
+    public int source(final int pos) {
+        return sources.getInt(pos);
+    }
+
+    /**
+     * Returns the target of the call in a given position of the iteration order.
+     *
+     * @param pos a position smaller than {@link #size()}
+     * @return the target of the call
+     */
+    public int target(final int pos) {
+        return targets.getInt(pos);
+    }
+
+    /**
+     * Returns the metadata of the call in a given position of the iteration order.
+     *
+     * @param pos a position smaller than {@link #size()}
+     * @return the metadata of the call
+     */
+    public Map<Object, Object> metadata(final int pos) {
+        return load(pos);
+    }
+
+    /**
+     * Returns the number of call sites stored in columns, including those of removed calls and
+     * replaced metadata.
+     *
+     * @return the number of call sites stored in columns
+     */
+    public int numCallSites() {
+        return pcs.size();
+    }
+
+    /**
+     * Returns the number of distinct types and receivers of call sites.
+     *
+     * @return the number of distinct strings stored for call sites
+     */
+    public int numStrings() {
+        return strings.size();
+    }
+
+    /**
+     * Returns the number of metadata that could not be stored in columns, including those of
+     * removed calls and replaced metadata.
+     *
+     * @return the number of metadata stored as they are
+     */
+    public int numIrregular() {
+        return irregular.size();
+    }
+
+    private void removeAt(final int pos) {
+        final int last = sources.size() - 1;
+        positions.remove(arc(sources.getInt(pos), targets.getInt(pos)));
+        if (pos != last) {
+            sources.set(pos, sources.getInt(last));
+            targets.set(pos, targets.getInt(last));
+            kinds.set(pos, kinds.getByte(last));
+            firstSites.set(pos, firstSites.getInt(last));
+            numSites.set(pos, numSites.getInt(last));
+            positions.put(arc(sources.getInt(pos), targets.getInt(pos)), pos);
+        }
+        sources.size(last);
+        targets.size(last);
+        kinds.size(last);
+        firstSites.size(last);
+        numSites.size(last);
+    }
+
+    @Override
+    public int size() {
+        return sources.size();
+    }
+
+    @Override
+    public boolean containsKey(final Object key) {
+        return position(key) != -1;
+    }
+
+    @Override
+    public Map<Object, Object> get(final Object key) {
+        final int pos = position(key);
+        return pos == -1 ? null : metadata(pos);
+    }
+
+    @Override
+    public Map<Object, Object> put(final List<Integer> key, final Map<Object, Object> value) {
+        if (key.size() != 2) {
+            throw new IllegalArgumentException("A call must have a source and a target: " + key);
+        }
+        return put(key.get(0).intValue(), key.get(1).intValue(), value);
+    }
+
+    @Override
+    public Map<Object, Object> remove(final Object key) {
+        final int pos = position(key);
+        if (pos == -1) {
+            return null;
+        }
+        final var old = metadata(pos);
+        removeAt(pos);
+        return old;
+    }
+
+    @Override
+    public void clear() {
+        positions.clear();
+        sources.clear();
+        targets.clear();
+        kinds.clear();
+        firstSites.clear();
+        numSites.clear();
+        pcs.clear();
+        lines.clear();
+        types.clear();
+        receivers.clear();
+        strings.clear();
+        stringIds.clear();
+        irregular.clear();
+    }
+
+    @Override
+    public Set<Entry<List<Integer>, Map<Object, Object>>> entrySet() {
+        return new AbstractSet<>() {
+            @Override
+            public int size() {
+                return sources.size();
+            }
+
+            @Override
+            public Iterator<Entry<List<Integer>, Map<Object, Object>>> iterator() {
+                return new Iterator<>() {
+                    private int next;
+                    private int last = -1;
+
+                    @Override
+                    public boolean hasNext() {
+                        return next < sources.size();
+                    }
+
+                    @Override
+                    public Entry<List<Integer>, Map<Object, Object>> next() {
+                        if (!hasNext()) {
+                            throw new NoSuchElementException();
+                        }
+                        last = next++;
+                        return new CallEntry(last);
+                    }
+
+                    @Override
+                    public void remove() {
+                        if (last == -1) {
+                            throw new IllegalStateException();
+                        }
+                        // The last call is moved in place of the removed one, and must still be returned
+                        removeAt(last);
+                        next = last;
+                        last = -1;
+                    }
+                };
+            }
+        };
+    }
+
+    /** An entry of this map, backed by the call in a given position. */
+    private final class CallEntry implements Entry<List<Integer>, Map<Object, Object>> {
+        private final int source;
+        private final int target;
+
+        private CallEntry(final int pos) {
+            this.source = sources.getInt(pos);
+            this.target = targets.getInt(pos);
+        }
+
+        @Override
+        public List<Integer> getKey() {
+            return List.of(source, target);
+        }
+
+        @Override
+        public Map<Object, Object> getValue() {
+            return CompactCallMap.this.get(source, target);
+        }
+
+        @Override
+        public Map<Object, Object> setValue(final Map<Object, Object> value) {
+            return put(source, target, value);
+        }
+
+        @Override
+        public boolean equals(final Object o) {
+            if (!(o instanceof Entry)) {
+                return false;
+            }
+            final var e = (Entry<?, ?>) o;
+            return getKey().equals(e.getKey()) && Objects.equals(getValue(), e.getValue());
+        }
+
+        @Override
+        public int hashCode() {
+            return getKey().hashCode() ^ Objects.hashCode(getValue());
+        }
+
+        @Override
+        public String toString() {
+            return getKey() + "=" + getValue();
+        }
+    }
+}
@@ -20,6 +20,15 @@ package eu.fasten.core.data;
 
 import com.google.common.collect.BiMap;
 import com.google.common.collect.HashBiMap;
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.Reader;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
 import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.HashMap;
@@ -31,6 +40,7 @@ import org.apache.commons.lang3.StringUtils;
 import org.json.JSONArray;
 import org.json.JSONException;
 import org.json.JSONObject;
+import org.json.JSONWriter;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
@@ -160,6 +170,32 @@ public class ExtendedRevisionCallGraph {
         this.nodeCount = json.getInt("nodes");
     }
 
+    /**
+     * Reads an {@link ExtendedRevisionCallGraph} from a JSON stream, without building the JSON
+     * representation of the whole document in memory.
+     *
+     * @param reader a reader returning the JSON representation of a revision call graph
+     * @return the revision call graph
+     * @throws JSONException if the stream is not a valid JSON representation of a revision call
+     *                       graph, or if it cannot be read
+     */
+    public static ExtendedRevisionCallGraph read(final Reader reader) throws JSONException {
+        return new ExtendedRevisionCallGraphReader(reader).read();
+    }
+
+    /**
+     * Reads an {@link ExtendedRevisionCallGraph} from a UTF-8 encoded JSON stream, without building
+     * the JSON representation of the whole document in memory.
+     *
+     * @param stream a stream returning the JSON representation of a revision call graph
+     * @return the revision call graph
+     * @throws JSONException if the stream is not a valid JSON representation of a revision call
+     *                       graph, or if it cannot be read
+     */
+    public static ExtendedRevisionCallGraph read(final InputStream stream) throws JSONException {
+        return read(new InputStreamReader(stream, StandardCharsets.UTF_8));
+    }
+
     public String getCgGenerator() {
         return cgGenerator;
     }
@@ -206,18 +242,20 @@ public class ExtendedRevisionCallGraph {
         final Map<FastenURI, Type> internals = new HashMap<>();
         final Map<FastenURI, Type> externals = new HashMap<>();
         final Map<FastenURI, Type> resolved = new HashMap<>();
+        // Types appear many times, as keys, super types and in method URIs
+        final var pool = new FastenURIPool();
 
         final var internalTypes = cha.getJSONObject("internalTypes");
         for (final var key : internalTypes.keySet()) {
-            internals.put(FastenURI.create(key), new Type(internalTypes.getJSONObject(key)));
+            internals.put(pool.create(key), new Type(internalTypes.getJSONObject(key), pool));
         }
         final var externalTypes = cha.getJSONObject("externalTypes");
         for (final var key : externalTypes.keySet()) {
-            externals.put(FastenURI.create(key), new Type(externalTypes.getJSONObject(key)));
+            externals.put(pool.create(key), new Type(externalTypes.getJSONObject(key), pool));
         }
         final var resolvedTypes = cha.getJSONObject("resolvedTypes");
         for (final var key : resolvedTypes.keySet()) {
-            resolved.put(FastenURI.create(key), new Type(resolvedTypes.getJSONObject(key)));
+            resolved.put(pool.create(key), new Type(resolvedTypes.getJSONObject(key), pool));
         }
 
         return Map.of(Scope.internalTypes, internals,
@@ -304,6 +342,78 @@ public class ExtendedRevisionCallGraph {
         return result;
     }
 
+    /**
+     * Writes the JSON representation of this {@link ExtendedRevisionCallGraph} to a writer,
+     * without building it in memory. The output is equivalent to {@link #toJSON()}, but members of
+     * objects might appear in a different order. The writer is flushed, but not closed.
+     *
+     * @param writer a writer
+     * @throws IOException if an I/O error occurs
+     */
+    public void writeTo(final Writer writer) throws IOException {
+        try {
+            writeTo(new JSONWriter(writer));
+        } catch (final JSONException e) {
+            if (e.getCause() instanceof IOException) {
+                throw (IOException) e.getCause();
+            }
+            throw e;
+        }
+        writer.flush();
+    }
+
+    /**
+     * Writes the UTF-8 encoded JSON representation of this {@link ExtendedRevisionCallGraph} to a
+     * stream, without building it in memory. The stream is flushed, but not closed.
+     *
+     * @param stream a stream
+     * @throws IOException if an I/O error occurs
+     * @see #writeTo(Writer)
+     */
+    public void writeTo(final OutputStream stream) throws IOException {
+        writeTo(new BufferedWriter(new OutputStreamWriter(stream, StandardCharsets.UTF_8)));
+    }
+
+    /**
+     * Writes the JSON representation of this {@link ExtendedRevisionCallGraph} to a JSON writer.
+     *
+     * @param writer a JSON writer
+     */
+    public void writeTo(final JSONWriter writer) {
+        writer.object();
+        writeMember(writer, "forge", forge);
+        writeMember(writer, "product", product);
+        writeMember(writer, "version", version);
+        writeMember(writer, "generator", cgGenerator);
+        if (timestamp >= 0) {
+            writer.key("timestamp").value(timestamp);
+        }
+        writer.key("cha").object();
+        for (final var scope : Scope.values()) {
+            writer.key(scope.toString()).object();
+            for (final var entry : classHierarchy.get(scope).entrySet()) {
+                writer.key(entry.getKey().toString());
+                entry.getValue().writeTo(writer);
+            }
+            writer.endObject();
+        }
+        writer.endObject();
+        writer.key("graph");
+        graph.writeTo(writer);
+        writer.key("nodes").value(nodeCount);
+        writer.endObject();
+    }
+
+    /**
+     * Writes a member to a JSON writer, unless its value is {@code null}, as
+     * {@link JSONObject#put(String, Object)} does.
+     */
+    private static void writeMember(final JSONWriter writer, final String key, final Object value) {
+        if (value != null) {
+            writer.key(key).value(value);
+        }
+    }
+
     /**
      * Builder for {@link ExtendedRevisionCallGraph}.
      */
@@ -371,20 +481,21 @@ public class ExtendedRevisionCallGraph {
         /**
          * Keeps all the internal calls of the graph. The metadata per call is stored as a map.
          */
-        private final Map<List<Integer>, Map<Object, Object>> internalCalls;
+        private final CompactCallMap internalCalls;
 
         /**
          * Keeps all the external calls of the graph. The metadata per call is stored as a map.
          */
-        private final Map<List<Integer>, Map<Object, Object>> externalCalls;
+        private final CompactCallMap externalCalls;
 
         /**
          * Keeps all the resolved calls of the graph. The metadata per call is stored as a map.
          */
-        private final Map<List<Integer>, Map<Object, Object>> resolvedCalls;
+        private final CompactCallMap resolvedCalls;
 
         /**
-         * Creates {@link Graph} from given internal, external, and resolved calls.
+         * Creates {@link Graph} from given internal, external, and resolved calls. Maps that are
+         * not {@link CompactCallMap} instances are copied.
          *
          * @param internalCalls internal calls map
          * @param externalCalls external calls map
@@ -393,9 +504,9 @@ public class ExtendedRevisionCallGraph {
         public Graph(final Map<List<Integer>, Map<Object, Object>> internalCalls,
                      final Map<List<Integer>, Map<Object, Object>> externalCalls,
                      final Map<List<Integer>, Map<Object, Object>> resolvedCalls) {
-            this.internalCalls = internalCalls;
-            this.externalCalls = externalCalls;
-            this.resolvedCalls = resolvedCalls;
+            this.internalCalls = compact(internalCalls);
+            this.externalCalls = compact(externalCalls);
+            this.resolvedCalls = compact(resolvedCalls);
         }
 
         /**
@@ -417,18 +528,22 @@ public class ExtendedRevisionCallGraph {
          */
         public Graph(final HashMap<List<Integer>, Map<Object, Object>> internalCalls,
                      final HashMap<List<Integer>, Map<Object, Object>> externalCalls) {
-            this.internalCalls = internalCalls;
-            this.externalCalls = externalCalls;
-            this.resolvedCalls = new HashMap<>();
+            this.internalCalls = compact(internalCalls);
+            this.externalCalls = compact(externalCalls);
+            this.resolvedCalls = new CompactCallMap();
         }
 
         /**
          * Creates {@link Graph} with all fields empty.
          */
         public Graph() {
-            this.internalCalls = new HashMap<>();
-            this.externalCalls = new HashMap<>();
-            this.resolvedCalls = new HashMap<>();
+            this.internalCalls = new CompactCallMap();
+            this.externalCalls = new CompactCallMap();
+            this.resolvedCalls = new CompactCallMap();
+        }
+
+        private static CompactCallMap compact(final Map<List<Integer>, Map<Object, Object>> calls) {
+            return calls instanceof CompactCallMap ? (CompactCallMap) calls : new CompactCallMap(calls);
         }
 
         public Map<List<Integer>, Map<Object, Object>> getInternalCalls() {
@@ -476,16 +591,32 @@ public class ExtendedRevisionCallGraph {
          * @param key   key for calls extraction
          * @return extracted calls
          */
-        private Map<List<Integer>, Map<Object, Object>> extractCalls(JSONObject graph, String key) {
+        private CompactCallMap extractCalls(JSONObject graph, String key) {
             final var internalCalls = graph.getJSONArray(key);
-            final Map<List<Integer>, Map<Object, Object>> result = new HashMap<>();
             final int numberOfArcs = internalCalls.length();
+            final var result = new CompactCallMap(numberOfArcs);
             for (int i = 0; i < numberOfArcs; i++) {
-                result.putAll(getCall(internalCalls.getJSONArray(i)));
+                putCall(result, internalCalls.getJSONArray(i));
             }
             return result;
         }
 
+        /**
+         * Adds a call given as a JSON array to a call map.
+         *
+         * @param calls a call map
+         * @param call  JSON array
+         */
+        static void putCall(final CompactCallMap calls, final JSONArray call) {
+            final var callTypeJson = call.getJSONObject(2);
+            final Map<Object, Object> callSite = new HashMap<>();
+            for (String key : callTypeJson.keySet()) {
+                final var pc = Integer.valueOf(key);
+                callSite.put(pc, callTypeJson.getJSONObject(key).toMap());
+            }
+            calls.put(Integer.parseInt(call.getString(0)), Integer.parseInt(call.getString(1)), callSite);
+        }
+
         /**
          * Add calls from a given graph to this graph.
          *
@@ -533,6 +664,34 @@ public class ExtendedRevisionCallGraph {
             result.put("resolvedCalls", resolvedCallsJSON);
             return result;
         }
+
+        /**
+         * Writes the JSON representation of this {@link Graph} to a JSON writer, one call at a
+         * time.
+         *
+         * @param writer a JSON writer
+         * @see #toJSON()
+         */
+        public void writeTo(final JSONWriter writer) {
+            writer.object();
+            writeCalls(writer, "internalCalls", internalCalls);
+            writeCalls(writer, "externalCalls", externalCalls);
+            writeCalls(writer, "resolvedCalls", resolvedCalls);
+            writer.endObject();
+        }
+
+        private static void writeCalls(final JSONWriter writer, final String key, final CompactCallMap calls) {
+            writer.key(key).array();
+            final int size = calls.size();
+            for (int i = 0; i < size; i++) {
+                writer.array();
+                writer.value(Integer.toString(calls.source(i)));
+                writer.value(Integer.toString(calls.target(i)));
+                writer.value(new JSONObject(calls.metadata(i)));
+                writer.endArray();
+            }
+            writer.endArray();
+        }
     }
 
     public static class Node {
@@ -670,6 +829,16 @@ public class ExtendedRevisionCallGraph {
          *             classes and super interfaces.
          */
         public Type(final JSONObject type) {
+            this(type, new FastenURIPool());
+        }
+
+        /**
+         * Creates {@link Type} for the given JSONObject, creating URIs through a pool.
+         *
+         * @param type JSONObject of a type
+         * @param pool the pool used to create URIs
+         */
+        Type(final JSONObject type, final FastenURIPool pool) {
             this.sourceFileName = type.getString("sourceFile");
 
             final var methodsJson = type.getJSONObject("methods");
@@ -677,21 +846,21 @@ public class ExtendedRevisionCallGraph {
             for (final var methodKey : methodsJson.keySet()) {
                 final var nodeJson = methodsJson.getJSONObject(methodKey);
                 this.methods.put(Integer.parseInt(methodKey),
-                        new Node(FastenURI.create(nodeJson.getString("uri")), nodeJson.getJSONObject("metadata").toMap()));
+                        new Node(pool.create(nodeJson.getString("uri")), nodeJson.getJSONObject("metadata").toMap()));
             }
 
             final var superClassesJSON = type.getJSONArray("superClasses");
             this.superClasses = new LinkedList<>();
             final int numberOfSuperClasses = superClassesJSON.length();
             for (int i = 0; i < numberOfSuperClasses; i++) {
-                this.superClasses.add(FastenURI.create(superClassesJSON.getString(i)));
+                this.superClasses.add(pool.create(superClassesJSON.getString(i)));
             }
 
             final var superInterfacesJSON = type.getJSONArray("superInterfaces");
             this.superInterfaces = new ArrayList<>();
             final int numberOfSuperInterfaces = superInterfacesJSON.length();
             for (int i = 0; i < numberOfSuperInterfaces; i++) {
-                this.superInterfaces.add(FastenURI.create(superInterfacesJSON.getString(i)));
+                this.superInterfaces.add(pool.create(superInterfacesJSON.getString(i)));
             }
             this.access = type.getString("access");
             this.isFinal = type.getBoolean("final");
@@ -811,6 +980,38 @@ public class ExtendedRevisionCallGraph {
             return result;
         }
 
+        /**
+         * Writes the JSON representation of this {@link Type} to a JSON writer.
+         *
+         * @param writer a JSON writer
+         * @see #toJSON()
+         */
+        public void writeTo(final JSONWriter writer) {
+            writer.object();
+            writer.key("methods").object();
+            for (final var entry : this.methods.entrySet()) {
+                writer.key(entry.getKey().toString()).object();
+                writer.key("uri").value(entry.getValue().getUri().toString());
+                writer.key("metadata").value(new JSONObject(entry.getValue().getMetadata()));
+                writer.endObject();
+            }
+            writer.endObject();
+            writer.key("superClasses").array();
+            for (final var superClass : this.superClasses) {
+                writer.value(superClass.toString());
+            }
+            writer.endArray();
+            writer.key("superInterfaces").array();
+            for (final var superInterface : this.superInterfaces) {
+                writer.value(superInterface.toString());
+            }
+            writer.endArray();
+            writeMember(writer, "sourceFile", this.sourceFileName);
+            writeMember(writer, "access", this.access);
+            writer.key("final").value(this.isFinal);
+            writer.endObject();
+        }
+
         @Override
         public String toString() {
             return "Type{"
@@ -0,0 +1,248 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package eu.fasten.core.data;
+
+import java.io.Reader;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Map;
+import org.json.JSONArray;
+import org.json.JSONException;
+import org.json.JSONObject;
+import org.json.JSONTokener;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * A pull parser for the JSON representation of an {@link ExtendedRevisionCallGraph}.
+ *
+ * <p>The document is scanned with a {@link JSONTokener}, and the class hierarchy and the graph are
+ * built while reading. Only single types and single calls are materialized as {@link JSONObject}
+ * and {@link JSONArray} instances, so the transient memory is bounded by the size of the largest
+ * type rather than by the size of the document. Members may appear in any order, and unknown
+ * members are skipped.
+ */
+class ExtendedRevisionCallGraphReader {
+
+    private static final Logger logger = LoggerFactory.getLogger(ExtendedRevisionCallGraphReader.class);
+
+    /** Reads the value of a member of an object, given its key. */
+    @FunctionalInterface
+    private interface ValueReader {
+        void read(String key);
+    }
+
+    private final JSONTokener tokener;
+
+    /** The pool used to create the URIs of the revision call graph. */
+    private final FastenURIPool pool = new FastenURIPool();
+
+    /**
+     * Creates a parser for a JSON stream.
+     *
+     * @param reader a reader returning the JSON representation of a revision call graph
+     */
+    ExtendedRevisionCallGraphReader(final Reader reader) {
+        this.tokener = new JSONTokener(reader);
+    }
+
+    /**
+     * Reads the revision call graph.
+     *
+     * @return the revision call graph
+     * @throws JSONException if the stream is not a valid JSON representation of a revision call
+     *                       graph
+     */
+    ExtendedRevisionCallGraph read() throws JSONException {
+        final var builder = ExtendedRevisionCallGraph.extendedBuilder();
+        final var found = new HashSet<String>();
+        builder.timestamp(-1);
+        object(key -> {
+            switch (key) {
+                case "forge":
+                    builder.forge(string(key));
+                    break;
+                case "product":
+                    builder.product(string(key));
+                    break;
+                case "version":
+                    builder.version(string(key));
+                    break;
+                case "generator":
+                    builder.cgGenerator(string(key));
+                    break;
+                case "timestamp":
+                    final var timestamp = tokener.nextValue();
+                    if (timestamp instanceof Number) {
+                        builder.timestamp(((Number) timestamp).longValue());
+                    } else {
+                        logger.warn("No timestamp provided: assuming -1");
+                    }
+                    break;
+                case "nodes":
+                    final var nodes = tokener.nextValue();
+                    if (!(nodes instanceof Number)) {
+                        throw tokener.syntaxError("JSONObject[\"nodes\"] is not a number.");
+                    }
+                    builder.nodeCount(((Number) nodes).intValue());
+                    break;
+                case "cha":
+                    builder.classHierarchy(classHierarchy());
+                    break;
+                case "graph":
+                    builder.graph(graph());
+                    break;
+                default:
+                    tokener.nextValue();
+                    return;
+            }
+            found.add(key);
+        });
+        for (final var key : new String[]{"forge", "product", "version", "generator", "cha", "graph", "nodes"}) {
+            if (!found.contains(key)) {
+                throw new JSONException("JSONObject[\"" + key + "\"] not found.");
+            }
+        }
+        if (!found.contains("timestamp")) {
+            logger.warn("No timestamp provided: assuming -1");
+        }
+        return builder.build();
+    }
+
+    private Map<ExtendedRevisionCallGraph.Scope, Map<FastenURI, ExtendedRevisionCallGraph.Type>> classHierarchy() {
+        final Map<ExtendedRevisionCallGraph.Scope, Map<FastenURI, ExtendedRevisionCallGraph.Type>> cha = new HashMap<>();
+        object(key -> {
+            final ExtendedRevisionCallGraph.Scope scope;
+            try {
+                scope = ExtendedRevisionCallGraph.Scope.valueOf(key);
+            } catch (final IllegalArgumentException e) {
+                tokener.nextValue();
+                return;
+            }
+            final Map<FastenURI, ExtendedRevisionCallGraph.Type> types = new HashMap<>();
+            object(type -> types.put(pool.create(type), new ExtendedRevisionCallGraph.Type(jsonObject(type), pool)));
+            cha.put(scope, types);
+        });
+        for (final var scope : ExtendedRevisionCallGraph.Scope.values()) {
+            if (!cha.containsKey(scope)) {
+                throw new JSONException("JSONObject[\"" + scope + "\"] not found.");
+            }
+        }
+        return Map.of(ExtendedRevisionCallGraph.Scope.internalTypes, cha.get(ExtendedRevisionCallGraph.Scope.internalTypes),
+                ExtendedRevisionCallGraph.Scope.externalTypes, cha.get(ExtendedRevisionCallGraph.Scope.externalTypes),
+                ExtendedRevisionCallGraph.Scope.resolvedTypes, cha.get(ExtendedRevisionCallGraph.Scope.resolvedTypes));
+    }
+
+    private ExtendedRevisionCallGraph.Graph graph() {
+        final Map<String, CompactCallMap> calls = new HashMap<>();
+        object(key -> {
+            if (!key.equals("internalCalls") && !key.equals("externalCalls") && !key.equals("resolvedCalls")) {
+                tokener.nextValue();
+                return;
+            }
+            final var result = new CompactCallMap();
+            array(key, () -> {
+                final var call = tokener.nextValue();
+                if (!(call instanceof JSONArray)) {
+                    throw tokener.syntaxError("A call must be a JSONArray");
+                }
+                ExtendedRevisionCallGraph.Graph.putCall(result, (JSONArray) call);
+            });
+            calls.put(key, result);
+        });
+        for (final var key : new String[]{"internalCalls", "externalCalls", "resolvedCalls"}) {
+            if (!calls.containsKey(key)) {
+                throw new JSONException("JSONObject[\"" + key + "\"] not found.");
+            }
+        }
+        return new ExtendedRevisionCallGraph.Graph(calls.get("internalCalls"), calls.get("externalCalls"),
+                calls.get("resolvedCalls"));
+    }
+
+    /**
+     * Reads an object, passing the key of each member to a reader that must consume its value.
+     */
+    private void object(final ValueReader member) {
+        if (tokener.nextClean() != '{') {
+            throw tokener.syntaxError("A JSONObject text must begin with '{'");
+        }
+        char c = tokener.nextClean();
+        if (c == '}') {
+            return;
+        }
+        tokener.back();
+        for (;;) {
+            if (tokener.nextClean() != '"') {
+                throw tokener.syntaxError("Expected a quoted key");
+            }
+            final String key = tokener.nextString('"');
+            if (tokener.nextClean() != ':') {
+                throw tokener.syntaxError("Expected a ':' after a key");
+            }
+            member.read(key);
+            c = tokener.nextClean();
+            if (c == '}') {
+                return;
+            }
+            if (c != ',') {
+                throw tokener.syntaxError("Expected a ',' or '}'");
+            }
+        }
+    }
+
+    /**
+     * Reads an array, calling a reader that must consume each element.
+     */
+    private void array(final String key, final Runnable element) {
+        if (tokener.nextClean() != '[') {
+            throw tokener.syntaxError("JSONObject[\"" + key + "\"] is not a JSONArray.");
+        }
+        char c = tokener.nextClean();
+        if (c == ']') {
+            return;
+        }
+        tokener.back();
+        for (;;) {
+            element.run();
+            c = tokener.nextClean();
+            if (c == ']') {
+                return;
+            }
+            if (c != ',') {
+                throw tokener.syntaxError("Expected a ',' or ']'");
+            }
+        }
+    }
+
+    private String string(final String key) {
+        final var value = tokener.nextValue();
+        if (!(value instanceof String)) {
+            throw tokener.syntaxError("JSONObject[\"" + key + "\"] not a string.");
+        }
+        return (String) value;
+    }
+
+    private JSONObject jsonObject(final String key) {
+        final var value = tokener.nextValue();
+        if (!(value instanceof JSONObject)) {
+            throw tokener.syntaxError("JSONObject[\"" + key + "\"] is not a JSONObject.");
+        }
+        return (JSONObject) value;
+    }
+}
@@ -125,7 +125,7 @@ public class FastenCURI extends FastenURI {
 		else
 			rawNamespace = null;
 		final FastenURI fastenURI = FastenURI.create(rawForge, rawProduct, rawVersion, rawNamespace, entitysb.toString());
-		return create(fastenURI.uri);
+		return create(fastenURI.uri());
 	}
 
 	/** Returns the name of the function or variable associated with this FASTEN C URI.
@@ -195,9 +195,9 @@ public class FastenCURI extends FastenURI {
 	public FastenCURI relativize(final FastenURI u) {
 		if (rawNamespace == null) throw new IllegalStateException("You cannot relativize without a namespace");
 
-		final String rawAuthority = u.uri.getRawAuthority();
+		final String rawAuthority = u.uri().getRawAuthority();
 		// There is an authority and it doesn't match: return u
-		if (rawAuthority != null && ! rawAuthority.equals(uri.getRawAuthority())) return u instanceof FastenCURI ? (FastenCURI) u : create(u.uri);
+		if (rawAuthority != null && ! rawAuthority.equals(uri().getRawAuthority())) return u instanceof FastenCURI ? (FastenCURI) u : create(u.uri());
 		// Matching authorities, or no authority, and there's a namespace, and it doesn't match: return namespace + entity
 		if (u.rawNamespace != null && ! rawNamespace.equals(u.rawNamespace)) return FastenCURI.create("/" + u.rawNamespace + "/" +  u.rawEntity);
 		// Matching authorities, or no authority, matching namespaces, or no namespace: return entity
@@ -206,7 +206,7 @@ public class FastenCURI extends FastenURI {
 
 	public FastenCURI resolve(final FastenCURI u) {
 		// Standard resolution will work; might be more efficient
-		return create(this.uri.resolve(u.uri));
+		return create(this.uri().resolve(u.uri()));
 	}
 
 	@Override
@@ -24,6 +24,12 @@ import java.net.URI;
 /**
  * A class representing a Fasten URI for the Java language; it has to be considered experimental
  * until the BNF for such URIs is set in stone.
+ *
+ * <p>When a {@link FastenJavaURI} is created from a string, the structure of its entity is
+ * validated immediately, but its components (class name, function or attribute name, argument
+ * types and return type) are decoded only when they are first accessed, so creating URIs that
+ * are only used as keys or for their namespace is cheap. In particular, argument and return types
+ * that are not valid URIs are reported when the types are accessed.
  */
 public class FastenJavaURI extends FastenURI {
 
@@ -34,10 +40,18 @@ public class FastenJavaURI extends FastenURI {
             '!', '$', '&', '\'', '*', ';', '=', // sub-delims-type
             '@'}, .5f);
 
-    private final String className;
-    private final String functionOrAttributeName;
-    private final FastenJavaURI[] args;
-    private final FastenJavaURI returnType;
+    /** The position of the dot separating the type from the function or attribute in the raw entity, or -1. */
+    private final int dotPos;
+    /** The position of the parenthesis opening the arguments in the raw entity, or -1. */
+    private final int openParenPos;
+    /** The position of the parenthesis closing the arguments in the raw entity, or -1. */
+    private final int closedParenPos;
+
+    // Components, computed lazily from the raw entity unless specified at construction time
+    private volatile String className;
+    private volatile String functionOrAttributeName;
+    private volatile FastenJavaURI[] args;
+    private volatile FastenJavaURI returnType;
 
     /**
      * Constructs a {@link FastenJavaURI} from a {@link String} uri.
@@ -51,6 +65,9 @@ public class FastenJavaURI extends FastenURI {
         this.functionOrAttributeName = functionName;
         this.args = args;
         this.returnType = returnType;
+        this.dotPos = rawEntity == null ? -1 : rawEntity.indexOf('.');
+        this.openParenPos = dotPos == -1 ? -1 : rawEntity.indexOf('(', dotPos + 1);
+        this.closedParenPos = openParenPos == -1 ? -1 : rawEntity.indexOf(')', dotPos + 1);
     }
 
     /**
@@ -59,62 +76,38 @@ public class FastenJavaURI extends FastenURI {
      * @param s a {@link String} a specifying a {@link FastenJavaURI}.
      */
     public FastenJavaURI(final String s) {
-        super(URI.create(s));
+        super(s);
         if (rawEntity == null) {
-            className = null;
-            functionOrAttributeName = null;
-            returnType = null;
-            args = null;
+            dotPos = openParenPos = closedParenPos = -1;
             return;
         }
 
-        final var dotPos = rawEntity.indexOf(".");
+        final int length = rawEntity.length();
+        dotPos = rawEntity.indexOf('.');
         if (dotPos == -1) { // entity-type
-            checkForCommasAndParentheses(rawEntity);
-            className = decode(rawEntity);
-            functionOrAttributeName = null;
-            returnType = null;
-            args = null;
+            checkForCommasAndParentheses(rawEntity, 0, length);
+            openParenPos = closedParenPos = -1;
             return;
         }
 
-        final String classNameSpec = rawEntity.substring(0, dotPos);
-        checkForCommasParenthesesOrDots(classNameSpec);
-        className = decode(classNameSpec);
-        final String funcArgsTypeSpec = rawEntity.substring(dotPos + 1);
+        checkForCommasParenthesesOrDots(rawEntity, 0, dotPos);
 
-        final var openParenPos = funcArgsTypeSpec.indexOf('(');
+        openParenPos = rawEntity.indexOf('(', dotPos + 1);
         if (openParenPos == -1) { // entity-attribute
-            checkForCommasParenthesesOrDots(funcArgsTypeSpec);
-            args = null;
-            returnType = null;
-            functionOrAttributeName = decode(funcArgsTypeSpec);
+            checkForCommasParenthesesOrDots(rawEntity, dotPos + 1, length);
+            closedParenPos = -1;
             return;
         }
 
-        final String functionOrAttributeNameSpec = funcArgsTypeSpec.substring(0, openParenPos);
-        checkForCommasParenthesesOrDots(functionOrAttributeNameSpec);
-        functionOrAttributeName = decode(functionOrAttributeNameSpec);
+        checkForCommasParenthesesOrDots(rawEntity, dotPos + 1, openParenPos);
 
-        final var closedParenPos = funcArgsTypeSpec.indexOf(')');
+        closedParenPos = rawEntity.indexOf(')', dotPos + 1);
         if (closedParenPos == -1) throw new IllegalArgumentException("Missing close parenthesis");
 
-        final String returnTypeSpec = funcArgsTypeSpec.substring(closedParenPos + 1);
-        checkForCommasAndParentheses(returnTypeSpec);
-        returnType = FastenJavaURI.createWithoutFunction(decode(returnTypeSpec));
-
-        final var argString = funcArgsTypeSpec.substring(openParenPos + 1, closedParenPos);
-        if (argString.length() == 0) {
-            args = NO_ARGS_ARRAY;
-            return;
-        }
-
-        final var a = argString.split(",");
-        args = new FastenJavaURI[a.length];
-        for (int i = 0; i < a.length; i++) {
-            checkForCommasAndParentheses(a[i]);
-            args[i] = FastenJavaURI.createWithoutFunction(decode(a[i]));
-        }
+        checkForCommasAndParentheses(rawEntity, closedParenPos + 1, length);
+        // Arguments are split at commas when decoded, and cannot contain a closed parenthesis
+        if (containsAny(rawEntity, openParenPos + 1, closedParenPos, "("))
+            throw new IllegalArgumentException("No parentheses or commas are allowed in type components");
     }
 
     /**
@@ -123,7 +116,11 @@ public class FastenJavaURI extends FastenURI {
      * @return the name of the class associated with this FASTEN Java URI
      */
     public String getClassName() {
-        return className;
+        String name = className;
+        if (name == null && rawEntity != null) {
+            className = name = decode(dotPos == -1 ? rawEntity : rawEntity.substring(0, dotPos));
+        }
+        return name;
     }
 
     /**
@@ -132,7 +129,12 @@ public class FastenJavaURI extends FastenURI {
      * @return the name of the method or attribute associated with this FASTEN Java URI
      */
     public String getEntityName() {
-        return functionOrAttributeName;
+        String name = functionOrAttributeName;
+        if (name == null && dotPos != -1) {
+            functionOrAttributeName = name = decode(rawEntity.substring(dotPos + 1,
+                    openParenPos == -1 ? rawEntity.length() : openParenPos));
+        }
+        return name;
     }
 
     /**
@@ -141,7 +143,22 @@ public class FastenJavaURI extends FastenURI {
      * @return the arguments of the method associated with this FASTEN Java URI
      */
     public FastenJavaURI[] getArgs() {
-        return args.clone(); // defensive copy?
+        return args().clone(); // defensive copy?
+    }
+
+    private FastenJavaURI[] args() {
+        FastenJavaURI[] a = args;
+        if (a == null && openParenPos != -1) {
+            final var argString = rawEntity.substring(openParenPos + 1, closedParenPos);
+            if (argString.length() == 0) a = NO_ARGS_ARRAY;
+            else {
+                final var specs = argString.split(",");
+                a = new FastenJavaURI[specs.length];
+                for (int i = 0; i < specs.length; i++) a[i] = FastenJavaURI.createWithoutFunction(decode(specs[i]));
+            }
+            args = a;
+        }
+        return a;
     }
 
     /**
@@ -150,7 +167,11 @@ public class FastenJavaURI extends FastenURI {
      * @return the return type of the method associated with this FASTEN Java URI
      */
     public FastenJavaURI getReturnType() {
-        return returnType;
+        FastenJavaURI type = returnType;
+        if (type == null && openParenPos != -1) {
+            returnType = type = FastenJavaURI.createWithoutFunction(decode(rawEntity.substring(closedParenPos + 1)));
+        }
+        return type;
     }
 
     /**
@@ -186,16 +207,16 @@ public class FastenJavaURI extends FastenURI {
             if (argTypes != null)
                 for (int i = 0; i < argTypes.length; i++) {
                     if (i > 0) entitysb.append(',');
-                    entitysb.append(pctEncodeArg(decode(argTypes[i].uri.toString())));
+                    entitysb.append(pctEncodeArg(decode(argTypes[i].toString())));
                 }
             entitysb.append(')');
-            entitysb.append(pctEncodeArg(decode(returnType.uri.toString())));
+            entitysb.append(pctEncodeArg(decode(returnType.toString())));
 
         } else if (argTypes != null && argTypes.length > 0)
             throw new IllegalArgumentException("You cannot specify argument types for an attribute");
 
         final var fastenURI = FastenURI.create(rawForge, rawProduct, rawVersion, rawNamespace, entitysb.toString());
-        return new FastenJavaURI(fastenURI.uri, typeName, function, argTypes, returnType);
+        return new FastenJavaURI(fastenURI.uri(), typeName, function, argTypes, returnType);
     }
 
     /**
@@ -231,9 +252,11 @@ public class FastenJavaURI extends FastenURI {
      * if any of those characters were found.
      *
      * @param returnTypeSpec uri to check
+     * @param from           the start of the region to check
+     * @param to             the end of the region to check
      */
-    private static void checkForCommasAndParentheses(final String returnTypeSpec) {
-        if (containsCommasAndParentheses(returnTypeSpec))
+    private static void checkForCommasAndParentheses(final String returnTypeSpec, final int from, final int to) {
+        if (containsAny(returnTypeSpec, from, to, ",()"))
             throw new IllegalArgumentException("No parentheses or commas are allowed in type components");
     }
 
@@ -244,9 +267,7 @@ public class FastenJavaURI extends FastenURI {
      * @return true if any commas or parentheses found
      */
     private static boolean containsCommasAndParentheses(final String returnTypeSpec) {
-        return returnTypeSpec.indexOf(',') != -1
-                || returnTypeSpec.indexOf('(') != -1
-                || returnTypeSpec.indexOf(')') != -1;
+        return containsAny(returnTypeSpec, 0, returnTypeSpec.length(), ",()");
     }
 
     /**
@@ -254,9 +275,11 @@ public class FastenJavaURI extends FastenURI {
      * IllegalArgumentException if any of those characters were found.
      *
      * @param returnTypeSpec uri to check
+     * @param from           the start of the region to check
+     * @param to             the end of the region to check
      */
-    private static void checkForCommasParenthesesOrDots(final String returnTypeSpec) {
-        if (containsCommasParenthesesOrDots(returnTypeSpec))
+    private static void checkForCommasParenthesesOrDots(final String returnTypeSpec, final int from, final int to) {
+        if (containsAny(returnTypeSpec, from, to, ".,()"))
             throw new IllegalArgumentException("No parentheses, commas or dots are allowed in entity components");
     }
 
@@ -267,10 +290,23 @@ public class FastenJavaURI extends FastenURI {
      * @return true if any commas, parentheses, or dots found
      */
     private static boolean containsCommasParenthesesOrDots(final String returnTypeSpec) {
-        return returnTypeSpec.indexOf('.') != -1
-                || returnTypeSpec.indexOf(',') != -1
-                || returnTypeSpec.indexOf('(') != -1
-                || returnTypeSpec.indexOf(')') != -1;
+        return containsAny(returnTypeSpec, 0, returnTypeSpec.length(), ".,()");
+    }
+
+    /**
+     * Checks whether a region of a string contains any of the given characters.
+     *
+     * @param s     a string
+     * @param from  the start of the region
+     * @param to    the end of the region
+     * @param chars the characters to look for
+     * @return true if any of {@code chars} is found in the region
+     */
+    private static boolean containsAny(final String s, final int from, final int to, final String chars) {
+        for (int i = from; i < to; i++) {
+            if (chars.indexOf(s.charAt(i)) != -1) return true;
+        }
+        return false;
     }
 
     /**
@@ -327,10 +363,10 @@ public class FastenJavaURI extends FastenURI {
     public FastenJavaURI relativize(final FastenURI u) {
         if (rawNamespace == null)
             throw new IllegalStateException("You cannot relativize without a namespace");
-        final String rawAuthority = u.uri.getRawAuthority();
+        final String rawAuthority = u.uri().getRawAuthority();
         // There is an authority and it doesn't match: return u
-        if (rawAuthority != null && !rawAuthority.equals(uri.getRawAuthority()))
-            return u instanceof FastenJavaURI ? (FastenJavaURI) u : create(u.uri.toString());
+        if (rawAuthority != null && !rawAuthority.equals(uri().getRawAuthority()))
+            return u instanceof FastenJavaURI ? (FastenJavaURI) u : create(u.toString());
         // Matching authorities, or no authority, and there's a namespace, and it doesn't match: return namespace + entity
         if (u.rawNamespace != null && !rawNamespace.equals(u.rawNamespace))
             return FastenJavaURI.create("/" + u.rawNamespace + "/" + u.rawEntity);
@@ -340,15 +376,16 @@ public class FastenJavaURI extends FastenURI {
 
     public FastenJavaURI resolve(final FastenJavaURI u) {
         // Standard resolution will work; might be more efficient
-        return create(this.uri.resolve(u.uri).toString());
+        return create(this.uri().resolve(u.uri()).toString());
     }
 
     @Override
     public FastenJavaURI canonicalize() {
+        final FastenJavaURI[] args = args();
         final FastenJavaURI[] relativizedArgs = new FastenJavaURI[args.length];
 
         for (int i = 0; i < args.length; i++) relativizedArgs[i] = relativize(args[i]);
-        final FastenJavaURI relativizedReturnType = relativize(returnType);
-        return FastenJavaURI.create(rawForge, rawProduct, rawVersion, rawNamespace, className, functionOrAttributeName, relativizedArgs, relativizedReturnType);
+        final FastenJavaURI relativizedReturnType = relativize(getReturnType());
+        return FastenJavaURI.create(rawForge, rawProduct, rawVersion, rawNamespace, getClassName(), getEntityName(), relativizedArgs, relativizedReturnType);
     }
 }
@@ -222,10 +222,10 @@ public class FastenPythonURI extends FastenURI {
             throw new IllegalArgumentException("You cannot relativize a URI without an entity");
         }
 
-        final String rawAuthority = u.uri.getRawAuthority();
+        final String rawAuthority = u.uri().getRawAuthority();
         // There is an authority and it doesn't match: return u
-        if (rawAuthority != null && ! rawAuthority.equals(uri.getRawAuthority())) {
-            return u instanceof FastenPythonURI ? (FastenPythonURI) u : create(u.uri);
+        if (rawAuthority != null && ! rawAuthority.equals(uri().getRawAuthority())) {
+            return u instanceof FastenPythonURI ? (FastenPythonURI) u : create(u.uri());
         }
 
         return FastenPythonURI.create("/" + u.getRawNamespace() + "/" +  u.getRawEntity());
@@ -233,7 +233,7 @@ public class FastenPythonURI extends FastenURI {
 
     public FastenPythonURI resolve(final FastenPythonURI u) {
         // Standard resolution will work; might be more efficient
-        return create(this.uri.resolve(u.uri));
+        return create(this.uri().resolve(u.uri()));
     }
 
     @Override
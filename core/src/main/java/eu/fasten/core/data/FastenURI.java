@@ -18,9 +18,10 @@
 
 package eu.fasten.core.data;
 
+import java.io.IOException;
+import java.io.ObjectOutputStream;
 import java.io.Serializable;
 import java.net.URI;
-import java.net.URISyntaxException;
 
 /** A class representing a Fasten URI; it has to be considered experimental until the BNF for such URIs is set in stone. */
 
@@ -28,8 +29,14 @@ public class FastenURI implements Serializable {
 	private static final long serialVersionUID = 1L;
 	/** A placeholder Fasten URI. */
 	public static final FastenURI NULL_FASTEN_URI = FastenURI.create("//-");
-	/** The underlying {@link URI}. */
-	protected final URI uri;
+	/** The prefix of URIs with the FASTEN scheme and an authority. */
+	private static final String FASTEN_PREFIX = "fasten://";
+	/** The underlying {@link URI}; it is created lazily by {@link #uri()} for URIs parsed directly from a string. */
+	private volatile URI uri;
+	/** The string representation of this FASTEN URI, or {@code null} if it has not been computed yet. */
+	private transient String string;
+	/** The hash code of this FASTEN URI, or 0 if it has not been computed yet. */
+	private transient int hash;
 	/** The forge of the {@linkplain #rawProduct product} associated with this FastenURI, or {@code null} if the forge is not specified. */
 	protected final String rawForge;
 	/** The product associated with this FastenURI, or {@code null} if the product is not specified. */
@@ -41,13 +48,45 @@ public class FastenURI implements Serializable {
 	/** The language-dependent part, or {@code null} if the language-dependent part is not specified. */
 	protected final String rawEntity;
 
-	protected FastenURI(URI uri) {
-		if (uri.getScheme() != null && ! "fasten".equalsIgnoreCase(uri.getScheme())) throw new IllegalArgumentException("Scheme, if specified, must be 'fasten'");
-		// Bypass URI when the scheme is specified, but there is no forge-product-version
-		if (uri.isOpaque()) uri = URI.create(uri.getSchemeSpecificPart());
+	protected FastenURI(final URI uri) {
+		this(null, uri, null);
+	}
+
+	/**
+	 * Creates a {@link FastenURI} from a string, with the same logic of {@link URI#create(String)}.
+	 *
+	 * <p>Well-formed FASTEN URIs are parsed directly, without building a {@link URI}.
+	 *
+	 * @param s a string specifying a {@link FastenURI}.
+	 * @throws IllegalArgumentException if the argument is not a valid {@link FastenURI}.
+	 */
+	protected FastenURI(final String s) {
+		this(s, pathStart(s) == -1 ? URI.create(s) : null, null);
+	}
 
-		this.uri = uri;
-		final String forgeProductVersion = uri.getRawAuthority();
+	/**
+	 * Creates a {@link FastenURI} from either a well-formed string or a {@link URI}.
+	 *
+	 * @param s a string satisfying {@link #pathStart(String)}, used if {@code uri} is {@code null}.
+	 * @param uri a {@link URI}, or {@code null}.
+	 * @param pool a pool used to canonicalize components, or {@code null}.
+	 */
+	FastenURI(final String s, URI uri, final FastenURIPool pool) {
+		final String forgeProductVersion, path;
+		if (uri != null) {
+			if (uri.getScheme() != null && ! "fasten".equalsIgnoreCase(uri.getScheme())) throw new IllegalArgumentException("Scheme, if specified, must be 'fasten'");
+			// Bypass URI when the scheme is specified, but there is no forge-product-version
+			if (uri.isOpaque()) uri = URI.create(uri.getSchemeSpecificPart());
+			this.uri = uri;
+			forgeProductVersion = uri.getRawAuthority();
+			path = uri.getRawPath();
+		} else {
+			this.string = s;
+			final int pathStart = pathStart(s);
+			final int authorityStart = s.startsWith(FASTEN_PREFIX) ? FASTEN_PREFIX.length() : s.startsWith("//") ? 2 : -1;
+			forgeProductVersion = authorityStart == -1 ? null : s.substring(authorityStart, pathStart);
+			path = s.substring(pathStart);
+		}
 
 		if (forgeProductVersion == null) rawForge = rawProduct = rawVersion = null;
 		else {
@@ -58,7 +97,7 @@ public class FastenURI implements Serializable {
 				productVersion = forgeProductVersion;
 			}
 			else {
-				rawForge = forgeProductVersion.substring(0,  exclPos);
+				rawForge = intern(pool, forgeProductVersion.substring(0,  exclPos));
 				productVersion = forgeProductVersion.substring(exclPos + 1);
 				if (productVersion.indexOf('!') >= 0) throw new IllegalArgumentException("More than one forge");
 			}
@@ -67,20 +106,18 @@ public class FastenURI implements Serializable {
 
 			final var dollarPos = productVersion.indexOf('$');
 			if (dollarPos == -1) {
-				rawProduct = productVersion;
+				rawProduct = intern(pool, productVersion);
 				rawVersion = null;
 			}
 			else {
-				rawProduct = productVersion.substring(0, dollarPos);
-				rawVersion = productVersion.substring(dollarPos + 1);
+				rawProduct = intern(pool, productVersion.substring(0, dollarPos));
+				rawVersion = intern(pool, productVersion.substring(dollarPos + 1));
 			}
 
                       this.validateRawVersion();
                       this.validateRawProduct();
 		}
 
-		final var path = uri.getRawPath();
-
 		if (path.length() == 0) {
 			rawNamespace = rawEntity = null;
 			return;
@@ -91,7 +128,7 @@ public class FastenURI implements Serializable {
 			slashPos = path.indexOf('/', 1); // Skip first slash
 
 			if (slashPos == -1)  throw new IllegalArgumentException("Missing entity");
-			rawNamespace = path.substring(1, slashPos);
+			rawNamespace = intern(pool, path.substring(1, slashPos));
 			rawEntity = path.substring(slashPos + 1);
 		}
 		else {
@@ -103,8 +140,79 @@ public class FastenURI implements Serializable {
               this.validateRawEntity();
 	}
 
-	protected FastenURI(final String s) throws URISyntaxException {
-		this(new URI(s));
+	private static String intern(final FastenURIPool pool, final String component) {
+		return pool == null ? component : pool.intern(component);
+	}
+
+	private static boolean isHexDigit(final char c) {
+		return c >= '0' && c <= '9' || c >= 'a' && c <= 'f' || c >= 'A' && c <= 'F';
+	}
+
+	/**
+	 * Returns whether a character can appear unescaped in the authority or in the path of a
+	 * well-formed FASTEN URI, according to RFC 2396 (the colon and the at sign are legal only in
+	 * the path).
+	 */
+	private static boolean isURIChar(final char c) {
+		if (c >= 'a' && c <= 'z' || c >= 'A' && c <= 'Z' || c >= '0' && c <= '9') return true;
+		switch (c) {
+		case '-': case '_': case '.': case '!': case '~': case '*': case '\'': case '(': case ')':
+		case '&': case '=': case '+': case '$': case ',': case ';': case '/':
+			return true;
+		default:
+			return false;
+		}
+	}
+
+	/**
+	 * Checks whether a string is a well-formed FASTEN URI that can be parsed without building a
+	 * {@link URI}, that is, a string of the form <code>[fasten:]//<var>authority</var>[<var>path</var>]</code>
+	 * or <code><var>path</var></code>, where the path starts with a slash, and only ASCII characters
+	 * that need not be escaped, or escapes, are used. Other strings are parsed by {@link URI}.
+	 *
+	 * @param s a string.
+	 * @return the start of the path in {@code s}, or -1 if {@code s} must be parsed by {@link URI}.
+	 */
+	static int pathStart(final String s) {
+		final int n = s.length();
+		int pathStart;
+		final int authorityStart = s.startsWith(FASTEN_PREFIX) ? FASTEN_PREFIX.length() : s.startsWith("//") ? 2 : -1;
+		if (authorityStart != -1) {
+			pathStart = s.indexOf('/', authorityStart);
+			if (pathStart == -1) pathStart = n;
+			// Empty authorities, and authorities that might contain user information or a port, are left to URI
+			if (pathStart == authorityStart) return -1;
+		}
+		else if (n > 0 && s.charAt(0) == '/') pathStart = 0;
+		else return -1;
+
+		for (int i = authorityStart == -1 ? 0 : authorityStart; i < n; i++) {
+			final char c = s.charAt(i);
+			if (c == '%') {
+				if (i + 2 >= n || ! isHexDigit(s.charAt(i + 1)) || ! isHexDigit(s.charAt(i + 2))) return -1;
+				i += 2;
+			}
+			else if ((c == ':' || c == '@') && i >= pathStart) continue;
+			else if (! isURIChar(c)) return -1;
+		}
+		return pathStart;
+	}
+
+	/**
+	 * Returns the {@link URI} underlying this FASTEN URI, creating it if necessary.
+	 *
+	 * @return the {@link URI} underlying this FASTEN URI.
+	 */
+	protected URI uri() {
+		URI u = uri;
+		if (u == null) uri = u = URI.create(string);
+		return u;
+	}
+
+	private void writeObject(final ObjectOutputStream s) throws IOException {
+		// The serialized form always contains the underlying URI
+		uri();
+		s.defaultWriteObject();
 	}
 
 	/**
@@ -114,7 +222,7 @@ public class FastenURI implements Serializable {
 	 */
 
 	public static FastenURI create(final String s) {
-		return new FastenURI(URI.create(s));
+		return new FastenURI(s);
 	}
 
 	/**
@@ -278,7 +386,7 @@ public class FastenURI implements Serializable {
 	}
 
 	public FastenURI resolve(final FastenURI fastenURI) {
-		return create(uri.resolve(fastenURI.uri));
+		return create(uri().resolve(fastenURI.uri()));
 	}
 
 	/** Relativizes the provided FASTEN URI with respected to this FASTEN URI.
@@ -297,9 +405,9 @@ public class FastenURI implements Serializable {
 	 */
 	public FastenURI relativize(final FastenURI u) {
 		if (rawNamespace == null) throw new IllegalStateException("You cannot relativize without a namespace");
-		final String rawAuthority = u.uri.getRawAuthority();
+		final String rawAuthority = u.uri().getRawAuthority();
 		// There is an authority and it doesn't match: return u
-		if (rawAuthority != null && ! rawAuthority.equals(uri.getRawAuthority())) return u;
+		if (rawAuthority != null && ! rawAuthority.equals(uri().getRawAuthority())) return u;
 		// Matching authorities, or no authority, and there's a namespace, and it doesn't match: return namespace + entity
 		if (u.rawNamespace != null && ! rawNamespace.equals(u.rawNamespace)) return FastenURI.create("/" + u.rawNamespace + "/" +  u.rawEntity);
 		// Matching authorities, or no authority, matching namespaces, or no namespace: return entity
@@ -307,7 +415,7 @@ public class FastenURI implements Serializable {
 	}
 
 	public String getScheme() {
-		return uri.getScheme();
+		return uri().getScheme();
 	}
 
 	/** Returns the {@linkplain URI#getPath() path} of this FASTEN URI.
@@ -317,7 +425,7 @@ public class FastenURI implements Serializable {
 	 * @return the path, or {@code null} if there is no path.
 	 */
 	public String getPath() {
-		final String path = uri.getPath();
+		final String path = uri().getPath();
 		assert path != null;
 		return path.length() == 0 ? null : path;
 	}
@@ -329,25 +437,31 @@ public class FastenURI implements Serializable {
 	 * @return the raw path, or {@code null} if there is no path.
 	 */
 	public String getRawPath() {
-		final String path = uri.getRawPath();
+		final String path = uri().getRawPath();
 		assert path != null;
 		return path.length() == 0 ? null : path;
 	}
 
 	@Override
 	public String toString() {
-		return uri.toString();
+		String s = string;
+		if (s == null) string = s = uri.toString();
+		return s;
 	}
 
 	@Override
 	public boolean equals(final Object o) {
+		if (this == o) return true;
 		if (o == null) return false;
-		return uri.toString().equals(o.toString());
+		if (o instanceof FastenURI && hashCode() != o.hashCode()) return false;
+		return toString().equals(o.toString());
 	}
 
 	@Override
 	public int hashCode() {
-		return uri.toString().hashCode();
+		int h = hash;
+		if (h == 0) hash = h = toString().hashCode();
+		return h;
 	}
 
 	/** A no-op canonicalization method.
@@ -0,0 +1,93 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package eu.fasten.core.data;
+
+import java.net.URI;
+
+import it.unimi.dsi.fastutil.objects.Object2ObjectOpenHashMap;
+import it.unimi.dsi.fastutil.objects.ObjectOpenHashSet;
+
+/** A canonicalizing pool of {@linkplain FastenURI FASTEN URIs}.
+ *
+ * <p>A pool returns the same instance for equal URIs, so URIs obtained from the same pool
+ * can be compared by reference, and their hash codes are computed once. Moreover, the
+ * forge, product, version and namespace of URIs created by a pool are themselves canonicalized,
+ * so they can be compared by reference, too.
+ *
+ * <p>Pools are meant to be scoped, e.g., to the parsing of a revision call graph, where
+ * the same types appear many times as keys, super types and components of method URIs: URIs
+ * are not released until the pool is {@linkplain #clear() cleared} or becomes unreachable.
+ *
+ * <p>This class is thread safe.
+ */
+
+public class FastenURIPool {
+	/** Maps string representations to canonical URIs. */
+	private final Object2ObjectOpenHashMap<String, FastenURI> uris = new Object2ObjectOpenHashMap<>();
+	/** The canonical components. */
+	private final ObjectOpenHashSet<String> components = new ObjectOpenHashSet<>();
+
+	/** Returns the canonical {@link FastenURI} specified by a string, creating it if necessary.
+	 *
+	 * @param s a string specifying a {@link FastenURI}.
+	 * @return the canonical {@link FastenURI} equal to {@link FastenURI#create(String) FastenURI.create(s)}.
+	 * @throws IllegalArgumentException if the argument is not a valid {@link FastenURI}.
+	 */
+	public synchronized FastenURI create(final String s) {
+		FastenURI uri = uris.get(s);
+		if (uri == null) uris.put(s, uri = new FastenURI(s, FastenURI.pathStart(s) == -1 ? URI.create(s) : null, this));
+		return uri;
+	}
+
+	/** Returns the canonical {@link FastenURI} equal to a given one, adding it to this pool if necessary.
+	 *
+	 * <p>Note that a URI added by this method keeps its components, which are not canonicalized.
+	 *
+	 * @param uri a {@link FastenURI}.
+	 * @return the canonical {@link FastenURI} equal to {@code uri}.
+	 */
+	public synchronized FastenURI intern(final FastenURI uri) {
+		final String s = uri.toString();
+		final FastenURI canonical = uris.putIfAbsent(s, uri);
+		return canonical == null ? uri : canonical;
+	}
+
+	/** Returns the canonical instance of a component.
+	 *
+	 * @param component a string.
+	 * @return the canonical instance of {@code component}.
+	 */
+	synchronized String intern(final String component) {
+		return components.addOrGet(component);
+	}
+
+	/** Returns the number of URIs in this pool.
+	 *
+	 * @return the number of URIs in this pool.
+	 */
+	public synchronized int size() {
+		return uris.size();
+	}
+
+	/** Removes all URIs and components from this pool. */
+	public synchronized void clear() {
+		uris.clear();
+		components.clear();
+	}
+}
@@ -0,0 +1,174 @@
+package eu.fasten.core.data;
+
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+import java.io.Closeable;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import org.rocksdb.ColumnFamilyDescriptor;
+import org.rocksdb.ColumnFamilyHandle;
+import org.rocksdb.ColumnFamilyOptions;
+import org.rocksdb.CompressionType;
+import org.rocksdb.DBOptions;
+import org.rocksdb.RocksDB;
+import org.rocksdb.RocksDBException;
+import org.rocksdb.RocksIterator;
+
+import com.google.common.primitives.Longs;
+
+/**
+ * A bidirectional dictionary between generic {@linkplain FastenURI FASTEN URIs} and GIDs, stored in
+ * a RocksDB instance of its own.
+ *
+ * <p>
+ * A {@link KnowledgeBase} keeps its dictionary in its own database; a dictionary stored separately
+ * makes it possible to share GIDs among several knowledge bases, as in the case of the shards of a
+ * {@link ShardedKnowledgeBase}. The dictionary uses the same column families of a knowledge base
+ * ({@link KnowledgeBase#GID2URI} and {@link KnowledgeBase#URI2GID}); since GIDs are stored in
+ * big-endian format, the next available GID is recovered from the last key at startup.
+ *
+ * <p>
+ * Instances of this class are thread safe: {@link #addURI(FastenURI)} can be called concurrently.
+ */
+public class GIDDictionary implements Closeable {
+	/** The RocksDB instance containing the dictionary. */
+	private final RocksDB db;
+	/** The handle for the default column (unused). */
+	private final ColumnFamilyHandle defaultHandle;
+	/** The handle for the column mapping GIDs to URIs. */
+	private final ColumnFamilyHandle gid2uriFamilyHandle;
+	/** The handle for the column mapping URIs to GIDs. */
+	private final ColumnFamilyHandle uri2gidFamilyHandle;
+	/** Whether the dictionary is read-only. */
+	private final boolean readOnly;
+	/** The next GID available. */
+	private volatile long nextGID;
+
+	private GIDDictionary(final RocksDB db, final List<ColumnFamilyHandle> columnFamilyHandles, final boolean readOnly) {
+		this.db = db;
+		this.defaultHandle = columnFamilyHandles.get(0);
+		this.gid2uriFamilyHandle = columnFamilyHandles.get(1);
+		this.uri2gidFamilyHandle = columnFamilyHandles.get(2);
+		this.readOnly = readOnly;
+		try (RocksIterator iterator = db.newIterator(gid2uriFamilyHandle)) {
+			iterator.seekToLast();
+			nextGID = iterator.isValid() ? Longs.fromByteArray(iterator.key()) + 1 : 0;
+		}
+	}
+
+	/**
+	 * Opens or creates a dictionary.
+	 *
+	 * @param dir the directory of the RocksDB instance containing the dictionary.
+	 * @param readOnly whether the dictionary should be opened in read-only mode.
+	 * @return the dictionary.
+	 */
+	@SuppressWarnings("resource")
+	public static GIDDictionary getInstance(final String dir, final boolean readOnly) throws RocksDBException {
+		RocksDB.loadLibrary();
+		final ColumnFamilyOptions cfOptions = new ColumnFamilyOptions().setCompressionType(CompressionType.LZ4_COMPRESSION);
+		final DBOptions dbOptions = new DBOptions().setCreateIfMissing(true).setCreateMissingColumnFamilies(true);
+		final List<ColumnFamilyDescriptor> cfDescriptors = Arrays.asList(new ColumnFamilyDescriptor(RocksDB.DEFAULT_COLUMN_FAMILY, cfOptions), new ColumnFamilyDescriptor(KnowledgeBase.GID2URI, cfOptions), new ColumnFamilyDescriptor(KnowledgeBase.URI2GID, cfOptions));
+		final List<ColumnFamilyHandle> columnFamilyHandles = new ArrayList<>();
+		final RocksDB db = readOnly ? RocksDB.openReadOnly(dbOptions, dir, cfDescriptors, columnFamilyHandles) : RocksDB.open(dbOptions, dir, cfDescriptors, columnFamilyHandles);
+		return new GIDDictionary(db, columnFamilyHandles, readOnly);
+	}
+
+	/**
+	 * Returns the generic URI associated with a GID.
+	 *
+	 * @param gid a GID.
+	 * @return the associated generic URI, or {@code null}.
+	 */
+	public FastenURI gid2URI(final long gid) {
+		byte[] result;
+		try {
+			result = db.get(gid2uriFamilyHandle, Longs.toByteArray(gid));
+		} catch (final RocksDBException e) {
+			throw new RuntimeException(e);
+		}
+		if (result == null) return null;
+		return FastenURI.create(new String(result, StandardCharsets.UTF_8));
+	}
+
+	/**
+	 * Returns the GID associated with a generic URI.
+	 *
+	 * @param uri a generic URI.
+	 * @return the associated GID, or -1.
+	 */
+	public long uri2GID(final FastenURI uri) {
+		byte[] result;
+		try {
+			result = db.get(uri2gidFamilyHandle, uri.toString().getBytes(StandardCharsets.UTF_8));
+		} catch (final RocksDBException e) {
+			throw new RuntimeException(e);
+		}
+		if (result == null) return -1;
+		return Longs.fromByteArray(result);
+	}
+
+	/**
+	 * Adds a generic URI to the dictionary. If the URI is already present, returns its GID.
+	 *
+	 * @param uri a generic URI.
+	 * @return the associated GID.
+	 */
+	public long addURI(final FastenURI uri) {
+		if (readOnly) throw new IllegalStateException();
+		final byte[] uriBytes = uri.toString().getBytes(StandardCharsets.UTF_8);
+		try {
+			// Lock-free fast path for URIs that are already known
+			byte[] result = db.get(uri2gidFamilyHandle, uriBytes);
+			if (result != null) return Longs.fromByteArray(result);
+			synchronized (this) {
+				result = db.get(uri2gidFamilyHandle, uriBytes);
+				if (result != null) return Longs.fromByteArray(result);
+				final long gid = nextGID;
+				final byte[] gidBytes = Longs.toByteArray(gid);
+				db.put(gid2uriFamilyHandle, gidBytes, uriBytes);
+				db.put(uri2gidFamilyHandle, uriBytes, gidBytes);
+				nextGID = gid + 1;
+				return gid;
+			}
+		} catch (final RocksDBException e) {
+			throw new RuntimeException(e);
+		}
+	}
+
+	/**
+	 * Returns the number of GIDs in this dictionary.
+	 *
+	 * @return the next GID available.
+	 */
+	public long size() {
+		return nextGID;
+	}
+
+	@Override
+	public void close() {
+		defaultHandle.close();
+		gid2uriFamilyHandle.close();
+		uri2gidFamilyHandle.close();
+		db.close();
+	}
+}
@@ -32,7 +32,11 @@ import java.util.Collection;
 import java.util.List;
 import java.util.Map;
 import java.util.Map.Entry;
+import java.util.NoSuchElementException;
 import java.util.Properties;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
 
 import org.apache.commons.lang3.tuple.Pair;
 import org.rocksdb.ColumnFamilyDescriptor;
@@ -61,11 +65,13 @@ import it.unimi.dsi.fastutil.ints.IntArrayList;
 import it.unimi.dsi.fastutil.ints.IntArrays;
 import it.unimi.dsi.fastutil.io.BinIO;
 import it.unimi.dsi.fastutil.io.FastByteArrayOutputStream;
+import it.unimi.dsi.fastutil.longs.AbstractLong2ObjectMap;
 import it.unimi.dsi.fastutil.longs.Long2IntOpenHashMap;
 import it.unimi.dsi.fastutil.longs.Long2ObjectMap;
 import it.unimi.dsi.fastutil.longs.Long2ObjectOpenHashMap;
 import it.unimi.dsi.fastutil.longs.LongArrayFIFOQueue;
 import it.unimi.dsi.fastutil.longs.LongArrayList;
+import it.unimi.dsi.fastutil.longs.LongCollection;
 import it.unimi.dsi.fastutil.longs.LongIterator;
 import it.unimi.dsi.fastutil.longs.LongIterators;
 import it.unimi.dsi.fastutil.longs.LongLinkedOpenHashSet;
@@ -74,11 +80,13 @@ import it.unimi.dsi.fastutil.longs.LongOpenHashSet;
 import it.unimi.dsi.fastutil.longs.LongSet;
 import it.unimi.dsi.fastutil.longs.LongSets;
 import it.unimi.dsi.fastutil.objects.AbstractObjectCollection;
+import it.unimi.dsi.fastutil.objects.AbstractObjectSet;
 import it.unimi.dsi.fastutil.objects.ObjectArrayFIFOQueue;
 import it.unimi.dsi.fastutil.objects.ObjectArrayList;
 import it.unimi.dsi.fastutil.objects.ObjectIterator;
 import it.unimi.dsi.fastutil.objects.ObjectLinkedOpenHashSet;
 import it.unimi.dsi.fastutil.objects.ObjectList;
+import it.unimi.dsi.fastutil.objects.ObjectSet;
 import it.unimi.dsi.io.InputBitStream;
 import it.unimi.dsi.io.NullInputStream;
 import it.unimi.dsi.lang.MutableString;
@@ -208,8 +216,12 @@ public class KnowledgeBase implements Serializable, Closeable {
 	 */
 	protected final Long2ObjectMap<LongSet> GIDCalledBy;
 
-	/** Maps revision indices to the corresponding call graph. */
-	public final Long2ObjectOpenHashMap<CallGraph> callGraphs;
+	/**
+	 * Maps revision indices to the corresponding call graph. If the knowledge base has been opened in
+	 * read-only mode, this is a read-only view of the {@linkplain KnowledgeBaseMetadata mapped
+	 * metadata}.
+	 */
+	public final Long2ObjectMap<CallGraph> callGraphs;
 
 	/** The RocksDB instance used by this indexer. */
 	private transient RocksDB callGraphDB;
@@ -217,8 +229,12 @@ public class KnowledgeBase implements Serializable, Closeable {
 	/** The knowledged base is read-only. */
 	private boolean readOnly;
 
-	/** The {@link Kryo} object used to serialize data to the database. */
-	private transient Kryo kryo;
+	/**
+	 * The {@link Kryo} objects used to serialize data to the database (one per thread, as
+	 * {@link Kryo} is not thread safe and graphs might be decoded concurrently, e.g., during a
+	 * {@linkplain KnowledgeBaseWarmUp warm-up}).
+	 */
+	private transient ThreadLocal<Kryo> kryo;
 
 	/**
 	 * The pathname of the file containing the metadata of this knowledge base.
@@ -241,7 +257,27 @@ public class KnowledgeBase implements Serializable, Closeable {
 	/** The next GID available. */
 	private long nextGID;
 
-	private FastenURI gid2URI(final long gid) {
+	/** A counter that is incremented at each modification of the set of call graphs. */
+	private long generation;
+
+	/**
+	 * A dictionary shared with other knowledge bases (e.g., the other shards of a
+	 * {@link ShardedKnowledgeBase}), or {@code null} if GIDs are assigned using the column families
+	 * of {@link #callGraphDB}.
+	 */
+	private transient GIDDictionary dictionary;
+
+	/**
+	 * GIDs that might no longer appear in any call graph after a {@linkplain #remove(long) removal};
+	 * they are removed from the URI column families by {@link #collectGarbage()}.
+	 */
+	private transient LongOpenHashSet orphanGIDs;
+
+	/** The executor collecting orphaned GIDs in the background, or {@code null}. */
+	private transient ExecutorService garbageCollector;
+
+	FastenURI gid2URI(final long gid) {
+		if (dictionary != null) return dictionary.gid2URI(gid);
 		byte[] result;
 		try {
 			result = callGraphDB.get(gid2uriFamilyHandle, Longs.toByteArray(gid));
@@ -252,7 +288,8 @@ public class KnowledgeBase implements Serializable, Closeable {
 		return FastenURI.create(new String(result, StandardCharsets.UTF_8));
 	}
 
-	private long uri2GID(final FastenURI uri) {
+	long uri2GID(final FastenURI uri) {
+		if (dictionary != null) return dictionary.uri2GID(uri);
 		byte[] result;
 		try {
 			result = callGraphDB.get(uri2gidFamilyHandle, uri.toString().getBytes(StandardCharsets.UTF_8));
@@ -417,7 +454,30 @@ public class KnowledgeBase implements Serializable, Closeable {
 		 */
 		@SuppressWarnings("null")
 
-		private transient SoftReference<CallGraphData> callGraphData;
+		private transient volatile SoftReference<CallGraphData> callGraphData;
+
+		/**
+		 * The number of accesses to the data of this call graph since the knowledge base was opened;
+		 * it is updated without synchronization, so it is just an estimate.
+		 */
+		private transient int accesses;
+
+		/**
+		 * Creates a call graph whose data are already stored in the database.
+		 *
+		 * @param index the revision index.
+		 * @param nInternal the number of internal nodes.
+		 * @param product the product.
+		 * @param version the version.
+		 * @param forge the forge.
+		 */
+		protected CallGraph(final long index, final int nInternal, final String product, final String version, final String forge) {
+			this.index = index;
+			this.nInternal = nInternal;
+			this.product = product;
+			this.version = version;
+			this.forge = forge;
+		}
 
 		// ALERT unsynchronized update of Knowledge Base maps.
 		/**
@@ -529,6 +589,7 @@ public class KnowledgeBase implements Serializable, Closeable {
 			graphProperties.load(propertyFile);
 			propertyFile.close();
 
+			final Kryo kryo = KnowledgeBase.this.kryo.get();
 			final FastByteArrayOutputStream fbaos = new FastByteArrayOutputStream();
 			final ByteBufferOutput bbo = new ByteBufferOutput(fbaos);
 			kryo.writeObject(bbo, BVGraph.load(f.toString()));
@@ -577,6 +638,18 @@ public class KnowledgeBase implements Serializable, Closeable {
 		 * @return an array containing the call graph and its transpose.
 		 */
 		public CallGraphData callGraphData() {
+			accesses++;
+			return loadCallGraphData();
+		}
+
+		/**
+		 * Returns the call graph and its transpose, like {@link #callGraphData()}, without counting
+		 * an access, so that a {@linkplain KnowledgeBaseWarmUp warm-up} does not make its call
+		 * graphs hot.
+		 *
+		 * @return the call graph and its transpose.
+		 */
+		CallGraphData loadCallGraphData() {
 			if (callGraphData != null) {
 				final var callGraphData = this.callGraphData.get();
 				if (callGraphData != null) return callGraphData;
@@ -585,7 +658,7 @@ public class KnowledgeBase implements Serializable, Closeable {
 				final byte[] buffer = callGraphDB.get(Longs.toByteArray(index));
 				final Input input = new Input(buffer);
 				int size = input.available();
-				assert kryo != null;
+				final Kryo kryo = KnowledgeBase.this.kryo.get();
 				final var graphs = new ImmutableGraph[] { kryo.readObject(input, BVGraph.class), kryo.readObject(input, BVGraph.class) };
 				final Properties[] properties = new Properties[] { kryo.readObject(input, Properties.class), kryo.readObject(input, Properties.class) };
 				final long[] LID2GID = kryo.readObject(input, long[].class);
@@ -607,6 +680,26 @@ public class KnowledgeBase implements Serializable, Closeable {
 			}
 		}
 
+		/**
+		 * Returns the number of accesses to the data of this call graph since the knowledge base was
+		 * opened.
+		 *
+		 * @return the (approximate) number of calls to {@link #callGraphData()}.
+		 */
+		public int accesses() {
+			return accesses;
+		}
+
+		/**
+		 * Returns whether the data of this call graph is currently decoded in memory.
+		 *
+		 * @return true if a call to {@link #callGraphData()} will not access the database.
+		 */
+		public boolean isDecoded() {
+			final SoftReference<CallGraphData> callGraphData = this.callGraphData;
+			return callGraphData != null && callGraphData.get() != null;
+		}
+
 		@Override
 		public String toString() {
 			final StringBuilder b = new StringBuilder();
@@ -666,9 +759,135 @@ public class KnowledgeBase implements Serializable, Closeable {
 		}
 	}
 
-	/** Initializes the kryo instance used for serialization. */
+	/**
+	 * Wraps a set of node signatures, and allows one to iterate over it with an iterator that returns
+	 * the {@link FastenURI} of the node each time.
+	 */
+	private final class SignatureNamedResult extends AbstractObjectCollection<FastenURI> {
+		private final LongCollection signatures;
+
+		/**
+		 * Wraps a given set of node signatures.
+		 *
+		 * @param signatures the set of node signatures.
+		 */
+		private SignatureNamedResult(final LongCollection signatures) {
+			this.signatures = signatures;
+		}
+
+		@Override
+		public int size() {
+			return signatures.size();
+		}
+
+		@Override
+		public boolean isEmpty() {
+			return signatures.isEmpty();
+		}
+
+		@Override
+		public ObjectIterator<FastenURI> iterator() {
+			final LongIterator iterator = signatures.iterator();
+			return new ObjectIterator<>() {
+
+				@Override
+				public boolean hasNext() {
+					return iterator.hasNext();
+				}
+
+				@Override
+				public FastenURI next() {
+					final long signature = iterator.nextLong();
+					return new Node(gid(signature), index(signature)).toFastenURI();
+				}
+			};
+		}
+	}
+
+	/**
+	 * A read-only view of the revision table of some {@linkplain KnowledgeBaseMetadata mapped
+	 * metadata}. {@link CallGraph} instances are created lazily, and cached, so that their decoded
+	 * data can be reused.
+	 */
+	private final class MappedCallGraphs extends AbstractLong2ObjectMap<CallGraph> {
+		private static final long serialVersionUID = 1L;
+		/** The mapped metadata. */
+		private final KnowledgeBaseMetadata metadata;
+		/** The call graphs created so far, indexed by row of the revision table. */
+		private final CallGraph[] row2CallGraph;
+
+		private MappedCallGraphs(final KnowledgeBaseMetadata metadata) {
+			if (metadata.numRevisions() > Integer.MAX_VALUE) throw new IllegalArgumentException("Too many revisions: " + metadata.numRevisions());
+			this.metadata = metadata;
+			this.row2CallGraph = new CallGraph[(int)metadata.numRevisions()];
+		}
+
+		private CallGraph callGraph(final int row) {
+			synchronized (row2CallGraph) {
+				CallGraph callGraph = row2CallGraph[row];
+				if (callGraph == null) row2CallGraph[row] = callGraph = new CallGraph(metadata.index(row), metadata.nInternal(row), metadata.product(row), metadata.version(row), metadata.forge(row));
+				return callGraph;
+			}
+		}
+
+		@Override
+		public CallGraph get(final long index) {
+			final long row = metadata.row(index);
+			return row == -1 ? defRetValue : callGraph((int)row);
+		}
+
+		@Override
+		public boolean containsKey(final long index) {
+			return metadata.row(index) != -1;
+		}
+
+		@Override
+		public int size() {
+			return row2CallGraph.length;
+		}
+
+		@Override
+		public ObjectSet<Long2ObjectMap.Entry<CallGraph>> long2ObjectEntrySet() {
+			return new AbstractObjectSet<>() {
+				@Override
+				public int size() {
+					return row2CallGraph.length;
+				}
+
+				@Override
+				public ObjectIterator<Long2ObjectMap.Entry<CallGraph>> iterator() {
+					return new ObjectIterator<>() {
+						private int row;
+
+						@Override
+						public boolean hasNext() {
+							return row < row2CallGraph.length;
+						}
+
+						@Override
+						public Long2ObjectMap.Entry<CallGraph> next() {
+							if (!hasNext()) throw new NoSuchElementException();
+							final CallGraph callGraph = callGraph(row++);
+							return new BasicEntry<>(callGraph.index, callGraph);
+						}
+					};
+				}
+			};
+		}
+	}
+
+	/** Initializes the kryo instances used for serialization. */
 	private void initKryo() {
-		kryo = new Kryo();
+		kryo = ThreadLocal.withInitial(KnowledgeBase::createKryo);
+	}
+
+	/**
+	 * Creates a kryo instance suitable for serializing call graphs.
+	 *
+	 * @return a new kryo instance.
+	 */
+	private static Kryo createKryo() {
+		final Kryo kryo = new Kryo();
 		kryo.register(BVGraph.class, new BVGraphSerializer(kryo));
 		kryo.register(byte[].class);
 		kryo.register(InputBitStream.class);
@@ -678,6 +897,7 @@ public class KnowledgeBase implements Serializable, Closeable {
 		kryo.register(Properties.class);
 		kryo.register(long[].class);
 		kryo.register(Long2IntOpenHashMap.class);
+		return kryo;
 	}
 
 	/**
@@ -705,6 +925,43 @@ public class KnowledgeBase implements Serializable, Closeable {
 		initKryo();
 	}
 
+	/**
+	 * Creates a knowledge base from mapped metadata. If the knowledge base is read-only, the metadata
+	 * are used directly; otherwise, they are copied into mutable maps.
+	 *
+	 * @param metadata the mapped metadata.
+	 */
+	private KnowledgeBase(final RocksDB callGraphDB, final ColumnFamilyHandle defaultHandle, final ColumnFamilyHandle gid2URIFamilyHandle, final ColumnFamilyHandle uri2GIDFamilyHandle, final String kbMetadataPathname, final boolean readOnly, final KnowledgeBaseMetadata metadata) {
+		if (readOnly) {
+			GIDAppearsIn = metadata.appearsIn();
+			GIDCalledBy = metadata.calledBy();
+			callGraphs = new MappedCallGraphs(metadata);
+		} else {
+			GIDAppearsIn = new Long2ObjectOpenHashMap<>();
+			GIDCalledBy = new Long2ObjectOpenHashMap<>();
+			callGraphs = new Long2ObjectOpenHashMap<>();
+			GIDAppearsIn.defaultReturnValue(LongSets.EMPTY_SET);
+			GIDCalledBy.defaultReturnValue(LongSets.EMPTY_SET);
+			for (final Long2ObjectMap.Entry<LongSet> e : metadata.appearsIn().long2ObjectEntrySet()) GIDAppearsIn.put(e.getLongKey(), new LongOpenHashSet(e.getValue()));
+			for (final Long2ObjectMap.Entry<LongSet> e : metadata.calledBy().long2ObjectEntrySet()) GIDCalledBy.put(e.getLongKey(), new LongOpenHashSet(e.getValue()));
+			for (long row = 0; row < metadata.numRevisions(); row++) {
+				final long index = metadata.index(row);
+				callGraphs.put(index, new CallGraph(index, metadata.nInternal(row), metadata.product(row), metadata.version(row), metadata.forge(row)));
+			}
+		}
+
+		this.nextGID = metadata.nextGID();
+		this.generation = metadata.generation();
+		this.readOnly = readOnly;
+		this.callGraphDB = callGraphDB;
+		this.kbMetadataPathname = kbMetadataPathname;
+		this.defaultHandle = defaultHandle;
+		this.gid2uriFamilyHandle = gid2URIFamilyHandle;
+		this.uri2gidFamilyHandle = uri2GIDFamilyHandle;
+
+		initKryo();
+	}
+
 	/**
 	 * Associates the given database to this knowledge base.
 	 *
@@ -714,6 +971,20 @@ public class KnowledgeBase implements Serializable, Closeable {
 		this.callGraphDB = db;
 	}
 
+	/**
+	 * Opens or creates a knowledge base.
+	 *
+	 * <p>
+	 * Metadata are stored in the format described in {@link KnowledgeBaseMetadata}; if the knowledge
+	 * base is opened in read-only mode, they are memory-mapped, and opening takes constant time.
+	 * Metadata stored by previous versions using Java serialization are still readable, and they are
+	 * converted to the new format when a knowledge base opened in read-write mode is closed.
+	 *
+	 * @param kbDir the directory of the RocksDB instance containing the knowledge base.
+	 * @param kbMetadataPathname the pathname of the file containing the metadata.
+	 * @param readOnly whether the knowledge base should be opened in read-only mode.
+	 * @return the knowledge base.
+	 */
 	@SuppressWarnings("resource")
 	public static KnowledgeBase getInstance(final String kbDir, final String kbMetadataPathname, final boolean readOnly) throws RocksDBException, ClassNotFoundException, IOException {
 		final boolean metadataExists = new File(kbMetadataPathname).exists();
@@ -729,7 +1000,9 @@ public class KnowledgeBase implements Serializable, Closeable {
 		final RocksDB db = readOnly ? RocksDB.openReadOnly(dbOptions, kbDir, cfDescriptors, columnFamilyHandles) : RocksDB.open(dbOptions, kbDir, cfDescriptors, columnFamilyHandles);
 
 		final KnowledgeBase kb;
-		if (metadataExists) {
+		if (metadataExists && !KnowledgeBaseMetadata.isLegacy(kbMetadataPathname)) kb = new KnowledgeBase(db, columnFamilyHandles.get(0), columnFamilyHandles.get(1), columnFamilyHandles.get(2), kbMetadataPathname, readOnly, KnowledgeBaseMetadata.map(kbMetadataPathname));
+		else if (metadataExists) {
+			LOGGER.warn("Knowledge-base metadata in " + kbMetadataPathname + " use Java serialization" + (readOnly ? "" : ": they will be converted on close"));
 			kb = (KnowledgeBase) BinIO.loadObject(kbMetadataPathname);
 			kb.readOnly = readOnly;
 			kb.callGraphDB = db;
@@ -740,6 +1013,23 @@ public class KnowledgeBase implements Serializable, Closeable {
 		return kb;
 	}
 
+	/**
+	 * Opens or creates a knowledge base whose GIDs are assigned by a given dictionary, rather than
+	 * by the column families of its own database.
+	 *
+	 * @param kbDir the directory of the RocksDB instance containing the knowledge base.
+	 * @param kbMetadataPathname the pathname of the file containing the metadata.
+	 * @param readOnly whether the knowledge base should be opened in read-only mode.
+	 * @param dictionary a dictionary, possibly shared with other knowledge bases.
+	 * @return the knowledge base.
+	 * @see #getInstance(String, String, boolean)
+	 */
+	static KnowledgeBase getInstance(final String kbDir, final String kbMetadataPathname, final boolean readOnly, final GIDDictionary dictionary) throws RocksDBException, ClassNotFoundException, IOException {
+		final KnowledgeBase kb = getInstance(kbDir, kbMetadataPathname, readOnly);
+		kb.dictionary = dictionary;
+		return kb;
+	}
+
 	/**
 	 * Adds a given revision index to the set associated to the given gid.
 	 *
@@ -764,6 +1054,7 @@ public class KnowledgeBase implements Serializable, Closeable {
 	 */
 	protected long addURI(final FastenURI uri) {
 		if (readOnly) throw new IllegalStateException();
+		if (dictionary != null) return dictionary.addURI(uri);
 		final byte[] uriBytes = uri.toString().getBytes(StandardCharsets.UTF_8);
 		try {
 			final byte[] result = callGraphDB.get(uri2gidFamilyHandle, uriBytes);
@@ -944,12 +1235,16 @@ public class KnowledgeBase implements Serializable, Closeable {
 	 */
 	public Node fastenURI2Node(final FastenURI fastenURI) {
 		if (fastenURI.getVersion() == null) throw new IllegalArgumentException("The FASTEN URI must be versioned");
-		final FastenURI genericURI = FastenURI.createSchemeless(null, fastenURI.getRawProduct(), null, fastenURI.getRawNamespace(), fastenURI.getRawEntity());
+		// Generic URIs are stored productless (see CallGraph), so we must match the product explicitly
+		final FastenURI genericURI = FastenURI.createSchemeless(null, null, null, fastenURI.getRawNamespace(), fastenURI.getRawEntity());
 		final long gid = uri2GID(genericURI);
 		if (gid == -1) return null;
+		final String product = fastenURI.getProduct();
 		final String version = fastenURI.getVersion();
-		for (final long index : GIDAppearsIn.get(gid))
-			if (version.equals(callGraphs.get(index).version)) return new Node(gid, index);
+		for (final long index : GIDAppearsIn.get(gid)) {
+			final CallGraph callGraph = callGraphs.get(index);
+			if (version.equals(callGraph.version) && (product == null || product.equals(callGraph.product))) return new Node(gid, index);
+		}
 
 		return null;
 	}
@@ -1035,6 +1330,16 @@ public class KnowledgeBase implements Serializable, Closeable {
 		return new NamedResult(reaches(start));
 	}
 
+	/**
+	 * Returns a view of a collection of node signatures as a collection of {@link FastenURI}s.
+	 *
+	 * @param signatures a collection of node signatures.
+	 * @return a collection whose iterator returns the {@link FastenURI} of each node signature.
+	 */
+	public Collection<FastenURI> signatures2URIs(final LongCollection signatures) {
+		return new SignatureNamedResult(signatures);
+	}
+
 	/**
 	 * The set of all nodes that are coreachable from the <code>start</code>.
 	 *
@@ -1111,12 +1416,141 @@ public class KnowledgeBase implements Serializable, Closeable {
 	public synchronized void add(final RevisionCallGraph g, final long index) throws IOException, RocksDBException {
 		if (readOnly) throw new IllegalStateException();
 		callGraphs.put(index, new CallGraph(g, index));
+		generation++;
+	}
+
+	/**
+	 * Removes a call graph from the knowledge base. The maps of the knowledge base (e.g.,
+	 * {@link #GIDAppearsIn}) are updated, and the data of the call graph are deleted from the
+	 * database. The GIDs that no longer appear in any call graph are removed from the URI column
+	 * families in the background (see {@link #collectGarbage()}).
+	 *
+	 * @param index the revision index of the call graph to remove.
+	 * @return true if the call graph was present.
+	 */
+	public synchronized boolean remove(final long index) throws RocksDBException {
+		if (readOnly) throw new IllegalStateException();
+		final CallGraph callGraph = callGraphs.get(index);
+		if (callGraph == null) return false;
+		final CallGraphData callGraphData = callGraph.callGraphData();
+		final long[] LID2GID = callGraphData.LID2GID;
+		if (orphanGIDs == null) orphanGIDs = new LongOpenHashSet();
+		for (int lid = 0; lid < LID2GID.length; lid++) {
+			final long gid = LID2GID[lid];
+			if (removeGidRev(lid < callGraph.nInternal ? GIDAppearsIn : GIDCalledBy, gid, index) && !GIDAppearsIn.containsKey(gid) && !GIDCalledBy.containsKey(gid)) orphanGIDs.add(gid);
+		}
+		callGraphDB.delete(defaultHandle, Longs.toByteArray(index));
+		callGraphs.remove(index);
+		generation++;
+
+		// With a shared dictionary, GIDs might still be used by other knowledge bases
+		if (dictionary != null) orphanGIDs.clear();
+		else if (!orphanGIDs.isEmpty()) {
+			if (garbageCollector == null) garbageCollector = Executors.newSingleThreadExecutor(r -> {
+				final Thread thread = new Thread(r, KnowledgeBase.class.getSimpleName() + "-GC");
+				thread.setDaemon(true);
+				return thread;
+			});
+			garbageCollector.execute(this::collectGarbage);
+		}
+		return true;
+	}
+
+	/**
+	 * Replaces a call graph, for example after a new analysis of the same revision; it is
+	 * equivalent to {@link #remove(long)} followed by {@link #add(RevisionCallGraph, long)}, but
+	 * generic URIs appearing in both the old and the new call graph keep their GID.
+	 *
+	 * @param g the revision call graph from which the new call graph will be created.
+	 * @param index the revision index of the call graph to replace.
+	 */
+	public synchronized void replace(final RevisionCallGraph g, final long index) throws IOException, RocksDBException {
+		remove(index);
+		add(g, index);
+	}
+
+	/**
+	 * Removes a given revision index from the set associated to the given gid; if the set becomes
+	 * empty, the gid is removed from the map.
+	 *
+	 * @param map the map associating gids to sets revision indices.
+	 * @param gid the gid whose associated set should be modified.
+	 * @param revIndex the revision index to be removed.
+	 * @return true iff the revision index was present.
+	 */
+	protected static boolean removeGidRev(final Long2ObjectMap<LongSet> map, final long gid, final long revIndex) {
+		final LongSet set = map.get(gid);
+		if (set == LongSets.EMPTY_SET || !set.remove(revIndex)) return false;
+		if (set.isEmpty()) map.remove(gid);
+		return true;
+	}
+
+	/**
+	 * Removes from the URI column families the GIDs left orphaned by {@linkplain #remove(long)
+	 * removals}, unless they have been reused in the meantime. This method is called automatically
+	 * in the background after a removal, and when the knowledge base is closed.
+	 *
+	 * @return the number of GIDs removed.
+	 */
+	public int collectGarbage() {
+		final long[] candidates;
+		synchronized (this) {
+			if (orphanGIDs == null || orphanGIDs.isEmpty()) return 0;
+			candidates = orphanGIDs.toLongArray();
+			orphanGIDs.clear();
+		}
+
+		int collected = 0;
+		// We lock in batches, so that queries and additions are not stalled
+		for (int from = 0; from < candidates.length; from += 1024) {
+			synchronized (this) {
+				for (int i = from; i < Math.min(from + 1024, candidates.length); i++) {
+					final long gid = candidates[i];
+					if (GIDAppearsIn.containsKey(gid) || GIDCalledBy.containsKey(gid)) continue;
+					final byte[] gidBytes = Longs.toByteArray(gid);
+					try {
+						final byte[] uriBytes = callGraphDB.get(gid2uriFamilyHandle, gidBytes);
+						if (uriBytes == null) continue;
+						callGraphDB.delete(uri2gidFamilyHandle, uriBytes);
+						callGraphDB.delete(gid2uriFamilyHandle, gidBytes);
+					} catch (final RocksDBException e) {
+						throw new RuntimeException(e);
+					}
+					collected++;
+				}
+			}
+		}
+
+		LOGGER.debug("Collected " + collected + " orphaned GIDs out of " + candidates.length + " candidates");
+		return collected;
+	}
+
+	/**
+	 * Returns the generation of this knowledge base, that is, a counter that is incremented each time
+	 * the set of call graphs is modified. It can be used to invalidate data derived from the
+	 * knowledge base (e.g., cached query results).
+	 *
+	 * @return the generation of this knowledge base.
+	 */
+	public long generation() {
+		return generation;
 	}
 
 	@Override
 	public void close() throws IOException {
 		try {
-			if (!readOnly) BinIO.storeObject(this, kbMetadataPathname);
+			if (garbageCollector != null) {
+				garbageCollector.shutdown();
+				try {
+					garbageCollector.awaitTermination(Long.MAX_VALUE, TimeUnit.MILLISECONDS);
+				} catch (final InterruptedException e) {
+					Thread.currentThread().interrupt();
+				}
+			}
+			if (!readOnly) {
+				collectGarbage();
+				KnowledgeBaseMetadata.store(kbMetadataPathname, nextGID, generation, callGraphs, GIDAppearsIn, GIDCalledBy);
+			}
 		} finally {
 			defaultHandle.close();
 			gid2uriFamilyHandle.close();
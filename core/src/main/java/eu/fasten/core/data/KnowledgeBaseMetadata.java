@@ -0,0 +1,534 @@
+package eu.fasten.core.data;
+
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.ObjectStreamConstants;
+import java.io.RandomAccessFile;
+import java.nio.ByteOrder;
+import java.nio.channels.FileChannel;
+import java.nio.channels.FileChannel.MapMode;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.util.Arrays;
+import java.util.NoSuchElementException;
+
+import it.unimi.dsi.fastutil.longs.AbstractLong2ObjectMap;
+import it.unimi.dsi.fastutil.longs.AbstractLongSet;
+import it.unimi.dsi.fastutil.longs.Long2ObjectMap;
+import it.unimi.dsi.fastutil.longs.LongArrayList;
+import it.unimi.dsi.fastutil.longs.LongArrays;
+import it.unimi.dsi.fastutil.longs.LongBigList;
+import it.unimi.dsi.fastutil.longs.LongIterator;
+import it.unimi.dsi.fastutil.longs.LongSet;
+import it.unimi.dsi.fastutil.longs.LongSets;
+import it.unimi.dsi.fastutil.objects.AbstractObjectSet;
+import it.unimi.dsi.fastutil.objects.Object2LongOpenHashMap;
+import it.unimi.dsi.fastutil.objects.ObjectIterator;
+import it.unimi.dsi.fastutil.objects.ObjectSet;
+import it.unimi.dsi.util.ByteBufferLongBigList;
+
+/**
+ * A memory-mappable, versioned representation of the metadata of a {@link KnowledgeBase}.
+ *
+ * <p>
+ * The metadata file is a sequence of big-endian longs, and it can be memory-mapped and opened in
+ * constant time. It starts with a header of {@value #HEADER_SIZE} longs:
+ * <ol>
+ * <li>the {@linkplain #MAGIC magic cookie};
+ * <li>the {@linkplain #VERSION format version};
+ * <li>the next GID available;
+ * <li>the {@linkplain KnowledgeBase#generation() generation} of the knowledge base;
+ * <li>the number <var>R</var> of revisions;
+ * <li>the position of the revision table;
+ * <li>the position of the index mapping GIDs to the revisions they appear in;
+ * <li>the position of the index mapping GIDs to the revisions they are called by;
+ * <li>the position of the string pool;
+ * <li>the overall number of longs in the file.
+ * </ol>
+ *
+ * <p>
+ * The revision table is made of five columns of <var>R</var> longs each, sorted by revision index:
+ * revision indices, number of internal nodes, and pointers to the string pool for the forge, the
+ * product and the version (-1 for {@code null}).
+ *
+ * <p>
+ * Each index is in compressed-sparse-row format: the number <var>G</var> of GIDs, the <var>G</var>
+ * GIDs in increasing order, <var>G</var> + 1 offsets, and the concatenation of the (sorted) sets of
+ * revision indices associated with each GID.
+ *
+ * <p>
+ * The string pool contains each string once, as its length in bytes followed by its UTF-8
+ * representation, padded to a multiple of eight bytes.
+ *
+ * <p>
+ * Files written by previous versions of the knowledge base, that used Java serialization, can be
+ * recognized with {@link #isLegacy(String)}.
+ */
+public class KnowledgeBaseMetadata {
+
+	/** The magic cookie at the start of a metadata file (the bytes of the string “FASTENKB”). */
+	public static final long MAGIC = 0x46415354454E4B42L;
+	/** The current version of the format. */
+	public static final long VERSION = 1;
+	/** The number of longs in the header. */
+	public static final int HEADER_SIZE = 16;
+
+	/** The mapped file. */
+	private final LongBigList data;
+	/** The next GID available. */
+	private final long nextGID;
+	/** The generation of the knowledge base. */
+	private final long generation;
+	/** The number of revisions. */
+	private final long numRevisions;
+	/** The position of the revision table. */
+	private final long revisions;
+	/** The map from GIDs to the revisions in which they appear as internal nodes. */
+	private final GIDIndex appearsIn;
+	/** The map from GIDs to the revisions in which they appear as external nodes. */
+	private final GIDIndex calledBy;
+
+	private KnowledgeBaseMetadata(final LongBigList data) throws IOException {
+		if (data.size64() < HEADER_SIZE || data.getLong(0) != MAGIC) throw new IOException("Not a knowledge-base metadata file");
+		if (data.getLong(1) != VERSION) throw new IOException("Unsupported knowledge-base metadata version: " + data.getLong(1) + " (expected " + VERSION + ")");
+		if (data.getLong(9) != data.size64()) throw new IOException("Truncated knowledge-base metadata file: expected " + data.getLong(9) + " longs, found " + data.size64());
+		this.data = data;
+		this.nextGID = data.getLong(2);
+		this.generation = data.getLong(3);
+		this.numRevisions = data.getLong(4);
+		this.revisions = data.getLong(5);
+		this.appearsIn = new GIDIndex(data.getLong(6));
+		this.calledBy = new GIDIndex(data.getLong(7));
+	}
+
+	/**
+	 * Memory-maps a metadata file.
+	 *
+	 * @param pathname the pathname of a metadata file.
+	 * @return the mapped metadata.
+	 */
+	public static KnowledgeBaseMetadata map(final String pathname) throws IOException {
+		try (RandomAccessFile file = new RandomAccessFile(pathname, "r"); FileChannel channel = file.getChannel()) {
+			return new KnowledgeBaseMetadata(ByteBufferLongBigList.map(channel, ByteOrder.BIG_ENDIAN, MapMode.READ_ONLY));
+		}
+	}
+
+	/**
+	 * Returns whether the given file contains metadata stored using Java serialization.
+	 *
+	 * @param pathname the pathname of a metadata file.
+	 * @return true if the file starts with the magic number of Java serialization streams.
+	 */
+	public static boolean isLegacy(final String pathname) throws IOException {
+		try (DataInputStream dis = new DataInputStream(new FileInputStream(pathname))) {
+			return dis.available() >= 2 && dis.readShort() == ObjectStreamConstants.STREAM_MAGIC;
+		}
+	}
+
+	/**
+	 * Stores the metadata of a knowledge base. The file is written to a temporary file first, and
+	 * then atomically moved to the given pathname.
+	 *
+	 * @param pathname the pathname of the metadata file.
+	 * @param nextGID the next GID available.
+	 * @param generation the generation of the knowledge base.
+	 * @param callGraphs the call graphs of the knowledge base.
+	 * @param appearsIn the map from GIDs to the revisions in which they appear as internal nodes.
+	 * @param calledBy the map from GIDs to the revisions in which they appear as external nodes.
+	 */
+	public static void store(final String pathname, final long nextGID, final long generation, final Long2ObjectMap<KnowledgeBase.CallGraph> callGraphs, final Long2ObjectMap<LongSet> appearsIn, final Long2ObjectMap<LongSet> calledBy) throws IOException {
+		final long[] indices = callGraphs.keySet().toLongArray();
+		Arrays.sort(indices);
+		final int r = indices.length;
+
+		// Build the string pool, so that we know its size in advance
+		final LongArrayList pool = new LongArrayList();
+		final Object2LongOpenHashMap<String> string2Pos = new Object2LongOpenHashMap<>();
+		string2Pos.defaultReturnValue(-1);
+		final long[] forge = new long[r], product = new long[r], version = new long[r];
+		for (int i = 0; i < r; i++) {
+			final KnowledgeBase.CallGraph callGraph = callGraphs.get(indices[i]);
+			forge[i] = intern(callGraph.forge, pool, string2Pos);
+			product[i] = intern(callGraph.product, pool, string2Pos);
+			version[i] = intern(callGraph.version, pool, string2Pos);
+		}
+
+		final long revisionsPos = HEADER_SIZE;
+		final long appearsInPos = revisionsPos + 5L * r;
+		final long calledByPos = appearsInPos + indexLength(appearsIn);
+		final long stringsPos = calledByPos + indexLength(calledBy);
+		final long length = stringsPos + pool.size();
+
+		final File tmp = File.createTempFile(KnowledgeBaseMetadata.class.getSimpleName(), ".tmp", new File(pathname).getAbsoluteFile().getParentFile());
+		try (DataOutputStream dos = new DataOutputStream(new BufferedOutputStream(new FileOutputStream(tmp), 1 << 16))) {
+			dos.writeLong(MAGIC);
+			dos.writeLong(VERSION);
+			dos.writeLong(nextGID);
+			dos.writeLong(generation);
+			dos.writeLong(r);
+			dos.writeLong(revisionsPos);
+			dos.writeLong(appearsInPos);
+			dos.writeLong(calledByPos);
+			dos.writeLong(stringsPos);
+			dos.writeLong(length);
+			for (int i = 10; i < HEADER_SIZE; i++) dos.writeLong(0);
+
+			for (final long index : indices) dos.writeLong(index);
+			for (final long index : indices) dos.writeLong(callGraphs.get(index).nInternal);
+			for (final long pos : forge) dos.writeLong(pos == -1 ? -1 : stringsPos + pos);
+			for (final long pos : product) dos.writeLong(pos == -1 ? -1 : stringsPos + pos);
+			for (final long pos : version) dos.writeLong(pos == -1 ? -1 : stringsPos + pos);
+
+			writeIndex(appearsIn, dos);
+			writeIndex(calledBy, dos);
+
+			for (final long l : pool) dos.writeLong(l);
+		} catch (final IOException e) {
+			tmp.delete();
+			throw e;
+		}
+		Files.move(tmp.toPath(), new File(pathname).toPath(), StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+	}
+
+	/**
+	 * Adds a string to the pool, if necessary.
+	 *
+	 * @param s a string, or {@code null}.
+	 * @param pool the pool.
+	 * @param string2Pos a map from the strings already in the pool to their position.
+	 * @return the position of the string in the pool, or -1 if {@code s} is {@code null}.
+	 */
+	private static long intern(final String s, final LongArrayList pool, final Object2LongOpenHashMap<String> string2Pos) {
+		if (s == null) return -1;
+		long pos = string2Pos.getLong(s);
+		if (pos != -1) return pos;
+		pos = pool.size();
+		final byte[] bytes = s.getBytes(StandardCharsets.UTF_8);
+		pool.add(bytes.length);
+		for (int i = 0; i < bytes.length; i += 8) {
+			long l = 0;
+			for (int j = 0; j < 8; j++) l = l << 8 | (i + j < bytes.length ? bytes[i + j] & 0xFF : 0);
+			pool.add(l);
+		}
+		string2Pos.put(s, pos);
+		return pos;
+	}
+
+	/**
+	 * Reads a string from the pool.
+	 *
+	 * @param pos the position of the string in the file, or -1.
+	 * @return the string, or {@code null} if {@code pos} is -1.
+	 */
+	private String string(final long pos) {
+		if (pos == -1) return null;
+		final int length = (int)data.getLong(pos);
+		final byte[] bytes = new byte[length];
+		for (int i = 0; i < length; i += 8) {
+			final long l = data.getLong(pos + 1 + i / 8);
+			for (int j = 0; j < 8 && i + j < length; j++) bytes[i + j] = (byte)(l >>> 56 - 8 * j);
+		}
+		return new String(bytes, StandardCharsets.UTF_8);
+	}
+
+	/**
+	 * Returns the next GID available.
+	 *
+	 * @return the next GID available.
+	 */
+	public long nextGID() {
+		return nextGID;
+	}
+
+	/**
+	 * Returns the generation of the knowledge base.
+	 *
+	 * @return the generation of the knowledge base.
+	 */
+	public long generation() {
+		return generation;
+	}
+
+	/**
+	 * Returns the number of revisions.
+	 *
+	 * @return the number of revisions.
+	 */
+	public long numRevisions() {
+		return numRevisions;
+	}
+
+	/**
+	 * Returns the row of the revision table containing a given revision index.
+	 *
+	 * @param index a revision index.
+	 * @return the row of the revision table for {@code index}, or -1 if the index is not present.
+	 */
+	public long row(final long index) {
+		long from = 0, to = numRevisions - 1;
+		while (from <= to) {
+			final long mid = from + to >>> 1;
+			final long midVal = data.getLong(revisions + mid);
+			if (midVal < index) from = mid + 1;
+			else if (midVal > index) to = mid - 1;
+			else return mid;
+		}
+		return -1;
+	}
+
+	/**
+	 * Returns the revision index in a given row of the revision table.
+	 *
+	 * @param row a row of the revision table.
+	 * @return the revision index.
+	 */
+	public long index(final long row) {
+		return data.getLong(revisions + row);
+	}
+
+	/**
+	 * Returns the number of internal nodes of the revision in a given row of the revision table.
+	 *
+	 * @param row a row of the revision table.
+	 * @return the number of internal nodes.
+	 */
+	public int nInternal(final long row) {
+		return (int)data.getLong(revisions + numRevisions + row);
+	}
+
+	/**
+	 * Returns the forge of the revision in a given row of the revision table.
+	 *
+	 * @param row a row of the revision table.
+	 * @return the forge.
+	 */
+	public String forge(final long row) {
+		return string(data.getLong(revisions + 2 * numRevisions + row));
+	}
+
+	/**
+	 * Returns the product of the revision in a given row of the revision table.
+	 *
+	 * @param row a row of the revision table.
+	 * @return the product.
+	 */
+	public String product(final long row) {
+		return string(data.getLong(revisions + 3 * numRevisions + row));
+	}
+
+	/**
+	 * Returns the version of the revision in a given row of the revision table.
+	 *
+	 * @param row a row of the revision table.
+	 * @return the version.
+	 */
+	public String version(final long row) {
+		return string(data.getLong(revisions + 4 * numRevisions + row));
+	}
+
+	/**
+	 * Returns a read-only view of the map from GIDs to the revisions in which they appear as internal
+	 * nodes.
+	 *
+	 * @return a read-only map whose default return value is an empty set.
+	 */
+	public Long2ObjectMap<LongSet> appearsIn() {
+		return appearsIn;
+	}
+
+	/**
+	 * Returns a read-only view of the map from GIDs to the revisions in which they appear as external
+	 * nodes.
+	 *
+	 * @return a read-only map whose default return value is an empty set.
+	 */
+	public Long2ObjectMap<LongSet> calledBy() {
+		return calledBy;
+	}
+
+	/**
+	 * Returns the number of longs used to store an index.
+	 *
+	 * @param map a map from GIDs to sets of revision indices.
+	 * @return the number of longs that {@link #writeIndex(Long2ObjectMap, DataOutputStream)} will
+	 *         write.
+	 */
+	private static long indexLength(final Long2ObjectMap<LongSet> map) {
+		long length = 2 + 2L * map.size();
+		for (final LongSet set : map.values()) length += set.size();
+		return length;
+	}
+
+	/**
+	 * Writes an index.
+	 *
+	 * @param map a map from GIDs to sets of revision indices.
+	 * @param dos the output stream.
+	 */
+	private static void writeIndex(final Long2ObjectMap<LongSet> map, final DataOutputStream dos) throws IOException {
+		final long[] gids = map.keySet().toLongArray();
+		Arrays.sort(gids);
+		dos.writeLong(gids.length);
+		for (final long gid : gids) dos.writeLong(gid);
+		long offset = 0;
+		dos.writeLong(offset);
+		for (final long gid : gids) dos.writeLong(offset += map.get(gid).size());
+		for (final long gid : gids) {
+			final long[] revisions = map.get(gid).toLongArray();
+			LongArrays.quickSort(revisions);
+			for (final long revision : revisions) dos.writeLong(revision);
+		}
+	}
+
+	/**
+	 * Binary search on a sorted segment of the mapped file.
+	 *
+	 * @return the position of {@code key}, or -1.
+	 */
+	private long search(long from, long to, final long key) {
+		to--;
+		while (from <= to) {
+			final long mid = from + to >>> 1;
+			final long midVal = data.getLong(mid);
+			if (midVal < key) from = mid + 1;
+			else if (midVal > key) to = mid - 1;
+			else return mid;
+		}
+		return -1;
+	}
+
+	/** A read-only view of an index in compressed-sparse-row format. */
+	private final class GIDIndex extends AbstractLong2ObjectMap<LongSet> {
+		private static final long serialVersionUID = 1L;
+		/** The number of GIDs. */
+		private final long size;
+		/** The position of the GIDs. */
+		private final long gids;
+		/** The position of the offsets. */
+		private final long offsets;
+		/** The position of the revision indices. */
+		private final long values;
+
+		private GIDIndex(final long pos) {
+			size = data.getLong(pos);
+			gids = pos + 1;
+			offsets = gids + size;
+			values = offsets + size + 1;
+			defRetValue = LongSets.EMPTY_SET;
+		}
+
+		private LongSet set(final long i) {
+			final long from = data.getLong(offsets + i), to = data.getLong(offsets + i + 1);
+			return new RevisionSet(values + from, values + to);
+		}
+
+		@Override
+		public LongSet get(final long gid) {
+			final long i = search(gids, gids + size, gid);
+			return i == -1 ? defRetValue : set(i - gids);
+		}
+
+		@Override
+		public boolean containsKey(final long gid) {
+			return search(gids, gids + size, gid) != -1;
+		}
+
+		@Override
+		public int size() {
+			return (int)Math.min(size, Integer.MAX_VALUE);
+		}
+
+		@Override
+		public ObjectSet<Long2ObjectMap.Entry<LongSet>> long2ObjectEntrySet() {
+			return new AbstractObjectSet<>() {
+				@Override
+				public int size() {
+					return GIDIndex.this.size();
+				}
+
+				@Override
+				public ObjectIterator<Long2ObjectMap.Entry<LongSet>> iterator() {
+					return new ObjectIterator<>() {
+						private long i;
+
+						@Override
+						public boolean hasNext() {
+							return i < size;
+						}
+
+						@Override
+						public Long2ObjectMap.Entry<LongSet> next() {
+							if (!hasNext()) throw new NoSuchElementException();
+							final long gid = data.getLong(gids + i);
+							final LongSet set = set(i++);
+							return new BasicEntry<>(gid, set);
+						}
+					};
+				}
+			};
+		}
+	}
+
+	/** A read-only view of a sorted segment of the mapped file as a set. */
+	private final class RevisionSet extends AbstractLongSet {
+		private final long from;
+		private final long to;
+
+		private RevisionSet(final long from, final long to) {
+			this.from = from;
+			this.to = to;
+		}
+
+		@Override
+		public boolean contains(final long k) {
+			return search(from, to, k) != -1;
+		}
+
+		@Override
+		public int size() {
+			return (int)(to - from);
+		}
+
+		@Override
+		public LongIterator iterator() {
+			return new LongIterator() {
+				private long pos = from;
+
+				@Override
+				public boolean hasNext() {
+					return pos < to;
+				}
+
+				@Override
+				public long nextLong() {
+					if (!hasNext()) throw new NoSuchElementException();
+					return data.getLong(pos++);
+				}
+			};
+		}
+	}
+}
@@ -0,0 +1,231 @@
+package eu.fasten.core.data;
+
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import eu.fasten.core.data.KnowledgeBase.CallGraph;
+import it.unimi.dsi.fastutil.io.BinIO;
+import it.unimi.dsi.fastutil.longs.LongArrayList;
+import it.unimi.dsi.fastutil.longs.LongArrays;
+
+/**
+ * A warm-up of a {@link KnowledgeBase}: the data of a given set of call graphs is read from the
+ * database and decoded in parallel, so that a freshly opened knowledge base does not pay the
+ * decoding cost on the first queries.
+ *
+ * <p>
+ * The set of call graphs to warm up is usually the <em>hot set</em> of a previous run, that is,
+ * the call graphs that were accessed most often; it can be computed with
+ * {@link #hotRevisions(KnowledgeBase, int)} and persisted with
+ * {@link #storeHotRevisions(KnowledgeBase, String, int)} before closing the knowledge base, and
+ * reloaded with {@link #loadHotRevisions(String)} at startup.
+ *
+ * <p>
+ * The knowledge base can be queried during the warm-up; {@link #isReady()} and
+ * {@link #awaitReady(long, TimeUnit)} report whether all call graphs have been decoded.
+ */
+public class KnowledgeBaseWarmUp implements Closeable {
+	private static final Logger LOGGER = LoggerFactory.getLogger(KnowledgeBaseWarmUp.class);
+
+	/** The executor decoding the call graphs. */
+	private final ExecutorService executor;
+	/** The number of call graphs to decode. */
+	private final long total;
+	/** The number of call graphs decoded so far. */
+	private final AtomicLong decoded;
+	/** The number of call graphs that could not be decoded (e.g., because they are missing). */
+	private final AtomicLong failed;
+	/** A latch that is released when all call graphs have been processed. */
+	private final CountDownLatch done;
+
+	private KnowledgeBaseWarmUp(final KnowledgeBase kb, final long[] revisions, final int threads) {
+		this.total = revisions.length;
+		this.decoded = new AtomicLong();
+		this.failed = new AtomicLong();
+		this.done = new CountDownLatch(revisions.length);
+		this.executor = Executors.newFixedThreadPool(threads, r -> {
+			final Thread thread = new Thread(r, KnowledgeBaseWarmUp.class.getSimpleName());
+			thread.setDaemon(true);
+			return thread;
+		});
+
+		final long start = System.nanoTime();
+		final AtomicLong processed = new AtomicLong();
+		for (final long index : revisions) executor.execute(() -> {
+			try {
+				final CallGraph callGraph = kb.callGraphs.get(index);
+				if (callGraph == null) {
+					LOGGER.debug("Revision " + index + " is not in the knowledge base");
+					failed.incrementAndGet();
+				} else {
+					callGraph.loadCallGraphData();
+					decoded.incrementAndGet();
+				}
+			} catch (final RuntimeException e) {
+				LOGGER.warn("Could not decode revision " + index, e);
+				failed.incrementAndGet();
+			} finally {
+				if (processed.incrementAndGet() == total) LOGGER.info("Warm-up completed in " + (System.nanoTime() - start) / 1000000 + "ms: " + decoded.get() + " call graphs decoded, " + failed.get() + " failed");
+				done.countDown();
+			}
+		});
+		executor.shutdown();
+	}
+
+	/**
+	 * Starts decoding in parallel the given call graphs of a knowledge base.
+	 *
+	 * @param kb a knowledge base.
+	 * @param revisions the revision indices of the call graphs to decode, in order of priority.
+	 * @param threads the number of threads used for decoding.
+	 * @return an object that can be used to monitor the warm-up.
+	 */
+	public static KnowledgeBaseWarmUp start(final KnowledgeBase kb, final long[] revisions, final int threads) {
+		LOGGER.info("Warming up " + revisions.length + " call graphs using " + threads + " threads");
+		return new KnowledgeBaseWarmUp(kb, revisions, threads);
+	}
+
+	/**
+	 * Returns the revision indices of the call graphs of a knowledge base that have been accessed
+	 * most often since the knowledge base was opened.
+	 *
+	 * @param kb a knowledge base.
+	 * @param max the maximum number of revision indices to return.
+	 * @return the revision indices of (at most {@code max}) accessed call graphs, in decreasing
+	 *         order of number of accesses.
+	 */
+	public static long[] hotRevisions(final KnowledgeBase kb, final int max) {
+		final LongArrayList hot = new LongArrayList();
+		for (final var entry : kb.callGraphs.long2ObjectEntrySet()) if (entry.getValue().accesses() > 0) hot.add(entry.getLongKey());
+		final long[] revisions = hot.toLongArray();
+		LongArrays.quickSort(revisions, (x, y) -> Integer.compare(kb.callGraphs.get(y).accesses(), kb.callGraphs.get(x).accesses()));
+		return revisions.length > max ? LongArrays.trim(revisions, max) : revisions;
+	}
+
+	/**
+	 * Stores the hot set of a knowledge base (see {@link #hotRevisions(KnowledgeBase, int)}).
+	 *
+	 * @param kb a knowledge base.
+	 * @param filename the file where the hot set will be stored.
+	 * @param max the maximum number of revision indices to store.
+	 */
+	public static void storeHotRevisions(final KnowledgeBase kb, final String filename, final int max) throws IOException {
+		final long[] revisions = hotRevisions(kb, max);
+		BinIO.storeLongs(revisions, filename);
+		LOGGER.info("Stored " + revisions.length + " hot revisions in " + filename);
+	}
+
+	/**
+	 * Loads a hot set stored by {@link #storeHotRevisions(KnowledgeBase, String, int)}.
+	 *
+	 * @param filename the file containing the hot set.
+	 * @return the revision indices in the hot set.
+	 */
+	public static long[] loadHotRevisions(final String filename) throws IOException {
+		return BinIO.loadLongs(filename);
+	}
+
+	/**
+	 * Returns whether all call graphs have been processed.
+	 *
+	 * @return true if the warm-up is completed.
+	 */
+	public boolean isReady() {
+		return done.getCount() == 0;
+	}
+
+	/**
+	 * Waits until all call graphs have been processed.
+	 */
+	public void awaitReady() throws InterruptedException {
+		done.await();
+	}
+
+	/**
+	 * Waits until all call graphs have been processed, or until the given timeout expires.
+	 *
+	 * @param timeout the maximum time to wait.
+	 * @param unit the unit of {@code timeout}.
+	 * @return true if the warm-up is completed.
+	 */
+	public boolean awaitReady(final long timeout, final TimeUnit unit) throws InterruptedException {
+		return done.await(timeout, unit);
+	}
+
+	/**
+	 * Returns the fraction of call graphs processed so far.
+	 *
+	 * @return the fraction of call graphs processed so far (1 if there are no call graphs).
+	 */
+	public double progress() {
+		return total == 0 ? 1 : (double)(total - done.getCount()) / total;
+	}
+
+	/**
+	 * Returns the number of call graphs decoded so far.
+	 *
+	 * @return the number of call graphs decoded so far.
+	 */
+	public long decoded() {
+		return decoded.get();
+	}
+
+	/**
+	 * Returns the number of call graphs that could not be decoded.
+	 *
+	 * @return the number of call graphs that could not be decoded.
+	 */
+	public long failed() {
+		return failed.get();
+	}
+
+	/**
+	 * Returns the number of call graphs to decode.
+	 *
+	 * @return the number of call graphs to decode.
+	 */
+	public long total() {
+		return total;
+	}
+
+	@Override
+	public String toString() {
+		return String.format("%s: %d/%d call graphs decoded, %d failed", isReady() ? "ready" : "warming up", Long.valueOf(decoded()), Long.valueOf(total), Long.valueOf(failed()));
+	}
+
+	/**
+	 * Stops the warm-up, if it is still running. Call graphs that were not decoded yet are
+	 * skipped, so that the warm-up becomes {@linkplain #isReady() ready} anyway.
+	 */
+	@Override
+	public void close() {
+		// Tasks that never ran will not count down the latch themselves
+		for (int i = executor.shutdownNow().size(); i-- != 0;) done.countDown();
+	}
+}
@@ -0,0 +1,295 @@
+package eu.fasten.core.data;
+
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+import java.util.Arrays;
+import java.util.concurrent.atomic.AtomicLong;
+
+import eu.fasten.core.data.KnowledgeBase.CallGraph;
+import eu.fasten.core.data.KnowledgeBase.CallGraphData;
+import eu.fasten.core.merge.CallGraphMerger;
+import eu.fasten.core.merge.ClassHierarchyIndex;
+import it.unimi.dsi.fastutil.longs.Long2ObjectOpenHashMap;
+import it.unimi.dsi.fastutil.longs.LongArrayFIFOQueue;
+import it.unimi.dsi.fastutil.longs.LongArrayList;
+import it.unimi.dsi.fastutil.longs.LongArrays;
+import it.unimi.dsi.fastutil.longs.LongOpenHashSet;
+import it.unimi.dsi.fastutil.longs.LongSet;
+import it.unimi.dsi.fastutil.objects.Object2ObjectOpenHashMap;
+
+/**
+ * Reachability on a {@link KnowledgeBase} with stitching performed lazily, at query time, against
+ * a given dependency set.
+ *
+ * <p>
+ * A knowledge base links an external node to <em>all</em> revisions in which its GID appears as an
+ * internal node, regardless of the dependencies actually used by the calling revision. An instance
+ * of this class is bound instead to a <em>dependency set</em> (a set of revision indices), and
+ * resolves an external node only when a visit reaches it, using the rules of
+ * {@link CallGraphMerger}:
+ * <ul>
+ * <li>{@link Algorithm#RA}: the external node is resolved to all internal nodes of the revisions in
+ * the dependency set with the same method signature (name and descriptor), whatever their type.
+ * Signatures are matched exactly on decoded entities, using
+ * {@link ClassHierarchyIndex#signature(String)} as {@link CallGraphMerger} does. If a
+ * {@link ClassHierarchyIndex} is provided, its {@linkplain ClassHierarchyIndex#definitions(String)
+ * signature index} gives the defining types directly; otherwise, the internal nodes of each
+ * revision are indexed by signature the first time they are needed, and all nodes with the
+ * signature are targets, which differs from {@link CallGraphMerger} (which resolves a call to the
+ * first method with the signature in each type) only if a type declares a signature more than once;
+ * <li>{@link Algorithm#CHA}: the external node is resolved to the internal nodes of the revisions in
+ * the dependency set defining the same method in the declared type, or in one of its subtypes
+ * according to a {@link ClassHierarchyIndex}. Knowledge bases do not store class hierarchies: if no
+ * index is provided, only the declared type is used.
+ * </ul>
+ *
+ * <p>
+ * Resolutions depend only on the GID of the external node and on the dependency set, so they are
+ * memoized once per GID and shared by all revisions reaching the same external node, and a visit
+ * only pays for the external nodes it touches. Memoized resolutions are discarded when the
+ * {@linkplain KnowledgeBase#generation() generation} of the knowledge base changes.
+ *
+ * <p>
+ * Visits synchronize on the knowledge base, as the underlying compressed graphs are not thread
+ * safe.
+ */
+public class LazyStitcher {
+
+	/** The rules used to resolve external nodes. */
+	public enum Algorithm {
+		/** Resolution by method signature on all types (rapid type analysis). */
+		RA,
+		/** Resolution on the declared type and its subtypes (class hierarchy analysis). */
+		CHA
+	}
+
+	/** Used to give unique normalized representations to instances using a class hierarchy index. */
+	private static final AtomicLong SERIAL = new AtomicLong();
+
+	/** The knowledge base. */
+	private final KnowledgeBase kb;
+	/** The dependency set, as a set of revision indices. */
+	private final LongOpenHashSet dependencies;
+	/** The resolution rules. */
+	private final Algorithm algorithm;
+	/** The class hierarchy on the dependency set, or {@code null}. */
+	private final ClassHierarchyIndex hierarchy;
+	/** A normalized representation of the dependency set and of the resolution rules. */
+	private final String normalized;
+	/** Maps GIDs of external nodes to the signatures of the nodes they resolve to. */
+	private final Long2ObjectOpenHashMap<long[]> resolutions;
+	/** For {@link Algorithm#RA} without a class hierarchy, maps revisions to their internal GIDs indexed by decoded method signature. */
+	private final Long2ObjectOpenHashMap<Object2ObjectOpenHashMap<String, LongArrayList>> methods;
+	/** The generation of the knowledge base for which memoized data are valid. */
+	private long generation;
+
+	/**
+	 * Creates a lazy stitcher.
+	 *
+	 * @param kb the knowledge base.
+	 * @param dependencies the revision indices of the dependency set.
+	 * @param algorithm the resolution rules.
+	 * @param hierarchy a class hierarchy index on the dependency set, used by {@link Algorithm#CHA}
+	 *            to resolve calls to subtypes and by {@link Algorithm#RA} to find definitions by
+	 *            signature, or {@code null}.
+	 */
+	public LazyStitcher(final KnowledgeBase kb, final LongSet dependencies, final Algorithm algorithm, final ClassHierarchyIndex hierarchy) {
+		this.kb = kb;
+		this.dependencies = new LongOpenHashSet(dependencies);
+		this.algorithm = algorithm;
+		this.hierarchy = hierarchy;
+		final long[] sorted = this.dependencies.toLongArray();
+		LongArrays.quickSort(sorted);
+		this.normalized = algorithm + Arrays.toString(sorted) + (hierarchy == null ? "" : "#" + SERIAL.getAndIncrement());
+		this.resolutions = new Long2ObjectOpenHashMap<>();
+		this.methods = new Long2ObjectOpenHashMap<>();
+		this.generation = kb.generation();
+	}
+
+	/**
+	 * Creates a lazy stitcher without a class hierarchy.
+	 *
+	 * @param kb the knowledge base.
+	 * @param dependencies the revision indices of the dependency set.
+	 * @param algorithm the resolution rules.
+	 */
+	public LazyStitcher(final KnowledgeBase kb, final LongSet dependencies, final Algorithm algorithm) {
+		this(kb, dependencies, algorithm, null);
+	}
+
+	/** Discards memoized data if the knowledge base has been modified. */
+	private void checkGeneration() {
+		if (generation != kb.generation()) {
+			resolutions.clear();
+			methods.clear();
+			generation = kb.generation();
+		}
+	}
+
+	/**
+	 * Returns the signatures of the nodes an external node resolves to, computing them if necessary.
+	 *
+	 * @param gid the GID of an external node.
+	 * @return the signatures of the nodes of the dependency set that {@code gid} resolves to.
+	 */
+	public long[] resolve(final long gid) {
+		synchronized (kb) {
+			checkGeneration();
+			long[] result = resolutions.get(gid);
+			if (result == null) resolutions.put(gid, result = computeResolution(gid));
+			return result;
+		}
+	}
+
+	private long[] computeResolution(final long gid) {
+		final FastenURI uri = kb.gid2URI(gid);
+		if (uri == null) return LongArrays.EMPTY_ARRAY;
+		final String entity = uri.getRawEntity();
+		final int dot = entity.indexOf('.');
+		if (dot == -1) return LongArrays.EMPTY_ARRAY;
+		final String signature = entity.substring(dot + 1);
+		final LongArrayList result = new LongArrayList();
+
+		switch (algorithm) {
+		case RA:
+			final String decoded = ClassHierarchyIndex.signature(uri.getEntity());
+			if (hierarchy != null) {
+				// The same type might be defined by several dependencies
+				final LongOpenHashSet defined = new LongOpenHashSet();
+				for (final ClassHierarchyIndex.DependencyType type : hierarchy.definitions(decoded)) {
+					final long g = kb.uri2GID(type.getDefined(decoded).get().getValue().getUri());
+					if (g != -1 && defined.add(g)) addDefinitions(g, result);
+				}
+			} else for (final long index : dependencies) {
+				final LongArrayList gids = methods(index).get(decoded);
+				if (gids != null) for (final long g : gids) result.add(KnowledgeBase.signature(g, index));
+			}
+			break;
+		case CHA:
+			addDefinitions(uri.getRawNamespace(), entity.substring(0, dot), signature, result);
+			if (hierarchy != null) {
+				final int type = hierarchy.id("/" + uri.getRawNamespace() + "/" + entity.substring(0, dot));
+				if (type != -1) for (final int subtype : hierarchy.subtypes(type)) {
+					final FastenURI subtypeURI = hierarchy.uri(subtype);
+					addDefinitions(subtypeURI.getRawNamespace(), subtypeURI.getRawEntity(), signature, result);
+				}
+			}
+			break;
+		default:
+			throw new IllegalStateException();
+		}
+
+		return result.toLongArray();
+	}
+
+	/** Adds the signatures of the nodes of the dependency set defining a method of a type. */
+	private void addDefinitions(final String namespace, final String type, final String signature, final LongArrayList result) {
+		final long gid = kb.uri2GID(FastenURI.createSchemeless(null, null, null, namespace, type + "." + signature));
+		if (gid != -1) addDefinitions(gid, result);
+	}
+
+	/** Adds the signatures of the nodes of the dependency set with a given GID. */
+	private void addDefinitions(final long gid, final LongArrayList result) {
+		for (final long index : kb.GIDAppearsIn.get(gid)) if (dependencies.contains(index)) result.add(KnowledgeBase.signature(gid, index));
+	}
+
+	/** Returns the internal GIDs of a revision indexed by decoded method signature, computing them if necessary. */
+	private Object2ObjectOpenHashMap<String, LongArrayList> methods(final long index) {
+		Object2ObjectOpenHashMap<String, LongArrayList> result = methods.get(index);
+		if (result == null) {
+			result = new Object2ObjectOpenHashMap<>();
+			final CallGraph callGraph = kb.callGraphs.get(index);
+			if (callGraph != null) {
+				final CallGraphData callGraphData = callGraph.callGraphData();
+				for (int lid = 0; lid < callGraph.nInternal; lid++) {
+					final long gid = callGraphData.LID2GID[lid];
+					final FastenURI uri = kb.gid2URI(gid);
+					if (uri == null) continue;
+					result.computeIfAbsent(ClassHierarchyIndex.signature(uri.getEntity()), k -> new LongArrayList()).add(gid);
+				}
+			}
+			methods.put(index, result);
+		}
+		return result;
+	}
+
+	/**
+	 * The set of all node signatures that are reachable from the signature <code>startSig</code>,
+	 * resolving external nodes against the dependency set.
+	 *
+	 * @param startSig the signature of the starting node.
+	 * @return the set of all node signatures for which there is a directed path from
+	 *         <code>startSig</code> to that node in the stitched graph.
+	 */
+	public LongSet reaches(final long startSig) {
+		synchronized (kb) {
+			checkGeneration();
+			final LongOpenHashSet result = new LongOpenHashSet();
+			// Visit queue
+			final LongArrayFIFOQueue queue = new LongArrayFIFOQueue();
+			queue.enqueue(startSig);
+			result.add(startSig);
+
+			while (!queue.isEmpty()) {
+				final long nodeSig = queue.dequeueLong();
+				final long index = KnowledgeBase.index(nodeSig);
+				final CallGraph callGraph = kb.callGraphs.get(index);
+				if (callGraph == null) continue;
+				final CallGraphData callGraphData = callGraph.callGraphData();
+				for (final long x : callGraphData.successors(KnowledgeBase.gid(nodeSig))) {
+					if (callGraphData.isExternal(x)) {
+						for (final long s : resolve(x)) if (result.add(s)) queue.enqueue(s);
+					} else {
+						final long s = KnowledgeBase.signature(x, index);
+						if (result.add(s)) queue.enqueue(s);
+					}
+				}
+			}
+
+			return result;
+		}
+	}
+
+	/**
+	 * Returns the number of memoized resolutions.
+	 *
+	 * @return the number of external GIDs whose resolution has been memoized.
+	 */
+	public int resolved() {
+		synchronized (kb) {
+			return resolutions.size();
+		}
+	}
+
+	/**
+	 * Returns a normalized representation of the dependency set and of the resolution rules of this
+	 * stitcher: two stitchers with the same representation on the same knowledge base give the same
+	 * results.
+	 *
+	 * @return a normalized representation of this stitcher.
+	 */
+	public String normalized() {
+		return normalized;
+	}
+
+	@Override
+	public String toString() {
+		return normalized;
+	}
+}
@@ -0,0 +1,517 @@
+package eu.fasten.core.data;
+
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Objects;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+import org.rocksdb.RocksDBException;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import eu.fasten.core.data.KnowledgeBase.CallGraph;
+import eu.fasten.core.data.KnowledgeBase.CallGraphData;
+import it.unimi.dsi.fastutil.HashCommon;
+import it.unimi.dsi.fastutil.longs.Long2IntOpenHashMap;
+import it.unimi.dsi.fastutil.longs.Long2ObjectMap;
+import it.unimi.dsi.fastutil.longs.LongArrayList;
+import it.unimi.dsi.fastutil.longs.LongList;
+import it.unimi.dsi.fastutil.longs.LongOpenHashSet;
+import it.unimi.dsi.fastutil.longs.LongSet;
+
+/**
+ * A knowledge base partitioned into several {@linkplain KnowledgeBase shards}, each backed by its own
+ * RocksDB instance (and thus possibly by a different volume).
+ *
+ * <p>
+ * Revisions are assigned to shards by the hash of their product, so all versions of a product live
+ * in the same shard. GIDs are assigned by a {@link GIDDictionary} shared by all shards, so node
+ * signatures have the same meaning as in a {@link KnowledgeBase}, and revision indices are global.
+ * {@link #successors(long)} and {@link #predecessors(long)} route to the shard owning the revision
+ * of the node, and resolve external nodes using the metadata of all shards.
+ *
+ * <p>
+ * Call graphs can be {@linkplain #addAll(Long2ObjectMap) ingested} in parallel, one thread per
+ * shard, and {@link #reaches(long)} and {@link #coreaches(long)} expand each level of the visit in
+ * parallel, one thread per shard. Queries can be run concurrently, and are excluded only by
+ * additions and removals. As the underlying compressed graphs are not thread safe, the call graphs
+ * of a shard are accessed synchronizing on the shard, as visits of a {@link KnowledgeBase} do: thus,
+ * concurrent queries proceed in parallel on different shards.
+ *
+ * <p>
+ * The number of shards should not change after creation: call graphs are looked up in all shards, so
+ * queries would still be correct, but new versions of a product would be stored in a different
+ * shard.
+ */
+public class ShardedKnowledgeBase implements Closeable {
+	private static final Logger LOGGER = LoggerFactory.getLogger(ShardedKnowledgeBase.class);
+
+	/** The shards. */
+	private final KnowledgeBase[] shards;
+	/** The dictionary shared by all shards. */
+	private final GIDDictionary dictionary;
+	/** The executor used for parallel ingestion and queries. */
+	private final ExecutorService executor;
+	/** Maps revision indices to the shard containing them. */
+	private final Long2IntOpenHashMap index2Shard;
+	/** A lock that is read-locked by queries and write-locked by additions and removals. */
+	private final ReentrantReadWriteLock lock;
+
+	private ShardedKnowledgeBase(final KnowledgeBase[] shards, final GIDDictionary dictionary) {
+		this.shards = shards;
+		this.dictionary = dictionary;
+		this.index2Shard = new Long2IntOpenHashMap();
+		index2Shard.defaultReturnValue(-1);
+		for (int i = 0; i < shards.length; i++) for (final long index : shards[i].callGraphs.keySet()) index2Shard.put(index, i);
+		this.lock = new ReentrantReadWriteLock();
+		this.executor = Executors.newFixedThreadPool(shards.length, r -> {
+			final Thread thread = new Thread(r, ShardedKnowledgeBase.class.getSimpleName());
+			thread.setDaemon(true);
+			return thread;
+		});
+	}
+
+	/**
+	 * Opens or creates a sharded knowledge base.
+	 *
+	 * @param dictionaryDir the directory of the RocksDB instance containing the shared GID
+	 *            dictionary.
+	 * @param kbDirs the directories of the RocksDB instances containing the shards.
+	 * @param kbMetadataPathnames the pathnames of the files containing the metadata of the shards
+	 *            (parallel to {@code kbDirs}).
+	 * @param readOnly whether the knowledge base should be opened in read-only mode.
+	 * @return the sharded knowledge base.
+	 */
+	public static ShardedKnowledgeBase getInstance(final String dictionaryDir, final String[] kbDirs, final String[] kbMetadataPathnames, final boolean readOnly) throws RocksDBException, ClassNotFoundException, IOException {
+		if (kbDirs.length == 0) throw new IllegalArgumentException("No shards specified");
+		if (kbDirs.length != kbMetadataPathnames.length) throw new IllegalArgumentException("The number of shard directories (" + kbDirs.length + ") and of metadata pathnames (" + kbMetadataPathnames.length + ") differ");
+		final GIDDictionary dictionary = GIDDictionary.getInstance(dictionaryDir, readOnly);
+		final KnowledgeBase[] shards = new KnowledgeBase[kbDirs.length];
+		try {
+			for (int i = 0; i < shards.length; i++) shards[i] = KnowledgeBase.getInstance(kbDirs[i], kbMetadataPathnames[i], readOnly, dictionary);
+		} catch (final RocksDBException | ClassNotFoundException | IOException | RuntimeException e) {
+			for (final KnowledgeBase shard : shards) if (shard != null) shard.close();
+			dictionary.close();
+			throw e;
+		}
+		LOGGER.info("Opened " + shards.length + " shards (" + dictionary.size() + " GIDs)");
+		return new ShardedKnowledgeBase(shards, dictionary);
+	}
+
+	/**
+	 * Returns the number of shards.
+	 *
+	 * @return the number of shards.
+	 */
+	public int numShards() {
+		return shards.length;
+	}
+
+	/**
+	 * Returns a shard.
+	 *
+	 * @param shard a shard number.
+	 * @return the knowledge base of the given shard.
+	 */
+	public KnowledgeBase shard(final int shard) {
+		return shards[shard];
+	}
+
+	/**
+	 * Returns the shard to which the revisions of a product are assigned.
+	 *
+	 * @param product a product.
+	 * @return the shard of {@code product}.
+	 */
+	public int shardOf(final String product) {
+		return Math.floorMod(HashCommon.murmurHash3(Objects.hashCode(product)), shards.length);
+	}
+
+	/**
+	 * Returns the shard containing a given revision.
+	 *
+	 * @param index a revision index.
+	 * @return the shard containing the revision, or -1.
+	 */
+	public int shardOf(final long index) {
+		lock.readLock().lock();
+		try {
+			return index2Shard.get(index);
+		} finally {
+			lock.readLock().unlock();
+		}
+	}
+
+	/**
+	 * Returns the call graph of a given revision.
+	 *
+	 * @param index a revision index.
+	 * @return the call graph of the revision, or {@code null}.
+	 */
+	public CallGraph callGraph(final long index) {
+		lock.readLock().lock();
+		try {
+			final int shard = index2Shard.get(index);
+			return shard == -1 ? null : shards[shard].callGraphs.get(index);
+		} finally {
+			lock.readLock().unlock();
+		}
+	}
+
+	/**
+	 * Returns the shared GID dictionary.
+	 *
+	 * @return the dictionary shared by all shards.
+	 */
+	public GIDDictionary dictionary() {
+		return dictionary;
+	}
+
+	/**
+	 * Adds a call graph to the shard of its product.
+	 *
+	 * @param g the revision call graph from which the call graph will be created.
+	 * @param index the (global) revision index to which the new call graph will be associated.
+	 */
+	public void add(final RevisionCallGraph g, final long index) throws IOException, RocksDBException {
+		lock.writeLock().lock();
+		try {
+			if (index2Shard.containsKey(index)) throw new IllegalArgumentException("Revision index " + index + " is already in use");
+			final int shard = shardOf(g.product);
+			shards[shard].add(g, index);
+			index2Shard.put(index, shard);
+		} finally {
+			lock.writeLock().unlock();
+		}
+	}
+
+	/**
+	 * Removes a call graph from its shard.
+	 *
+	 * @param index the (global) revision index of the call graph to remove.
+	 * @return true if the call graph was present.
+	 * @see KnowledgeBase#remove(long)
+	 */
+	public boolean remove(final long index) throws RocksDBException {
+		lock.writeLock().lock();
+		try {
+			final int shard = index2Shard.get(index);
+			if (shard == -1) return false;
+			final boolean removed = shards[shard].remove(index);
+			index2Shard.remove(index);
+			return removed;
+		} finally {
+			lock.writeLock().unlock();
+		}
+	}
+
+	/**
+	 * Adds a set of call graphs in parallel, using one thread per shard.
+	 *
+	 * @param graphs a map from (global) revision indices to revision call graphs.
+	 */
+	public void addAll(final Long2ObjectMap<RevisionCallGraph> graphs) throws IOException, RocksDBException {
+		lock.writeLock().lock();
+		try {
+			ingest(graphs);
+		} finally {
+			lock.writeLock().unlock();
+		}
+	}
+
+	/** Adds a set of call graphs in parallel; the caller must hold the write lock. */
+	private void ingest(final Long2ObjectMap<RevisionCallGraph> graphs) throws IOException, RocksDBException {
+		final List<List<Long2ObjectMap.Entry<RevisionCallGraph>>> byShard = new ArrayList<>();
+		for (int i = 0; i < shards.length; i++) byShard.add(new ArrayList<>());
+		for (final Long2ObjectMap.Entry<RevisionCallGraph> e : graphs.long2ObjectEntrySet()) {
+			if (index2Shard.containsKey(e.getLongKey())) throw new IllegalArgumentException("Revision index " + e.getLongKey() + " is already in use");
+			byShard.get(shardOf(e.getValue().product)).add(e);
+		}
+
+		final List<Callable<Void>> tasks = new ArrayList<>();
+		for (int i = 0; i < shards.length; i++) {
+			final KnowledgeBase shard = shards[i];
+			final List<Long2ObjectMap.Entry<RevisionCallGraph>> entries = byShard.get(i);
+			if (!entries.isEmpty()) tasks.add(() -> {
+				for (final Long2ObjectMap.Entry<RevisionCallGraph> e : entries) shard.add(e.getValue(), e.getLongKey());
+				return null;
+			});
+		}
+
+		try {
+			for (final Future<Void> future : executor.invokeAll(tasks)) future.get();
+		} catch (final InterruptedException e) {
+			Thread.currentThread().interrupt();
+			throw new RuntimeException(e);
+		} catch (final ExecutionException e) {
+			final Throwable cause = e.getCause();
+			if (cause instanceof IOException) throw (IOException)cause;
+			if (cause instanceof RocksDBException) throw (RocksDBException)cause;
+			if (cause instanceof RuntimeException) throw (RuntimeException)cause;
+			throw new RuntimeException(cause);
+		} finally {
+			// Some call graphs might have been added even if others failed
+			for (int i = 0; i < shards.length; i++)
+				for (final Long2ObjectMap.Entry<RevisionCallGraph> e : byShard.get(i)) if (shards[i].callGraphs.containsKey(e.getLongKey())) index2Shard.put(e.getLongKey(), i);
+		}
+	}
+
+	/**
+	 * Returns the signature of the node corresponding to a given (non-generic) {@link FastenURI}.
+	 *
+	 * @param fastenURI a {@link FastenURI} with version.
+	 * @return the signature of the corresponding node, or -1.
+	 * @see KnowledgeBase#fastenURI2Node(FastenURI)
+	 */
+	public long fastenURI2Signature(final FastenURI fastenURI) {
+		if (fastenURI.getVersion() == null) throw new IllegalArgumentException("The FASTEN URI must be versioned");
+		final long gid = dictionary.uri2GID(FastenURI.createSchemeless(null, null, null, fastenURI.getRawNamespace(), fastenURI.getRawEntity()));
+		if (gid == -1) return -1;
+		final String product = fastenURI.getProduct();
+		final String version = fastenURI.getVersion();
+		lock.readLock().lock();
+		try {
+			for (final KnowledgeBase shard : shards) {
+				for (final long index : shard.GIDAppearsIn.get(gid)) {
+					final CallGraph callGraph = shard.callGraphs.get(index);
+					if (version.equals(callGraph.version) && (product == null || product.equals(callGraph.product))) return KnowledgeBase.signature(gid, index);
+				}
+			}
+			return -1;
+		} finally {
+			lock.readLock().unlock();
+		}
+	}
+
+	/**
+	 * Returns the {@link FastenURI} of the node with a given signature.
+	 *
+	 * @param signature a node signature.
+	 * @return the corresponding {@link FastenURI}, or {@code null}.
+	 */
+	public FastenURI signature2URI(final long signature) {
+		final FastenURI genericURI = dictionary.gid2URI(KnowledgeBase.gid(signature));
+		final CallGraph callGraph = callGraph(KnowledgeBase.index(signature));
+		if (genericURI == null || callGraph == null) return null;
+		return FastenURI.create(callGraph.forge, callGraph.product, callGraph.version, genericURI.getRawNamespace(), genericURI.getRawEntity());
+	}
+
+	/**
+	 * Returns the successors of a given node by signature.
+	 *
+	 * @param nodeSig a node signature.
+	 * @return the signatures of the successors.
+	 * @see KnowledgeBase#successors(long)
+	 */
+	public LongList successors(final long nodeSig) {
+		lock.readLock().lock();
+		try {
+			final int shard = index2Shard.get(KnowledgeBase.index(nodeSig));
+			if (shard == -1) throw new IllegalArgumentException("Revision " + KnowledgeBase.index(nodeSig) + " does not exist");
+			final LongArrayList result = new LongArrayList();
+			synchronized (shards[shard]) {
+				successors(shards[shard], nodeSig, result);
+			}
+			return result;
+		} finally {
+			lock.readLock().unlock();
+		}
+	}
+
+	/**
+	 * Returns the predecessors of a given node by signature.
+	 *
+	 * @param nodeSig a node signature.
+	 * @return the signatures of the predecessors.
+	 * @see KnowledgeBase#predecessors(long)
+	 */
+	public LongList predecessors(final long nodeSig) {
+		lock.readLock().lock();
+		try {
+			final int owner = index2Shard.get(KnowledgeBase.index(nodeSig));
+			if (owner == -1) throw new IllegalArgumentException("Revision " + KnowledgeBase.index(nodeSig) + " does not exist");
+			final LongArrayList result = new LongArrayList();
+			for (int i = 0; i < shards.length; i++) synchronized (shards[i]) {
+				predecessors(shards[i], i == owner, nodeSig, result);
+			}
+			return result;
+		} finally {
+			lock.readLock().unlock();
+		}
+	}
+
+	/**
+	 * Adds to a list the successors of a node owned by a given shard. Only the call graphs of the
+	 * shard are accessed; external nodes are resolved using the metadata of all shards.
+	 */
+	private void successors(final KnowledgeBase shard, final long nodeSig, final LongList result) {
+		final long gid = KnowledgeBase.gid(nodeSig);
+		final long index = KnowledgeBase.index(nodeSig);
+		final CallGraphData callGraphData = shard.callGraphs.get(index).callGraphData();
+		for (final long x : callGraphData.successors(gid))
+			if (callGraphData.isExternal(x)) {
+				for (final KnowledgeBase other : shards) for (final long revision : other.GIDAppearsIn.get(x)) result.add(KnowledgeBase.signature(x, revision));
+			} else result.add(KnowledgeBase.signature(x, index));
+	}
+
+	/**
+	 * Adds to a list the predecessors of a node that lie in the call graphs of a given shard: the
+	 * internal predecessors, if the shard owns the node, and the callers of its GID in the revisions
+	 * of the shard.
+	 */
+	private static void predecessors(final KnowledgeBase shard, final boolean owner, final long nodeSig, final LongList result) {
+		final long gid = KnowledgeBase.gid(nodeSig);
+		if (owner) {
+			final long index = KnowledgeBase.index(nodeSig);
+			for (final long x : shard.callGraphs.get(index).callGraphData().predecessors(gid)) result.add(KnowledgeBase.signature(x, index));
+		}
+		for (final long revision : shard.GIDCalledBy.get(gid))
+			for (final long y : shard.callGraphs.get(revision).callGraphData().predecessors(gid)) result.add(KnowledgeBase.signature(y, revision));
+	}
+
+	/**
+	 * The set of all node signatures that are reachable from the signature {@code startSig}.
+	 *
+	 * @param startSig the starting node signature.
+	 * @return the set of all node signatures for which there is a directed path from
+	 *         {@code startSig} to that node.
+	 */
+	public LongSet reaches(final long startSig) {
+		lock.readLock().lock();
+		try {
+			return visit(startSig, true);
+		} finally {
+			lock.readLock().unlock();
+		}
+	}
+
+	/**
+	 * The set of all node signatures that are coreachable from the signature {@code startSig}.
+	 *
+	 * @param startSig the starting node signature.
+	 * @return the set of all node signatures for which there is a directed path from that node to
+	 *         {@code startSig}.
+	 */
+	public LongSet coreaches(final long startSig) {
+		lock.readLock().lock();
+		try {
+			return visit(startSig, false);
+		} finally {
+			lock.readLock().unlock();
+		}
+	}
+
+	/**
+	 * Performs a level-synchronous breadth-first visit. The expansion of each level is split among
+	 * shards, and each shard accesses only its own call graphs, synchronizing on the shard. The
+	 * caller must hold the read lock.
+	 */
+	private LongSet visit(final long startSig, final boolean forward) {
+		final LongOpenHashSet result = new LongOpenHashSet();
+		result.add(startSig);
+		LongArrayList frontier = LongArrayList.wrap(new long[] { startSig });
+
+		while (!frontier.isEmpty()) {
+			final LongArrayList[] owned = new LongArrayList[shards.length];
+			for (int i = 0; i < shards.length; i++) owned[i] = new LongArrayList();
+			for (final long nodeSig : frontier) {
+				final int shard = index2Shard.get(KnowledgeBase.index(nodeSig));
+				if (shard == -1) throw new IllegalArgumentException("Revision " + KnowledgeBase.index(nodeSig) + " does not exist");
+				owned[shard].add(nodeSig);
+			}
+
+			final List<Callable<LongArrayList>> tasks = new ArrayList<>();
+			for (int i = 0; i < shards.length; i++) {
+				final KnowledgeBase shard = shards[i];
+				final LongArrayList nodes = owned[i];
+				// Predecessors must be looked for in all shards, as callers can be anywhere
+				if (forward && nodes.isEmpty()) continue;
+				final LongArrayList current = frontier;
+				tasks.add(() -> {
+					final LongArrayList neighbors = new LongArrayList();
+					synchronized (shard) {
+						if (forward) for (final long nodeSig : nodes) successors(shard, nodeSig, neighbors);
+						else {
+							final LongOpenHashSet ownedSet = new LongOpenHashSet(nodes);
+							for (final long nodeSig : current) predecessors(shard, ownedSet.contains(nodeSig), nodeSig, neighbors);
+						}
+					}
+					return neighbors;
+				});
+			}
+
+			final LongArrayList next = new LongArrayList();
+			for (final LongArrayList neighbors : invokeAll(tasks))
+				for (final long s : neighbors) if (result.add(s)) next.add(s);
+			frontier = next;
+		}
+
+		return result;
+	}
+
+	/** Runs a list of tasks, in the calling thread if there is just one. */
+	private List<LongArrayList> invokeAll(final List<Callable<LongArrayList>> tasks) {
+		final List<LongArrayList> results = new ArrayList<>(tasks.size());
+		try {
+			if (tasks.size() == 1) results.add(tasks.get(0).call());
+			else for (final Future<LongArrayList> future : executor.invokeAll(tasks)) results.add(future.get());
+		} catch (final InterruptedException e) {
+			Thread.currentThread().interrupt();
+			throw new RuntimeException(e);
+		} catch (final ExecutionException e) {
+			if (e.getCause() instanceof RuntimeException) throw (RuntimeException)e.getCause();
+			throw new RuntimeException(e.getCause());
+		} catch (final RuntimeException e) {
+			throw e;
+		} catch (final Exception e) {
+			throw new RuntimeException(e);
+		}
+		return results;
+	}
+
+	/**
+	 * The number of call graphs.
+	 *
+	 * @return the number of call graphs in all shards.
+	 */
+	public long size() {
+		long size = 0;
+		for (final KnowledgeBase shard : shards) size += shard.size();
+		return size;
+	}
+
+	@Override
+	public void close() throws IOException {
+		executor.shutdownNow();
+		try {
+			for (final KnowledgeBase shard : shards) shard.close();
+		} finally {
+			dictionary.close();
+		}
+	}
+}
@@ -23,7 +23,6 @@ import java.io.File;
 import java.io.FileInputStream;
 import java.io.IOException;
 import java.util.ArrayList;
-import java.util.Collections;
 import java.util.List;
 import java.util.Properties;
 import java.util.stream.Collectors;
@@ -33,8 +32,11 @@ import org.rocksdb.ColumnFamilyDescriptor;
 import org.rocksdb.ColumnFamilyHandle;
 import org.rocksdb.ColumnFamilyOptions;
 import org.rocksdb.DBOptions;
+import org.rocksdb.FlushOptions;
 import org.rocksdb.RocksDB;
 import org.rocksdb.RocksDBException;
+import org.rocksdb.WriteBatch;
+import org.rocksdb.WriteOptions;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
@@ -62,9 +64,14 @@ import it.unimi.dsi.webgraph.Transform;
 
 public class RocksDao implements Closeable {
 
+    /** The name of the column family containing stitched arcs. */
+    public static final byte[] STITCHED = "stitched".getBytes();
+
     private final RocksDB rocksDb;
     private final ColumnFamilyHandle defaultHandle;
-    private Kryo kryo;
+    private final ColumnFamilyHandle stitchedHandle;
+    /** Kryo instances are not thread safe, so each thread serializes graphs with its own. */
+    private final ThreadLocal<Kryo> kryo = ThreadLocal.withInitial(RocksDao::createKryo);
     private final Logger logger = LoggerFactory.getLogger(RocksDao.class.getName());
 
     /**
@@ -79,16 +86,17 @@ public class RocksDao implements Closeable {
         final DBOptions dbOptions = new DBOptions()
                 .setCreateIfMissing(true)
                 .setCreateMissingColumnFamilies(true);
-        final List<ColumnFamilyDescriptor> cfDescriptors = Collections.singletonList(
-                new ColumnFamilyDescriptor(RocksDB.DEFAULT_COLUMN_FAMILY, cfOptions));
+        final List<ColumnFamilyDescriptor> cfDescriptors = List.of(
+                new ColumnFamilyDescriptor(RocksDB.DEFAULT_COLUMN_FAMILY, cfOptions),
+                new ColumnFamilyDescriptor(STITCHED, cfOptions));
         final List<ColumnFamilyHandle> columnFamilyHandles = new ArrayList<>();
         this.rocksDb = RocksDB.open(dbOptions, dbDir, cfDescriptors, columnFamilyHandles);
         this.defaultHandle = columnFamilyHandles.get(0);
-        initKryo();
+        this.stitchedHandle = columnFamilyHandles.get(1);
     }
 
-    private void initKryo() {
-        kryo = new Kryo();
+    private static Kryo createKryo() {
+        final Kryo kryo = new Kryo();
         kryo.register(BVGraph.class, new BVGraphSerializer(kryo));
 		kryo.register(Boolean.class);
         kryo.register(byte[].class);
@@ -100,6 +108,7 @@ public class RocksDao implements Closeable {
         kryo.register(long[].class);
         kryo.register(Long2IntOpenHashMap.class);
 		kryo.register(GOV3LongFunction.class, new JavaSerializer());
+        return kryo;
     }
 
     /**
@@ -114,6 +123,42 @@ public class RocksDao implements Closeable {
      */
     public void saveToRocksDb(final long index, List<Long> nodes, final int numInternal, final List<List<Long>> edges)
             throws IOException, RocksDBException {
+        final byte[] graph = serializeGraph(nodes, numInternal, edges);
+        rocksDb.put(defaultHandle, Longs.toByteArray(index), graph);
+    }
+
+    /**
+     * Inserts serialized graphs into RocksDB database in a single write batch. The batch is not
+     * written to the write-ahead log, so graphs are only guaranteed to be persisted after a
+     * {@linkplain #flush() flush} or after the database is closed.
+     *
+     * @param graphs Graphs serialized by {@link #serializeGraph}, by index
+     * @throws RocksDBException if there was a problem inserting in the database
+     */
+    public void saveToRocksDb(final Long2ObjectMap<byte[]> graphs) throws RocksDBException {
+        try (final WriteBatch batch = new WriteBatch();
+             final WriteOptions options = new WriteOptions().setDisableWAL(true)) {
+            for (final var graph : graphs.long2ObjectEntrySet()) {
+                batch.put(defaultHandle, Longs.toByteArray(graph.getLongKey()), graph.getValue());
+            }
+            rocksDb.write(options, batch);
+        }
+    }
+
+    /**
+     * Compresses and serializes a graph (nodes and edges) as stored in RocksDB database. This is
+     * the costly part of {@link #saveToRocksDb(long, List, int, List)}, and can be run
+     * concurrently.
+     *
+     * @param nodes       List of GID nodes (first internal nodes, then external nodes)
+     * @param numInternal Number of internal nodes in nodes list
+     * @param edges       List of edges (pairs of GIDs)
+     * @return the serialized graph
+     * @throws IOException if there was a problem writing to files
+     */
+    public byte[] serializeGraph(List<Long> nodes, final int numInternal, final List<List<Long>> edges)
+            throws IOException {
+        final Kryo kryo = this.kryo.get();
         final var nodesSet = new LongLinkedOpenHashSet(nodes);
         nodes = nodesSet.parallelStream().collect(Collectors.toList());
         final var edgeNodesSet = new LongOpenHashSet();
@@ -201,12 +246,23 @@ public class RocksDao implements Closeable {
         kryo.writeObject(bbo, LID2GID);
         kryo.writeObject(bbo, GID2LID);
         bbo.flush();
-        // Write to DB
-        rocksDb.put(defaultHandle, Longs.toByteArray(index), 0, 8, fbaos.array, 0, fbaos.length);
         new File(file.toString() + BVGraph.PROPERTIES_EXTENSION).delete();
         new File(file.toString() + BVGraph.OFFSETS_EXTENSION).delete();
         new File(file.toString() + BVGraph.GRAPH_EXTENSION).delete();
         file.delete();
+        fbaos.trim();
+        return fbaos.array;
+    }
+
+    /**
+     * Flushes graphs written to memory to disk.
+     *
+     * @throws RocksDBException if there was a problem flushing the database
+     */
+    public void flush() throws RocksDBException {
+        try (final FlushOptions options = new FlushOptions().setWaitForFlush(true)) {
+            rocksDb.flush(options, defaultHandle);
+        }
     }
 
     /**
@@ -220,7 +276,7 @@ public class RocksDao implements Closeable {
             throws RocksDBException {
         final byte[] buffer = rocksDb.get(Longs.toByteArray(index));
         final Input input = new Input(buffer);
-        assert kryo != null;
+        final Kryo kryo = this.kryo.get();
 		final boolean compressed = kryo.readObject(input, Boolean.class).booleanValue();
 
         final var graphs = new ImmutableGraph[]{
@@ -238,8 +294,47 @@ public class RocksDao implements Closeable {
                 LID2GID, GID2LID, numInternal, buffer.length);
     }
 
+    /**
+     * Stores the stitched arcs of a graph, that is, the arcs from the graph to its dependencies
+     * resolved by {@link eu.fasten.core.merge.CallGraphMerger#stitch}. They are kept in a
+     * separate column family, and replace previously stored stitched arcs of the same graph.
+     *
+     * @param index Index of the graph
+     * @param arcs  Stitched arcs, as interleaved (source, target) pairs of GIDs
+     * @throws RocksDBException if there was a problem inserting in the database
+     */
+    public void saveStitchedArcs(final long index, final long[] arcs) throws RocksDBException {
+        if (arcs.length % 2 != 0) {
+            throw new IllegalArgumentException("Odd number of GIDs in stitched arcs: " + arcs.length);
+        }
+        final FastByteArrayOutputStream fbaos = new FastByteArrayOutputStream();
+        final ByteBufferOutput bbo = new ByteBufferOutput(fbaos);
+        kryo.get().writeObject(bbo, arcs);
+        bbo.flush();
+        rocksDb.put(stitchedHandle, Longs.toByteArray(index), 0, 8, fbaos.array, 0, fbaos.length);
+    }
+
+    /**
+     * Retrieves the stitched arcs of a graph.
+     *
+     * @param index Index of the graph
+     * @return Stitched arcs, as interleaved (source, target) pairs of GIDs, or null if no stitched
+     *         arcs were stored for the graph
+     * @throws RocksDBException if there was problem retrieving data from RocksDB
+     */
+    public long[] getStitchedArcs(final long index) throws RocksDBException {
+        final byte[] buffer = rocksDb.get(stitchedHandle, Longs.toByteArray(index));
+        if (buffer == null) {
+            return null;
+        }
+        return kryo.get().readObject(new Input(buffer), long[].class);
+    }
+
     @Override
     public void close() {
+        if (stitchedHandle != null) {
+            stitchedHandle.close();
+        }
         if (defaultHandle != null) {
             defaultHandle.close();
         }
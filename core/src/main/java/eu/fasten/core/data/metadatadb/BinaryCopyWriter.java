@@ -0,0 +1,176 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package eu.fasten.core.data.metadatadb;
+
+import java.io.BufferedOutputStream;
+import java.io.Closeable;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.sql.Timestamp;
+import java.time.LocalDateTime;
+import java.time.temporal.ChronoUnit;
+import org.jooq.JSONB;
+
+/**
+ * Writes rows in the binary format of the PostgreSQL {@code COPY} command.
+ *
+ * <p>Each row must be started with {@link #startRow(int)}, followed by its fields in the order of
+ * the column list of the {@code COPY} command. Closing the writer writes the trailer and closes
+ * the underlying stream, which, for a {@link org.postgresql.copy.PGCopyOutputStream}, completes
+ * the command.
+ */
+class BinaryCopyWriter implements Closeable {
+
+    private static final byte[] SIGNATURE = {'P', 'G', 'C', 'O', 'P', 'Y', '\n', (byte) 0xFF, '\r', '\n', 0};
+
+    /** The origin of PostgreSQL timestamps. */
+    private static final LocalDateTime POSTGRES_EPOCH = LocalDateTime.of(2000, 1, 1, 0, 0);
+
+    /** The version of the binary representation of JSONB values. */
+    private static final int JSONB_VERSION = 1;
+
+    private final DataOutputStream out;
+
+    /**
+     * Creates a writer, writing the header of the binary format.
+     *
+     * @param outputStream the stream receiving the data of the {@code COPY} command
+     * @throws IOException if an I/O error occurs
+     */
+    BinaryCopyWriter(OutputStream outputStream) throws IOException {
+        this.out = new DataOutputStream(new BufferedOutputStream(outputStream, 1 << 16));
+        out.write(SIGNATURE);
+        out.writeInt(0); // Flags
+        out.writeInt(0); // Header extension length
+    }
+
+    /**
+     * Starts a row.
+     *
+     * @param fields the number of fields of the row
+     */
+    void startRow(int fields) throws IOException {
+        out.writeShort(fields);
+    }
+
+    /**
+     * Writes a null field.
+     */
+    void writeNull() throws IOException {
+        out.writeInt(-1);
+    }
+
+    /**
+     * Writes an {@code integer} field.
+     *
+     * @param value the value of the field, or {@code null}
+     */
+    void writeInt(Integer value) throws IOException {
+        if (value == null) {
+            writeNull();
+            return;
+        }
+        out.writeInt(Integer.BYTES);
+        out.writeInt(value);
+    }
+
+    /**
+     * Writes a {@code bigint} field.
+     *
+     * @param value the value of the field, or {@code null}
+     */
+    void writeLong(Long value) throws IOException {
+        if (value == null) {
+            writeNull();
+            return;
+        }
+        out.writeInt(Long.BYTES);
+        out.writeLong(value);
+    }
+
+    /**
+     * Writes a {@code boolean} field.
+     *
+     * @param value the value of the field, or {@code null}
+     */
+    void writeBoolean(Boolean value) throws IOException {
+        if (value == null) {
+            writeNull();
+            return;
+        }
+        out.writeInt(1);
+        out.writeByte(value ? 1 : 0);
+    }
+
+    /**
+     * Writes a {@code text} field.
+     *
+     * @param value the value of the field, or {@code null}
+     */
+    void writeText(String value) throws IOException {
+        if (value == null) {
+            writeNull();
+            return;
+        }
+        final var bytes = value.getBytes(StandardCharsets.UTF_8);
+        out.writeInt(bytes.length);
+        out.write(bytes);
+    }
+
+    /**
+     * Writes a {@code jsonb} field.
+     *
+     * @param value the value of the field, or {@code null}
+     */
+    void writeJsonb(JSONB value) throws IOException {
+        if (value == null || value.data() == null) {
+            writeNull();
+            return;
+        }
+        final var bytes = value.data().getBytes(StandardCharsets.UTF_8);
+        out.writeInt(bytes.length + 1);
+        out.writeByte(JSONB_VERSION);
+        out.write(bytes);
+    }
+
+    /**
+     * Writes a {@code timestamp} (without time zone) field.
+     *
+     * @param value the value of the field, or {@code null}
+     */
+    void writeTimestamp(Timestamp value) throws IOException {
+        if (value == null) {
+            writeNull();
+            return;
+        }
+        out.writeInt(Long.BYTES);
+        out.writeLong(ChronoUnit.MICROS.between(POSTGRES_EPOCH, value.toLocalDateTime()));
+    }
+
+    /**
+     * Writes the trailer of the binary format and closes the underlying stream.
+     */
+    @Override
+    public void close() throws IOException {
+        out.writeShort(-1);
+        out.close();
+    }
+}
@@ -0,0 +1,133 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package eu.fasten.core.data.metadatadb;
+
+import it.unimi.dsi.fastutil.objects.Object2LongLinkedOpenHashMap;
+import it.unimi.dsi.fastutil.objects.Object2LongOpenHashMap;
+
+/**
+ * A bounded cache mapping FASTEN URIs of external callables to their IDs in the 'callables'
+ * table, used by {@link MetadataDao#insertExternalCallables} to avoid resolving the same URIs
+ * over and over.
+ *
+ * <p>IDs obtained within a transaction are <em>pending</em> until {@link #commit()} is called,
+ * as they are not valid anymore if the transaction is rolled back. Pending IDs are kept per
+ * thread, so a cache can be shared by threads running distinct transactions, as long as each
+ * transaction is run by a single thread. Committed IDs are shared and kept in
+ * least-recently-used order: the least recently used ones are evicted when the number of
+ * committed IDs exceeds the capacity of the cache.
+ */
+public class CallableIdCache {
+
+    /** The default maximum number of committed IDs. */
+    public static final int DEFAULT_CAPACITY = 1 << 20;
+
+    private final int capacity;
+
+    /** The committed IDs, in least-recently-used order. */
+    private final Object2LongLinkedOpenHashMap<String> ids;
+
+    /** The IDs obtained in the transaction of the current thread. */
+    private final ThreadLocal<Object2LongOpenHashMap<String>> pending;
+
+    /**
+     * Creates a cache with {@linkplain #DEFAULT_CAPACITY default capacity}.
+     */
+    public CallableIdCache() {
+        this(DEFAULT_CAPACITY);
+    }
+
+    /**
+     * Creates a cache.
+     *
+     * @param capacity the maximum number of committed IDs
+     * @throws IllegalArgumentException if the capacity is not positive
+     */
+    public CallableIdCache(int capacity) {
+        if (capacity <= 0) {
+            throw new IllegalArgumentException("The capacity must be positive: " + capacity);
+        }
+        this.capacity = capacity;
+        this.ids = new Object2LongLinkedOpenHashMap<>();
+        this.ids.defaultReturnValue(-1);
+        this.pending = ThreadLocal.withInitial(() -> {
+            final var ids = new Object2LongOpenHashMap<String>();
+            ids.defaultReturnValue(-1);
+            return ids;
+        });
+    }
+
+    /**
+     * Returns the ID of an external callable.
+     *
+     * @param fastenUri the FASTEN URI of the callable
+     * @return the ID of the callable, or -1 if it is not in the cache
+     */
+    public long get(String fastenUri) {
+        final long id = pending.get().getLong(fastenUri);
+        if (id != -1) {
+            return id;
+        }
+        synchronized (this) {
+            return ids.getAndMoveToLast(fastenUri);
+        }
+    }
+
+    /**
+     * Adds the ID of an external callable obtained in the transaction of the current thread.
+     *
+     * @param fastenUri the FASTEN URI of the callable
+     * @param id        the ID of the callable
+     */
+    public void put(String fastenUri, long id) {
+        pending.get().put(fastenUri, id);
+    }
+
+    /**
+     * Makes permanent the IDs obtained in the transaction of the current thread.
+     */
+    public void commit() {
+        final var committed = pending.get();
+        synchronized (this) {
+            for (var entry : committed.object2LongEntrySet()) {
+                ids.putAndMoveToLast(entry.getKey(), entry.getLongValue());
+            }
+            while (ids.size() > capacity) {
+                ids.removeFirstLong();
+            }
+        }
+        committed.clear();
+    }
+
+    /**
+     * Discards the IDs obtained in the transaction of the current thread.
+     */
+    public void rollback() {
+        pending.get().clear();
+    }
+
+    /**
+     * Returns the number of committed IDs.
+     *
+     * @return the number of committed IDs in the cache
+     */
+    public synchronized int size() {
+        return ids.size();
+    }
+}
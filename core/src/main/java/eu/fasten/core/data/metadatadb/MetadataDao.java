@@ -20,8 +20,10 @@ package eu.fasten.core.data.metadatadb;
 
 import com.github.t9t.jooq.json.JsonbDSL;
 import eu.fasten.core.data.metadatadb.codegen.Keys;
+import eu.fasten.core.data.metadatadb.codegen.enums.CallType;
 import eu.fasten.core.data.metadatadb.codegen.tables.BinaryModuleContents;
 import eu.fasten.core.data.metadatadb.codegen.tables.BinaryModules;
+import eu.fasten.core.data.metadatadb.codegen.tables.CallSites;
 import eu.fasten.core.data.metadatadb.codegen.tables.Callables;
 import eu.fasten.core.data.metadatadb.codegen.tables.Dependencies;
 import eu.fasten.core.data.metadatadb.codegen.tables.Edges;
@@ -30,18 +32,62 @@ import eu.fasten.core.data.metadatadb.codegen.tables.ModuleContents;
 import eu.fasten.core.data.metadatadb.codegen.tables.Modules;
 import eu.fasten.core.data.metadatadb.codegen.tables.PackageVersions;
 import eu.fasten.core.data.metadatadb.codegen.tables.Packages;
+import eu.fasten.core.data.metadatadb.codegen.tables.records.CallSitesRecord;
 import eu.fasten.core.data.metadatadb.codegen.tables.records.CallablesRecord;
 import eu.fasten.core.data.metadatadb.codegen.tables.records.EdgesRecord;
+import java.io.IOException;
+import java.sql.Connection;
+import java.sql.SQLException;
 import java.sql.Timestamp;
 import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
 import java.util.List;
+import org.jooq.Cursor;
 import org.jooq.DSLContext;
 import org.jooq.JSONB;
 import org.jooq.Query;
+import org.jooq.Record3;
+import org.jooq.Result;
+import org.jooq.impl.DSL;
 import org.json.JSONObject;
+import org.postgresql.PGConnection;
+import org.postgresql.copy.PGCopyOutputStream;
 
 public class MetadataDao {
 
+    private static final String EDGES_STAGING = "edges_staging";
+    private static final String CREATE_EDGES_STAGING = "CREATE TEMPORARY TABLE IF NOT EXISTS "
+            + EDGES_STAGING + " (source_id BIGINT, target_id BIGINT, metadata JSONB)";
+    private static final String CALLABLES_STAGING = "callables_staging";
+    private static final String CREATE_CALLABLES_STAGING = "CREATE TEMPORARY TABLE IF NOT EXISTS "
+            + CALLABLES_STAGING + " (module_id BIGINT, fasten_uri TEXT, is_internal_call BOOLEAN,"
+            + " created_at TIMESTAMP, metadata JSONB)";
+    private static final String CALL_SITES_STAGING = "call_sites_staging";
+    private static final String CREATE_CALL_SITES_STAGING = "CREATE TEMPORARY TABLE IF NOT EXISTS "
+            + CALL_SITES_STAGING + " (source_id BIGINT, target_id BIGINT, pc INTEGER, line INTEGER,"
+            + " call_type TEXT, receiver_id BIGINT)";
+    private static final JSONB EMPTY_METADATA = JSONB.valueOf("{}");
+
+    /** The maximum number of IDs bound to a single {@code = ANY(?)} lookup. */
+    private static final int MAX_LOOKUP_IDS = 1 << 14;
+
+    /**
+     * The transitive dependencies of a package version. A dependency is followed to the versions
+     * of the dependency package that its version constraints pin exactly ('[version]').
+     */
+    private static final String DEPENDENCY_CLOSURE = "WITH RECURSIVE closure(id) AS ("
+            + " SELECT CAST(? AS BIGINT)"
+            + " UNION"
+            + " SELECT package_versions.id FROM closure"
+            + " JOIN dependencies ON dependencies.package_version_id = closure.id"
+            + " JOIN package_versions ON package_versions.package_id = dependencies.dependency_id"
+            + " AND '[' || package_versions.version || ']' = ANY (dependencies.version_range))"
+            + " SELECT id FROM closure WHERE id <> ? ORDER BY id";
+
     private DSLContext context;
 
     public MetadataDao(DSLContext context) {
@@ -518,6 +564,91 @@ public class MetadataDao {
         return recordIds;
     }
 
+    /**
+     * Inserts multiple external callables in the 'callables' table in the database, reusing
+     * the records of those already present.
+     *
+     * <p>Duplicate URIs are inserted once. The IDs of callables without metadata are looked up
+     * first in the cache, and then in the database with a single query; only the missing
+     * callables and those with metadata (which must be merged with the existing metadata) are
+     * inserted, with a single statement. Obtained IDs are added to the cache as pending, and
+     * must be {@linkplain CallableIdCache#commit() committed} when the transaction is.
+     *
+     * @param fastenUris List of FASTEN URIs of external callables
+     * @param metadata   List of metadata of the callables (possibly null)
+     * @param cache      Cache of the IDs of external callables
+     * @return List of IDs of the callables, in the same order as the URIs
+     * @throws IllegalArgumentException if lists are not of the same size
+     */
+    public List<Long> insertExternalCallables(List<String> fastenUris, List<JSONB> metadata,
+                                              CallableIdCache cache)
+            throws IllegalArgumentException {
+        if (fastenUris.size() != metadata.size()) {
+            throw new IllegalArgumentException("All lists should have equal size");
+        }
+        var ids = new HashMap<String, Long>();
+        var lookups = new LinkedHashSet<String>();
+        var upserts = new LinkedHashMap<String, JSONObject>();
+        for (int i = 0; i < fastenUris.size(); i++) {
+            var uri = fastenUris.get(i);
+            var callableMetadata = metadata.get(i) != null ? new JSONObject(metadata.get(i).data())
+                    : null;
+            if (callableMetadata != null && callableMetadata.length() > 0) {
+                var previous = upserts.get(uri);
+                if (previous != null) {
+                    for (var key : callableMetadata.keySet()) {
+                        previous.put(key, callableMetadata.get(key));
+                    }
+                } else {
+                    upserts.put(uri, callableMetadata);
+                }
+            } else if (!upserts.containsKey(uri) && !ids.containsKey(uri)) {
+                var id = cache.get(uri);
+                if (id != -1) {
+                    ids.put(uri, id);
+                } else {
+                    lookups.add(uri);
+                }
+            }
+        }
+        lookups.removeAll(upserts.keySet());
+        if (!lookups.isEmpty()) {
+            var result = context.select(Callables.CALLABLES.ID, Callables.CALLABLES.FASTEN_URI)
+                    .from(Callables.CALLABLES)
+                    .where(Callables.CALLABLES.MODULE_ID.eq(-1L))
+                    .and(Callables.CALLABLES.IS_INTERNAL_CALL.eq(false))
+                    .and(Callables.CALLABLES.FASTEN_URI.eq(DSL.any(lookups.toArray(new String[0]))))
+                    .fetch();
+            for (var record : result) {
+                var uri = record.get(Callables.CALLABLES.FASTEN_URI);
+                ids.put(uri, record.get(Callables.CALLABLES.ID));
+                cache.put(uri, record.get(Callables.CALLABLES.ID));
+                lookups.remove(uri);
+            }
+        }
+        var callables = new ArrayList<CallablesRecord>(lookups.size() + upserts.size());
+        for (var uri : lookups) {
+            callables.add(new CallablesRecord(null, -1L, uri, false, null, null));
+        }
+        for (var upsert : upserts.entrySet()) {
+            callables.add(new CallablesRecord(null, -1L, upsert.getKey(), false, null,
+                    JSONB.valueOf(upsert.getValue().toString())));
+        }
+        if (!callables.isEmpty()) {
+            var callablesIds = batchInsertCallables(callables);
+            for (int i = 0; i < callables.size(); i++) {
+                var uri = callables.get(i).getFastenUri();
+                ids.put(uri, callablesIds.get(i));
+                cache.put(uri, callablesIds.get(i));
+            }
+        }
+        var recordIds = new ArrayList<Long>(fastenUris.size());
+        for (var uri : fastenUris) {
+            recordIds.add(ids.get(uri));
+        }
+        return recordIds;
+    }
+
     /**
      * Inserts a record in the 'edges' table in the database.
      *
@@ -603,4 +734,389 @@ public class MetadataDao {
                 .returning(Callables.CALLABLES.ID).fetch();
         return result.getValues(Callables.CALLABLES.ID);
     }
-}
\ No newline at end of file
+
+    /**
+     * Executes batch insert for 'call_sites' table. Existing call sites are left untouched.
+     *
+     * @param callSites List of call sites records to insert
+     */
+    public void batchInsertCallSites(List<CallSitesRecord> callSites) {
+        Query batchQuery = context.insertInto(CallSites.CALL_SITES,
+                CallSites.CALL_SITES.SOURCE_ID, CallSites.CALL_SITES.TARGET_ID,
+                CallSites.CALL_SITES.PC, CallSites.CALL_SITES.LINE,
+                CallSites.CALL_SITES.CALL_TYPE, CallSites.CALL_SITES.RECEIVER_ID)
+                .values((Long) null, (Long) null, (Integer) null, (Integer) null,
+                        (CallType) null, (Long) null)
+                .onConflictOnConstraint(Keys.UNIQUE_SOURCE_TARGET_PC).doNothing();
+        var batchBind = context.batch(batchQuery);
+        for (var callSite : callSites) {
+            batchBind = batchBind.bind(callSite.getSourceId(), callSite.getTargetId(),
+                    callSite.getPc(), callSite.getLine(), callSite.getCallType(),
+                    callSite.getReceiverId());
+        }
+        batchBind.execute();
+    }
+
+    /**
+     * Inserts edges in the 'edges' table in the database using the PostgreSQL {@code COPY}
+     * command.
+     *
+     * <p>Edges are streamed in binary format to a temporary (hence unlogged) staging table, and
+     * then merged into the 'edges' table with a single statement, concatenating the metadata of
+     * existing edges as {@link #batchInsertEdges(List)} does. Edges with the same source and
+     * target are merged beforehand. The context must be connected to a PostgreSQL database.
+     *
+     * @param edges List of edges records to insert
+     */
+    public void bulkInsertEdges(List<EdgesRecord> edges) {
+        var uniqueEdges = new LinkedHashMap<List<Long>, EdgesRecord>();
+        for (var edge : edges) {
+            var key = Arrays.asList(edge.getSourceId(), edge.getTargetId());
+            var previous = uniqueEdges.get(key);
+            uniqueEdges.put(key, previous == null ? edge : new EdgesRecord(edge.getSourceId(),
+                    edge.getTargetId(), concat(previous.getMetadata(), edge.getMetadata())));
+        }
+        context.connection(connection -> {
+            copyEdges(connection, uniqueEdges.values());
+            try (var statement = connection.createStatement()) {
+                statement.executeUpdate("INSERT INTO edges (source_id, target_id, metadata) "
+                        + "SELECT source_id, target_id, metadata FROM " + EDGES_STAGING
+                        + " ON CONFLICT ON CONSTRAINT " + Keys.UNIQUE_SOURCE_TARGET.getName()
+                        + " DO UPDATE SET metadata = edges.metadata || excluded.metadata");
+            }
+        });
+    }
+
+    /**
+     * Inserts edges in the 'edges' table and their call sites in the 'call_sites' table in the
+     * database using the PostgreSQL {@code COPY} command.
+     *
+     * <p>This is the normalized alternative to {@link #bulkInsertEdges(List)}: the metadata of
+     * the edges is ignored, as their call sites are stored in their own table, so edges are
+     * inserted with empty metadata, and existing edges and call sites are left untouched instead
+     * of being merged. Duplicate edges and call sites (same source, target and pc) are removed
+     * beforehand. The context must be connected to a PostgreSQL database.
+     *
+     * @param edges     List of edges records to insert
+     * @param callSites List of call sites records of the edges
+     */
+    public void bulkInsertEdgesWithCallSites(List<EdgesRecord> edges,
+                                             List<CallSitesRecord> callSites) {
+        var uniqueEdges = new LinkedHashMap<List<Long>, EdgesRecord>();
+        for (var edge : edges) {
+            uniqueEdges.putIfAbsent(Arrays.asList(edge.getSourceId(), edge.getTargetId()),
+                    new EdgesRecord(edge.getSourceId(), edge.getTargetId(), EMPTY_METADATA));
+        }
+        var uniqueCallSites = new LinkedHashMap<List<Object>, CallSitesRecord>();
+        for (var callSite : callSites) {
+            uniqueCallSites.put(Arrays.asList(callSite.getSourceId(), callSite.getTargetId(),
+                    callSite.getPc()), callSite);
+        }
+        context.connection(connection -> {
+            copyEdges(connection, uniqueEdges.values());
+            try (var statement = connection.createStatement()) {
+                statement.execute(CREATE_CALL_SITES_STAGING);
+                statement.execute("TRUNCATE " + CALL_SITES_STAGING);
+            }
+            try (var writer = new BinaryCopyWriter(new PGCopyOutputStream(
+                    connection.unwrap(PGConnection.class), "COPY " + CALL_SITES_STAGING
+                    + " (source_id, target_id, pc, line, call_type, receiver_id)"
+                    + " FROM STDIN (FORMAT binary)"))) {
+                for (var callSite : uniqueCallSites.values()) {
+                    writer.startRow(6);
+                    writer.writeLong(callSite.getSourceId());
+                    writer.writeLong(callSite.getTargetId());
+                    writer.writeInt(callSite.getPc());
+                    writer.writeInt(callSite.getLine());
+                    writer.writeText(callSite.getCallType() == null ? null
+                            : callSite.getCallType().getLiteral());
+                    writer.writeLong(callSite.getReceiverId());
+                }
+            }
+            try (var statement = connection.createStatement()) {
+                statement.executeUpdate("INSERT INTO edges (source_id, target_id, metadata) "
+                        + "SELECT source_id, target_id, metadata FROM " + EDGES_STAGING
+                        + " ON CONFLICT ON CONSTRAINT " + Keys.UNIQUE_SOURCE_TARGET.getName()
+                        + " DO NOTHING");
+                statement.executeUpdate("INSERT INTO call_sites "
+                        + "(source_id, target_id, pc, line, call_type, receiver_id) "
+                        + "SELECT source_id, target_id, pc, line, call_type::call_type, "
+                        + "receiver_id FROM " + CALL_SITES_STAGING + " ON CONFLICT ON CONSTRAINT "
+                        + Keys.UNIQUE_SOURCE_TARGET_PC.getName() + " DO NOTHING");
+            }
+        });
+    }
+
+    /**
+     * Copies edges in the (emptied) staging table of edges.
+     */
+    private static void copyEdges(Connection connection, Collection<EdgesRecord> edges)
+            throws SQLException, IOException {
+        try (var statement = connection.createStatement()) {
+            statement.execute(CREATE_EDGES_STAGING);
+            statement.execute("TRUNCATE " + EDGES_STAGING);
+        }
+        try (var writer = new BinaryCopyWriter(new PGCopyOutputStream(
+                connection.unwrap(PGConnection.class), "COPY " + EDGES_STAGING
+                + " (source_id, target_id, metadata) FROM STDIN (FORMAT binary)"))) {
+            for (var edge : edges) {
+                writer.startRow(3);
+                writer.writeLong(edge.getSourceId());
+                writer.writeLong(edge.getTargetId());
+                writer.writeJsonb(edge.getMetadata());
+            }
+        }
+    }
+
+    /**
+     * Inserts callables in the 'callables' table in the database using the PostgreSQL
+     * {@code COPY} command.
+     *
+     * <p>Callables are streamed in binary format to a temporary (hence unlogged) staging table,
+     * and then merged into the 'callables' table with a single statement, updating existing
+     * callables as {@link #batchInsertCallables(List)} does. Callables with the same module, URI
+     * and kind are merged beforehand, and get the same ID. The context must be connected to a
+     * PostgreSQL database.
+     *
+     * @param callables List of callables records to insert
+     * @return List of IDs of the callables, in the same order as the records
+     */
+    public List<Long> bulkInsertCallables(List<CallablesRecord> callables) {
+        var uniqueCallables = new LinkedHashMap<List<Object>, CallablesRecord>();
+        for (var callable : callables) {
+            var key = callableKey(callable.getModuleId(), callable.getFastenUri(),
+                    callable.getIsInternalCall());
+            var previous = uniqueCallables.get(key);
+            uniqueCallables.put(key, previous == null ? callable : new CallablesRecord(null,
+                    callable.getModuleId(), callable.getFastenUri(), callable.getIsInternalCall(),
+                    callable.getCreatedAt(), concat(previous.getMetadata(), callable.getMetadata())));
+        }
+        var ids = new HashMap<List<Object>, Long>();
+        context.connection(connection -> {
+            try (var statement = connection.createStatement()) {
+                statement.execute(CREATE_CALLABLES_STAGING);
+                statement.execute("TRUNCATE " + CALLABLES_STAGING);
+            }
+            try (var writer = new BinaryCopyWriter(new PGCopyOutputStream(
+                    connection.unwrap(PGConnection.class), "COPY " + CALLABLES_STAGING
+                    + " (module_id, fasten_uri, is_internal_call, created_at, metadata)"
+                    + " FROM STDIN (FORMAT binary)"))) {
+                for (var callable : uniqueCallables.values()) {
+                    writer.startRow(5);
+                    writer.writeLong(callable.getModuleId());
+                    writer.writeText(callable.getFastenUri());
+                    writer.writeBoolean(callable.getIsInternalCall());
+                    writer.writeTimestamp(callable.getCreatedAt());
+                    writer.writeJsonb(callable.getMetadata());
+                }
+            }
+            try (var statement = connection.createStatement();
+                 var result = statement.executeQuery("INSERT INTO callables "
+                         + "(module_id, fasten_uri, is_internal_call, created_at, metadata) "
+                         + "SELECT module_id, fasten_uri, is_internal_call, created_at, metadata FROM "
+                         + CALLABLES_STAGING + " ON CONFLICT ON CONSTRAINT "
+                         + Keys.UNIQUE_URI_CALL.getName() + " DO UPDATE SET "
+                         + "module_id = excluded.module_id, created_at = excluded.created_at, "
+                         + "metadata = callables.metadata || excluded.metadata "
+                         + "RETURNING id, module_id, fasten_uri, is_internal_call")) {
+                while (result.next()) {
+                    ids.put(callableKey(result.getLong(2), result.getString(3),
+                            result.getBoolean(4)), result.getLong(1));
+                }
+            }
+        });
+        var recordIds = new ArrayList<Long>(callables.size());
+        for (var callable : callables) {
+            recordIds.add(ids.get(callableKey(callable.getModuleId(), callable.getFastenUri(),
+                    callable.getIsInternalCall())));
+        }
+        return recordIds;
+    }
+
+    /**
+     * Returns a page of the callables of a package version, that is, of its modules, in
+     * increasing order of ID. Pages are delimited by the last ID of the previous page (keyset
+     * pagination), so fetching a page costs the same wherever it is.
+     *
+     * @param packageVersionId ID of the package version
+     * @param afterId          ID of the last callable of the previous page, or
+     *                         {@link Long#MIN_VALUE} for the first page
+     * @param limit            maximum number of callables to return
+     * @return callables of the page, empty if there are no more callables
+     */
+    public List<CallablesRecord> getCallables(long packageVersionId, long afterId, int limit) {
+        return context.selectFrom(Callables.CALLABLES)
+                .where(Callables.CALLABLES.MODULE_ID.in(context.select(Modules.MODULES.ID)
+                        .from(Modules.MODULES)
+                        .where(Modules.MODULES.PACKAGE_VERSION_ID.eq(packageVersionId))))
+                .and(Callables.CALLABLES.ID.gt(afterId))
+                .orderBy(Callables.CALLABLES.ID)
+                .limit(limit)
+                .fetch();
+    }
+
+    /**
+     * Returns a cursor over the callables of a package version, in increasing order of ID.
+     *
+     * <p>Rows are fetched from the database {@code fetchSize} at a time; PostgreSQL only does
+     * so when the connection is not in auto-commit mode, e.g., within a transaction. The cursor
+     * must be closed.
+     *
+     * @param packageVersionId ID of the package version
+     * @param fetchSize        number of rows fetched at a time
+     * @return cursor over the callables
+     */
+    public Cursor<CallablesRecord> streamCallables(long packageVersionId, int fetchSize) {
+        return context.selectFrom(Callables.CALLABLES)
+                .where(Callables.CALLABLES.MODULE_ID.in(context.select(Modules.MODULES.ID)
+                        .from(Modules.MODULES)
+                        .where(Modules.MODULES.PACKAGE_VERSION_ID.eq(packageVersionId))))
+                .orderBy(Callables.CALLABLES.ID)
+                .fetchSize(fetchSize)
+                .fetchLazy();
+    }
+
+    /**
+     * Returns the callables with the given IDs.
+     *
+     * @param ids IDs of callables
+     * @return callables found, in no particular order
+     */
+    public List<CallablesRecord> getCallablesByIds(Collection<Long> ids) {
+        var callables = new ArrayList<CallablesRecord>(ids.size());
+        for (var batch : batches(ids)) {
+            callables.addAll(context.selectFrom(Callables.CALLABLES)
+                    .where(Callables.CALLABLES.ID.eq(DSL.any(batch)))
+                    .fetch());
+        }
+        return callables;
+    }
+
+    /**
+     * Returns the edges whose source is one of the given callables.
+     *
+     * @param sourceIds IDs of source callables
+     * @return edges found, in no particular order
+     */
+    public List<EdgesRecord> getEdges(Collection<Long> sourceIds) {
+        var edges = new ArrayList<EdgesRecord>();
+        for (var batch : batches(sourceIds)) {
+            edges.addAll(context.selectFrom(Edges.EDGES)
+                    .where(Edges.EDGES.SOURCE_ID.eq(DSL.any(batch)))
+                    .fetch());
+        }
+        return edges;
+    }
+
+    /**
+     * Returns a page of the edges whose source is one of the given callables, in increasing
+     * order of source and target (keyset pagination).
+     *
+     * @param sourceIds IDs of source callables
+     * @param after     last edge of the previous page, or null for the first page
+     * @param limit     maximum number of edges to return
+     * @return edges of the page, empty if there are no more edges
+     */
+    public List<EdgesRecord> getEdges(Collection<Long> sourceIds, EdgesRecord after, int limit) {
+        var condition = Edges.EDGES.SOURCE_ID.eq(DSL.any(sourceIds.toArray(new Long[0])));
+        if (after != null) {
+            condition = condition.and(DSL.row(Edges.EDGES.SOURCE_ID, Edges.EDGES.TARGET_ID)
+                    .gt(after.getSourceId(), after.getTargetId()));
+        }
+        return context.selectFrom(Edges.EDGES)
+                .where(condition)
+                .orderBy(Edges.EDGES.SOURCE_ID, Edges.EDGES.TARGET_ID)
+                .limit(limit)
+                .fetch();
+    }
+
+    /**
+     * Returns a cursor over the edges of the callgraph of a package version, that is, the edges
+     * from or to its callables; edges from external callables to its callables (callbacks) are
+     * thus included. Each edge is returned once. See {@link #streamCallables(long, int)} for the
+     * conditions under which rows are streamed.
+     *
+     * @param packageVersionId ID of the package version
+     * @param fetchSize        number of rows fetched at a time
+     * @return cursor over the edges
+     */
+    public Cursor<EdgesRecord> streamEdges(long packageVersionId, int fetchSize) {
+        var callables = DSL.select(Callables.CALLABLES.ID)
+                .from(Callables.CALLABLES)
+                .join(Modules.MODULES)
+                .on(Modules.MODULES.ID.eq(Callables.CALLABLES.MODULE_ID))
+                .where(Modules.MODULES.PACKAGE_VERSION_ID.eq(packageVersionId));
+        return context.selectFrom(Edges.EDGES)
+                .where(Edges.EDGES.SOURCE_ID.in(callables))
+                .unionAll(DSL.selectFrom(Edges.EDGES)
+                        .where(Edges.EDGES.TARGET_ID.in(callables))
+                        .and(Edges.EDGES.SOURCE_ID.notIn(callables)))
+                .fetchSize(fetchSize)
+                .fetchLazy();
+    }
+
+    /**
+     * Returns a page of package versions, in increasing order of ID (keyset pagination).
+     *
+     * @param afterId ID of the last package version of the previous page, or
+     *                {@link Long#MIN_VALUE} for the first page
+     * @param limit   maximum number of package versions to return
+     * @return ID, package name and version of the package versions of the page, empty if there
+     *         are no more package versions
+     */
+    public Result<Record3<Long, String, String>> getPackageVersions(long afterId, int limit) {
+        return context.select(PackageVersions.PACKAGE_VERSIONS.ID,
+                Packages.PACKAGES.PACKAGE_NAME, PackageVersions.PACKAGE_VERSIONS.VERSION)
+                .from(PackageVersions.PACKAGE_VERSIONS)
+                .join(Packages.PACKAGES)
+                .on(Packages.PACKAGES.ID.eq(PackageVersions.PACKAGE_VERSIONS.PACKAGE_ID))
+                .where(PackageVersions.PACKAGE_VERSIONS.ID.gt(afterId))
+                .orderBy(PackageVersions.PACKAGE_VERSIONS.ID)
+                .limit(limit)
+                .fetch();
+    }
+
+    /**
+     * Returns the IDs of the package versions a package version transitively depends on.
+     * Dependencies are followed to the versions pinned by their version constraints; version
+     * ranges cannot be resolved in the database and are not followed.
+     *
+     * @param packageVersionId ID of the package version
+     * @return IDs of the package versions of the dependency closure, in increasing order
+     */
+    public List<Long> getDependencyClosure(long packageVersionId) {
+        return context.fetch(DEPENDENCY_CLOSURE, packageVersionId, packageVersionId)
+                .getValues(0, Long.class);
+    }
+
+    /**
+     * Splits IDs in arrays of at most {@link #MAX_LOOKUP_IDS} elements.
+     */
+    private static List<Long[]> batches(Collection<Long> ids) {
+        var all = ids.toArray(new Long[0]);
+        var batches = new ArrayList<Long[]>();
+        for (int from = 0; from < all.length; from += MAX_LOOKUP_IDS) {
+            batches.add(Arrays.copyOfRange(all, from, Math.min(all.length, from + MAX_LOOKUP_IDS)));
+        }
+        return batches;
+    }
+
+    private static List<Object> callableKey(Long moduleId, String fastenUri, Boolean isInternalCall) {
+        return Arrays.asList(moduleId, fastenUri, isInternalCall);
+    }
+
+    /**
+     * Concatenates two JSONB objects as the PostgreSQL {@code ||} operator does.
+     */
+    private static JSONB concat(JSONB first, JSONB second) {
+        if (first == null || second == null) {
+            return null;
+        }
+        var result = new JSONObject(first.data());
+        var other = new JSONObject(second.data());
+        for (var key : other.keySet()) {
+            result.put(key, other.get(key));
+        }
+        return JSONB.valueOf(result.toString());
+    }
+}
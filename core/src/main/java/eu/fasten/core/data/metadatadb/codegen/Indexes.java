@@ -6,6 +6,7 @@ package eu.fasten.core.data.metadatadb.codegen;
 
 import eu.fasten.core.data.metadatadb.codegen.tables.BinaryModuleContents;
 import eu.fasten.core.data.metadatadb.codegen.tables.BinaryModules;
+import eu.fasten.core.data.metadatadb.codegen.tables.CallSites;
 import eu.fasten.core.data.metadatadb.codegen.tables.Callables;
 import eu.fasten.core.data.metadatadb.codegen.tables.Dependencies;
 import eu.fasten.core.data.metadatadb.codegen.tables.Edges;
@@ -42,6 +43,7 @@ public class Indexes {
     public static final Index UNIQUE_BINARY_MODULE_FILE = Indexes0.UNIQUE_BINARY_MODULE_FILE;
     public static final Index BINARY_MODULES_PKEY = Indexes0.BINARY_MODULES_PKEY;
     public static final Index UNIQUE_VERSION_NAME = Indexes0.UNIQUE_VERSION_NAME;
+    public static final Index UNIQUE_SOURCE_TARGET_PC = Indexes0.UNIQUE_SOURCE_TARGET_PC;
     public static final Index CALLABLES_PKEY = Indexes0.CALLABLES_PKEY;
     public static final Index UNIQUE_URI_CALL = Indexes0.UNIQUE_URI_CALL;
     public static final Index UNIQUE_VERSION_DEPENDENCY_RANGE = Indexes0.UNIQUE_VERSION_DEPENDENCY_RANGE;
@@ -64,6 +66,7 @@ public class Indexes {
         public static Index UNIQUE_BINARY_MODULE_FILE = Internal.createIndex("unique_binary_module_file", BinaryModuleContents.BINARY_MODULE_CONTENTS, new OrderField[] { BinaryModuleContents.BINARY_MODULE_CONTENTS.BINARY_MODULE_ID, BinaryModuleContents.BINARY_MODULE_CONTENTS.FILE_ID }, true);
         public static Index BINARY_MODULES_PKEY = Internal.createIndex("binary_modules_pkey", BinaryModules.BINARY_MODULES, new OrderField[] { BinaryModules.BINARY_MODULES.ID }, true);
         public static Index UNIQUE_VERSION_NAME = Internal.createIndex("unique_version_name", BinaryModules.BINARY_MODULES, new OrderField[] { BinaryModules.BINARY_MODULES.PACKAGE_VERSION_ID, BinaryModules.BINARY_MODULES.NAME }, true);
+        public static Index UNIQUE_SOURCE_TARGET_PC = Internal.createIndex("unique_source_target_pc", CallSites.CALL_SITES, new OrderField[] { CallSites.CALL_SITES.SOURCE_ID, CallSites.CALL_SITES.TARGET_ID, CallSites.CALL_SITES.PC }, true);
         public static Index CALLABLES_PKEY = Internal.createIndex("callables_pkey", Callables.CALLABLES, new OrderField[] { Callables.CALLABLES.ID }, true);
         public static Index UNIQUE_URI_CALL = Internal.createIndex("unique_uri_call", Callables.CALLABLES, new OrderField[] { Callables.CALLABLES.MODULE_ID, Callables.CALLABLES.FASTEN_URI, Callables.CALLABLES.IS_INTERNAL_CALL }, true);
         public static Index UNIQUE_VERSION_DEPENDENCY_RANGE = Internal.createIndex("unique_version_dependency_range", Dependencies.DEPENDENCIES, new OrderField[] { Dependencies.DEPENDENCIES.PACKAGE_VERSION_ID, Dependencies.DEPENDENCIES.DEPENDENCY_ID, Dependencies.DEPENDENCIES.VERSION_RANGE }, true);
@@ -6,6 +6,7 @@ package eu.fasten.core.data.metadatadb.codegen;
 
 import eu.fasten.core.data.metadatadb.codegen.tables.BinaryModuleContents;
 import eu.fasten.core.data.metadatadb.codegen.tables.BinaryModules;
+import eu.fasten.core.data.metadatadb.codegen.tables.CallSites;
 import eu.fasten.core.data.metadatadb.codegen.tables.Callables;
 import eu.fasten.core.data.metadatadb.codegen.tables.Dependencies;
 import eu.fasten.core.data.metadatadb.codegen.tables.Edges;
@@ -57,6 +58,11 @@ public class Public extends SchemaImpl {
      */
     public final BinaryModules BINARY_MODULES = eu.fasten.core.data.metadatadb.codegen.tables.BinaryModules.BINARY_MODULES;
 
+    /**
+     * The table <code>public.call_sites</code>.
+     */
+    public final CallSites CALL_SITES = eu.fasten.core.data.metadatadb.codegen.tables.CallSites.CALL_SITES;
+
     /**
      * The table <code>public.callables</code>.
      */
@@ -138,6 +144,7 @@ public class Public extends SchemaImpl {
         return Arrays.<Table<?>>asList(
             BinaryModuleContents.BINARY_MODULE_CONTENTS,
             BinaryModules.BINARY_MODULES,
+            CallSites.CALL_SITES,
             Callables.CALLABLES,
             Dependencies.DEPENDENCIES,
             Edges.EDGES,
@@ -6,6 +6,7 @@ package eu.fasten.core.data.metadatadb.codegen;
 
 import eu.fasten.core.data.metadatadb.codegen.tables.BinaryModuleContents;
 import eu.fasten.core.data.metadatadb.codegen.tables.BinaryModules;
+import eu.fasten.core.data.metadatadb.codegen.tables.CallSites;
 import eu.fasten.core.data.metadatadb.codegen.tables.Callables;
 import eu.fasten.core.data.metadatadb.codegen.tables.Dependencies;
 import eu.fasten.core.data.metadatadb.codegen.tables.Edges;
@@ -41,6 +42,11 @@ public class Tables {
      */
     public static final BinaryModules BINARY_MODULES = BinaryModules.BINARY_MODULES;
 
+    /**
+     * The table <code>public.call_sites</code>.
+     */
+    public static final CallSites CALL_SITES = CallSites.CALL_SITES;
+
     /**
      * The table <code>public.callables</code>.
      */
@@ -51,9 +51,11 @@ import com.martiansoftware.jsap.SimpleJSAP;
 import com.martiansoftware.jsap.UnflaggedOption;
 
 import eu.fasten.core.data.KnowledgeBase;
+import eu.fasten.core.data.KnowledgeBaseMetadata;
 import it.unimi.dsi.Util;
 import it.unimi.dsi.fastutil.io.BinIO;
 import it.unimi.dsi.fastutil.io.FastByteArrayOutputStream;
+import it.unimi.dsi.fastutil.longs.Long2IntFunction;
 import it.unimi.dsi.fastutil.longs.Long2IntOpenHashMap;
 import it.unimi.dsi.io.InputBitStream;
 import it.unimi.dsi.io.NullInputStream;
@@ -94,7 +96,17 @@ public class PermuteKnowledgeBase {
 		final RocksDB db = RocksDB.open(dbOptions, kbDir, cfDescriptors, columnFamilyHandles);
 		final String kbMetadataFilename = jsapResult.getString("kbmeta");
 		if (!new File(kbMetadataFilename).exists()) throw new IllegalArgumentException("No such file: " + kbMetadataFilename);
-		final KnowledgeBase kb = (KnowledgeBase) BinIO.loadObject(kbMetadataFilename);
+		final Long2IntFunction nInternalFunction;
+		final long numGraphs;
+		if (KnowledgeBaseMetadata.isLegacy(kbMetadataFilename)) {
+			final KnowledgeBase kb = (KnowledgeBase) BinIO.loadObject(kbMetadataFilename);
+			nInternalFunction = index -> kb.callGraphs.get(index).nInternal;
+			numGraphs = kb.size();
+		} else {
+			final KnowledgeBaseMetadata metadata = KnowledgeBaseMetadata.map(kbMetadataFilename);
+			nInternalFunction = index -> metadata.nInternal(metadata.row(index));
+			numGraphs = metadata.numRevisions();
+		}
 
 		final Kryo kryo = new Kryo();
 		kryo.register(BVGraph.class, new BVGraphSerializer(kryo));
@@ -110,7 +122,7 @@ public class PermuteKnowledgeBase {
 		final ProgressLogger pl = new ProgressLogger(LOGGER);
 
 		pl.itemsName = "graphs";
-		pl.count = kb.size();
+		pl.count = numGraphs;
 		pl.start("Permuting graphs...");
 		final String f = File.createTempFile(PermuteKnowledgeBase.class.getSimpleName(), ".tmpgraph").toString();
 
@@ -120,7 +132,7 @@ public class PermuteKnowledgeBase {
 			final byte[] key = iterator.key();
 			final long index = Longs.fromByteArray(key);
 			final byte[] value = iterator.value();
-			final int nInternal = kb.callGraphs.get(index).nInternal;
+			final int nInternal = nInternalFunction.get(index);
 
 			final Input input = new Input(value);
 
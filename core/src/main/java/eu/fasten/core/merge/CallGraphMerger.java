@@ -16,19 +16,24 @@
  * limitations under the License.
  */
 
+
 package eu.fasten.core.merge;
 
 import eu.fasten.core.data.ExtendedRevisionCallGraph;
 import eu.fasten.core.data.FastenJavaURI;
 import eu.fasten.core.data.FastenURI;
+import it.unimi.dsi.fastutil.longs.LongArrayList;
+import it.unimi.dsi.fastutil.longs.LongArrays;
+import it.unimi.dsi.fastutil.objects.Object2LongOpenHashMap;
+import it.unimi.dsi.fastutil.objects.ObjectArrayList;
 import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
-import org.jgrapht.Graphs;
-import org.jgrapht.graph.DefaultDirectedGraph;
-import org.jgrapht.graph.DefaultEdge;
+import java.util.function.Function;
+import java.util.function.ToLongFunction;
+import java.util.stream.Collectors;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
@@ -41,10 +46,36 @@ public class CallGraphMerger {
                                                            final List<ExtendedRevisionCallGraph>
                                                                    dependencies,
                                                            final String algorithm) {
+        return mergeCallGraph(artifact, dependencies, algorithm, null, true);
+    }
+
+    /**
+     * Merges an artifact with its dependencies, reusing the class hierarchy of the dependencies
+     * from a cache. The result is the same as that of {@link #mergeCallGraph(ExtendedRevisionCallGraph,
+     * List, String)}.
+     *
+     * @param cache a cache shared by the merges of artifacts with the same dependencies
+     */
+    public static ExtendedRevisionCallGraph mergeCallGraph(final ExtendedRevisionCallGraph artifact,
+                                                           final List<ExtendedRevisionCallGraph> dependencies,
+                                                           final String algorithm,
+                                                           final StitchingCache cache) {
+        return mergeCallGraph(artifact, dependencies, algorithm, cache, true);
+    }
+
+    /**
+     * Merges an artifact with its dependencies, optionally resolving external calls in parallel.
+     * The result does not depend on {@code cache} or {@code parallel}.
+     */
+    static ExtendedRevisionCallGraph mergeCallGraph(final ExtendedRevisionCallGraph artifact,
+                                                    final List<ExtendedRevisionCallGraph> dependencies,
+                                                    final String algorithm,
+                                                    final StitchingCache cache,
+                                                    final boolean parallel) {
         if (algorithm.equals("RA")) {
-            return mergeWithRA(artifact, dependencies);
+            return mergeWithRA(artifact, dependencies, cache, parallel);
         } else if (algorithm.equals("CHA")) {
-            return mergeWithCHA(artifact, dependencies);
+            return mergeWithCHA(artifact, dependencies, cache, parallel);
         } else {
             logger.warn("{} algorithm is not supported for merge, please inter RA or CHA.",
                     algorithm);
@@ -84,121 +115,221 @@ public class CallGraphMerger {
         }
     }
 
-    private static ExtendedRevisionCallGraph mergeWithCHA(final ExtendedRevisionCallGraph artifact,
-                                                          final List<ExtendedRevisionCallGraph> dependencies) {
+    /**
+     * A call resolved to a method of a dependency. Resolutions do not depend on node identifiers,
+     * so they can be computed independently for each external call; identifiers are assigned
+     * afterwards, by {@link #resolve(CGHA, Resolution)}.
+     */
+    private static class Resolution {
+        final int source;
+        final Map<Object, Object> metadata;
+        final ExtendedRevisionCallGraph.Node target;
+        final String product;
+
+        Resolution(final int source, final Map<Object, Object> metadata,
+                   final ExtendedRevisionCallGraph.Node target, final String product) {
+            this.source = source;
+            this.metadata = metadata;
+            this.target = target;
+            this.product = product;
+        }
+    }
+
+    /**
+     * Resolves the external calls of an artifact and builds the merged call graph.
+     *
+     * <p>Each external call is resolved by {@code resolver} into its own buffer, possibly in
+     * parallel, as resolution only reads the artifact and the class hierarchy index. Buffers
+     * are then applied sequentially in the iteration order of external calls, which assigns node
+     * identifiers exactly as a sequential merge would.
+     */
+    private static ExtendedRevisionCallGraph merge(final ExtendedRevisionCallGraph artifact,
+                                                   final boolean parallel,
+                                                   final Function<Call, List<Resolution>> resolver) {
         final var result = new CGHA(artifact.getGraph().getResolvedCalls(),
                 artifact.getClassHierarchy().getOrDefault(ExtendedRevisionCallGraph.Scope.resolvedTypes, new HashMap<>()),
                 artifact.getNodeCount());
-        final var methods = artifact.mapOfAllMethods();
-        final var universalCHA = createUniversalCHA(dependencies, artifact);
-        for (final var arc : artifact.getGraph().getExternalCalls().entrySet()) {
-
-            for (final var dep : dependencies) {
-                final var product = dep.product + "$" + dep.version;
-                for (final var depTypeEntry : dep.getClassHierarchy().get(ExtendedRevisionCallGraph.Scope.internalTypes).entrySet()) {
-                    final var depType = depTypeEntry.getValue();
-                    final var depTypeUri = depTypeEntry.getKey();
-                    final var call = new Call(arc.getKey(), arc.getValue(), methods.get(arc.getKey().get(1)));
-
-                    if (call.isConstructor()) {
-                        resolveClassInits(result, call, depTypeEntry, product, universalCHA);
-                    } else {
-                        for (final var cs : arc.getValue().entrySet()) {
-                            final var callSite = (HashMap<String, Object>) cs.getValue();
-                            final var receiverTypeUri = FastenURI.create((String) callSite.get("receiver"));
-
-                            if (depTypeUri.equals(receiverTypeUri)) {
-                                resolveIfDefined(result, call, depType, product);
-                            }
-                            if (callSite.get("type").equals("invokevirtual")
-                                    || callSite.get("type").equals("invokeinterface")
-                                    || callSite.get("type").equals("invokedynamic")) {
-
-                                if (firstTypeExtendsSecond(depTypeUri, receiverTypeUri, universalCHA)) {
-                                    resolveIfDefined(result, call, depType, product);
-                                }
-                            }
-                        }
-                    }
-                }
+        for (final var buffer : resolveAll(artifact, parallel, resolver)) {
+            for (final var resolution : buffer) {
+                resolve(result, resolution);
             }
         }
         return buildRCG(artifact, result);
     }
 
-    private static void resolveClassInits(final CGHA result, final Call call, final Map.Entry<FastenURI, ExtendedRevisionCallGraph.Type> depType,
-                                          final String product,
-                                          final org.jgrapht.Graph<FastenURI, DefaultEdge> cha) {
-        final var constructorType = getTypeURI(call.target.getUri());
-        if (depType.getKey().equals(constructorType)
-                || firstTypeExtendsSecond(constructorType, depType.getKey(), cha)) {
-            final var callToSuper = new Call(Arrays.asList(call.indices.get(1), result.nodeCount), call.metadata,
-                    new ExtendedRevisionCallGraph.Node(call.target.changeName(getTypeName(depType.getKey()), "%3Cinit%3E"),
-                            call.target.getMetadata()));
-
-            resolveIfDefined(result, callToSuper, depType.getValue(), product);
+    /**
+     * Resolves each external call of an artifact into its own buffer, possibly in parallel.
+     *
+     * @return the buffers, in the iteration order of external calls
+     */
+    private static List<List<Resolution>> resolveAll(final ExtendedRevisionCallGraph artifact,
+                                                     final boolean parallel,
+                                                     final Function<Call, List<Resolution>> resolver) {
+        final var methods = artifact.mapOfAllMethods();
+        final var arcs = new ArrayList<>(artifact.getGraph().getExternalCalls().entrySet());
+        return (parallel ? arcs.parallelStream() : arcs.stream())
+                .map(arc -> resolver.apply(new Call(arc.getKey(), arc.getValue(), methods.get(arc.getKey().get(1)))))
+                .collect(Collectors.toList());
+    }
+
+    /**
+     * Stitches an artifact with its dependencies directly into arcs between global identifiers,
+     * without building a merged call graph. This is meant for materializing stitched graphs at
+     * scale (e.g., with {@link eu.fasten.core.data.graphdb.RocksDao#saveStitchedArcs(long, long[])}),
+     * as it avoids both the merged {@link ExtendedRevisionCallGraph} and its JSON round trip.
+     * Call-site metadata is not retained.
+     *
+     * <p>Methods are mapped to global identifiers by {@code gids}, which is passed the fully
+     * qualified URI of each method that is the source or the target of a resolved call, once per
+     * method. The forge of dependencies is assumed to be that of the artifact.
+     *
+     * @param gids a function mapping fully qualified method URIs to global identifiers (e.g.,
+     *             callable identifiers in the metadata database); it is only called by the
+     *             current thread
+     * @return the distinct resolved arcs as (source, target) pairs of global identifiers,
+     *         interleaved and sorted; {@code null} if {@code algorithm} is not supported
+     */
+    public static long[] stitch(final ExtendedRevisionCallGraph artifact,
+                                final List<ExtendedRevisionCallGraph> dependencies,
+                                final String algorithm,
+                                final StitchingCache cache,
+                                final ToLongFunction<FastenURI> gids) {
+        final Function<Call, List<Resolution>> resolver;
+        if (algorithm.equals("RA")) {
+            resolver = resolverWithRA(dependencies, cache);
+        } else if (algorithm.equals("CHA")) {
+            resolver = resolverWithCHA(artifact, dependencies, cache);
+        } else {
+            logger.warn("{} algorithm is not supported for stitching, please inter RA or CHA.",
+                    algorithm);
+            return null;
         }
+
+        final var methods = artifact.mapOfAllMethods();
+        final var prefix = "fasten://" + artifact.forge + "!";
+        final var uri2GID = new Object2LongOpenHashMap<String>();
+        final var sources = new LongArrayList();
+        final var targets = new LongArrayList();
+        for (final var buffer : resolveAll(artifact, true, resolver)) {
+            for (final var resolution : buffer) {
+                final var source = prefix + artifact.product + "$" + artifact.version + methods.get(resolution.source).getUri();
+                final var target = prefix + resolution.product + resolution.target.getUri();
+                sources.add(uri2GID.computeLongIfAbsent(source, uri -> gids.applyAsLong(FastenURI.create(uri))));
+                targets.add(uri2GID.computeLongIfAbsent(target, uri -> gids.applyAsLong(FastenURI.create(uri))));
+            }
+        }
+
+        final long[] s = sources.toLongArray();
+        final long[] t = targets.toLongArray();
+        LongArrays.parallelQuickSort(s, t);
+        final long[] arcs = new long[2 * s.length];
+        int n = 0;
+        for (int i = 0; i < s.length; i++) {
+            if (n == 0 || arcs[n - 2] != s[i] || arcs[n - 1] != t[i]) {
+                arcs[n++] = s[i];
+                arcs[n++] = t[i];
+            }
+        }
+        return Arrays.copyOf(arcs, n);
     }
 
-    private static String getTypeName(final FastenURI type) {
-        return type.toString().substring(type.toString().lastIndexOf("/") + 1);
+    private static ExtendedRevisionCallGraph mergeWithCHA(final ExtendedRevisionCallGraph artifact,
+                                                          final List<ExtendedRevisionCallGraph> dependencies,
+                                                          final StitchingCache cache,
+                                                          final boolean parallel) {
+        return merge(artifact, parallel, resolverWithCHA(artifact, dependencies, cache));
+    }
+
+    private static Function<Call, List<Resolution>> resolverWithCHA(final ExtendedRevisionCallGraph artifact,
+                                                                    final List<ExtendedRevisionCallGraph> dependencies,
+                                                                    final StitchingCache cache) {
+        final var index = cache == null
+                ? new ClassHierarchyIndex(artifact, dependencies)
+                : cache.get(artifact, dependencies);
+        return call -> resolveWithCHA(index, call);
     }
 
-    private static org.jgrapht.Graph<FastenURI, DefaultEdge> createUniversalCHA(
-            final List<ExtendedRevisionCallGraph> dependencies, final ExtendedRevisionCallGraph artifact) {
-        final var allPackages = new ArrayList<>(dependencies);
-        allPackages.add(artifact);
+    private static List<Resolution> resolveWithCHA(final ClassHierarchyIndex index, final Call call) {
+        final var buffer = new ArrayList<Resolution>();
+
+        // Candidate types are resolved in the iteration order of dependencies and types
+        final var candidates = new ObjectArrayList<ClassHierarchyIndex.DependencyType>();
+        if (call.isConstructor()) {
+            final int constructorType = index.id(getTypeURI(call.target.getUri()));
+            if (constructorType != -1) {
+                candidates.addAll(index.types(constructorType));
+                for (final int superType : index.supertypes(constructorType)) {
+                    candidates.addAll(index.types(superType));
+                }
+            }
+            for (final var depType : sortCandidates(candidates)) {
+                resolveClassInit(buffer, call, depType);
+            }
+        } else {
+            for (final var cs : call.metadata.entrySet()) {
+                final var callSite = (HashMap<String, Object>) cs.getValue();
+                final int receiverType = index.id((String) callSite.get("receiver"));
+                if (receiverType == -1) {
+                    continue;
+                }
+
+                candidates.addAll(index.types(receiverType));
+                if (callSite.get("type").equals("invokevirtual")
+                        || callSite.get("type").equals("invokeinterface")
+                        || callSite.get("type").equals("invokedynamic")) {
 
-        final var result = new DefaultDirectedGraph<FastenURI, DefaultEdge>(DefaultEdge.class);
-        for (final var aPackage : allPackages) {
-            for (final var type : aPackage.getClassHierarchy().get(ExtendedRevisionCallGraph.Scope.internalTypes).entrySet()) {
-                if (!result.containsVertex(type.getKey())) {
-                    result.addVertex(type.getKey());
+                    for (final int subtype : index.subtypes(receiverType)) {
+                        candidates.addAll(index.types(subtype));
+                    }
                 }
-                addSuperTypes(result, type.getKey(), type.getValue().getSuperClasses());
-                addSuperTypes(result, type.getKey(), type.getValue().getSuperInterfaces());
+            }
+            for (final var depType : sortCandidates(candidates)) {
+                resolveIfDefined(buffer, call.indices.get(0), call.metadata, call.target, depType);
             }
         }
-        return result;
+        return buffer;
     }
 
-    private static void addSuperTypes(final DefaultDirectedGraph<FastenURI, DefaultEdge> result,
-                                      final FastenURI sourceTypes,
-                                      final List<FastenURI> targetTypes) {
-        for (final var superClass : targetTypes) {
-            if (!result.containsVertex(superClass)) {
-                result.addVertex(superClass);
-            }
-            if (!result.containsEdge(sourceTypes, superClass)) {
-                result.addEdge(superClass, sourceTypes);
+    private static List<ClassHierarchyIndex.DependencyType> sortCandidates(
+            final ObjectArrayList<ClassHierarchyIndex.DependencyType> candidates) {
+        candidates.sort((x, y) -> Integer.compare(x.order, y.order));
+        int size = 0;
+        for (int i = 0; i < candidates.size(); i++) {
+            if (size == 0 || candidates.get(size - 1) != candidates.get(i)) {
+                candidates.set(size++, candidates.get(i));
             }
         }
+        candidates.size(size);
+        return candidates;
     }
 
-    private static void resolveIfDefined(final CGHA cgha, final Call call, final ExtendedRevisionCallGraph.Type type, final String product) {
-        type.getDefined(getSignature(call.target.getUri().getEntity()))
-                .ifPresent(node -> resolve(cgha, new Call(call.indices, call.metadata, node.getValue()), product));
+    private static void resolveClassInit(final List<Resolution> buffer, final Call call,
+                                         final ClassHierarchyIndex.DependencyType depType) {
+        final var superConstructor = new ExtendedRevisionCallGraph.Node(
+                call.target.changeName(getTypeName(depType.uri), "%3Cinit%3E"), call.target.getMetadata());
+
+        resolveIfDefined(buffer, call.indices.get(1), call.metadata, superConstructor, depType);
     }
 
-    private static boolean firstTypeExtendsSecond(final FastenURI firstType, final FastenURI secondType,
-                                                  final org.jgrapht.Graph<FastenURI, DefaultEdge> cha) {
+    private static String getTypeName(final FastenURI type) {
+        return type.toString().substring(type.toString().lastIndexOf("/") + 1);
+    }
 
-        for (final var fastenURI : Graphs.predecessorListOf(cha, firstType)) {
-            if (fastenURI.equals(secondType)) {
-                return true;
-            }
-        }
-        return false;
+    private static void resolveIfDefined(final List<Resolution> buffer, final int source,
+                                         final Map<Object, Object> metadata,
+                                         final ExtendedRevisionCallGraph.Node target,
+                                         final ClassHierarchyIndex.DependencyType depType) {
+        depType.getDefined(ClassHierarchyIndex.signature(target.getUri().getEntity()))
+                .ifPresent(node -> buffer.add(new Resolution(source, metadata, node.getValue(), depType.product)));
     }
 
-    private static void resolve(final CGHA cgha, final Call call,
-                                final String product) {
+    private static void resolve(final CGHA cgha, final Resolution resolution) {
 
-        final int targetKey = addToCHA(cgha.CHA, call.target, cgha.nodeCount, product);
+        final int targetKey = addToCHA(cgha.CHA, resolution.target, cgha.nodeCount, resolution.product);
         if (targetKey == cgha.nodeCount) {
             cgha.nodeCount++;
         }
-        cgha.graph.put(Arrays.asList(call.indices.get(0), targetKey), call.metadata);
+        cgha.graph.put(Arrays.asList(resolution.source, targetKey), resolution.metadata);
     }
 
     private static int addToCHA(final Map<FastenURI, ExtendedRevisionCallGraph.Type> cha, final ExtendedRevisionCallGraph.Node target, final int nodeCount,
@@ -211,30 +342,34 @@ public class CallGraphMerger {
         return index;
     }
 
-    private static String getSignature(final String Entity) {
-        return Entity.substring(Entity.indexOf(".") + 1);
-    }
-
     public static ExtendedRevisionCallGraph mergeWithRA(final ExtendedRevisionCallGraph artifact,
                                                         final List<ExtendedRevisionCallGraph>
                                                                 dependencies) {
+        return mergeWithRA(artifact, dependencies, null, true);
+    }
 
-        final var result = new CGHA(artifact.getGraph().getResolvedCalls(),
-                artifact.getClassHierarchy().getOrDefault(ExtendedRevisionCallGraph.Scope.resolvedTypes, new HashMap<>()),
-                artifact.getNodeCount());
-        final var methods = artifact.mapOfAllMethods();
-
-        for (final var arc : artifact.getGraph().getExternalCalls().entrySet()) {
-            final var call = new Call(arc.getKey(), arc.getValue(), methods.get(arc.getKey().get(1)));
+    private static ExtendedRevisionCallGraph mergeWithRA(final ExtendedRevisionCallGraph artifact,
+                                                         final List<ExtendedRevisionCallGraph> dependencies,
+                                                         final StitchingCache cache,
+                                                         final boolean parallel) {
+        return merge(artifact, parallel, resolverWithRA(dependencies, cache));
+    }
 
-            for (final var dep : dependencies) {
-                final var product = dep.product + "$" + dep.version;
-                for (final var typeEntry : dep.getClassHierarchy().get(ExtendedRevisionCallGraph.Scope.internalTypes).entrySet()) {
-                    resolveIfDefined(result, call, typeEntry.getValue(), product);
-                }
+    private static Function<Call, List<Resolution>> resolverWithRA(final List<ExtendedRevisionCallGraph> dependencies,
+                                                                   final StitchingCache cache) {
+        // The index on the dependencies only: the types of the artifact are not targets
+        final var index = cache == null
+                ? new ClassHierarchyIndex(null, dependencies)
+                : cache.get(dependencies);
+        return call -> {
+            final var buffer = new ArrayList<Resolution>();
+            final var signature = ClassHierarchyIndex.signature(call.target.getUri().getEntity());
+            for (final var depType : index.definitions(signature)) {
+                depType.getDefined(signature)
+                        .ifPresent(node -> buffer.add(new Resolution(call.indices.get(0), call.metadata, node.getValue(), depType.product)));
             }
-        }
-        return buildRCG(artifact, result);
+            return buffer;
+        };
     }
 
     private static ExtendedRevisionCallGraph buildRCG(final ExtendedRevisionCallGraph artifact,
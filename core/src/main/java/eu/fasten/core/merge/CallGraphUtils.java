@@ -76,4 +76,21 @@ public class CallGraphUtils {
         writer.close();
     }
 
+    /**
+     * Writes the JSON representation of a revision call graph to a file, without building it in
+     * memory. Unlike {@link #writeToFile(String, JSONObject, String)}, the output is not indented.
+     *
+     * @param path   the path to write
+     * @param graph  the revision call graph to be written to a file
+     * @param suffix the suffix to put at the end of the path, most of the time file name
+     * @throws IOException throws if IO problems occur during writing in a file
+     */
+    public static void writeToFile(final String path, final ExtendedRevisionCallGraph graph,
+                                   final String suffix) throws IOException {
+        logger.info("Writing graph to {}", path + suffix);
+        try (var writer = new BufferedWriter(new FileWriter(path + suffix))) {
+            graph.writeTo(writer);
+        }
+    }
+
 }
@@ -0,0 +1,471 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package eu.fasten.core.merge;
+
+import eu.fasten.core.data.ExtendedRevisionCallGraph;
+import eu.fasten.core.data.FastenURI;
+import it.unimi.dsi.fastutil.ints.Int2ObjectOpenHashMap;
+import it.unimi.dsi.fastutil.ints.IntArrayList;
+import it.unimi.dsi.fastutil.ints.IntArrays;
+import it.unimi.dsi.fastutil.ints.IntOpenHashSet;
+import it.unimi.dsi.fastutil.objects.Object2IntOpenHashMap;
+import it.unimi.dsi.fastutil.objects.ObjectArrayList;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+
+/**
+ * An index on the class hierarchies of an artifact and of its dependencies, built once per merge
+ * by {@link CallGraphMerger}. It maps each type URI to the dependency types declaring it, and each
+ * dependency type has a hash of its methods by signature, so that call sites can be resolved with
+ * hash lookups instead of scanning all types and methods of all dependencies. It also maps each
+ * signature to the dependency types defining a method with that signature, which is all that
+ * rapid type analysis needs.
+ *
+ * <p>The universal class hierarchy (the union of the hierarchies of the artifact and of its
+ * dependencies) is stored using integer type identifiers. For each type, the index stores the
+ * sorted identifiers of all its transitive super types and of all its transitive subtypes, so
+ * subtype checks are binary searches on (usually very short) arrays, and the subtypes of a
+ * receiver type are available without visiting the hierarchy.
+ *
+ * <p>An index on the dependencies alone (built with a {@code null} artifact) can be shared by
+ * all artifacts with the same dependencies (see {@link StitchingCache}); the index for a specific
+ * artifact is then obtained by {@linkplain #ClassHierarchyIndex(ClassHierarchyIndex,
+ * ExtendedRevisionCallGraph) extending} it, which only visits the types of the artifact.
+ */
+public class ClassHierarchyIndex {
+
+    /**
+     * A type declared by a dependency, together with the position of the type in the iteration
+     * order of dependencies and types, which is used to resolve call sites deterministically.
+     */
+    public static class DependencyType {
+        /** The position of this type in the iteration order of dependencies and types. */
+        final int order;
+        /** The URI of this type. */
+        final FastenURI uri;
+        /** The product and version of the dependency, in the form {@code product$version}. */
+        final String product;
+        /** The type. */
+        final ExtendedRevisionCallGraph.Type type;
+        /** The methods of this type, indexed by signature. */
+        private final Map<String, Map.Entry<Integer, ExtendedRevisionCallGraph.Node>> methods;
+
+        DependencyType(final int order, final FastenURI uri, final String product,
+                       final ExtendedRevisionCallGraph.Type type) {
+            this.order = order;
+            this.uri = uri;
+            this.product = product;
+            this.type = type;
+            this.methods = new HashMap<>();
+            for (final var method : type.getMethods().entrySet()) {
+                methods.putIfAbsent(signature(method.getValue().getUri().getEntity()), method);
+            }
+        }
+
+        /**
+         * Returns the method of this type with a given signature.
+         *
+         * @param signature a method signature (the entity of the method without the type name)
+         * @return the method with the given signature, if any
+         */
+        public Optional<Map.Entry<Integer, ExtendedRevisionCallGraph.Node>> getDefined(final String signature) {
+            return Optional.ofNullable(methods.get(signature));
+        }
+    }
+
+    /** Maps each type URI (as a string) to its identifier. */
+    private final Object2IntOpenHashMap<String> ids;
+
+    /** Maps each type identifier to its URI. */
+    private final ObjectArrayList<FastenURI> uris;
+
+    /** Maps each type identifier to the dependency types declaring it, in iteration order. */
+    private final ObjectArrayList<List<DependencyType>> types;
+
+    /** Maps each method signature to the dependency types defining it, in iteration order. */
+    private final Map<String, List<DependencyType>> definitions;
+
+    /** Maps each type identifier to the sorted identifiers of its transitive super types. */
+    private final int[][] supertypes;
+
+    /** Maps each type identifier to the sorted identifiers of its transitive subtypes. */
+    private final int[][] subtypes;
+
+    /** An estimate of the memory used by this index, in bytes, or -1 if not computed yet. */
+    private volatile long sizeInBytes = -1;
+
+    /**
+     * Builds the index for an artifact and its dependencies.
+     *
+     * @param artifact     the artifact, or {@code null} to index the dependencies only
+     * @param dependencies the dependencies of the artifact
+     */
+    public ClassHierarchyIndex(final ExtendedRevisionCallGraph artifact,
+                               final List<ExtendedRevisionCallGraph> dependencies) {
+        this.ids = new Object2IntOpenHashMap<>();
+        this.ids.defaultReturnValue(-1);
+        this.uris = new ObjectArrayList<>();
+        this.types = new ObjectArrayList<>();
+        this.definitions = new HashMap<>();
+
+        int order = 0;
+        for (final var dep : dependencies) {
+            final var product = dep.product + "$" + dep.version;
+            for (final var type : dep.getClassHierarchy().get(ExtendedRevisionCallGraph.Scope.internalTypes).entrySet()) {
+                final int id = addType(type.getKey());
+                if (types.get(id).isEmpty()) {
+                    types.set(id, new ArrayList<>());
+                }
+                final var depType = new DependencyType(order++, type.getKey(), product, type.getValue());
+                types.get(id).add(depType);
+                for (final var signature : depType.methods.keySet()) {
+                    definitions.computeIfAbsent(signature, k -> new ArrayList<>()).add(depType);
+                }
+            }
+        }
+
+        // The declared super types, from all packages
+        final var declared = new ObjectArrayList<IntArrayList>();
+        final var allPackages = new ArrayList<>(dependencies);
+        if (artifact != null) {
+            allPackages.add(artifact);
+        }
+        for (final var aPackage : allPackages) {
+            for (final var type : aPackage.getClassHierarchy().get(ExtendedRevisionCallGraph.Scope.internalTypes).entrySet()) {
+                final int id = addType(type.getKey());
+                addSuperTypes(declared, id, type.getValue().getSuperClasses());
+                addSuperTypes(declared, id, type.getValue().getSuperInterfaces());
+            }
+        }
+        declared.size(uris.size());
+
+        this.supertypes = new int[uris.size()][];
+        final var visiting = new boolean[uris.size()];
+        for (int id = 0; id < uris.size(); id++) {
+            closeSupertypes(id, declared, visiting);
+        }
+
+        // Invert the closure; as we scan types in increasing order, subtypes come out sorted
+        final var numSubtypes = new int[uris.size()];
+        for (final var ancestors : supertypes) {
+            for (final int a : ancestors) {
+                numSubtypes[a]++;
+            }
+        }
+        this.subtypes = new int[uris.size()][];
+        for (int id = 0; id < uris.size(); id++) {
+            subtypes[id] = new int[numSubtypes[id]];
+            numSubtypes[id] = 0;
+        }
+        for (int id = 0; id < uris.size(); id++) {
+            for (final int a : supertypes[id]) {
+                subtypes[a][numSubtypes[a]++] = id;
+            }
+        }
+    }
+
+    /**
+     * Extends an index on the dependencies of an artifact with the types of the artifact. The
+     * dependency types, their method indices, the signature index and the hierarchy of the
+     * dependencies are shared with {@code dependencies}, which is not modified.
+     *
+     * @param dependencies an index built on the dependencies of {@code artifact} only, which must
+     *                     be {@linkplain #isExtensibleBy(ExtendedRevisionCallGraph) extensible} by
+     *                     {@code artifact}
+     * @param artifact     the artifact
+     */
+    public ClassHierarchyIndex(final ClassHierarchyIndex dependencies,
+                               final ExtendedRevisionCallGraph artifact) {
+        if (!dependencies.isExtensibleBy(artifact)) {
+            throw new IllegalArgumentException("The dependencies refer to types of " + artifact.product);
+        }
+        this.ids = dependencies.ids.clone();
+        this.uris = dependencies.uris.clone();
+        this.types = dependencies.types.clone();
+        // Artifact types are not dependency types, so they define no signature
+        this.definitions = dependencies.definitions;
+        final int n = dependencies.numTypes();
+
+        final var declared = new ObjectArrayList<IntArrayList>();
+        for (final var type : artifact.getClassHierarchy().get(ExtendedRevisionCallGraph.Scope.internalTypes).entrySet()) {
+            final int id = addType(type.getKey());
+            addSuperTypes(declared, id, type.getValue().getSuperClasses());
+            addSuperTypes(declared, id, type.getValue().getSuperInterfaces());
+        }
+        declared.size(uris.size());
+
+        // Types of the dependencies keep their (memoized) super types
+        this.supertypes = Arrays.copyOf(dependencies.supertypes, uris.size());
+        final var visiting = new boolean[uris.size()];
+        for (int id = n; id < uris.size(); id++) {
+            closeSupertypes(id, declared, visiting);
+        }
+
+        // New types have larger identifiers, so appending them keeps subtypes sorted
+        this.subtypes = Arrays.copyOf(dependencies.subtypes, uris.size());
+        final var newSubtypes = new Int2ObjectOpenHashMap<IntArrayList>();
+        for (int id = n; id < uris.size(); id++) {
+            subtypes[id] = IntArrays.EMPTY_ARRAY;
+            for (final int a : supertypes[id]) {
+                newSubtypes.computeIfAbsent(a, k -> new IntArrayList()).add(id);
+            }
+        }
+        for (final var entry : newSubtypes.int2ObjectEntrySet()) {
+            final int a = entry.getIntKey();
+            final var extended = Arrays.copyOf(subtypes[a], subtypes[a].length + entry.getValue().size());
+            entry.getValue().getElements(0, extended, subtypes[a].length, entry.getValue().size());
+            subtypes[a] = extended;
+        }
+    }
+
+    /**
+     * Returns whether this index can be {@linkplain #ClassHierarchyIndex(ClassHierarchyIndex,
+     * ExtendedRevisionCallGraph) extended} with the types of an artifact, that is, whether none of
+     * the internal types of the artifact already appears in this index. This is always the case
+     * unless some dependency declares or extends a type of the artifact.
+     *
+     * @param artifact an artifact
+     * @return true if this index can be extended with the types of {@code artifact}
+     */
+    public boolean isExtensibleBy(final ExtendedRevisionCallGraph artifact) {
+        for (final var type : artifact.getClassHierarchy().get(ExtendedRevisionCallGraph.Scope.internalTypes).keySet()) {
+            if (id(type) != -1) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Returns an estimate of the memory used by this index.
+     *
+     * @return an estimate of the memory used by this index, in bytes
+     */
+    public long sizeInBytes() {
+        if (sizeInBytes == -1) {
+            long size = 0;
+            for (int id = 0; id < uris.size(); id++) {
+                // The URI, its entries in the maps, and the closure arrays
+                size += 2L * uris.get(id).toString().length() + 128 + 4L * (supertypes[id].length + subtypes[id].length);
+                for (final var depType : types.get(id)) {
+                    size += 64;
+                    for (final var signature : depType.methods.keySet()) {
+                        size += 2L * signature.length() + 96;
+                    }
+                }
+            }
+            for (final var defining : definitions.values()) {
+                // The signature string is shared with the method indices
+                size += 64 + 8L * defining.size();
+            }
+            sizeInBytes = size;
+        }
+        return sizeInBytes;
+    }
+
+    private int addType(final FastenURI uri) {
+        final var key = uri.toString();
+        int id = ids.getInt(key);
+        if (id == -1) {
+            id = uris.size();
+            ids.put(key, id);
+            uris.add(uri);
+            types.add(Collections.emptyList());
+        }
+        return id;
+    }
+
+    private void addSuperTypes(final ObjectArrayList<IntArrayList> declared, final int id,
+                               final List<FastenURI> superTypes) {
+        for (final var superType : superTypes) {
+            final int superId = addType(superType);
+            if (declared.size() <= id) {
+                declared.size(id + 1);
+            }
+            if (declared.get(id) == null) {
+                declared.set(id, new IntArrayList());
+            }
+            declared.get(id).add(superId);
+        }
+    }
+
+    /**
+     * Computes (with memoization) the transitive super types of a type. Cycles, which can only
+     * occur with malformed input, are broken arbitrarily.
+     */
+    private int[] closeSupertypes(final int id, final ObjectArrayList<IntArrayList> declared,
+                                  final boolean[] visiting) {
+        if (supertypes[id] != null) {
+            return supertypes[id];
+        }
+        final var direct = declared.get(id);
+        if (direct == null) {
+            return supertypes[id] = IntArrays.EMPTY_ARRAY;
+        }
+        visiting[id] = true;
+        final var ancestors = new IntOpenHashSet();
+        for (final int superId : direct) {
+            if (superId == id || visiting[superId]) {
+                continue;
+            }
+            ancestors.add(superId);
+            for (final int a : closeSupertypes(superId, declared, visiting)) {
+                ancestors.add(a);
+            }
+        }
+        ancestors.remove(id);
+        visiting[id] = false;
+        final var result = ancestors.toIntArray();
+        Arrays.sort(result);
+        return supertypes[id] = result;
+    }
+
+    /**
+     * Returns the number of types in the universal class hierarchy.
+     *
+     * @return the number of types
+     */
+    public int numTypes() {
+        return uris.size();
+    }
+
+    /**
+     * Returns the identifier of a type.
+     *
+     * @param uri a type URI
+     * @return the identifier of the type, or -1 if the type does not appear in the hierarchy
+     */
+    public int id(final String uri) {
+        return ids.getInt(uri);
+    }
+
+    /**
+     * Returns the identifier of a type.
+     *
+     * @param uri a type URI
+     * @return the identifier of the type, or -1 if the type does not appear in the hierarchy
+     */
+    public int id(final FastenURI uri) {
+        return ids.getInt(uri.toString());
+    }
+
+    /**
+     * Returns the URI of a type.
+     *
+     * @param id a type identifier
+     * @return the URI of the type
+     */
+    public FastenURI uri(final int id) {
+        return uris.get(id);
+    }
+
+    /**
+     * Returns the dependency types with a given identifier.
+     *
+     * @param id a type identifier
+     * @return the dependency types with the given identifier, in iteration order
+     */
+    public List<DependencyType> types(final int id) {
+        return types.get(id);
+    }
+
+    /**
+     * Returns the dependency types with a given URI.
+     *
+     * @param uri a type URI
+     * @return the dependency types with URI {@code uri}, in iteration order
+     */
+    public List<DependencyType> types(final FastenURI uri) {
+        final int id = id(uri);
+        return id == -1 ? Collections.emptyList() : types.get(id);
+    }
+
+    /**
+     * Returns the dependency types defining a method with a given signature.
+     *
+     * @param signature a method signature (the decoded entity of the method without the type name)
+     * @return the dependency types defining a method with the given signature, in iteration order
+     */
+    public List<DependencyType> definitions(final String signature) {
+        return definitions.getOrDefault(signature, Collections.emptyList());
+    }
+
+    /**
+     * Returns the transitive subtypes of a type. The returned array must not be modified.
+     *
+     * @param id a type identifier
+     * @return the sorted identifiers of the types that extend or implement the given type,
+     *         directly or indirectly
+     */
+    public int[] subtypes(final int id) {
+        return subtypes[id];
+    }
+
+    /**
+     * Returns the transitive super types of a type. The returned array must not be modified.
+     *
+     * @param id a type identifier
+     * @return the sorted identifiers of the types that the given type extends or implements,
+     *         directly or indirectly
+     */
+    public int[] supertypes(final int id) {
+        return supertypes[id];
+    }
+
+    /**
+     * Returns whether the first type extends or implements the second one, directly or indirectly.
+     *
+     * @param firstType  a type identifier
+     * @param secondType a type identifier
+     * @return true if {@code firstType} is a proper subtype of {@code secondType}
+     */
+    public boolean isSubtype(final int firstType, final int secondType) {
+        return Arrays.binarySearch(supertypes[firstType], secondType) >= 0;
+    }
+
+    /**
+     * Returns whether the first type extends or implements the second one, directly or indirectly.
+     *
+     * @param firstType  a type URI
+     * @param secondType a type URI
+     * @return true if {@code firstType} is a proper subtype of {@code secondType}
+     */
+    public boolean firstTypeExtendsSecond(final FastenURI firstType, final FastenURI secondType) {
+        final int first = id(firstType);
+        final int second = id(secondType);
+        return first != -1 && second != -1 && isSubtype(first, second);
+    }
+
+    /**
+     * Returns the signature of a method, that is, its entity without the type name. Methods are
+     * resolved by exact match of the signatures of their decoded entities, both by
+     * {@link CallGraphMerger} and by {@link eu.fasten.core.data.LazyStitcher}.
+     *
+     * @param entity the entity of a method URI
+     * @return the signature of the method
+     */
+    public static String signature(final String entity) {
+        return entity.substring(entity.indexOf(".") + 1);
+    }
+}
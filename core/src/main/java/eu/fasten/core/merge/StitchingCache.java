@@ -0,0 +1,179 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package eu.fasten.core.merge;
+
+import eu.fasten.core.data.ExtendedRevisionCallGraph;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * A cache of {@linkplain ClassHierarchyIndex class hierarchy indices} on dependency sets, to be
+ * shared by {@link CallGraphMerger#mergeCallGraph(ExtendedRevisionCallGraph, List, String,
+ * StitchingCache)} calls stitching artifacts with the same dependencies (e.g., all modules of a
+ * multi-module build). Each artifact then only pays for the indexing of its own types.
+ *
+ * <p>Indices are keyed by the sequence of products and versions of the dependencies. The order
+ * of dependencies is part of the key, as it determines the order in which calls are resolved, and
+ * thus node identifiers in the stitched graph. When the estimated size of the cached indices
+ * exceeds a given limit, least recently used indices are evicted.
+ *
+ * <p>This class is thread safe. Indices are built outside of the lock, so concurrent requests
+ * for the same missing dependency set might build it more than once.
+ */
+public class StitchingCache {
+
+    private static final Logger logger = LoggerFactory.getLogger(StitchingCache.class);
+
+    /** The maximum estimated size of the cached indices, in bytes. */
+    private final long maxSizeInBytes;
+
+    /** The cached indices, in access order. */
+    private final LinkedHashMap<List<String>, ClassHierarchyIndex> indices;
+
+    /** The estimated size of the cached indices, in bytes. */
+    private long sizeInBytes;
+
+    private long hits;
+    private long misses;
+
+    /**
+     * Creates a new cache.
+     *
+     * @param maxSizeInBytes the maximum estimated size of the cached indices, in bytes
+     */
+    public StitchingCache(final long maxSizeInBytes) {
+        this.maxSizeInBytes = maxSizeInBytes;
+        this.indices = new LinkedHashMap<>(16, .75f, true);
+    }
+
+    /**
+     * Returns the key of a dependency set.
+     *
+     * @param dependencies a list of dependencies
+     * @return the products and versions of the dependencies, in order
+     */
+    static List<String> key(final List<ExtendedRevisionCallGraph> dependencies) {
+        final var key = new ArrayList<String>(dependencies.size());
+        for (final var dep : dependencies) {
+            key.add(dep.product + "$" + dep.version);
+        }
+        return key;
+    }
+
+    /**
+     * Returns an index on a dependency set, building and caching it if necessary.
+     *
+     * @param dependencies a list of dependencies
+     * @return an index on {@code dependencies} only
+     */
+    public ClassHierarchyIndex get(final List<ExtendedRevisionCallGraph> dependencies) {
+        final var key = key(dependencies);
+        synchronized (this) {
+            final var index = indices.get(key);
+            if (index != null) {
+                hits++;
+                return index;
+            }
+            misses++;
+        }
+
+        final var index = new ClassHierarchyIndex(null, dependencies);
+        final long size = index.sizeInBytes();
+        synchronized (this) {
+            if (size > maxSizeInBytes) {
+                logger.debug("Index on {} dependencies is too large to be cached ({} bytes)", dependencies.size(), size);
+                return index;
+            }
+            final var old = indices.put(key, index);
+            if (old != null) {
+                sizeInBytes -= old.sizeInBytes();
+            }
+            sizeInBytes += size;
+            final var iterator = indices.values().iterator();
+            while (sizeInBytes > maxSizeInBytes) {
+                sizeInBytes -= iterator.next().sizeInBytes();
+                iterator.remove();
+            }
+        }
+        return index;
+    }
+
+    /**
+     * Returns an index on an artifact and its dependencies, reusing the cached index on the
+     * dependencies if possible.
+     *
+     * @param artifact     an artifact
+     * @param dependencies the dependencies of {@code artifact}
+     * @return an index on {@code artifact} and {@code dependencies}
+     */
+    public ClassHierarchyIndex get(final ExtendedRevisionCallGraph artifact,
+                                   final List<ExtendedRevisionCallGraph> dependencies) {
+        final var index = get(dependencies);
+        if (!index.isExtensibleBy(artifact)) {
+            // Some dependency refers to types of the artifact, so the hierarchy of the dependencies changes
+            return new ClassHierarchyIndex(artifact, dependencies);
+        }
+        return new ClassHierarchyIndex(index, artifact);
+    }
+
+    /**
+     * Returns the number of cached indices.
+     *
+     * @return the number of cached indices
+     */
+    public synchronized int size() {
+        return indices.size();
+    }
+
+    /**
+     * Returns the estimated size of the cached indices.
+     *
+     * @return the estimated size of the cached indices, in bytes
+     */
+    public synchronized long sizeInBytes() {
+        return sizeInBytes;
+    }
+
+    /**
+     * Returns the number of requests for a dependency set that was cached.
+     *
+     * @return the number of cache hits
+     */
+    public synchronized long hits() {
+        return hits;
+    }
+
+    /**
+     * Returns the number of requests for a dependency set that was not cached.
+     *
+     * @return the number of cache misses
+     */
+    public synchronized long misses() {
+        return misses;
+    }
+
+    /** Removes all indices from this cache. */
+    public synchronized void clear() {
+        indices.clear();
+        sizeInBytes = 0;
+    }
+}
@@ -0,0 +1,67 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package eu.fasten.core.plugins;
+
+import java.util.Optional;
+import org.jooq.DSLContext;
+
+/**
+ * A Kafka plug-in writing to the database that can process several records at the same time.
+ *
+ * <p>Processing a record is split into a preparation stage, which must not access the database,
+ * and a writing stage, which uses a DSL context given by the caller. Both methods may be
+ * called concurrently by different threads, on different records, so they must not depend on the
+ * state set by {@link #consume(String)}.
+ *
+ * @param <T> the type of prepared records
+ */
+public interface PipelinedDBConnector<T> extends KafkaPlugin, DBConnector {
+
+    /**
+     * Prepares a record for writing, without accessing the database.
+     *
+     * @param record a record to process
+     * @return the prepared record
+     * @throws Exception if the record cannot be processed
+     */
+    T prepare(String record) throws Exception;
+
+    /**
+     * Writes a prepared record to the database.
+     *
+     * <p>The DSL context may be shared by all writing threads, as it is backed by a connection
+     * pool: each transaction started on it holds its own pooled connection, so a record should be
+     * written in a single transaction, and no state should be kept on the context between calls.
+     *
+     * @param prepared   a record returned by {@link #prepare(String)}
+     * @param dslContext a DSL context, possibly shared with other threads
+     * @return optional result of the computation, as for {@link #produce()}
+     * @throws Exception if the record could not be written
+     */
+    Optional<String> write(T prepared, DSLContext dslContext) throws Exception;
+
+    /**
+     * Returns a relative path to a file the result of writing a prepared record should be
+     * written to, as for {@link #getOutputPath()}.
+     *
+     * @param prepared a record returned by {@link #prepare(String)}
+     * @return relative path to the output file
+     */
+    String getOutputPath(T prepared);
+}
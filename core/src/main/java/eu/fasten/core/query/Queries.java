@@ -0,0 +1,420 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package eu.fasten.core.query;
+
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.TreeMap;
+
+import eu.fasten.core.data.FastenURI;
+import eu.fasten.core.data.KnowledgeBase;
+import eu.fasten.core.data.KnowledgeBase.CallGraph;
+import eu.fasten.core.data.LazyStitcher;
+import eu.fasten.core.query.QueryEngine.CoreachabilityQuery;
+import eu.fasten.core.query.QueryEngine.ReachabilityQuery;
+import it.unimi.dsi.fastutil.longs.LongOpenHashSet;
+import it.unimi.dsi.fastutil.longs.LongSet;
+import it.unimi.dsi.fastutil.longs.LongSets;
+
+/**
+ * Static methods to build and compose {@linkplain SignatureQuery signature queries}.
+ *
+ * <p>
+ * The operators provided by this class (union, intersection, difference and restriction to a
+ * product or to a revision) work on sets of node signatures, and they normalize their operands
+ * (e.g., unions and intersections are flattened, and their operands are sorted and deduplicated),
+ * so that equivalent composite queries share the same {@linkplain SignatureQuery#normalized()
+ * normalized representation}, and thus the same {@link QueryCache} entry.
+ */
+public class Queries {
+
+	private Queries() {}
+
+	/**
+	 * Returns the normalized representation of an operator applied to some arguments. Arguments are
+	 * prefixed by their length, so that the representation is unambiguous even if the arguments
+	 * contain parentheses or commas.
+	 *
+	 * @param operator the name of the operator.
+	 * @param args the (already normalized) arguments.
+	 * @return the normalized representation of the operator applied to the arguments.
+	 */
+	static String normalized(final String operator, final String... args) {
+		final StringBuilder sb = new StringBuilder(operator).append('(');
+		for (int i = 0; i < args.length; i++) {
+			if (i != 0) sb.append(',');
+			sb.append(args[i].length()).append(':').append(args[i]);
+		}
+		return sb.append(')').toString();
+	}
+
+	/**
+	 * Evaluates a query, using a cache if available.
+	 *
+	 * @param query the query.
+	 * @param kb the knowledge base.
+	 * @param cache a cache associated with {@code kb}, or {@code null}.
+	 * @return the set of node signatures satisfying {@code query}.
+	 */
+	static LongSet evaluate(final SignatureQuery query, final KnowledgeBase kb, final QueryCache cache) {
+		return cache == null ? query.signatures(kb, null) : cache.signatures(query);
+	}
+
+	/**
+	 * Returns a query returning the signatures of the nodes reachable from a given node.
+	 *
+	 * @param fastenURI a {@link FastenURI} with version.
+	 * @return a query returning the signatures of the nodes reachable from {@code fastenURI}.
+	 */
+	public static SignatureQuery reaches(final FastenURI fastenURI) {
+		return new ReachabilityQuery(fastenURI);
+	}
+
+	/**
+	 * Returns a query returning the signatures of the nodes coreachable from a given node.
+	 *
+	 * @param fastenURI a {@link FastenURI} with version.
+	 * @return a query returning the signatures of the nodes coreachable from {@code fastenURI}.
+	 */
+	public static SignatureQuery coreaches(final FastenURI fastenURI) {
+		return new CoreachabilityQuery(fastenURI);
+	}
+
+	/**
+	 * Returns a query returning the signatures of the nodes reachable from a given node signature.
+	 *
+	 * @param signature a node signature.
+	 * @return a query returning the signatures of the nodes reachable from {@code signature}.
+	 */
+	public static SignatureQuery reaches(final long signature) {
+		return new SignatureVisit(signature, true);
+	}
+
+	/**
+	 * Returns a query returning the signatures of the nodes coreachable from a given node signature.
+	 *
+	 * @param signature a node signature.
+	 * @return a query returning the signatures of the nodes coreachable from {@code signature}.
+	 */
+	public static SignatureQuery coreaches(final long signature) {
+		return new SignatureVisit(signature, false);
+	}
+
+	/**
+	 * Returns a query returning the signatures of the nodes reachable from a given node signature,
+	 * stitching external nodes lazily against the dependency set of a {@link LazyStitcher}.
+	 *
+	 * @param signature a node signature.
+	 * @param stitcher a lazy stitcher on the knowledge base the query will be evaluated on.
+	 * @return a query returning the signatures of the nodes reachable from {@code signature} in the
+	 *         graph stitched by {@code stitcher}.
+	 */
+	public static SignatureQuery reaches(final long signature, final LazyStitcher stitcher) {
+		return new StitchedVisit(signature, stitcher);
+	}
+
+	/**
+	 * Returns the union of some queries.
+	 *
+	 * @param queries the queries.
+	 * @return a query returning the union of the results of {@code queries}.
+	 */
+	public static SignatureQuery union(final SignatureQuery... queries) {
+		final SignatureQuery[] operands = flatten(Union.class, queries);
+		return operands.length == 1 ? operands[0] : new Union(operands);
+	}
+
+	/**
+	 * Returns the intersection of some queries.
+	 *
+	 * @param queries the queries.
+	 * @return a query returning the intersection of the results of {@code queries}.
+	 */
+	public static SignatureQuery intersection(final SignatureQuery... queries) {
+		final SignatureQuery[] operands = flatten(Intersection.class, queries);
+		return operands.length == 1 ? operands[0] : new Intersection(operands);
+	}
+
+	/**
+	 * Returns the difference of two queries.
+	 *
+	 * @param minuend the first query.
+	 * @param subtrahend the second query.
+	 * @return a query returning the results of {@code minuend} that are not results of
+	 *         {@code subtrahend}.
+	 */
+	public static SignatureQuery difference(final SignatureQuery minuend, final SignatureQuery subtrahend) {
+		return new Difference(minuend, subtrahend);
+	}
+
+	/**
+	 * Restricts the results of a query to the nodes of a given product.
+	 *
+	 * @param query a query.
+	 * @param product a product.
+	 * @return a query returning the results of {@code query} that belong to a call graph of
+	 *         {@code product}.
+	 */
+	public static SignatureQuery restrictToProduct(final SignatureQuery query, final String product) {
+		return new ProductRestriction(query, product);
+	}
+
+	/**
+	 * Restricts the results of a query to the nodes of a given revision.
+	 *
+	 * @param query a query.
+	 * @param index a revision index.
+	 * @return a query returning the results of {@code query} that belong to the call graph with
+	 *         revision index {@code index}.
+	 */
+	public static SignatureQuery restrictToRevision(final SignatureQuery query, final long index) {
+		return new RevisionRestriction(query, index);
+	}
+
+	/**
+	 * Flattens nested instances of an associative, commutative and idempotent operator, and sorts and
+	 * deduplicates the resulting operands by their normalized representation.
+	 *
+	 * @param operator the class of the operator.
+	 * @param queries the operands.
+	 * @return the normalized operands.
+	 */
+	private static SignatureQuery[] flatten(final Class<? extends NaryQuery> operator, final SignatureQuery... queries) {
+		if (queries.length == 0) throw new IllegalArgumentException("At least one query must be specified");
+		final TreeMap<String, SignatureQuery> operands = new TreeMap<>();
+		for (final SignatureQuery query : queries) {
+			if (operator.isInstance(query)) for (final SignatureQuery operand : ((NaryQuery)query).operands) operands.put(operand.normalized(), operand);
+			else operands.put(query.normalized(), query);
+		}
+		return operands.values().toArray(new SignatureQuery[0]);
+	}
+
+	/** A visit (forward or backward) starting from a node signature. */
+	private static final class SignatureVisit implements SignatureQuery {
+		private final long signature;
+		private final boolean forward;
+		private final String normalized;
+
+		private SignatureVisit(final long signature, final boolean forward) {
+			this.signature = signature;
+			this.forward = forward;
+			this.normalized = Queries.normalized(forward ? "reaches" : "coreaches", "#" + signature);
+		}
+
+		@Override
+		public LongSet signatures(final KnowledgeBase kb, final QueryCache cache) {
+			if (kb.callGraphs.get(KnowledgeBase.index(signature)) == null) return LongSets.EMPTY_SET;
+			return forward ? kb.reaches(signature) : kb.coreaches(signature);
+		}
+
+		@Override
+		public String normalized() {
+			return normalized;
+		}
+
+		@Override
+		public String toString() {
+			return normalized;
+		}
+	}
+
+	/** A forward visit starting from a node signature, with external nodes stitched lazily. */
+	private static final class StitchedVisit implements SignatureQuery {
+		private final long signature;
+		private final LazyStitcher stitcher;
+		private final String normalized;
+
+		private StitchedVisit(final long signature, final LazyStitcher stitcher) {
+			this.signature = signature;
+			this.stitcher = stitcher;
+			this.normalized = Queries.normalized("stitchedReaches", "#" + signature, stitcher.normalized());
+		}
+
+		@Override
+		public LongSet signatures(final KnowledgeBase kb, final QueryCache cache) {
+			if (kb.callGraphs.get(KnowledgeBase.index(signature)) == null) return LongSets.EMPTY_SET;
+			return stitcher.reaches(signature);
+		}
+
+		@Override
+		public String normalized() {
+			return normalized;
+		}
+
+		@Override
+		public String toString() {
+			return normalized;
+		}
+	}
+
+	/** An abstract n-ary operator on queries. */
+	private abstract static class NaryQuery implements SignatureQuery {
+		/** The operands, sorted by their normalized representation. */
+		protected final SignatureQuery[] operands;
+		/** The cached normalized representation of this query. */
+		private final String normalized;
+
+		protected NaryQuery(final String operator, final SignatureQuery[] operands) {
+			this.operands = operands;
+			final String[] args = new String[operands.length];
+			for (int i = 0; i < args.length; i++) args[i] = operands[i].normalized();
+			this.normalized = Queries.normalized(operator, args);
+		}
+
+		@Override
+		public String normalized() {
+			return normalized;
+		}
+
+		@Override
+		public String toString() {
+			return normalized;
+		}
+	}
+
+	/** The union of some queries. */
+	private static final class Union extends NaryQuery {
+		private Union(final SignatureQuery[] operands) {
+			super("union", operands);
+		}
+
+		@Override
+		public LongSet signatures(final KnowledgeBase kb, final QueryCache cache) {
+			final LongOpenHashSet result = new LongOpenHashSet();
+			for (final SignatureQuery operand : operands) result.addAll(evaluate(operand, kb, cache));
+			return result;
+		}
+	}
+
+	/** The intersection of some queries. */
+	private static final class Intersection extends NaryQuery {
+		private Intersection(final SignatureQuery[] operands) {
+			super("intersection", operands);
+		}
+
+		@Override
+		public LongSet signatures(final KnowledgeBase kb, final QueryCache cache) {
+			final LongSet[] sets = new LongSet[operands.length];
+			for (int i = 0; i < sets.length; i++) {
+				sets[i] = evaluate(operands[i], kb, cache);
+				if (sets[i].isEmpty()) return LongSets.EMPTY_SET;
+			}
+			// We start from the smallest set, and check membership in the others
+			Arrays.sort(sets, Comparator.comparingInt(LongSet::size));
+			final LongOpenHashSet result = new LongOpenHashSet(sets[0]);
+			for (int i = 1; i < sets.length && !result.isEmpty(); i++) result.retainAll(sets[i]);
+			return result;
+		}
+	}
+
+	/** The difference of two queries. */
+	private static final class Difference implements SignatureQuery {
+		private final SignatureQuery minuend;
+		private final SignatureQuery subtrahend;
+		private final String normalized;
+
+		private Difference(final SignatureQuery minuend, final SignatureQuery subtrahend) {
+			this.minuend = minuend;
+			this.subtrahend = subtrahend;
+			this.normalized = Queries.normalized("difference", minuend.normalized(), subtrahend.normalized());
+		}
+
+		@Override
+		public LongSet signatures(final KnowledgeBase kb, final QueryCache cache) {
+			final LongSet first = evaluate(minuend, kb, cache);
+			if (first.isEmpty()) return LongSets.EMPTY_SET;
+			final LongOpenHashSet result = new LongOpenHashSet(first);
+			result.removeAll(evaluate(subtrahend, kb, cache));
+			return result;
+		}
+
+		@Override
+		public String normalized() {
+			return normalized;
+		}
+
+		@Override
+		public String toString() {
+			return normalized;
+		}
+	}
+
+	/** The restriction of a query to the call graphs of a product. */
+	private static final class ProductRestriction implements SignatureQuery {
+		private final SignatureQuery query;
+		private final String product;
+		private final String normalized;
+
+		private ProductRestriction(final SignatureQuery query, final String product) {
+			this.query = query;
+			this.product = product;
+			this.normalized = Queries.normalized("product", product, query.normalized());
+		}
+
+		@Override
+		public LongSet signatures(final KnowledgeBase kb, final QueryCache cache) {
+			final LongOpenHashSet result = new LongOpenHashSet();
+			for (final long signature : evaluate(query, kb, cache)) {
+				final CallGraph callGraph = kb.callGraphs.get(KnowledgeBase.index(signature));
+				if (callGraph != null && product.equals(callGraph.product)) result.add(signature);
+			}
+			return result;
+		}
+
+		@Override
+		public String normalized() {
+			return normalized;
+		}
+
+		@Override
+		public String toString() {
+			return normalized;
+		}
+	}
+
+	/** The restriction of a query to a revision. */
+	private static final class RevisionRestriction implements SignatureQuery {
+		private final SignatureQuery query;
+		private final long index;
+		private final String normalized;
+
+		private RevisionRestriction(final SignatureQuery query, final long index) {
+			this.query = query;
+			this.index = index;
+			this.normalized = Queries.normalized("revision", Long.toString(index), query.normalized());
+		}
+
+		@Override
+		public LongSet signatures(final KnowledgeBase kb, final QueryCache cache) {
+			final LongOpenHashSet result = new LongOpenHashSet();
+			for (final long signature : evaluate(query, kb, cache)) if (KnowledgeBase.index(signature) == index) result.add(signature);
+			return result;
+		}
+
+		@Override
+		public String normalized() {
+			return normalized;
+		}
+
+		@Override
+		public String toString() {
+			return normalized;
+		}
+	}
+}
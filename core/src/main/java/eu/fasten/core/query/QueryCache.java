@@ -0,0 +1,273 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package eu.fasten.core.query;
+
+import java.util.Collection;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+
+import eu.fasten.core.data.FastenURI;
+import eu.fasten.core.data.KnowledgeBase;
+import it.unimi.dsi.fastutil.longs.LongSet;
+import it.unimi.dsi.fastutil.longs.LongSets;
+import it.unimi.dsi.fastutil.objects.Object2ObjectLinkedOpenHashMap;
+
+/**
+ * A least-recently-used cache for the results of {@linkplain SignatureQuery signature queries} on
+ * a given {@link KnowledgeBase}.
+ *
+ * <p>
+ * Results are keyed by the {@linkplain SignatureQuery#normalized() normalized representation} of
+ * the query, and they are valid only for the {@linkplain KnowledgeBase#generation() generation} of
+ * the knowledge base in which they have been computed: as soon as the knowledge base is modified,
+ * the cache is cleared. Subqueries of composite queries are cached, too, so closures shared by
+ * different composite queries are computed just once.
+ *
+ * <p>
+ * The size of the cache is bounded by the overall number of cached signatures. Queries whose
+ * result is requested with {@link #count(SignatureQuery)} only cache the number of results.
+ *
+ * <p>
+ * Instances of this class are thread safe. Results are computed outside of the lock of the cache,
+ * so queries with different keys are evaluated concurrently; a thread requesting a result that
+ * another thread is computing waits for it instead of computing it again.
+ */
+public class QueryCache {
+
+	/** A cache entry. */
+	private static final class Entry {
+		/** The cached result, or {@code null} if only the count is cached. */
+		private final LongSet signatures;
+		/** The number of signatures in the result. */
+		private final long count;
+
+		private Entry(final LongSet signatures, final long count) {
+			this.signatures = signatures;
+			this.count = count;
+		}
+
+		/** The weight of this entry, that is, the number of signatures it contains, plus one. */
+		private long weight() {
+			return signatures == null ? 1 : signatures.size() + 1;
+		}
+	}
+
+	/** The knowledge base associated with this cache. */
+	private final KnowledgeBase kb;
+	/** The maximum overall weight of the entries of this cache. */
+	private final long maxWeight;
+	/** The entries of this cache, in access order. */
+	private final Object2ObjectLinkedOpenHashMap<String, Entry> cache;
+	/** The results being computed, keyed by normalized query. */
+	private final ConcurrentHashMap<String, CompletableFuture<LongSet>> pending;
+	/** The generation of the knowledge base for which the cached entries are valid. */
+	private long generation;
+	/** The current overall weight of the entries of this cache. */
+	private long weight;
+	/** The number of cache hits. */
+	private long hits;
+	/** The number of cache misses. */
+	private long misses;
+
+	/**
+	 * Creates a cache for a given knowledge base.
+	 *
+	 * @param kb the knowledge base.
+	 * @param maxSignatures the maximum overall number of signatures that will be cached.
+	 */
+	public QueryCache(final KnowledgeBase kb, final long maxSignatures) {
+		this.kb = kb;
+		this.maxWeight = maxSignatures;
+		this.cache = new Object2ObjectLinkedOpenHashMap<>();
+		this.pending = new ConcurrentHashMap<>();
+		this.generation = kb.generation();
+	}
+
+	/** Clears the cache if the knowledge base has been modified since the last access. */
+	private void checkGeneration() {
+		final long current = kb.generation();
+		if (current != generation) {
+			clear();
+			// Computations in progress are not shared with queries on the new generation
+			pending.clear();
+			generation = current;
+		}
+	}
+
+	/**
+	 * Adds an entry to the cache, evicting least-recently-used entries if necessary.
+	 *
+	 * @param key the normalized query.
+	 * @param entry the entry.
+	 */
+	private void put(final String key, final Entry entry) {
+		final long w = entry.weight();
+		if (w > maxWeight) return;
+		final Entry old = cache.putAndMoveToLast(key, entry);
+		if (old != null) weight -= old.weight();
+		weight += w;
+		while (weight > maxWeight) weight -= cache.removeFirst().weight();
+	}
+
+	/**
+	 * Returns the result of a query, computing it if it is not in the cache.
+	 *
+	 * @param query a query.
+	 * @return the (unmodifiable) set of node signatures satisfying {@code query}.
+	 */
+	public LongSet signatures(final SignatureQuery query) {
+		final String key = query.normalized();
+		final long generation;
+		synchronized (this) {
+			checkGeneration();
+			final Entry entry = cache.getAndMoveToLast(key);
+			if (entry != null && entry.signatures != null) {
+				hits++;
+				return entry.signatures;
+			}
+			misses++;
+			generation = this.generation;
+		}
+		return compute(query, key, generation, true);
+	}
+
+	/**
+	 * Returns the number of results of a query, computing it if it is not in the cache.
+	 *
+	 * <p>
+	 * If the query result is not cached, just its size will be; its subqueries, however, will be
+	 * cached normally.
+	 *
+	 * @param query a query.
+	 * @return the number of node signatures satisfying {@code query}.
+	 */
+	public long count(final SignatureQuery query) {
+		final String key = query.normalized();
+		final long generation;
+		synchronized (this) {
+			checkGeneration();
+			final Entry entry = cache.getAndMoveToLast(key);
+			if (entry != null) {
+				hits++;
+				return entry.count;
+			}
+			misses++;
+			generation = this.generation;
+		}
+		return compute(query, key, generation, false).size();
+	}
+
+	/**
+	 * Computes the result of a query without holding the lock of the cache, or waits for it if
+	 * another thread is computing it, and caches it.
+	 *
+	 * @param query a query.
+	 * @param key the normalized query.
+	 * @param generation the generation of the knowledge base when the query was requested.
+	 * @param keepSignatures whether to cache the result, rather than just its size.
+	 * @return the (unmodifiable) set of node signatures satisfying {@code query}.
+	 */
+	private LongSet compute(final SignatureQuery query, final String key, final long generation, final boolean keepSignatures) {
+		final CompletableFuture<LongSet> future = new CompletableFuture<>();
+		final CompletableFuture<LongSet> running = pending.putIfAbsent(key, future);
+		if (running != null) {
+			final LongSet result;
+			try {
+				result = running.join();
+			} catch (final CompletionException e) {
+				if (e.getCause() instanceof RuntimeException) throw (RuntimeException)e.getCause();
+				if (e.getCause() instanceof Error) throw (Error)e.getCause();
+				throw e;
+			}
+			store(key, generation, result, keepSignatures);
+			return result;
+		}
+		try {
+			final LongSet result = LongSets.unmodifiable(query.signatures(kb, this));
+			// Stored before being published, so that no thread computes it again meanwhile
+			store(key, generation, result, keepSignatures);
+			future.complete(result);
+			return result;
+		} catch (final RuntimeException | Error e) {
+			future.completeExceptionally(e);
+			throw e;
+		} finally {
+			pending.remove(key, future);
+		}
+	}
+
+	/**
+	 * Caches the result of a query, unless the knowledge base has been modified since the query
+	 * was requested, or a count would replace a cached result.
+	 *
+	 * @param key the normalized query.
+	 * @param generation the generation of the knowledge base when the query was requested.
+	 * @param result the result of the query.
+	 * @param keepSignatures whether to cache the result, rather than just its size.
+	 */
+	private synchronized void store(final String key, final long generation, final LongSet result, final boolean keepSignatures) {
+		if (generation != this.generation || generation != kb.generation()) return;
+		final Entry entry = cache.get(key);
+		if (entry == null || keepSignatures && entry.signatures == null) put(key, new Entry(keepSignatures ? result : null, result.size()));
+	}
+
+	/**
+	 * Returns the result of a query as a collection of {@link FastenURI}s.
+	 *
+	 * @param query a query.
+	 * @return the collection of {@link FastenURI}s satisfying {@code query}.
+	 */
+	public Collection<FastenURI> execute(final SignatureQuery query) {
+		return kb.signatures2URIs(signatures(query));
+	}
+
+	/** Removes all entries from this cache. */
+	public synchronized void clear() {
+		cache.clear();
+		weight = 0;
+	}
+
+	/**
+	 * Returns the number of entries in this cache.
+	 *
+	 * @return the number of entries in this cache.
+	 */
+	public synchronized int size() {
+		return cache.size();
+	}
+
+	/**
+	 * Returns the number of cache hits since the creation of this cache.
+	 *
+	 * @return the number of cache hits.
+	 */
+	public synchronized long hits() {
+		return hits;
+	}
+
+	/**
+	 * Returns the number of cache misses since the creation of this cache.
+	 *
+	 * @return the number of cache misses.
+	 */
+	public synchronized long misses() {
+		return misses;
+	}
+}
@@ -19,6 +19,7 @@
 package eu.fasten.core.query;
 
 import java.io.BufferedReader;
+import java.io.File;
 import java.io.FileInputStream;
 import java.io.IOException;
 import java.io.InputStreamReader;
@@ -30,6 +31,7 @@ import org.rocksdb.RocksDBException;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
+import com.martiansoftware.jsap.FlaggedOption;
 import com.martiansoftware.jsap.JSAP;
 import com.martiansoftware.jsap.JSAPException;
 import com.martiansoftware.jsap.JSAPResult;
@@ -39,6 +41,10 @@ import com.martiansoftware.jsap.UnflaggedOption;
 
 import eu.fasten.core.data.FastenURI;
 import eu.fasten.core.data.KnowledgeBase;
+import eu.fasten.core.data.KnowledgeBase.Node;
+import eu.fasten.core.data.KnowledgeBaseWarmUp;
+import it.unimi.dsi.fastutil.longs.LongSet;
+import it.unimi.dsi.fastutil.longs.LongSets;
 /** A sample in-memory indexer that reads, compresses and stores in memory
  *  graphs stored in JSON format and answers to impact queries.
  *
@@ -47,7 +53,7 @@ public class QueryEngine {
 
 	private static final Logger LOGGER = LoggerFactory.getLogger(QueryEngine.class);
 
-	public static class ReachabilityQuery implements Query {
+	public static class ReachabilityQuery implements SignatureQuery {
 		private final FastenURI fastenURI;
 
 		public ReachabilityQuery(final FastenURI fastenURI) {
@@ -58,9 +64,26 @@ public class QueryEngine {
 		public Collection<FastenURI> execute(final KnowledgeBase kb) {
 			return kb.reaches(fastenURI);
 		}
+
+		@Override
+		public LongSet signatures(final KnowledgeBase kb, final QueryCache cache) {
+			final Node start = kb.fastenURI2Node(fastenURI);
+			if (start == null) return LongSets.EMPTY_SET;
+			return kb.reaches(start.signature());
+		}
+
+		@Override
+		public String normalized() {
+			return Queries.normalized("reaches", fastenURI.toString());
+		}
+
+		@Override
+		public String toString() {
+			return normalized();
+		}
 	}
 
-	public static class CoreachabilityQuery implements Query {
+	public static class CoreachabilityQuery implements SignatureQuery {
 		private final FastenURI fastenURI;
 
 		public CoreachabilityQuery(final FastenURI fastenURI) {
@@ -71,6 +94,23 @@ public class QueryEngine {
 		public Collection<FastenURI> execute(final KnowledgeBase kb) {
 			return kb.coreaches(fastenURI);
 		}
+
+		@Override
+		public LongSet signatures(final KnowledgeBase kb, final QueryCache cache) {
+			final Node start = kb.fastenURI2Node(fastenURI);
+			if (start == null) return LongSets.EMPTY_SET;
+			return kb.coreaches(start.signature());
+		}
+
+		@Override
+		public String normalized() {
+			return Queries.normalized("coreaches", fastenURI.toString());
+		}
+
+		@Override
+		public String toString() {
+			return normalized();
+		}
 	}
 
 	@SuppressWarnings("boxing")
@@ -78,6 +118,9 @@ public class QueryEngine {
 		final SimpleJSAP jsap = new SimpleJSAP( QueryEngine.class.getName(),
 				"Searches a given knowledge base (associated to a database)",
 				new Parameter[] {
+						new FlaggedOption("hot", JSAP.STRING_PARSER, JSAP.NO_DEFAULT, JSAP.NOT_REQUIRED, 'h', "hot", "A file containing the hot revisions of the knowledge base: if it exists, the corresponding call graphs are decoded in parallel at startup; on exit, it is overwritten with the current hot revisions." ),
+						new FlaggedOption("maxHot", JSAP.INTEGER_PARSER, "100000", JSAP.NOT_REQUIRED, 'm', "max-hot", "The maximum number of hot revisions to store." ),
+						new FlaggedOption("threads", JSAP.INTEGER_PARSER, Integer.toString(Runtime.getRuntime().availableProcessors()), JSAP.NOT_REQUIRED, 'T', "threads", "The number of threads used for the warm-up." ),
 						new UnflaggedOption("kb", JSAP.STRING_PARSER, JSAP.NO_DEFAULT, JSAP.REQUIRED, JSAP.NOT_GREEDY, "The directory of the RocksDB instance containing the knowledge base." ),
 						new UnflaggedOption("kbmeta", JSAP.STRING_PARSER, JSAP.NO_DEFAULT, JSAP.REQUIRED, JSAP.NOT_GREEDY, "The file containing the knowledge base metadata." ),
 		});
@@ -90,6 +133,9 @@ public class QueryEngine {
 
 		final KnowledgeBase kb = KnowledgeBase.getInstance(kbDir, kbMetadataFilename, true);
 
+		final String hotFilename = jsapResult.getString("hot");
+		final KnowledgeBaseWarmUp warmUp = hotFilename != null && new File(hotFilename).exists() ? KnowledgeBaseWarmUp.start(kb, KnowledgeBaseWarmUp.loadHotRevisions(hotFilename), jsapResult.getInt("threads")) : null;
+
 		final BufferedReader br = new BufferedReader( new InputStreamReader( jsapResult.userSpecified( "input" ) ? new FileInputStream( jsapResult.getString( "input") ) : System.in ) );
 
 		for ( ;; ) {
@@ -100,6 +146,10 @@ public class QueryEngine {
 				break; // CTRL-D
 			}
 			if ( q.length() == 0 ) continue;
+			if ("$status".equals(q)) {
+				System.out.println(warmUp == null ? "ready: no warm-up" : warmUp.toString());
+				continue;
+			}
 
 			final FastenURI uri;
 			try {
@@ -141,6 +191,8 @@ public class QueryEngine {
 			if (result.size() > 10) System.out.println("[...]");
 		}
 
+		if (warmUp != null) warmUp.close();
+		if (hotFilename != null) KnowledgeBaseWarmUp.storeHotRevisions(kb, hotFilename, jsapResult.getInt("maxHot"));
 		kb.close();
 	}
 }
@@ -0,0 +1,82 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package eu.fasten.core.query;
+
+import java.util.Collection;
+
+import eu.fasten.core.data.FastenURI;
+import eu.fasten.core.data.KnowledgeBase;
+import it.unimi.dsi.fastutil.longs.LongSet;
+
+/**
+ * A query whose result is a set of node signatures (see {@link KnowledgeBase#signature(long, long)}).
+ *
+ * <p>
+ * Signature queries can be composed using the operators in {@link Queries}, and their results can
+ * be cached using a {@link QueryCache}. To this purpose, every query must provide a
+ * {@linkplain #normalized() normalized representation}: two queries with the same normalized
+ * representation must return the same result on the same knowledge base.
+ */
+public interface SignatureQuery extends Query {
+
+	/**
+	 * Returns the set of node signatures satisfying this query.
+	 *
+	 * <p>
+	 * The returned set must not be modified, as it might be shared with a cache.
+	 *
+	 * @param kb the knowledge base.
+	 * @param cache a cache that will be used to evaluate subqueries, or {@code null}; if not
+	 *            {@code null}, the cache must be associated with {@code kb}.
+	 * @return the set of node signatures satisfying this query.
+	 */
+	public LongSet signatures(final KnowledgeBase kb, final QueryCache cache);
+
+	/**
+	 * Returns a normalized representation of this query, suitable to be used as a cache key.
+	 *
+	 * @return a normalized representation of this query.
+	 */
+	public String normalized();
+
+	/**
+	 * Returns the set of node signatures satisfying this query, without using a cache.
+	 *
+	 * @param kb the knowledge base.
+	 * @return the set of node signatures satisfying this query.
+	 */
+	public default LongSet signatures(final KnowledgeBase kb) {
+		return signatures(kb, null);
+	}
+
+	/**
+	 * Returns the number of nodes satisfying this query.
+	 *
+	 * @param kb the knowledge base.
+	 * @return the number of nodes satisfying this query.
+	 */
+	public default long count(final KnowledgeBase kb) {
+		return signatures(kb).size();
+	}
+
+	@Override
+	public default Collection<FastenURI> execute(final KnowledgeBase kb) {
+		return kb.signatures2URIs(signatures(kb));
+	}
+}
@@ -0,0 +1,110 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package eu.fasten.core.data;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.FileReader;
+import java.io.IOException;
+import java.io.StringReader;
+import java.io.StringWriter;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import org.json.JSONObject;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+
+class BinaryCallGraphFormatTest {
+
+    private static ExtendedRevisionCallGraph graph;
+
+    @BeforeAll
+    static void setUp() throws IOException {
+        final var file = Objects.requireNonNull(Thread.currentThread().getContextClassLoader()
+                .getResource("extended-revision-call-graph/testRCG.json")).getFile();
+        try (var reader = new FileReader(file)) {
+            graph = ExtendedRevisionCallGraph.read(reader);
+        }
+    }
+
+    private static byte[] write(final ExtendedRevisionCallGraph graph, final boolean compress) throws IOException {
+        final var stream = new ByteArrayOutputStream();
+        BinaryCallGraphFormat.write(graph, stream, compress);
+        return stream.toByteArray();
+    }
+
+    @Test
+    void roundTrip() throws IOException {
+        for (final boolean compress : new boolean[]{false, true}) {
+            final var cg = BinaryCallGraphFormat.read(new ByteArrayInputStream(write(graph, compress)));
+            assertTrue(graph.toJSON().similar(cg.toJSON()));
+            assertEquals(graph.getGraph().getExternalCalls(), cg.getGraph().getExternalCalls());
+            assertEquals(graph.mapOfAllMethods().get(3).getUri(), cg.mapOfAllMethods().get(3).getUri());
+        }
+    }
+
+    @Test
+    void metadataValues() throws IOException {
+        final var calls = new CompactCallMap();
+        final Map<Object, Object> callSite = new HashMap<>();
+        callSite.put(0, Map.of("line", 7, "type", "invokestatic", "receiver", "/a/B"));
+        callSite.put(1, Map.of("long", 1L << 40, "double", 0.5, "flag", true, "list", List.of("x", -1)));
+        for (int i = 0; i < 100; i++) {
+            calls.put(i, -i, i % 2 == 0 ? callSite : new HashMap<>());
+        }
+        final var cg = ExtendedRevisionCallGraph.extendedBuilder().forge("mvn").product("p").version("1")
+                .cgGenerator("OPAL").timestamp(-1).nodeCount(0)
+                .classHierarchy(Map.of(ExtendedRevisionCallGraph.Scope.internalTypes, new HashMap<>(),
+                        ExtendedRevisionCallGraph.Scope.externalTypes, new HashMap<>(),
+                        ExtendedRevisionCallGraph.Scope.resolvedTypes, new HashMap<>()))
+                .graph(new ExtendedRevisionCallGraph.Graph(calls, new HashMap<>(), new HashMap<>()))
+                .build();
+        final var copy = BinaryCallGraphFormat.read(new ByteArrayInputStream(write(cg, false)));
+        assertEquals(calls, copy.getGraph().getInternalCalls());
+        assertEquals(-1, copy.timestamp);
+    }
+
+    @Test
+    void jsonConverters() throws IOException {
+        final var json = graph.toJSON().toString();
+        final var binary = new ByteArrayOutputStream();
+        BinaryCallGraphFormat.fromJSON(new StringReader(json), binary, true);
+        final var writer = new StringWriter();
+        BinaryCallGraphFormat.toJSON(new ByteArrayInputStream(binary.toByteArray()), writer);
+        assertTrue(new JSONObject(json).similar(new JSONObject(writer.toString())));
+        assertTrue(binary.size() < json.length());
+    }
+
+    @Test
+    void invalidStreams() throws IOException {
+        assertThrows(IOException.class, () -> BinaryCallGraphFormat.read(new ByteArrayInputStream("{}".getBytes())));
+        final var bytes = write(graph, false);
+        bytes[BinaryCallGraphFormat.MAGIC.length] = BinaryCallGraphFormat.VERSION + 1;
+        assertThrows(IOException.class, () -> BinaryCallGraphFormat.read(new ByteArrayInputStream(bytes)));
+        final var truncated = Arrays.copyOf(write(graph, false), 20);
+        assertThrows(IOException.class, () -> BinaryCallGraphFormat.read(new ByteArrayInputStream(truncated)));
+    }
+}
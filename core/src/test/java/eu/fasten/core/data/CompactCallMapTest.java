@@ -0,0 +1,142 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package eu.fasten.core.data;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import org.junit.jupiter.api.Test;
+
+class CompactCallMapTest {
+
+    private static Map<Object, Object> callSite(final int line) {
+        final var callSite = new HashMap<Object, Object>();
+        callSite.put("0", Map.of("line", line, "type", "invokevirtual"));
+        return callSite;
+    }
+
+    @Test
+    void putGetRemove() {
+        final var calls = new CompactCallMap();
+        assertNull(calls.put(List.of(0, 1), callSite(1)));
+        assertNull(calls.put(2, -3, callSite(2)));
+        assertEquals(callSite(1), calls.put(0, 1, callSite(3)));
+        assertEquals(2, calls.size());
+        assertEquals(callSite(3), calls.get(List.of(0, 1)));
+        assertEquals(callSite(2), calls.get(2, -3));
+        assertTrue(calls.containsKey(List.of(2, -3)));
+        assertFalse(calls.containsKey(List.of(1, 0)));
+        assertFalse(calls.containsKey(List.of(0, 1, 2)));
+        assertNull(calls.get("0"));
+
+        assertEquals(callSite(3), calls.remove(List.of(0, 1)));
+        assertEquals(1, calls.size());
+        assertFalse(calls.contains(0, 1));
+        // The last call has been moved in place of the removed one
+        assertEquals(2, calls.source(0));
+        assertEquals(-3, calls.target(0));
+        assertEquals(callSite(2), calls.get(2, -3));
+    }
+
+    @Test
+    void iteratorRemove() {
+        final var calls = new CompactCallMap();
+        final var expected = new HashMap<List<Integer>, Map<Object, Object>>();
+        for (int i = 0; i < 100; i++) {
+            calls.put(i, i + 1, callSite(i % 7));
+            if (i % 3 != 0) {
+                expected.put(List.of(i, i + 1), callSite(i % 7));
+            }
+        }
+        final var iterator = calls.entrySet().iterator();
+        int visited = 0;
+        while (iterator.hasNext()) {
+            final var entry = iterator.next();
+            visited++;
+            if (entry.getKey().get(0) % 3 == 0) {
+                iterator.remove();
+            }
+        }
+        assertEquals(100, visited);
+        assertEquals(expected, calls);
+        assertEquals(calls, expected);
+        assertEquals(expected.hashCode(), calls.hashCode());
+    }
+
+    @Test
+    void callSitesAreStoredInColumns() {
+        final var calls = new CompactCallMap();
+        for (int i = 0; i < 1000; i++) {
+            final var callSite = new HashMap<Object, Object>();
+            callSite.put(i, Map.of("line", i, "type", "invokevirtual", "receiver", "/a/R" + i % 10));
+            callSite.put(i + 1, Map.of("type", "invokestatic"));
+            calls.put(i, 0, callSite);
+        }
+        calls.put(1000, 0, new HashMap<>());
+        assertEquals(1001, calls.size());
+        assertEquals(2000, calls.numCallSites());
+        // Types and receivers are stored once
+        assertEquals(12, calls.numStrings());
+        assertEquals(0, calls.numIrregular());
+        assertEquals(Map.of(7, Map.of("line", 7, "type", "invokevirtual", "receiver", "/a/R7"),
+                8, Map.of("type", "invokestatic")), calls.get(7, 0));
+        assertEquals(Map.of(), calls.get(1000, 0));
+        // Program counters keep the type of their keys
+        calls.put(0, 1, callSite(5));
+        assertEquals(callSite(5), calls.get(0, 1));
+        assertTrue(calls.get(0, 1).containsKey("0"));
+        assertEquals(0, calls.numIrregular());
+    }
+
+    @Test
+    void irregularMetadata() {
+        final var calls = new CompactCallMap();
+        final var irregular = List.<Map<Object, Object>>of(Map.of("foo", "bar"),
+                Map.of(0, Map.of("line", "7")), Map.of(0, Map.of("line", 7, "other", 1)),
+                Map.of("007", Map.of("line", 7)), Map.of(0, List.of()));
+        for (int i = 0; i < irregular.size(); i++) {
+            calls.put(i, i, irregular.get(i));
+        }
+        assertEquals(irregular.size(), calls.numIrregular());
+        assertEquals(0, calls.numCallSites());
+        for (int i = 0; i < irregular.size(); i++) {
+            assertEquals(irregular.get(i), calls.get(i, i));
+        }
+        // Replacing irregular metadata with regular ones moves them to columns
+        assertEquals(irregular.get(0), calls.put(0, 0, callSite(1)));
+        assertEquals(callSite(1), calls.get(0, 0));
+        assertEquals(1, calls.numCallSites());
+    }
+
+    @Test
+    void copy() {
+        final var calls = new HashMap<List<Integer>, Map<Object, Object>>();
+        calls.put(List.of(0, 1), callSite(1));
+        calls.put(List.of(1, 2), new HashMap<>());
+        final var graph = new ExtendedRevisionCallGraph.Graph(calls, new HashMap<>());
+        assertEquals(calls, graph.getInternalCalls());
+        assertTrue(graph.getExternalCalls().isEmpty());
+        assertEquals(graph.getInternalCalls(), new CompactCallMap(graph.getInternalCalls()));
+    }
+}
@@ -20,13 +20,21 @@ package eu.fasten.core.data;
 
 import static org.junit.jupiter.api.Assertions.assertEquals;
 import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
 import static org.junit.jupiter.api.Assertions.assertTrue;
 
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
 import java.io.File;
+import java.io.FileInputStream;
 import java.io.FileNotFoundException;
 import java.io.FileReader;
 import java.io.IOException;
+import java.io.StringReader;
+import java.io.StringWriter;
 import java.util.Objects;
+import org.json.JSONArray;
+import org.json.JSONException;
 import org.json.JSONObject;
 import org.json.JSONTokener;
 import org.junit.jupiter.api.BeforeAll;
@@ -166,4 +174,47 @@ class ExtendedRevisionCallGraphTest {
     void getCgGenerator() {
         assertEquals("OPAL", graph.getCgGenerator());
     }
-}
\ No newline at end of file
+
+    @Test
+    void read() throws IOException {
+        var file = new File(Objects.requireNonNull(Thread.currentThread().getContextClassLoader()
+                .getResource("extended-revision-call-graph/testRCG.json"))
+                .getFile());
+
+        try (var stream = new FileInputStream(file)) {
+            var cg = ExtendedRevisionCallGraph.read(stream);
+            assertTrue(graph.toJSON().similar(cg.toJSON()));
+            assertEquals(graph.getGraph().getInternalCalls(), cg.getGraph().getInternalCalls());
+            assertEquals(graph.timestamp, cg.timestamp);
+        }
+    }
+
+    @Test
+    void readSkipsUnknownMembers() {
+        var json = graph.toJSON();
+        json.put("unknown", new JSONObject().put("a", new JSONArray().put(1)));
+        var cg = ExtendedRevisionCallGraph.read(new StringReader(json.toString()));
+        assertTrue(graph.toJSON().similar(cg.toJSON()));
+    }
+
+    @Test
+    void readMissingMember() {
+        var json = graph.toJSON();
+        json.remove("nodes");
+        assertThrows(JSONException.class, () -> ExtendedRevisionCallGraph.read(new StringReader(json.toString())));
+        assertThrows(JSONException.class, () -> ExtendedRevisionCallGraph.read(new StringReader("{\"forge\": [}")));
+    }
+
+    @Test
+    void writeTo() throws IOException {
+        var writer = new StringWriter();
+        graph.writeTo(writer);
+        // Numbers are compared after parsing, as toJSON() keeps the timestamp as a long
+        assertTrue(new JSONObject(graph.toJSON().toString()).similar(new JSONObject(writer.toString())));
+
+        var stream = new ByteArrayOutputStream();
+        graph.writeTo(stream);
+        var cg = ExtendedRevisionCallGraph.read(new ByteArrayInputStream(stream.toByteArray()));
+        assertTrue(graph.toJSON().similar(cg.toJSON()));
+    }
+}
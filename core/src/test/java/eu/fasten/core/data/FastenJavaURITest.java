@@ -2,7 +2,9 @@ package eu.fasten.core.data;
 
 import static org.junit.jupiter.api.Assertions.assertArrayEquals;
 import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotSame;
 import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertSame;
 import static org.junit.jupiter.api.Assertions.assertTrue;
 
 import org.junit.jupiter.api.Assertions;
@@ -264,4 +266,37 @@ public class FastenJavaURITest {
             final FastenJavaURI uri2 = FastenJavaURI.create("fasten://mvn$a/foo/Ba)r");
         });
     }
+
+    @Test
+    public void testLazyComponents() {
+        final FastenJavaURI uri = new FastenJavaURI("fasten://mvn!a/foo/Bar.%3Cinit%3E(%2Fjava.lang%2FObject,Baz,%2Fjava.lang%2FInteger%25255B%25255D)%2Fjava.lang%2FVoidType");
+        final FastenJavaURI[] args = uri.getArgs();
+        assertEquals(3, args.length);
+        assertEquals(FastenJavaURI.create("/java.lang/Object"), args[0]);
+        assertEquals(FastenJavaURI.create("Baz"), args[1]);
+        assertEquals("Integer[]", args[2].getClassName());
+        assertEquals(FastenJavaURI.create("/java.lang/VoidType"), uri.getReturnType());
+        assertEquals("Bar", uri.getClassName());
+        assertEquals("<init>", uri.getEntityName());
+        // Components are cached, but arguments are copied
+        assertSame(uri.getReturnType(), uri.getReturnType());
+        assertNotSame(args, uri.getArgs());
+        assertArrayEquals(args, uri.getArgs());
+
+        final FastenJavaURI created = FastenJavaURI.create("mvn", "a", null, "foo", "Bar", "<init>", args, uri.getReturnType());
+        assertEquals(created.getClassName(), uri.getClassName());
+        assertArrayEquals(created.getArgs(), uri.getArgs());
+        assertEquals(created.getReturnType(), uri.getReturnType());
+
+        final FastenJavaURI type = new FastenJavaURI("/foo/Bar");
+        assertEquals("Bar", type.getClassName());
+        assertNull(type.getEntityName());
+        assertNull(type.getReturnType());
+
+        final FastenJavaURI attribute = new FastenJavaURI("/foo/Bar.field");
+        assertEquals("field", attribute.getEntityName());
+        assertNull(attribute.getReturnType());
+
+        Assertions.assertThrows(IllegalArgumentException.class, () -> new FastenJavaURI("/foo/Bar.m(a(b)c"));
+    }
 }
@@ -0,0 +1,92 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package eu.fasten.core.data;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotSame;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.ObjectInputStream;
+import java.io.ObjectOutputStream;
+import org.junit.jupiter.api.Test;
+
+class FastenURIPoolTest {
+
+    @Test
+    void create() {
+        final var pool = new FastenURIPool();
+        final var uri = pool.create("fasten://mvn!lib$1.0/lib/Sub.foo()%2Fjava.lang%2FVoidType");
+        assertSame(uri, pool.create(new String("fasten://mvn!lib$1.0/lib/Sub.foo()%2Fjava.lang%2FVoidType")));
+        assertEquals(FastenURI.create(uri.toString()), uri);
+
+        // Components are canonicalized, too
+        final var other = pool.create("fasten://mvn!lib$1.0/lib/Sub.bar()%2Fjava.lang%2FVoidType");
+        assertNotSame(uri, other);
+        assertSame(uri.getRawForge(), other.getRawForge());
+        assertSame(uri.getRawProduct(), other.getRawProduct());
+        assertSame(uri.getRawVersion(), other.getRawVersion());
+        assertSame(uri.getRawNamespace(), other.getRawNamespace());
+        assertSame(uri.getRawNamespace(), pool.create("/lib/Sub").getRawNamespace());
+        assertEquals(3, pool.size());
+
+        assertThrows(IllegalArgumentException.class, () -> pool.create("/lib"));
+        pool.clear();
+        assertEquals(0, pool.size());
+    }
+
+    @Test
+    void createOutsideFastPath() {
+        final var pool = new FastenURIPool();
+        // Strings rejected by the direct parser are parsed as URIs, as by FastenURI.create()
+        for (final var s : new String[] { "/ns/T\u00e9.m()", "fasten:/ns/T.m()", "fasten://mvn!lib$1.0/ns/T\u00e9" }) {
+            final var uri = pool.create(s);
+            assertEquals(FastenURI.create(s), uri);
+            assertEquals(FastenURI.create(s).getRawEntity(), uri.getRawEntity());
+            assertSame(uri, pool.create(s));
+        }
+    }
+
+    @Test
+    void intern() {
+        final var pool = new FastenURIPool();
+        final var uri = FastenURI.create("/lib/Sub");
+        assertSame(uri, pool.intern(uri));
+        assertSame(uri, pool.intern(FastenURI.create("/lib/Sub")));
+        assertSame(uri, pool.create("/lib/Sub"));
+    }
+
+    @Test
+    void serialization() throws IOException, ClassNotFoundException {
+        final var uri = new FastenURIPool().create("fasten://mvn!lib$1.0/lib/Sub");
+        final var bytes = new ByteArrayOutputStream();
+        try (var out = new ObjectOutputStream(bytes)) {
+            out.writeObject(uri);
+        }
+        try (var in = new ObjectInputStream(new ByteArrayInputStream(bytes.toByteArray()))) {
+            final var copy = (FastenURI) in.readObject();
+            assertEquals(uri, copy);
+            assertEquals(uri.hashCode(), copy.hashCode());
+            assertEquals("lib", copy.getRawNamespace());
+        }
+    }
+}
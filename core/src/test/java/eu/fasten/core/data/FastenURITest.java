@@ -83,12 +83,12 @@ public class FastenURITest {
         fastenURI = new FastenURI("fasten://webgraph.jar");
         assertNull(fastenURI.getPath());
         assertNull(fastenURI.getRawPath());
-        assertEquals("", fastenURI.uri.getPath());
+        assertEquals("", fastenURI.uri().getPath());
 
         fastenURI = new FastenURI("fasten://webgraph.jar/p/a");
         assertEquals("/p/a", fastenURI.getPath());
         assertEquals("/p/a", fastenURI.getRawPath());
-        assertEquals("/p/a", fastenURI.uri.getPath());
+        assertEquals("/p/a", fastenURI.uri().getPath());
 
         fastenURI = new FastenURI("fasten://b/∂∂∂/€");
         assertEquals("fasten", fastenURI.getScheme());
@@ -231,4 +231,43 @@ public class FastenURITest {
         assertEquals(v.relativize(u), v.relativize(v.resolve(u)));
     }
 
+
+    @Test
+    public void testDirectParsingMatchesURI() {
+        final String[] uris = {
+            "fasten://mvn!lib$1.0/lib/Sub.foo()%2Fjava.lang%2FVoidType",
+            "fasten://lib$1.0/lib/Sub",
+            "//lib$1.0/lib/Sub.%3Cinit%3E(%2Fjava.lang%2FObject,int)%2Fjava.lang%2FVoidType",
+            "//it.unimi.dsi.fastutil",
+            "/java.lang/Object",
+            "/a:b/c@d.e()f",
+            "//-",
+            "//a:b/c/d", "//a@b/c/d", "///a/b", "fasten:/a/b", "fasten://a/b/c%2", "fasten://a/b/c%ZZ", "/a/b c", "/a/b?c",
+            "//a:b/c", "/a", "//a!$c/b/c",
+        };
+        for (final String s : uris) {
+            final FastenURI reference;
+            try {
+                reference = FastenURI.create(java.net.URI.create(s));
+            } catch (final IllegalArgumentException e) {
+                Assertions.assertThrows(IllegalArgumentException.class, () -> FastenURI.create(s));
+                continue;
+            }
+            final FastenURI direct = FastenURI.create(s);
+            assertEquals(reference.toString(), direct.toString());
+            assertEquals(reference, direct);
+            assertEquals(reference.hashCode(), direct.hashCode());
+            assertEquals(reference.getRawForge(), direct.getRawForge());
+            assertEquals(reference.getRawProduct(), direct.getRawProduct());
+            assertEquals(reference.getRawVersion(), direct.getRawVersion());
+            assertEquals(reference.getRawNamespace(), direct.getRawNamespace());
+            assertEquals(reference.getRawEntity(), direct.getRawEntity());
+            assertEquals(reference.getScheme(), direct.getScheme());
+            assertEquals(reference.getRawPath(), direct.getRawPath());
+        }
+
+        Assertions.assertThrows(IllegalArgumentException.class, () -> FastenURI.create("//a!$c/b/c"));
+        Assertions.assertThrows(IllegalArgumentException.class, () -> FastenURI.create("/a"));
+        Assertions.assertThrows(IllegalArgumentException.class, () -> FastenURI.create("/a/b c"));
+    }
 }
@@ -0,0 +1,150 @@
+package eu.fasten.core.data;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import it.unimi.dsi.fastutil.io.BinIO;
+import it.unimi.dsi.fastutil.longs.Long2ObjectMap;
+import it.unimi.dsi.fastutil.longs.Long2ObjectOpenHashMap;
+import it.unimi.dsi.fastutil.longs.LongOpenHashSet;
+import it.unimi.dsi.fastutil.longs.LongSet;
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import org.apache.commons.io.FileUtils;
+import org.json.JSONObject;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.rocksdb.RocksDBException;
+
+public class KnowledgeBaseMetadataTest {
+
+    private static final String LIB = "{" +
+            "\"product\": \"lib\", \"forge\": \"mvn\", \"generator\": \"OPAL\", \"depset\": [], \"version\": \"1.0\", \"timestamp\": 0," +
+            "\"cha\": {\"/lib/A\": {\"methods\": {" +
+            "\"0\": \"/lib/A.a()%2Fjava.lang%2FVoidType\"," +
+            "\"1\": \"/lib/A.b()%2Fjava.lang%2FVoidType\"}," +
+            "\"superInterfaces\": [], \"sourceFile\": \"A.java\", \"superClasses\": [\"/java.lang/Object\"]}}," +
+            "\"graph\": {\"internalCalls\": [[0, 1]], \"externalCalls\": []}" +
+            "}";
+
+    private static final String APP = "{" +
+            "\"product\": \"app-è\", \"forge\": \"mvn\", \"generator\": \"OPAL\", \"depset\": [], \"version\": \"1.0\", \"timestamp\": 0," +
+            "\"cha\": {\"/app/Main\": {\"methods\": {" +
+            "\"0\": \"/app/Main.main()%2Fjava.lang%2FVoidType\"}," +
+            "\"superInterfaces\": [], \"sourceFile\": \"Main.java\", \"superClasses\": [\"/java.lang/Object\"]}}," +
+            "\"graph\": {\"internalCalls\": [], \"externalCalls\": [" +
+            "[\"0\", \"///lib/A.a()%2Fjava.lang%2FVoidType\", {\"invokevirtual\": \"1\"}]]}" +
+            "}";
+
+    private Path kbDir;
+    private File meta;
+
+    @BeforeEach
+    public void setUp() throws IOException {
+        kbDir = Files.createTempDirectory(KnowledgeBaseMetadataTest.class.getSimpleName());
+        meta = Files.createTempFile(KnowledgeBaseMetadataTest.class.getSimpleName(), "meta").toFile();
+        FileUtils.deleteDirectory(kbDir.toFile());
+        FileUtils.deleteQuietly(meta);
+    }
+
+    @AfterEach
+    public void tearDown() throws IOException {
+        FileUtils.deleteDirectory(kbDir.toFile());
+        FileUtils.deleteQuietly(meta);
+    }
+
+    private static Long2ObjectMap<LongSet> copy(final Long2ObjectMap<LongSet> map) {
+        final Long2ObjectOpenHashMap<LongSet> copy = new Long2ObjectOpenHashMap<>();
+        for (final Long2ObjectMap.Entry<LongSet> e : map.long2ObjectEntrySet()) copy.put(e.getLongKey(), new LongOpenHashSet(e.getValue()));
+        return copy;
+    }
+
+    @Test
+    public void testRoundTrip() throws IOException, RocksDBException, ClassNotFoundException {
+        KnowledgeBase kb = KnowledgeBase.getInstance(kbDir.toString(), meta.toString(), false);
+        kb.add(new RevisionCallGraph(new JSONObject(LIB)), 0);
+        kb.add(new RevisionCallGraph(new JSONObject(LIB.replace("1.0", "2.0"))), 5);
+        kb.add(new RevisionCallGraph(new JSONObject(APP)), 3);
+        final Long2ObjectMap<LongSet> appearsIn = copy(kb.GIDAppearsIn);
+        final Long2ObjectMap<LongSet> calledBy = copy(kb.GIDCalledBy);
+        final long generation = kb.generation();
+        final long a = kb.fastenURI2Node(FastenURI.create("fasten://mvn!lib$1.0/lib/A.a()%2Fjava.lang%2FVoidType")).signature();
+        final LongSet coreaches = kb.coreaches(a);
+        kb.close();
+
+        assertFalse(KnowledgeBaseMetadata.isLegacy(meta.toString()));
+        final KnowledgeBaseMetadata metadata = KnowledgeBaseMetadata.map(meta.toString());
+        assertEquals(3, metadata.numRevisions());
+        assertEquals(generation, metadata.generation());
+        assertEquals(appearsIn.size(), metadata.nextGID());
+        assertEquals(-1, metadata.row(4));
+        final long row = metadata.row(3);
+        assertEquals(3, metadata.index(row));
+        assertEquals("app-è", metadata.product(row));
+        assertEquals("1.0", metadata.version(row));
+        assertEquals("mvn", metadata.forge(row));
+        assertEquals(1, metadata.nInternal(row));
+        assertEquals("2.0", metadata.version(metadata.row(5)));
+        assertEquals(appearsIn, copy(metadata.appearsIn()));
+        assertEquals(calledBy, copy(metadata.calledBy()));
+        assertTrue(metadata.appearsIn().get(1000).isEmpty());
+
+        kb = KnowledgeBase.getInstance(kbDir.toString(), meta.toString(), true);
+        assertEquals(3, kb.size());
+        assertNull(kb.callGraphs.get(4));
+        assertEquals("lib", kb.callGraphs.get(5).product);
+        assertEquals(generation, kb.generation());
+        assertEquals(coreaches, kb.coreaches(a));
+        kb.close();
+
+        // Reopening in read-write mode must preserve all metadata
+        kb = KnowledgeBase.getInstance(kbDir.toString(), meta.toString(), false);
+        assertEquals(appearsIn, copy(kb.GIDAppearsIn));
+        kb.add(new RevisionCallGraph(new JSONObject(APP.replace("1.0", "2.0"))), 6);
+        assertEquals(4, kb.size());
+        assertEquals(coreaches.size() + 1, kb.coreaches(a).size());
+        kb.close();
+        assertEquals(4, KnowledgeBaseMetadata.map(meta.toString()).numRevisions());
+    }
+
+    @Test
+    public void testLegacy() throws IOException, RocksDBException, ClassNotFoundException {
+        KnowledgeBase kb = KnowledgeBase.getInstance(kbDir.toString(), meta.toString(), false);
+        kb.add(new RevisionCallGraph(new JSONObject(LIB)), 0);
+        kb.add(new RevisionCallGraph(new JSONObject(APP)), 1);
+        final Long2ObjectMap<LongSet> appearsIn = copy(kb.GIDAppearsIn);
+        BinIO.storeObject(kb, meta);
+        kb.close();
+        // Overwrite the new metadata with the Java-serialized ones
+        BinIO.storeObject(kb, meta);
+        assertTrue(KnowledgeBaseMetadata.isLegacy(meta.toString()));
+
+        kb = KnowledgeBase.getInstance(kbDir.toString(), meta.toString(), true);
+        assertEquals(2, kb.size());
+        kb.close();
+
+        kb = KnowledgeBase.getInstance(kbDir.toString(), meta.toString(), false);
+        kb.close();
+        assertFalse(KnowledgeBaseMetadata.isLegacy(meta.toString()));
+        assertEquals(appearsIn, copy(KnowledgeBaseMetadata.map(meta.toString()).appearsIn()));
+    }
+
+    @Test
+    public void testVersionCheck() throws IOException, RocksDBException, ClassNotFoundException {
+        final KnowledgeBase kb = KnowledgeBase.getInstance(kbDir.toString(), meta.toString(), false);
+        kb.add(new RevisionCallGraph(new JSONObject(LIB)), 0);
+        kb.close();
+        try (RandomAccessFile file = new RandomAccessFile(meta, "rw")) {
+            file.seek(8);
+            file.writeLong(KnowledgeBaseMetadata.VERSION + 1);
+        }
+        assertThrows(IOException.class, () -> KnowledgeBaseMetadata.map(meta.toString()));
+    }
+}
@@ -0,0 +1,122 @@
+package eu.fasten.core.data;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import org.apache.commons.io.FileUtils;
+import org.json.JSONObject;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.rocksdb.RocksDBException;
+
+public class KnowledgeBaseTest {
+
+    private static final String LIB = "{" +
+            "\"product\": \"lib\", \"forge\": \"mvn\", \"generator\": \"OPAL\", \"depset\": [], \"version\": \"1.0\", \"timestamp\": 0," +
+            "\"cha\": {\"/lib/A\": {\"methods\": {" +
+            "\"0\": \"/lib/A.a()%2Fjava.lang%2FVoidType\"," +
+            "\"1\": \"/lib/A.b()%2Fjava.lang%2FVoidType\"}," +
+            "\"superInterfaces\": [], \"sourceFile\": \"A.java\", \"superClasses\": [\"/java.lang/Object\"]}}," +
+            "\"graph\": {\"internalCalls\": [[0, 1]], \"externalCalls\": []}" +
+            "}";
+
+    private static final String APP = "{" +
+            "\"product\": \"app\", \"forge\": \"mvn\", \"generator\": \"OPAL\", \"depset\": [], \"version\": \"1.0\", \"timestamp\": 0," +
+            "\"cha\": {\"/app/Main\": {\"methods\": {" +
+            "\"0\": \"/app/Main.main()%2Fjava.lang%2FVoidType\"}," +
+            "\"superInterfaces\": [], \"sourceFile\": \"Main.java\", \"superClasses\": [\"/java.lang/Object\"]}}," +
+            "\"graph\": {\"internalCalls\": [], \"externalCalls\": [" +
+            "[\"0\", \"///lib/A.a()%2Fjava.lang%2FVoidType\", {\"invokevirtual\": \"1\"}]," +
+            "[\"0\", \"///lib/A.c()%2Fjava.lang%2FVoidType\", {\"invokevirtual\": \"1\"}]]}" +
+            "}";
+
+    private static final FastenURI MAIN = FastenURI.create("fasten://mvn!app$1.0/app/Main.main()%2Fjava.lang%2FVoidType");
+    private static final FastenURI A = FastenURI.create("fasten://mvn!lib$1.0/lib/A.a()%2Fjava.lang%2FVoidType");
+
+    private Path kbDir;
+    private File meta;
+
+    @BeforeEach
+    public void setUp() throws IOException {
+        kbDir = Files.createTempDirectory(KnowledgeBaseTest.class.getSimpleName());
+        meta = Files.createTempFile(KnowledgeBaseTest.class.getSimpleName(), "meta").toFile();
+        FileUtils.deleteDirectory(kbDir.toFile());
+        FileUtils.deleteQuietly(meta);
+    }
+
+    @AfterEach
+    public void tearDown() throws IOException {
+        FileUtils.deleteDirectory(kbDir.toFile());
+        FileUtils.deleteQuietly(meta);
+    }
+
+    @Test
+    public void testRemove() throws IOException, RocksDBException, ClassNotFoundException {
+        final KnowledgeBase kb = KnowledgeBase.getInstance(kbDir.toString(), meta.toString(), false);
+        kb.add(new RevisionCallGraph(new JSONObject(LIB)), 0);
+        kb.add(new RevisionCallGraph(new JSONObject(APP)), 1);
+        final long a = kb.fastenURI2Node(A).signature();
+        final long main = kb.fastenURI2Node(MAIN).signature();
+        final long generation = kb.generation();
+        assertEquals(2, kb.coreaches(a).size());
+
+        assertTrue(kb.remove(1));
+        assertFalse(kb.remove(1));
+        assertEquals(1, kb.size());
+        assertEquals(generation + 1, kb.generation());
+        assertNull(kb.fastenURI2Node(MAIN));
+        assertEquals(1, kb.coreaches(a).size());
+        assertFalse(kb.GIDAppearsIn.containsKey(KnowledgeBase.gid(main)));
+        assertTrue(kb.GIDCalledBy.isEmpty());
+        // Both the main method and the (never defined) method c are orphaned
+        kb.collectGarbage();
+        assertNull(kb.genericURI2URIs(FastenURI.create("/app/Main.main()%2Fjava.lang%2FVoidType")));
+        assertNull(kb.genericURI2URIs(FastenURI.create("/lib/A.c()%2Fjava.lang%2FVoidType")));
+        assertNotNull(kb.genericURI2URIs(FastenURI.create("/lib/A.a()%2Fjava.lang%2FVoidType")));
+        kb.close();
+
+        final KnowledgeBase reopened = KnowledgeBase.getInstance(kbDir.toString(), meta.toString(), true);
+        assertEquals(1, reopened.size());
+        assertNull(reopened.callGraphs.get(1));
+        assertNull(reopened.fastenURI2Node(MAIN));
+        assertThrows(IllegalStateException.class, () -> reopened.remove(0));
+        reopened.close();
+    }
+
+    @Test
+    public void testReplace() throws IOException, RocksDBException, ClassNotFoundException {
+        final KnowledgeBase kb = KnowledgeBase.getInstance(kbDir.toString(), meta.toString(), false);
+        kb.add(new RevisionCallGraph(new JSONObject(LIB)), 0);
+        kb.add(new RevisionCallGraph(new JSONObject(APP)), 1);
+        final long a = kb.fastenURI2Node(A).signature();
+        final long main = kb.fastenURI2Node(MAIN).signature();
+        assertEquals(3, kb.reaches(main).size());
+
+        // The new analysis does not find the call to b, but finds a new method c
+        kb.replace(new RevisionCallGraph(new JSONObject(LIB
+                .replace("\"1\": \"/lib/A.b()", "\"1\": \"/lib/A.c()")
+                .replace("[[0, 1]]", "[]"))), 0);
+        assertEquals(2, kb.size());
+        // Generic URIs that survive keep their GID
+        assertEquals(a, kb.fastenURI2Node(A).signature());
+        assertEquals(main, kb.fastenURI2Node(MAIN).signature());
+        assertEquals(3, kb.reaches(main).size());
+        assertNull(kb.fastenURI2Node(FastenURI.create("fasten://mvn!lib$1.0/lib/A.b()%2Fjava.lang%2FVoidType")));
+        assertEquals(1, kb.reaches(a).size());
+        kb.close();
+
+        final KnowledgeBase reopened = KnowledgeBase.getInstance(kbDir.toString(), meta.toString(), true);
+        assertNull(reopened.genericURI2URIs(FastenURI.create("/lib/A.b()%2Fjava.lang%2FVoidType")));
+        assertEquals(3, reopened.reaches(main).size());
+        reopened.close();
+    }
+}
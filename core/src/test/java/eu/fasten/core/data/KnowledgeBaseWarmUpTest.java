@@ -0,0 +1,83 @@
+package eu.fasten.core.data;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.concurrent.TimeUnit;
+import org.apache.commons.io.FileUtils;
+import org.json.JSONObject;
+import org.junit.jupiter.api.Test;
+import org.rocksdb.RocksDBException;
+
+public class KnowledgeBaseWarmUpTest {
+
+    private static final String JSON_SPEC = "{" +
+            "\"product\": \"lib\", \"forge\": \"mvn\", \"generator\": \"OPAL\", \"depset\": [], \"version\": \"1.0\", \"timestamp\": 0," +
+            "\"cha\": {\"/lib/A\": {\"methods\": {" +
+            "\"0\": \"/lib/A.a()%2Fjava.lang%2FVoidType\"," +
+            "\"1\": \"/lib/A.b()%2Fjava.lang%2FVoidType\"}," +
+            "\"superInterfaces\": [], \"sourceFile\": \"A.java\", \"superClasses\": [\"/java.lang/Object\"]}}," +
+            "\"graph\": {\"internalCalls\": [[0, 1]], \"externalCalls\": [" +
+            "[\"1\", \"///java.lang/Object.hashCode()%2Fjava.lang%2FIntegerType\", {\"invokevirtual\": \"1\"}]]}" +
+            "}";
+
+    @Test
+    public void testWarmUp() throws IOException, RocksDBException, ClassNotFoundException, InterruptedException {
+        final Path kbDir = Files.createTempDirectory(KnowledgeBaseWarmUpTest.class.getSimpleName());
+        final File meta = Files.createTempFile(KnowledgeBaseWarmUpTest.class.getSimpleName(), "meta").toFile();
+        final File hot = Files.createTempFile(KnowledgeBaseWarmUpTest.class.getSimpleName(), "hot").toFile();
+        FileUtils.deleteDirectory(kbDir.toFile());
+        FileUtils.deleteQuietly(meta);
+
+        KnowledgeBase kb = KnowledgeBase.getInstance(kbDir.toString(), meta.toString(), false);
+        for (int index = 0; index < 5; index++)
+            kb.add(new RevisionCallGraph(new JSONObject(JSON_SPEC.replace("1.0", index + ".0"))), index);
+        kb.close();
+
+        kb = KnowledgeBase.getInstance(kbDir.toString(), meta.toString(), true);
+        for (int i = 0; i < 3; i++) kb.callGraphs.get(3).callGraphData();
+        kb.callGraphs.get(1).callGraphData();
+        assertArrayEquals(new long[] {3, 1}, KnowledgeBaseWarmUp.hotRevisions(kb, 10));
+        assertArrayEquals(new long[] {3}, KnowledgeBaseWarmUp.hotRevisions(kb, 1));
+        KnowledgeBaseWarmUp.storeHotRevisions(kb, hot.toString(), 10);
+        kb.close();
+
+        kb = KnowledgeBase.getInstance(kbDir.toString(), meta.toString(), true);
+        assertFalse(kb.callGraphs.get(3).isDecoded());
+        // Revision 42 does not exist
+        final long[] revisions = {3, 1, 42};
+        assertArrayEquals(new long[] {3, 1}, KnowledgeBaseWarmUp.loadHotRevisions(hot.toString()));
+        try (KnowledgeBaseWarmUp warmUp = KnowledgeBaseWarmUp.start(kb, revisions, 2)) {
+            assertTrue(warmUp.awaitReady(1, TimeUnit.MINUTES));
+            assertTrue(warmUp.isReady());
+            assertEquals(1.0, warmUp.progress());
+            assertEquals(2, warmUp.decoded());
+            assertEquals(1, warmUp.failed());
+        }
+        assertTrue(kb.callGraphs.get(3).isDecoded());
+        assertTrue(kb.callGraphs.get(1).isDecoded());
+        assertFalse(kb.callGraphs.get(0).isDecoded());
+        // Warming up does not count as an access
+        assertEquals(0, kb.callGraphs.get(3).accesses());
+        assertArrayEquals(new long[0], KnowledgeBaseWarmUp.hotRevisions(kb, 10));
+
+        // Closing early releases the waiters even if some call graphs were not decoded
+        final long[] many = new long[1000];
+        for (int i = 0; i < many.length; i++) many[i] = i % 5;
+        final KnowledgeBaseWarmUp warmUp = KnowledgeBaseWarmUp.start(kb, many, 1);
+        warmUp.close();
+        assertTrue(warmUp.awaitReady(1, TimeUnit.MINUTES));
+        assertTrue(warmUp.isReady());
+        kb.close();
+
+        FileUtils.deleteDirectory(kbDir.toFile());
+        FileUtils.deleteQuietly(meta);
+        FileUtils.deleteQuietly(hot);
+    }
+}
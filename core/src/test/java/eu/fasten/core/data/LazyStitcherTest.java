@@ -0,0 +1,170 @@
+package eu.fasten.core.data;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import org.apache.commons.io.FileUtils;
+import org.json.JSONObject;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.rocksdb.RocksDBException;
+
+import eu.fasten.core.merge.CallGraphMerger;
+import eu.fasten.core.merge.ClassHierarchyIndex;
+import eu.fasten.core.query.Queries;
+import it.unimi.dsi.fastutil.longs.LongOpenHashSet;
+import it.unimi.dsi.fastutil.longs.LongSet;
+
+public class LazyStitcherTest {
+
+    private static String graph(final String product, final String version, final String type, final String superClass,
+                                final String[] methods, final String internalCalls, final String externalCalls) {
+        final StringBuilder methodsJson = new StringBuilder();
+        for (int i = 0; i < methods.length; i++) {
+            methodsJson.append(i == 0 ? "" : ",").append("\"").append(i).append("\": \"").append(type).append(".")
+                    .append(methods[i]).append("()%2Fjava.lang%2FVoidType\"");
+        }
+        return "{" +
+                "\"product\": \"" + product + "\", \"forge\": \"mvn\", \"generator\": \"OPAL\", \"depset\": [], \"version\": \"" + version + "\", \"timestamp\": 0," +
+                "\"cha\": {\"" + type + "\": {\"methods\": {" + methodsJson + "}," +
+                "\"superInterfaces\": [], \"sourceFile\": \"\", \"superClasses\": [\"" + superClass + "\"]}}," +
+                "\"graph\": {\"internalCalls\": [" + internalCalls + "], \"externalCalls\": [" + externalCalls + "]}" +
+                "}";
+    }
+
+    private static final String LIB1 = graph("lib", "1.0", "/lib/A", "/java.lang/Object", new String[] { "a", "b" }, "[0, 1]", "");
+    private static final String LIB2 = graph("lib", "2.0", "/lib/A", "/java.lang/Object", new String[] { "a", "c" }, "[0, 1]", "");
+    private static final String EXT = graph("ext", "1.0", "/ext/Sub", "/lib/A", new String[] { "a" }, "", "");
+    private static final String APP = graph("app", "1.0", "/app/Main", "/java.lang/Object", new String[] { "main" }, "",
+            "[\"0\", \"///lib/A.a()%2Fjava.lang%2FVoidType\", {\"invokevirtual\": \"1\"}]");
+
+    private Path kbDir;
+    private File meta;
+    private KnowledgeBase kb;
+    private long main;
+
+    @BeforeEach
+    public void setUp() throws IOException, RocksDBException, ClassNotFoundException {
+        kbDir = Files.createTempDirectory(LazyStitcherTest.class.getSimpleName());
+        meta = Files.createTempFile(LazyStitcherTest.class.getSimpleName(), "meta").toFile();
+        FileUtils.deleteDirectory(kbDir.toFile());
+        FileUtils.deleteQuietly(meta);
+        kb = KnowledgeBase.getInstance(kbDir.toString(), meta.toString(), false);
+        kb.add(new RevisionCallGraph(new JSONObject(LIB1)), 1);
+        kb.add(new RevisionCallGraph(new JSONObject(LIB2)), 2);
+        kb.add(new RevisionCallGraph(new JSONObject(EXT)), 3);
+        kb.add(new RevisionCallGraph(new JSONObject(APP)), 4);
+        main = kb.fastenURI2Node(FastenURI.create("fasten://mvn!app$1.0/app/Main.main()%2Fjava.lang%2FVoidType")).signature();
+    }
+
+    @AfterEach
+    public void tearDown() throws IOException {
+        kb.close();
+        FileUtils.deleteDirectory(kbDir.toFile());
+        FileUtils.deleteQuietly(meta);
+    }
+
+    private Set<String> uris(final LongSet signatures) {
+        final Set<String> uris = new HashSet<>();
+        kb.signatures2URIs(signatures).forEach(uri -> uris.add(uri.getProduct() + "$" + uri.getVersion() + uri.getRawPath()));
+        return uris;
+    }
+
+    private static String method(final String product, final String type, final String method) {
+        return product + "/" + type + "." + method + "()%2Fjava.lang%2FVoidType";
+    }
+
+    @Test
+    public void testCHA() {
+        // Without stitching, the call reaches both versions of the library
+        assertEquals(5, kb.reaches(main).size());
+
+        final LazyStitcher stitcher = new LazyStitcher(kb, new LongOpenHashSet(new long[] { 1, 3 }), LazyStitcher.Algorithm.CHA);
+        assertEquals(Set.of(method("app$1.0", "app/Main", "main"), method("lib$1.0", "lib/A", "a"), method("lib$1.0", "lib/A", "b")),
+                uris(stitcher.reaches(main)));
+        assertEquals(1, stitcher.resolved());
+        // Resolutions are memoized
+        stitcher.reaches(main);
+        assertEquals(1, stitcher.resolved());
+        assertEquals(stitcher.reaches(main), Queries.reaches(main, stitcher).signatures(kb));
+
+        // With a class hierarchy, the call is also resolved to subtypes
+        final var hierarchy = new ClassHierarchyIndex(null, List.of(new ExtendedRevisionCallGraph(new JSONObject("{"
+                + "\"product\": \"ext\", \"forge\": \"mvn\", \"generator\": \"OPAL\", \"version\": \"1.0\", \"timestamp\": 0, \"nodes\": 0,"
+                + "\"cha\": {\"internalTypes\": {\"/ext/Sub\": {\"methods\": {}, \"superClasses\": [\"/lib/A\"], \"superInterfaces\": [],"
+                + "\"sourceFile\": \"\", \"access\": \"public\", \"final\": false}}, \"externalTypes\": {}, \"resolvedTypes\": {}},"
+                + "\"graph\": {\"internalCalls\": [], \"externalCalls\": [], \"resolvedCalls\": []}}"))));
+        final LazyStitcher chaStitcher = new LazyStitcher(kb, new LongOpenHashSet(new long[] { 1, 3 }), LazyStitcher.Algorithm.CHA, hierarchy);
+        assertEquals(Set.of(method("app$1.0", "app/Main", "main"), method("lib$1.0", "lib/A", "a"), method("lib$1.0", "lib/A", "b"),
+                method("ext$1.0", "ext/Sub", "a")), uris(chaStitcher.reaches(main)));
+    }
+
+    @Test
+    public void testRA() throws IOException, RocksDBException {
+        final LazyStitcher stitcher = new LazyStitcher(kb, new LongOpenHashSet(new long[] { 2, 3 }), LazyStitcher.Algorithm.RA);
+        // Any method named a with the same descriptor is a target
+        assertEquals(Set.of(method("app$1.0", "app/Main", "main"), method("lib$2.0", "lib/A", "a"),
+                method("lib$2.0", "lib/A", "c"), method("ext$1.0", "ext/Sub", "a")), uris(stitcher.reaches(main)));
+
+        // Memoized resolutions are discarded when the knowledge base changes
+        kb.remove(3);
+        assertEquals(3, stitcher.reaches(main).size());
+    }
+
+    private static ExtendedRevisionCallGraph extendedGraph(final String product, final String version, final String internalType,
+                                                           final String[] methods, final String externalType, final String externalCalls) {
+        final JSONObject internal = new JSONObject();
+        for (int i = 0; i < methods.length; i++) {
+            internal.put(String.valueOf(i), new JSONObject().put("uri", internalType + "." + methods[i] + "()%2Fjava.lang%2FVoidType")
+                    .put("metadata", new JSONObject()));
+        }
+        final String type = "{\"superClasses\": [\"/java.lang/Object\"], \"superInterfaces\": [], \"sourceFile\": \"\", "
+                + "\"access\": \"public\", \"final\": false, \"methods\": ";
+        final JSONObject external = new JSONObject();
+        if (externalType != null) external.put(String.valueOf(methods.length), new JSONObject()
+                .put("uri", externalType + ".a()%2Fjava.lang%2FVoidType").put("metadata", new JSONObject()));
+        return new ExtendedRevisionCallGraph(new JSONObject("{" +
+                "\"product\": \"" + product + "\", \"forge\": \"mvn\", \"generator\": \"OPAL\", \"version\": \"" + version + "\"," +
+                "\"timestamp\": 0, \"nodes\": " + (methods.length + external.length()) + "," +
+                "\"cha\": {\"internalTypes\": {\"" + internalType + "\": " + type + internal + "}}," +
+                "\"externalTypes\": {" + (externalType == null ? "" : "\"" + externalType + "\": " + type + external + "}") + "}," +
+                "\"resolvedTypes\": {}}," +
+                "\"graph\": {\"internalCalls\": [], \"externalCalls\": [" + externalCalls + "], \"resolvedCalls\": []}" +
+                "}"));
+    }
+
+    @Test
+    public void testRAMatchesCallGraphMerger() throws IOException, RocksDBException {
+        // A method whose signature contains the one of the target must not be resolved
+        kb.add(new RevisionCallGraph(new JSONObject(graph("other", "1.0", "/other/B", "/java.lang/Object", new String[] { "xa", "a" }, "", ""))), 5);
+        final LazyStitcher stitcher = new LazyStitcher(kb, new LongOpenHashSet(new long[] { 2, 3, 5 }), LazyStitcher.Algorithm.RA);
+        final long external = kb.uri2GID(FastenURI.create("/lib/A.a()%2Fjava.lang%2FVoidType"));
+        final Set<String> lazy = uris(new LongOpenHashSet(stitcher.resolve(external)));
+
+        final var dependencies = List.of(extendedGraph("lib", "2.0", "/lib/A", new String[] { "a", "c" }, null, ""),
+                extendedGraph("ext", "1.0", "/ext/Sub", new String[] { "a" }, null, ""),
+                extendedGraph("other", "1.0", "/other/B", new String[] { "xa", "a" }, null, ""));
+        final var merged = CallGraphMerger.mergeCallGraph(
+                extendedGraph("app", "1.0", "/app/Main", new String[] { "main" }, "/lib/A",
+                        "[\"0\", \"1\", {\"1\": {\"receiver\": \"/lib/A\", \"line\": 1, \"type\": \"invokevirtual\"}}]"),
+                dependencies, "RA");
+        final Set<String> eager = new HashSet<>();
+        merged.getClassHierarchy().get(ExtendedRevisionCallGraph.Scope.resolvedTypes).forEach((type, methods) ->
+                methods.getMethods().values().forEach(node -> eager.add(type.getProduct() + "$" + type.getVersion() + node.getUri())));
+
+        assertEquals(Set.of(method("lib$2.0", "lib/A", "a"), method("ext$1.0", "ext/Sub", "a"), method("other$1.0", "other/B", "a")), lazy);
+        assertEquals(lazy, eager);
+
+        // With a class hierarchy, definitions are found through its signature index
+        final LazyStitcher indexed = new LazyStitcher(kb, new LongOpenHashSet(new long[] { 2, 3, 5 }), LazyStitcher.Algorithm.RA,
+                new ClassHierarchyIndex(null, dependencies));
+        assertEquals(lazy, uris(new LongOpenHashSet(indexed.resolve(external))));
+    }
+}
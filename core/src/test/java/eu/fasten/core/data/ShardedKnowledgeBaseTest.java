@@ -0,0 +1,159 @@
+package eu.fasten.core.data;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNotEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import it.unimi.dsi.fastutil.longs.Long2ObjectMap;
+import it.unimi.dsi.fastutil.longs.Long2ObjectOpenHashMap;
+import it.unimi.dsi.fastutil.longs.LongSet;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
+import org.apache.commons.io.FileUtils;
+import org.json.JSONObject;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.rocksdb.RocksDBException;
+
+public class ShardedKnowledgeBaseTest {
+
+    private static final int SHARDS = 3;
+    private static final int LIBRARIES = 6;
+
+    private static String library(final int i) {
+        return "{" +
+                "\"product\": \"lib" + i + "\", \"forge\": \"mvn\", \"generator\": \"OPAL\", \"depset\": [], \"version\": \"1.0\", \"timestamp\": 0," +
+                "\"cha\": {\"/lib" + i + "/A\": {\"methods\": {" +
+                "\"0\": \"/lib" + i + "/A.a()%2Fjava.lang%2FVoidType\"," +
+                "\"1\": \"/lib" + i + "/A.b()%2Fjava.lang%2FVoidType\"}," +
+                "\"superInterfaces\": [], \"sourceFile\": \"A.java\", \"superClasses\": [\"/java.lang/Object\"]}}," +
+                "\"graph\": {\"internalCalls\": [[0, 1]], \"externalCalls\": [" +
+                (i + 1 < LIBRARIES ? "[\"1\", \"///lib" + (i + 1) + "/A.a()%2Fjava.lang%2FVoidType\", {\"invokevirtual\": \"1\"}]" : "") +
+                "]}" +
+                "}";
+    }
+
+    private Path dir;
+    private String[] kbDirs;
+    private String[] kbMetadata;
+
+    @BeforeEach
+    public void setUp() throws IOException {
+        dir = Files.createTempDirectory(ShardedKnowledgeBaseTest.class.getSimpleName());
+        kbDirs = new String[SHARDS];
+        kbMetadata = new String[SHARDS];
+        for (int i = 0; i < SHARDS; i++) {
+            kbDirs[i] = dir.resolve("kb" + i).toString();
+            kbMetadata[i] = dir.resolve("kb" + i + ".meta").toString();
+        }
+    }
+
+    @AfterEach
+    public void tearDown() throws IOException {
+        FileUtils.deleteDirectory(dir.toFile());
+    }
+
+    private static Set<FastenURI> uris(final ShardedKnowledgeBase kb, final LongSet signatures) {
+        final Set<FastenURI> uris = new HashSet<>();
+        for (final long signature : signatures) uris.add(kb.signature2URI(signature));
+        return uris;
+    }
+
+    private static Set<FastenURI> uris(final KnowledgeBase kb, final LongSet signatures) {
+        final Set<FastenURI> uris = new HashSet<>();
+        kb.signatures2URIs(signatures).forEach(uris::add);
+        return uris;
+    }
+
+    @Test
+    public void testShardedQueries() throws IOException, RocksDBException, ClassNotFoundException {
+        final KnowledgeBase reference = KnowledgeBase.getInstance(dir.resolve("reference").toString(), dir.resolve("reference.meta").toString(), false);
+        final Long2ObjectMap<RevisionCallGraph> graphs = new Long2ObjectOpenHashMap<>();
+        for (int i = 0; i < LIBRARIES; i++) {
+            graphs.put(i, new RevisionCallGraph(new JSONObject(library(i))));
+            reference.add(new RevisionCallGraph(new JSONObject(library(i))), i);
+        }
+
+        ShardedKnowledgeBase kb = ShardedKnowledgeBase.getInstance(dir.resolve("dictionary").toString(), kbDirs, kbMetadata, false);
+        kb.addAll(graphs);
+        assertEquals(LIBRARIES, kb.size());
+        // Revisions are spread among shards, and GIDs are global
+        final Set<Integer> used = new HashSet<>();
+        for (int i = 0; i < LIBRARIES; i++) used.add(kb.shardOf(i));
+        assertTrue(used.size() > 1);
+        assertEquals(2 * LIBRARIES, kb.dictionary().size());
+        assertThrows(IllegalArgumentException.class, () -> kb.add(new RevisionCallGraph(new JSONObject(library(0))), 0));
+        kb.close();
+
+        final ShardedKnowledgeBase readOnly = ShardedKnowledgeBase.getInstance(dir.resolve("dictionary").toString(), kbDirs, kbMetadata, true);
+        assertEquals(LIBRARIES, readOnly.size());
+        for (int i = 0; i < LIBRARIES; i++) {
+            for (final String method : new String[] { "a", "b" }) {
+                final FastenURI uri = FastenURI.create("fasten://mvn!lib" + i + "$1.0/lib" + i + "/A." + method + "()%2Fjava.lang%2FVoidType");
+                final long signature = readOnly.fastenURI2Signature(uri);
+                assertNotEquals(-1, signature);
+                assertEquals(uri, readOnly.signature2URI(signature));
+                final long referenceSignature = reference.fastenURI2Node(uri).signature();
+                assertEquals(uris(reference, reference.reaches(referenceSignature)), uris(readOnly, readOnly.reaches(signature)));
+                assertEquals(uris(reference, reference.coreaches(referenceSignature)), uris(readOnly, readOnly.coreaches(signature)));
+                assertEquals(reference.successors(referenceSignature).size(), readOnly.successors(signature).size());
+                assertEquals(reference.predecessors(referenceSignature).size(), readOnly.predecessors(signature).size());
+            }
+        }
+        assertEquals(LIBRARIES * 2, readOnly.reaches(readOnly.fastenURI2Signature(FastenURI.create("fasten://mvn!lib0$1.0/lib0/A.a()%2Fjava.lang%2FVoidType"))).size());
+        assertEquals(-1, readOnly.fastenURI2Signature(FastenURI.create("fasten://mvn!lib0$2.0/lib0/A.a()%2Fjava.lang%2FVoidType")));
+        readOnly.close();
+        reference.close();
+    }
+
+    @Test
+    public void testIncrementalAdd() throws IOException, RocksDBException, ClassNotFoundException {
+        ShardedKnowledgeBase kb = ShardedKnowledgeBase.getInstance(dir.resolve("dictionary").toString(), kbDirs, kbMetadata, false);
+        kb.add(new RevisionCallGraph(new JSONObject(library(1))), 1);
+        kb.close();
+
+        // GIDs must keep being assigned consistently after reopening
+        kb = ShardedKnowledgeBase.getInstance(dir.resolve("dictionary").toString(), kbDirs, kbMetadata, false);
+        assertEquals(3, kb.dictionary().size());
+        kb.add(new RevisionCallGraph(new JSONObject(library(0))), 0);
+        assertEquals(5, kb.dictionary().size());
+        assertEquals(kb.shardOf("lib0"), kb.shardOf(0L));
+        final long a = kb.fastenURI2Signature(FastenURI.create("fasten://mvn!lib0$1.0/lib0/A.a()%2Fjava.lang%2FVoidType"));
+        assertEquals(4, kb.reaches(a).size());
+
+        // Removed revisions are no longer routed to their shard
+        assertTrue(kb.remove(1));
+        assertEquals(-1, kb.shardOf(1L));
+        assertNull(kb.callGraph(1));
+        assertFalse(kb.remove(1));
+        assertEquals(2, kb.reaches(a).size());
+        kb.close();
+    }
+
+    @Test
+    public void testConcurrentQueries() throws IOException, RocksDBException, ClassNotFoundException {
+        final ShardedKnowledgeBase kb = ShardedKnowledgeBase.getInstance(dir.resolve("dictionary").toString(), kbDirs, kbMetadata, false);
+        for (int i = 0; i < LIBRARIES; i++) kb.add(new RevisionCallGraph(new JSONObject(library(i))), i);
+        final long[] signatures = new long[LIBRARIES];
+        for (int i = 0; i < LIBRARIES; i++) signatures[i] = kb.fastenURI2Signature(FastenURI.create("fasten://mvn!lib" + i + "$1.0/lib" + i + "/A.a()%2Fjava.lang%2FVoidType"));
+
+        // Queries run in parallel give the same results as sequential ones
+        final List<LongSet> expected = new ArrayList<>();
+        for (final long signature : signatures) expected.add(kb.reaches(signature));
+        for (int round = 0; round < 20; round++) {
+            assertEquals(expected, IntStream.range(0, LIBRARIES).parallel().mapToObj(i -> kb.reaches(signatures[i])).collect(Collectors.toList()));
+        }
+        kb.close();
+    }
+}
@@ -18,6 +18,7 @@
 
 package eu.fasten.core.data.graphdb;
 
+import it.unimi.dsi.fastutil.longs.Long2ObjectOpenHashMap;
 import it.unimi.dsi.fastutil.longs.LongArrayList;
 import it.unimi.dsi.fastutil.longs.LongOpenHashSet;
 import org.apache.commons.io.FileUtils;
@@ -244,4 +245,49 @@ public class RocksDaoTest {
         assertEquals(graph2.getEdges().size(), graphData2.numArcs());
         assertEquals(new LongOpenHashSet(List.of(258L)), graphData2.externalNodes());
     }
+
+    @Test
+    public void stitchedArcsTest() throws RocksDBException {
+        assertNull(rocksDao.getStitchedArcs(1));
+        rocksDao.saveStitchedArcs(1, new long[]{0, 2, 1, 3});
+        assertArrayEquals(new long[]{0, 2, 1, 3}, rocksDao.getStitchedArcs(1));
+        rocksDao.saveStitchedArcs(1, new long[]{0, 4});
+        assertArrayEquals(new long[]{0, 4}, rocksDao.getStitchedArcs(1));
+        assertThrows(IllegalArgumentException.class, () -> rocksDao.saveStitchedArcs(2, new long[]{0}));
+    }
+
+    @Test
+    public void serializedGraphsBatchTest() throws IOException, RocksDBException {
+        var graph1 = GidGraph.getGraph(new JSONObject("{" +
+                "\"index\": 1," +
+                "\"product\": \"test\"," +
+                "\"version\": \"0.0.1\"," +
+                "\"nodes\": [0, 1, 2]," +
+                "\"numInternalNodes\": 2," +
+                "\"edges\": [[0, 1], [1, 2]]" +
+                "}"));
+        var graph2 = GidGraph.getGraph(new JSONObject("{" +
+                "\"index\": 2," +
+                "\"product\": \"test\"," +
+                "\"version\": \"0.0.2\"," +
+                "\"nodes\": [255, 256, 257]," +
+                "\"numInternalNodes\": 3," +
+                "\"edges\": [[255, 256], [256, 257]]" +
+                "}"));
+        var graphs = new Long2ObjectOpenHashMap<byte[]>();
+        for (var graph : List.of(graph1, graph2)) {
+            graphs.put(graph.getIndex(), rocksDao.serializeGraph(graph.getNodes(),
+                    graph.getNumInternalNodes(), graph.getEdges()));
+        }
+        rocksDao.saveToRocksDb(graphs);
+        rocksDao.flush();
+        var graphData1 = rocksDao.getGraphData(1);
+        assertEquals(new LongOpenHashSet(graph1.getNodes()), graphData1.nodes());
+        assertEquals(new LongArrayList(List.of(2L)), graphData1.successors(1L));
+        assertEquals(new LongOpenHashSet(List.of(2L)), graphData1.externalNodes());
+        var graphData2 = rocksDao.getGraphData(2);
+        assertEquals(new LongOpenHashSet(graph2.getNodes()), graphData2.nodes());
+        assertEquals(new LongArrayList(List.of(256L)), graphData2.predecessors(257L));
+        assertEquals(graph2.getEdges().size(), graphData2.numArcs());
+    }
 }
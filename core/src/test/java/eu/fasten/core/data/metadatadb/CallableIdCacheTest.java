@@ -0,0 +1,78 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package eu.fasten.core.data.metadatadb;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+import org.junit.jupiter.api.Test;
+
+public class CallableIdCacheTest {
+
+    @Test
+    public void pendingIdsTest() {
+        var cache = new CallableIdCache();
+        cache.put("/a/A.f()", 1);
+        assertEquals(1, cache.get("/a/A.f()"));
+        assertEquals(0, cache.size());
+        cache.rollback();
+        assertEquals(-1, cache.get("/a/A.f()"));
+        cache.put("/a/A.f()", 2);
+        cache.commit();
+        assertEquals(2, cache.get("/a/A.f()"));
+        assertEquals(1, cache.size());
+    }
+
+    @Test
+    public void evictionTest() {
+        var cache = new CallableIdCache(2);
+        cache.put("/a/A.f()", 1);
+        cache.put("/a/A.g()", 2);
+        cache.commit();
+        // Makes /a/A.g() the least recently used
+        assertEquals(1, cache.get("/a/A.f()"));
+        cache.put("/a/A.h()", 3);
+        cache.commit();
+        assertEquals(2, cache.size());
+        assertEquals(-1, cache.get("/a/A.g()"));
+        assertEquals(1, cache.get("/a/A.f()"));
+        assertEquals(3, cache.get("/a/A.h()"));
+    }
+
+    @Test
+    public void capacityTest() {
+        assertThrows(IllegalArgumentException.class, () -> new CallableIdCache(0));
+    }
+
+    @Test
+    public void pendingIdsPerThreadTest() throws InterruptedException {
+        var cache = new CallableIdCache();
+        cache.put("/a/A.f()", 1);
+        var thread = new Thread(() -> {
+            cache.put("/a/A.g()", 2);
+            cache.commit();
+        });
+        thread.start();
+        thread.join();
+        assertEquals(2, cache.get("/a/A.g()"));
+        assertEquals(1, cache.size());
+        cache.rollback();
+        assertEquals(-1, cache.get("/a/A.f()"));
+    }
+}
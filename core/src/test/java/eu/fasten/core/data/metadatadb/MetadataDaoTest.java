@@ -21,9 +21,11 @@ package eu.fasten.core.data.metadatadb;
 import static org.junit.jupiter.api.Assertions.assertEquals;
 import static org.junit.jupiter.api.Assertions.assertNotEquals;
 import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
 
 import com.github.t9t.jooq.json.JsonbDSL;
 import eu.fasten.core.data.metadatadb.codegen.Keys;
+import eu.fasten.core.data.metadatadb.codegen.enums.CallType;
 import eu.fasten.core.data.metadatadb.codegen.tables.BinaryModuleContents;
 import eu.fasten.core.data.metadatadb.codegen.tables.BinaryModules;
 import eu.fasten.core.data.metadatadb.codegen.tables.Callables;
@@ -36,6 +38,7 @@ import eu.fasten.core.data.metadatadb.codegen.tables.PackageVersions;
 import eu.fasten.core.data.metadatadb.codegen.tables.Packages;
 import eu.fasten.core.data.metadatadb.codegen.tables.records.BinaryModuleContentsRecord;
 import eu.fasten.core.data.metadatadb.codegen.tables.records.BinaryModulesRecord;
+import eu.fasten.core.data.metadatadb.codegen.tables.records.CallSitesRecord;
 import eu.fasten.core.data.metadatadb.codegen.tables.records.CallablesRecord;
 import eu.fasten.core.data.metadatadb.codegen.tables.records.DependenciesRecord;
 import eu.fasten.core.data.metadatadb.codegen.tables.records.EdgesRecord;
@@ -45,6 +48,7 @@ import eu.fasten.core.data.metadatadb.codegen.tables.records.ModulesRecord;
 import eu.fasten.core.data.metadatadb.codegen.tables.records.PackageVersionsRecord;
 import eu.fasten.core.data.metadatadb.codegen.tables.records.PackagesRecord;
 import java.sql.Timestamp;
+import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.Collections;
 import java.util.List;
@@ -61,7 +65,13 @@ import org.jooq.InsertValuesStep4;
 import org.jooq.InsertValuesStep5;
 import org.jooq.JSONB;
 import org.jooq.Result;
+import org.jooq.Condition;
+import org.jooq.SelectConditionStep;
+import org.jooq.SQLDialect;
 import org.jooq.SelectWhereStep;
+import org.jooq.impl.DSL;
+import org.jooq.tools.jdbc.MockConnection;
+import org.jooq.tools.jdbc.MockResult;
 import org.json.JSONObject;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
@@ -1206,4 +1216,95 @@ public class MetadataDaoTest {
         var result = metadataDao.batchInsertCallables(List.of(record1, record2));
         assertEquals(List.of(record1.getId(), record2.getId()), result);
     }
+
+    @Test
+    public void insertExternalCallablesCachedTest() {
+        var cache = new CallableIdCache();
+        cache.put("/a/A.f()", 1);
+        cache.put("/a/A.g()", 2);
+        cache.commit();
+        var ids = metadataDao.insertExternalCallables(List.of("/a/A.f()", "/a/A.g()", "/a/A.f()"),
+                Arrays.asList(null, JSONB.valueOf("{}"), null), cache);
+        assertEquals(List.of(1L, 2L, 1L), ids);
+        Mockito.verifyNoInteractions(context);
+    }
+
+    @Test
+    public void insertExternalCallablesErrorTest() {
+        assertThrows(IllegalArgumentException.class, () -> {
+            metadataDao.insertExternalCallables(List.of("/a/A.f()"), Collections.emptyList(),
+                    new CallableIdCache());
+        });
+    }
+
+    @Test
+    public void getEdgesInBatchesTest() {
+        var sourceIds = new ArrayList<Long>();
+        for (long i = 0; i < 20000; i++) {
+            sourceIds.add(i);
+        }
+        var selectStep = Mockito.mock(SelectWhereStep.class);
+        Mockito.when(context.selectFrom(Edges.EDGES)).thenReturn(selectStep);
+        var conditionStep = Mockito.mock(SelectConditionStep.class);
+        Mockito.when(selectStep.where(Mockito.any(Condition.class))).thenReturn(conditionStep);
+        var record1 = new EdgesRecord(1L, 2L, JSONB.valueOf("{}"));
+        var record2 = new EdgesRecord(19999L, 2L, JSONB.valueOf("{}"));
+        var result1 = Mockito.mock(Result.class);
+        var result2 = Mockito.mock(Result.class);
+        Mockito.when(result1.toArray()).thenReturn(new Object[]{record1});
+        Mockito.when(result2.toArray()).thenReturn(new Object[]{record2});
+        Mockito.when(conditionStep.fetch()).thenReturn(result1, result2);
+        var edges = metadataDao.getEdges(sourceIds);
+        assertEquals(List.of(record1, record2), edges);
+        Mockito.verify(selectStep, Mockito.times(2)).where(Mockito.any(Condition.class));
+    }
+
+    @Test
+    public void getDependencyClosureTest() {
+        var result = Mockito.mock(Result.class);
+        Mockito.when(context.fetch(Mockito.anyString(), Mockito.eq(1L), Mockito.eq(1L))).thenReturn(result);
+        Mockito.when(result.getValues(0, Long.class)).thenReturn(List.of(2L, 3L));
+        assertEquals(List.of(2L, 3L), metadataDao.getDependencyClosure(1L));
+    }
+
+    @Test
+    public void streamEdgesTest() {
+        var sql = new ArrayList<String>();
+        var edge = new EdgesRecord(1L, 2L, JSONB.valueOf("{}"));
+        var mockContext = DSL.using(new MockConnection(execution -> {
+            sql.add(execution.sql());
+            var result = DSL.using(SQLDialect.POSTGRES).newResult(Edges.EDGES);
+            result.add(edge);
+            return new MockResult[]{new MockResult(1, result)};
+        }), SQLDialect.POSTGRES);
+        metadataDao.setContext(mockContext);
+        try (var cursor = metadataDao.streamEdges(42L, 100)) {
+            assertEquals(List.of(edge), cursor.fetch());
+        }
+        // Edges from and to the callables of the package version are selected
+        assertEquals(1, sql.size());
+        assertTrue(sql.get(0).contains("union all"));
+        assertTrue(sql.get(0).contains("\"public\".\"edges\".\"source_id\" in"));
+        assertTrue(sql.get(0).contains("\"public\".\"edges\".\"target_id\" in"));
+    }
+
+    @Test
+    public void batchInsertCallSitesTest() {
+        var sql = new ArrayList<String>();
+        var bindings = new ArrayList<Object[]>();
+        var mockContext = DSL.using(new MockConnection(execution -> {
+            sql.add(execution.sql());
+            bindings.addAll(Arrays.asList(execution.batchBindings()));
+            return new MockResult[]{new MockResult(1), new MockResult(1)};
+        }), SQLDialect.POSTGRES);
+        metadataDao.setContext(mockContext);
+        metadataDao.batchInsertCallSites(List.of(
+                new CallSitesRecord(1L, 2L, 3, 4, CallType.virtual, 5L),
+                new CallSitesRecord(1L, 2L, 6, null, null, null)));
+        assertEquals(1, sql.size());
+        assertTrue(sql.get(0).contains("on conflict on constraint \"unique_source_target_pc\" do nothing"));
+        assertEquals(2, bindings.size());
+        assertEquals(3, bindings.get(0)[2]);
+        assertEquals(6, bindings.get(1)[2]);
+    }
 }
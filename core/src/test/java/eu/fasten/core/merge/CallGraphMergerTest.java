@@ -0,0 +1,217 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package eu.fasten.core.merge;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import eu.fasten.core.data.ExtendedRevisionCallGraph;
+import eu.fasten.core.data.FastenURI;
+import it.unimi.dsi.fastutil.objects.Object2LongOpenHashMap;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import org.json.JSONObject;
+import org.junit.jupiter.api.Test;
+
+class CallGraphMergerTest {
+
+    private static final String VOID = "()%2Fjava.lang%2FVoidType";
+
+    private static String type(final String uri, final String superClass, final String... methods) {
+        final var json = new JSONObject();
+        final var methodsJson = new JSONObject();
+        for (int i = 0; i < methods.length; i += 2) {
+            methodsJson.put(methods[i], new JSONObject().put("uri", methods[i + 1]).put("metadata", new JSONObject()));
+        }
+        json.put("methods", methodsJson);
+        json.put("superClasses", superClass == null ? List.of() : List.of(superClass));
+        json.put("superInterfaces", List.of());
+        json.put("sourceFile", "");
+        json.put("access", "public");
+        json.put("final", false);
+        return "\"" + uri + "\": " + json;
+    }
+
+    private static ExtendedRevisionCallGraph graph(final String product, final String internalTypes,
+                                                   final String externalTypes, final String externalCalls,
+                                                   final int nodes) {
+        return new ExtendedRevisionCallGraph(new JSONObject("{"
+                + "\"product\": \"" + product + "\", \"forge\": \"mvn\", \"generator\": \"OPAL\", \"version\": \"1.0\","
+                + "\"timestamp\": 0, \"nodes\": " + nodes + ","
+                + "\"cha\": {\"internalTypes\": {" + internalTypes + "}, \"externalTypes\": {" + externalTypes + "},"
+                + "\"resolvedTypes\": {}},"
+                + "\"graph\": {\"internalCalls\": [], \"externalCalls\": [" + externalCalls + "], \"resolvedCalls\": []}"
+                + "}"));
+    }
+
+    private static ExtendedRevisionCallGraph library() {
+        return graph("lib",
+                type("/lib/Base", "/java.lang/Object", "0", "/lib/Base.foo" + VOID, "1", "/lib/Base.%3Cinit%3E" + VOID) + ","
+                        + type("/lib/Sub", "/lib/Base", "2", "/lib/Sub.foo" + VOID, "3", "/lib/Sub.%3Cinit%3E" + VOID, "4", "/lib/Sub.xfoo" + VOID) + ","
+                        + type("/lib/Other", "/java.lang/Object", "5", "/lib/Other.foo" + VOID, "6", "/lib/Other.bar" + VOID),
+                "", "", 7);
+    }
+
+    private static ExtendedRevisionCallGraph application() {
+        return graph("app",
+                type("/app/Main", "/java.lang/Object", "0", "/app/Main.main" + VOID),
+                type("/lib/Base", null, "1", "/lib/Base.foo" + VOID) + ","
+                        + type("/lib/Sub", null, "2", "/lib/Sub.%3Cinit%3E" + VOID),
+                "[\"0\", \"1\", {\"1\": {\"receiver\": \"/lib/Base\", \"line\": 1, \"type\": \"invokevirtual\"},"
+                        + "\"2\": {\"receiver\": \"/lib/Base\", \"line\": 2, \"type\": \"invokevirtual\"}}],"
+                        + "[\"2\", \"2\", {\"3\": {\"receiver\": \"/lib/Sub\", \"line\": 3, \"type\": \"invokespecial\"}}]",
+                3);
+    }
+
+    private static Set<String> resolvedTargets(final ExtendedRevisionCallGraph merged, final int source) {
+        final var methods = merged.mapOfAllMethods();
+        final Set<String> targets = new HashSet<>();
+        for (final var call : merged.getGraph().getResolvedCalls().keySet()) {
+            if (call.get(0) == source) {
+                targets.add(methods.get(call.get(1)).getUri().toString());
+            }
+        }
+        return targets;
+    }
+
+    @Test
+    void mergeWithCHA() {
+        final var merged = CallGraphMerger.mergeCallGraph(application(), List.of(library()), "CHA");
+        // A virtual call resolves to the receiver type and to its subtypes, but not to unrelated types
+        assertEquals(Set.of("/lib/Base.foo" + VOID, "/lib/Sub.foo" + VOID), resolvedTargets(merged, 0));
+        // A constructor resolves to the constructors of the type and of its super types
+        assertEquals(Set.of("/lib/Base.%3Cinit%3E" + VOID, "/lib/Sub.%3Cinit%3E" + VOID), resolvedTargets(merged, 2));
+        // Each target is resolved once, even if several call sites match it
+        assertEquals(4, merged.getGraph().getResolvedCalls().size());
+        assertEquals(7, merged.getNodeCount());
+        final var resolvedTypes = merged.getClassHierarchy().get(ExtendedRevisionCallGraph.Scope.resolvedTypes);
+        assertTrue(resolvedTypes.containsKey(FastenURI.create("//lib$1.0/lib/Sub")));
+        assertFalse(resolvedTypes.containsKey(FastenURI.create("//lib$1.0/lib/Other")));
+    }
+
+    @Test
+    void mergeWithCHAIsDeterministic() {
+        final var first = CallGraphMerger.mergeCallGraph(application(), List.of(library(), library()), "CHA");
+        final var second = CallGraphMerger.mergeCallGraph(application(), List.of(library(), library()), "CHA");
+        assertEquals(first.toJSON().toString(), second.toJSON().toString());
+    }
+
+    private static ExtendedRevisionCallGraph manyCallSites() {
+        final var calls = new StringBuilder();
+        for (int i = 0; i < 200; i++) {
+            calls.append(i == 0 ? "" : ",").append("[\"0\", \"").append(1 + i % 2).append("\", {\"").append(i)
+                    .append("\": {\"receiver\": \"/lib/").append(i % 3 == 0 ? "Sub" : "Base").append("\", \"line\": ").append(i)
+                    .append(", \"type\": \"invokevirtual\"}}]");
+        }
+        return graph("app",
+                type("/app/Main", "/java.lang/Object", "0", "/app/Main.main" + VOID),
+                type("/lib/Base", null, "1", "/lib/Base.foo" + VOID, "2", "/lib/Sub.xfoo" + VOID),
+                calls.toString(), 3);
+    }
+
+    @Test
+    void parallelMergeIsIdenticalToSequentialMerge() {
+        // Many call sites, so that resolution is actually split among threads
+        final var leaf = graph("leaf", type("/leaf/Leaf", "/lib/Sub", "0", "/leaf/Leaf.foo" + VOID), "", "", 1);
+        for (final var algorithm : List.of("CHA", "RA")) {
+            final var sequential = CallGraphMerger.mergeCallGraph(manyCallSites(), List.of(library(), leaf), algorithm, null, false);
+            final var parallel = CallGraphMerger.mergeCallGraph(manyCallSites(), List.of(library(), leaf), algorithm, null, true);
+            assertTrue(sequential.getGraph().getResolvedCalls().size() > 0);
+            assertEquals(sequential.getNodeCount(), parallel.getNodeCount());
+            assertEquals(sequential.toJSON().toString(), parallel.toJSON().toString());
+        }
+    }
+
+    @Test
+    void stitch() {
+        final var gids = new Object2LongOpenHashMap<FastenURI>();
+        final var arcs = CallGraphMerger.stitch(application(), List.of(library()), "CHA", null,
+                uri -> gids.computeLongIfAbsent(uri, u -> gids.size()));
+        final var merged = CallGraphMerger.mergeCallGraph(application(), List.of(library()), "CHA");
+        final var methods = merged.mapOfAllMethods();
+        final var expected = new HashSet<List<String>>();
+        for (final var call : merged.getGraph().getResolvedCalls().keySet()) {
+            expected.add(List.of(methods.get(call.get(0)).getUri().toString(), methods.get(call.get(1)).getUri().toString()));
+        }
+        final var gid2URI = new HashMap<Long, String>();
+        gids.forEach((uri, gid) -> gid2URI.put(gid, uri.getRawPath()));
+        final var actual = new HashSet<List<String>>();
+        for (int i = 0; i < arcs.length; i += 2) {
+            assertTrue(i == 0 || arcs[i - 2] < arcs[i] || arcs[i - 2] == arcs[i] && arcs[i - 1] < arcs[i + 1]);
+            actual.add(List.of(gid2URI.get(arcs[i]), gid2URI.get(arcs[i + 1])));
+        }
+        assertEquals(expected, actual);
+        assertTrue(gids.containsKey(FastenURI.create("fasten://mvn!lib$1.0/lib/Sub.foo" + VOID)));
+        assertTrue(gids.containsKey(FastenURI.create("fasten://mvn!app$1.0/app/Main.main" + VOID)));
+    }
+
+    @Test
+    void mergeWithRA() {
+        final var merged = CallGraphMerger.mergeCallGraph(application(), List.of(library()), "RA");
+        assertTrue(resolvedTargets(merged, 0).contains("/lib/Other.foo" + VOID));
+        // Signatures are matched exactly, as by the class hierarchy index
+        assertFalse(resolvedTargets(merged, 0).contains("/lib/Sub.xfoo" + VOID));
+    }
+
+    @Test
+    void classHierarchyIndex() {
+        final var index = new ClassHierarchyIndex(application(), List.of(library()));
+        final var base = FastenURI.create("/lib/Base");
+        final var sub = FastenURI.create("/lib/Sub");
+        assertEquals(1, index.types(sub).size());
+        assertTrue(index.types(FastenURI.create("/lib/Missing")).isEmpty());
+        assertTrue(index.firstTypeExtendsSecond(sub, base));
+        assertFalse(index.firstTypeExtendsSecond(base, sub));
+        assertArrayEquals(new int[]{index.id(sub)}, index.subtypes(index.id(base)));
+        assertArrayEquals(Arrays.stream(new int[]{index.id("/java.lang/Object"), index.id(base)}).sorted().toArray(),
+                index.supertypes(index.id(sub)));
+        final var subType = index.types(sub).get(0);
+        // Signatures are matched exactly, on decoded entities
+        assertTrue(subType.getDefined("foo()/java.lang/VoidType").isPresent());
+        assertTrue(subType.getDefined("xfoo()/java.lang/VoidType").isPresent());
+        assertFalse(subType.getDefined("oo()/java.lang/VoidType").isPresent());
+        // The signature index lists the dependency types defining each signature
+        assertEquals(List.of(subType), index.definitions("xfoo()/java.lang/VoidType"));
+        assertTrue(index.definitions("foo()/java.lang/VoidType").contains(subType));
+        assertTrue(index.definitions("oo()/java.lang/VoidType").isEmpty());
+    }
+
+    @Test
+    void transitiveSubtypes() {
+        // Only direct super classes are declared: Leaf -> Middle -> Base
+        final var deep = graph("deep",
+                type("/deep/Middle", "/lib/Base") + ","
+                        + type("/deep/Leaf", "/deep/Middle", "0", "/deep/Leaf.foo" + VOID),
+                "", "", 1);
+        final var index = new ClassHierarchyIndex(application(), List.of(library(), deep));
+        assertTrue(index.firstTypeExtendsSecond(FastenURI.create("/deep/Leaf"), FastenURI.create("/lib/Base")));
+        assertTrue(index.firstTypeExtendsSecond(FastenURI.create("/deep/Leaf"), FastenURI.create("/java.lang/Object")));
+        assertFalse(index.firstTypeExtendsSecond(FastenURI.create("/lib/Base"), FastenURI.create("/deep/Leaf")));
+        assertFalse(index.firstTypeExtendsSecond(FastenURI.create("/lib/Base"), FastenURI.create("/lib/Base")));
+
+        final var merged = CallGraphMerger.mergeCallGraph(application(), List.of(library(), deep), "CHA");
+        assertEquals(Set.of("/lib/Base.foo" + VOID, "/lib/Sub.foo" + VOID, "/deep/Leaf.foo" + VOID),
+                resolvedTargets(merged, 0));
+    }
+}
@@ -0,0 +1,125 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package eu.fasten.core.merge;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import eu.fasten.core.data.ExtendedRevisionCallGraph;
+import eu.fasten.core.data.FastenURI;
+import java.util.List;
+import org.json.JSONObject;
+import org.junit.jupiter.api.Test;
+
+class StitchingCacheTest {
+
+    private static final String VOID = "()%2Fjava.lang%2FVoidType";
+
+    private static String type(final String uri, final String superClass, final String... methods) {
+        final var methodsJson = new JSONObject();
+        for (int i = 0; i < methods.length; i += 2) {
+            methodsJson.put(methods[i], new JSONObject().put("uri", methods[i + 1]).put("metadata", new JSONObject()));
+        }
+        return "\"" + uri + "\": " + new JSONObject().put("methods", methodsJson)
+                .put("superClasses", superClass == null ? List.of() : List.of(superClass)).put("superInterfaces", List.of())
+                .put("sourceFile", "").put("access", "public").put("final", false);
+    }
+
+    private static ExtendedRevisionCallGraph graph(final String product, final String internalTypes,
+                                                   final String externalTypes, final String externalCalls,
+                                                   final int nodes) {
+        return new ExtendedRevisionCallGraph(new JSONObject("{"
+                + "\"product\": \"" + product + "\", \"forge\": \"mvn\", \"generator\": \"OPAL\", \"version\": \"1.0\","
+                + "\"timestamp\": 0, \"nodes\": " + nodes + ","
+                + "\"cha\": {\"internalTypes\": {" + internalTypes + "}, \"externalTypes\": {" + externalTypes + "},"
+                + "\"resolvedTypes\": {}},"
+                + "\"graph\": {\"internalCalls\": [], \"externalCalls\": [" + externalCalls + "], \"resolvedCalls\": []}"
+                + "}"));
+    }
+
+    private static ExtendedRevisionCallGraph library(final String name) {
+        return graph(name,
+                type("/lib/Base", "/java.lang/Object", "0", "/lib/Base.foo" + VOID, "1", "/lib/Base.%3Cinit%3E" + VOID) + ","
+                        + type("/lib/Sub", "/lib/Base", "2", "/lib/Sub.foo" + VOID, "3", "/lib/Sub.%3Cinit%3E" + VOID),
+                "", "", 4);
+    }
+
+    /** A module whose main class extends a library class, and whose constructor calls super constructors. */
+    private static ExtendedRevisionCallGraph module(final String name) {
+        return graph(name,
+                type("/" + name + "/Main", "/lib/Sub", "0", "/" + name + "/Main.%3Cinit%3E" + VOID),
+                type("/lib/Base", null, "1", "/lib/Base.foo" + VOID),
+                "[\"0\", \"0\", {\"1\": {\"receiver\": \"/lib/Sub\", \"line\": 1, \"type\": \"invokespecial\"}}],"
+                        + "[\"0\", \"1\", {\"2\": {\"receiver\": \"/lib/Base\", \"line\": 2, \"type\": \"invokevirtual\"}}]",
+                2);
+    }
+
+    @Test
+    void cachedMergeIsIdenticalToUncachedMerge() {
+        final var cache = new StitchingCache(Long.MAX_VALUE);
+        for (final var name : List.of("a", "b", "c")) {
+            final var uncached = CallGraphMerger.mergeCallGraph(module(name), List.of(library("lib")), "CHA");
+            final var cached = CallGraphMerger.mergeCallGraph(module(name), List.of(library("lib")), "CHA", cache);
+            assertEquals(uncached.toJSON().toString(), cached.toJSON().toString());
+            // Super constructors are found through the hierarchy of the module
+            assertEquals(4, cached.getGraph().getResolvedCalls().size());
+        }
+        assertEquals(1, cache.size());
+        assertEquals(1, cache.misses());
+        assertEquals(2, cache.hits());
+    }
+
+    @Test
+    void extendedIndex() {
+        final var dependencies = new ClassHierarchyIndex(null, List.of(library("lib")));
+        final var index = new ClassHierarchyIndex(dependencies, module("a"));
+        final var base = FastenURI.create("/lib/Base");
+        final var sub = FastenURI.create("/lib/Sub");
+        final var main = FastenURI.create("/a/Main");
+        assertEquals(-1, dependencies.id(main));
+        assertTrue(index.firstTypeExtendsSecond(main, base));
+        assertTrue(index.firstTypeExtendsSecond(sub, base));
+        assertArrayEquals(new int[]{index.id(sub), index.id(main)}, index.subtypes(index.id(base)));
+        // The shared index is not modified
+        assertArrayEquals(new int[]{dependencies.id(sub)}, dependencies.subtypes(dependencies.id(base)));
+        // A dependency extending a type of the artifact changes the hierarchy of the dependencies
+        final var plugin = graph("plugin", type("/plugin/Ext", "/a/Main"), "", "", 0);
+        assertFalse(new ClassHierarchyIndex(null, List.of(library("lib"), plugin)).isExtensibleBy(module("a")));
+    }
+
+    @Test
+    void eviction() {
+        final long size = new ClassHierarchyIndex(null, List.of(library("x"))).sizeInBytes();
+        final var cache = new StitchingCache(2 * size);
+        final var x = cache.get(List.of(library("x")));
+        cache.get(List.of(library("y")));
+        // Accessing x makes y the least recently used index
+        assertSame(x, cache.get(List.of(library("x"))));
+        cache.get(List.of(library("z")));
+        assertEquals(2, cache.size());
+        assertTrue(cache.sizeInBytes() <= 2 * size);
+        assertSame(x, cache.get(List.of(library("x"))));
+        final long misses = cache.misses();
+        cache.get(List.of(library("y")));
+        assertEquals(misses + 1, cache.misses());
+    }
+}
@@ -0,0 +1,203 @@
+package eu.fasten.core.query;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import eu.fasten.core.data.FastenURI;
+import eu.fasten.core.data.KnowledgeBase;
+import eu.fasten.core.data.RevisionCallGraph;
+import it.unimi.dsi.fastutil.longs.LongOpenHashSet;
+import it.unimi.dsi.fastutil.longs.LongSet;
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import org.apache.commons.io.FileUtils;
+import org.json.JSONObject;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.rocksdb.RocksDBException;
+
+public class QueriesTest {
+
+    private static final String LIB = "{" +
+            "\"product\": \"lib\", \"forge\": \"mvn\", \"generator\": \"OPAL\", \"depset\": [], \"version\": \"1.0\", \"timestamp\": 0," +
+            "\"cha\": {\"/lib/A\": {\"methods\": {" +
+            "\"0\": \"/lib/A.a()%2Fjava.lang%2FVoidType\"," +
+            "\"1\": \"/lib/A.b()%2Fjava.lang%2FVoidType\"," +
+            "\"2\": \"/lib/A.c()%2Fjava.lang%2FVoidType\"}," +
+            "\"superInterfaces\": [], \"sourceFile\": \"A.java\", \"superClasses\": [\"/java.lang/Object\"]}}," +
+            "\"graph\": {\"internalCalls\": [[0, 1], [1, 2]], \"externalCalls\": []}" +
+            "}";
+
+    private static final String APP = "{" +
+            "\"product\": \"app\", \"forge\": \"mvn\", \"generator\": \"OPAL\", \"depset\": [], \"version\": \"1.0\", \"timestamp\": 0," +
+            "\"cha\": {\"/app/Main\": {\"methods\": {" +
+            "\"0\": \"/app/Main.main()%2Fjava.lang%2FVoidType\"," +
+            "\"1\": \"/app/Main.run()%2Fjava.lang%2FVoidType\"}," +
+            "\"superInterfaces\": [], \"sourceFile\": \"Main.java\", \"superClasses\": [\"/java.lang/Object\"]}}," +
+            "\"graph\": {\"internalCalls\": [[0, 1]], \"externalCalls\": [" +
+            "[\"0\", \"///lib/A.b()%2Fjava.lang%2FVoidType\", {\"invokevirtual\": \"1\"}]," +
+            "[\"1\", \"///lib/A.c()%2Fjava.lang%2FVoidType\", {\"invokevirtual\": \"1\"}]]}" +
+            "}";
+
+    private Path kbDir;
+    private File meta;
+    private KnowledgeBase kb;
+
+    @BeforeEach
+    public void setUp() throws IOException, RocksDBException, ClassNotFoundException {
+        kbDir = Files.createTempDirectory(QueriesTest.class.getSimpleName());
+        meta = Files.createTempFile(QueriesTest.class.getSimpleName(), "meta").toFile();
+        FileUtils.deleteDirectory(kbDir.toFile());
+        FileUtils.deleteQuietly(meta);
+        kb = KnowledgeBase.getInstance(kbDir.toString(), meta.toString(), false);
+        kb.add(new RevisionCallGraph(new JSONObject(LIB)), 0);
+        kb.add(new RevisionCallGraph(new JSONObject(APP)), 1);
+    }
+
+    @AfterEach
+    public void tearDown() throws IOException {
+        kb.close();
+        FileUtils.deleteDirectory(kbDir.toFile());
+        FileUtils.deleteQuietly(meta);
+    }
+
+    private long signature(final String uri) {
+        final KnowledgeBase.Node node = kb.fastenURI2Node(FastenURI.create(uri));
+        assertNotNull(node);
+        return node.signature();
+    }
+
+    @Test
+    public void testURIQueries() {
+        final long main = signature("fasten://mvn!app$1.0/app/Main.main()%2Fjava.lang%2FVoidType");
+        assertEquals(kb.reaches(main), Queries.reaches(FastenURI.create("fasten://mvn!app$1.0/app/Main.main()%2Fjava.lang%2FVoidType")).signatures(kb));
+        assertEquals(kb.coreaches(main), Queries.coreaches(main).signatures(kb));
+        assertEquals(0, Queries.reaches(FastenURI.create("fasten://mvn!app$2.0/app/Main.main()%2Fjava.lang%2FVoidType")).count(kb));
+    }
+
+    @Test
+    public void testSetOperations() {
+        final long main = signature("fasten://mvn!app$1.0/app/Main.main()%2Fjava.lang%2FVoidType");
+        final long a = signature("fasten://mvn!lib$1.0/lib/A.a()%2Fjava.lang%2FVoidType");
+        final LongSet fromMain = kb.reaches(main);
+        final LongSet fromA = kb.reaches(a);
+
+        final LongSet union = new LongOpenHashSet(fromMain);
+        union.addAll(fromA);
+        assertEquals(union, Queries.union(Queries.reaches(main), Queries.reaches(a)).signatures(kb));
+
+        final LongSet intersection = new LongOpenHashSet(fromMain);
+        intersection.retainAll(fromA);
+        assertEquals(2, intersection.size());
+        assertEquals(intersection, Queries.intersection(Queries.reaches(main), Queries.reaches(a)).signatures(kb));
+
+        final LongSet difference = new LongOpenHashSet(fromMain);
+        difference.removeAll(fromA);
+        assertEquals(difference, Queries.difference(Queries.reaches(main), Queries.reaches(a)).signatures(kb));
+
+        assertEquals(2, Queries.restrictToRevision(Queries.reaches(main), 1).count(kb));
+        assertEquals(intersection, Queries.restrictToProduct(Queries.reaches(main), "lib").signatures(kb));
+    }
+
+    @Test
+    public void testNormalization() {
+        final SignatureQuery q = Queries.reaches(1);
+        final SignatureQuery r = Queries.coreaches(2);
+        final SignatureQuery s = Queries.reaches(3);
+        assertEquals(Queries.union(q, r, s).normalized(), Queries.union(s, Queries.union(r, q)).normalized());
+        assertEquals(Queries.intersection(q, r).normalized(), Queries.intersection(r, q, r).normalized());
+        assertSame(q, Queries.union(q, q));
+        assertTrue(!Queries.difference(q, r).normalized().equals(Queries.difference(r, q).normalized()));
+    }
+
+    @Test
+    public void testCache() throws IOException, RocksDBException {
+        final long main = signature("fasten://mvn!app$1.0/app/Main.main()%2Fjava.lang%2FVoidType");
+        final long a = signature("fasten://mvn!lib$1.0/lib/A.a()%2Fjava.lang%2FVoidType");
+        final QueryCache cache = new QueryCache(kb, 1000);
+
+        final LongSet result = cache.signatures(Queries.union(Queries.reaches(main), Queries.reaches(a)));
+        // The union and both its operands
+        assertEquals(3, cache.misses());
+        assertEquals(3, cache.size());
+        assertSame(result, cache.signatures(Queries.union(Queries.reaches(a), Queries.reaches(main))));
+        assertEquals(1, cache.hits());
+
+        // Operands are reused across composite queries
+        assertEquals(2, cache.count(Queries.intersection(Queries.reaches(main), Queries.reaches(a))));
+        assertEquals(3, cache.hits());
+
+        // Modifying the knowledge base invalidates the cache
+        kb.add(new RevisionCallGraph(new JSONObject(LIB.replace("1.0", "2.0"))), 2);
+        cache.signatures(Queries.reaches(main));
+        assertEquals(1, cache.size());
+    }
+
+    @Test
+    public void testCacheEviction() {
+        final long main = signature("fasten://mvn!app$1.0/app/Main.main()%2Fjava.lang%2FVoidType");
+        final long a = signature("fasten://mvn!lib$1.0/lib/A.a()%2Fjava.lang%2FVoidType");
+        final QueryCache cache = new QueryCache(kb, 6);
+        cache.signatures(Queries.reaches(main));
+        assertEquals(1, cache.size());
+        cache.signatures(Queries.reaches(a));
+        assertEquals(1, cache.size());
+        cache.signatures(Queries.reaches(main));
+        assertEquals(3, cache.misses());
+    }
+
+    @Test
+    public void testCacheConcurrency() throws Exception {
+        final long main = signature("fasten://mvn!app$1.0/app/Main.main()%2Fjava.lang%2FVoidType");
+        final QueryCache cache = new QueryCache(kb, 1000);
+        final CountDownLatch started = new CountDownLatch(1);
+        final CountDownLatch release = new CountDownLatch(1);
+        final AtomicInteger evaluations = new AtomicInteger();
+        final SignatureQuery slow = new SignatureQuery() {
+            @Override
+            public LongSet signatures(final KnowledgeBase kb, final QueryCache cache) {
+                evaluations.incrementAndGet();
+                started.countDown();
+                try {
+                    release.await();
+                } catch (final InterruptedException e) {
+                    throw new RuntimeException(e);
+                }
+                return Queries.reaches(main).signatures(kb, cache);
+            }
+
+            @Override
+            public String normalized() {
+                return "slow";
+            }
+        };
+        final ExecutorService executor = Executors.newFixedThreadPool(3);
+        try {
+            final Future<LongSet> first = executor.submit(() -> cache.signatures(slow));
+            started.await();
+            final Future<LongSet> second = executor.submit(() -> cache.signatures(slow));
+            // Other queries are answered while the slow one is being computed
+            assertEquals(kb.reaches(main), executor.submit(() -> cache.signatures(Queries.reaches(main))).get(10, TimeUnit.SECONDS));
+            assertEquals(1, cache.size());
+            release.countDown();
+            // The slow query is computed once
+            assertSame(first.get(), second.get());
+            assertEquals(1, evaluations.get());
+            assertEquals(2, cache.size());
+        } finally {
+            release.countDown();
+            executor.shutdownNow();
+        }
+    }
+}
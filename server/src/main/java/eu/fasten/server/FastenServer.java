@@ -24,17 +24,24 @@ import eu.fasten.core.plugins.DataWriter;
 import eu.fasten.core.plugins.FastenPlugin;
 import eu.fasten.core.plugins.GraphDBConnector;
 import eu.fasten.core.plugins.KafkaPlugin;
+import eu.fasten.core.plugins.PipelinedDBConnector;
 import eu.fasten.server.connectors.KafkaConnector;
+import eu.fasten.server.connectors.PostgresConnectionPool;
 import eu.fasten.server.connectors.PostgresConnector;
 import eu.fasten.server.connectors.RocksDBConnector;
 import eu.fasten.server.plugins.FastenServerPlugin;
 import eu.fasten.server.plugins.kafka.FastenKafkaPlugin;
+import eu.fasten.server.plugins.kafka.FastenPipelinedKafkaPlugin;
 import java.nio.file.Path;
 import java.sql.SQLException;
+import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
 import java.util.stream.Collectors;
 import org.apache.commons.lang3.ObjectUtils;
+import org.jooq.DSLContext;
 import org.pf4j.JarPluginManager;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
@@ -104,6 +111,27 @@ public class FastenServer implements Runnable {
             description = "Database user name")
     String dbUser;
 
+    @Option(names = {"-dc", "--db_connections"},
+            paramLabel = "connections",
+            description = "Size of the pool of DB connections of each DB plug-in. Plug-ins "
+                    + "supporting it write records in parallel through these connections.",
+            defaultValue = "1")
+    int dbConnections;
+
+    @Option(names = {"-dm", "--db_metrics"},
+            paramLabel = "seconds",
+            description = "Interval between two logs of the metrics of DB connection pools. "
+                    + "Metrics are only logged at shutdown if 0.",
+            defaultValue = "0")
+    int dbMetricsInterval;
+
+    @Option(names = {"-pt", "--prepare_threads"},
+            paramLabel = "threads",
+            description = "Number of threads preparing records in parallel, "
+                    + "for plug-ins supporting it.",
+            defaultValue = "1")
+    int prepareThreads;
+
     @Option(names = {"-gd", "--graphdb_dir"},
             paramLabel = "dir",
             description = "Path to directory with RocksDB database")
@@ -116,6 +144,9 @@ public class FastenServer implements Runnable {
 
     private static final Logger logger = LoggerFactory.getLogger(FastenServer.class);
 
+    private final Map<String, PostgresConnectionPool> dbPools = new HashMap<>();
+    private final Map<String, DSLContext> dbContexts = new HashMap<>();
+
     @Override
     public void run() {
         setLoggingLevel();
@@ -155,6 +186,7 @@ public class FastenServer implements Runnable {
                 x.version(), x.description()));
 
         makeDBConnection(dbPlugins);
+        scheduleDBMetrics();
         makeGraphDBConnection(graphDbPlugins);
         setBaseDirectory(dataWriterPlugins);
 
@@ -181,6 +213,8 @@ public class FastenServer implements Runnable {
                     logger.debug("Couldn't join consumers");
                 }
             });
+            logDBMetrics();
+            dbPools.values().forEach(PostgresConnectionPool::close);
             logger.info("Fasten server has been successfully stopped");
         }));
 
@@ -213,9 +247,24 @@ public class FastenServer implements Runnable {
                     kafkaServers,
                     k.getClass().getCanonicalName());
 
+            var outputDir = (outputDirs != null)
+                    ? outputDirs.get(k.getClass().getSimpleName()) : null;
+            var outputLink = (outputLinks != null)
+                    ? outputLinks.get(k.getClass().getSimpleName()) : null;
+
+            var dslContext = dbContexts.get(k.getClass().getSimpleName());
+            if (k instanceof PipelinedDBConnector && dslContext != null
+                    && (dbConnections > 1 || prepareThreads > 1)) {
+                logger.info("Plug-in {} writes through {} DB connections with {} "
+                                + "preparing threads", k.getClass().getSimpleName(),
+                        dbConnections, prepareThreads);
+                return new FastenPipelinedKafkaPlugin<>(consumerProperties, producerProperties,
+                        (PipelinedDBConnector<?>) k, skipOffsets, outputDir, outputLink,
+                        dslContext, Math.max(1, dbConnections), Math.max(1, prepareThreads));
+            }
+
             return new FastenKafkaPlugin(consumerProperties, producerProperties, k, skipOffsets,
-                    (outputDirs != null) ? outputDirs.get(k.getClass().getSimpleName()) : null,
-                    (outputLinks != null) ? outputLinks.get(k.getClass().getSimpleName()) : null);
+                    outputDir, outputLink);
         }).collect(Collectors.toList());
     }
 
@@ -228,7 +277,13 @@ public class FastenServer implements Runnable {
         dbPlugins.forEach((p) -> {
             if (ObjectUtils.allNotNull(dbUrl, dbUser)) {
                 try {
-                    p.setDBConnection(PostgresConnector.getDSLContext(dbUrl, dbUser));
+                    var name = p.getClass().getSimpleName();
+                    var pool = PostgresConnector.getConnectionPool(dbUrl, dbUser,
+                            Math.max(1, dbConnections));
+                    var dslContext = PostgresConnector.getDSLContext(pool);
+                    dbPools.put(name, pool);
+                    dbContexts.put(name, dslContext);
+                    p.setDBConnection(dslContext);
                     logger.debug("Set DB connection successfully for plug-in {}",
                             p.getClass().getSimpleName());
                 } catch (SQLException e) {
@@ -242,6 +297,29 @@ public class FastenServer implements Runnable {
         });
     }
 
+    /**
+     * Periodically logs the metrics of DB connection pools, if an interval has been specified.
+     */
+    private void scheduleDBMetrics() {
+        if (dbMetricsInterval <= 0 || dbPools.isEmpty()) {
+            return;
+        }
+        var scheduler = Executors.newSingleThreadScheduledExecutor(r -> {
+            var thread = new Thread(r, "db-metrics");
+            thread.setDaemon(true);
+            return thread;
+        });
+        scheduler.scheduleAtFixedRate(this::logDBMetrics, dbMetricsInterval, dbMetricsInterval,
+                TimeUnit.SECONDS);
+    }
+
+    /**
+     * Logs the metrics of DB connection pools.
+     */
+    private void logDBMetrics() {
+        dbPools.forEach((name, pool) -> logger.info("DB connection pool of {}: {}", name, pool));
+    }
+
     /**
      * Setup RocksDB connection for GraphDB plugins.
      *
@@ -0,0 +1,250 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package eu.fasten.server.connectors;
+
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.SQLException;
+import java.util.Properties;
+import java.util.concurrent.BlockingDeque;
+import java.util.concurrent.LinkedBlockingDeque;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+import org.jooq.ConnectionProvider;
+import org.jooq.exception.DataAccessException;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * A bounded pool of connections to a PostgreSQL database, used by jOOQ as a
+ * {@link ConnectionProvider}.
+ *
+ * <p>Connections are opened lazily, up to the size of the pool, and kept open once released, so
+ * that threads sharing the pool neither reconnect for each query nor lose the statements
+ * prepared on the server by the driver. An idle connection is validated before it is handed
+ * out again, and replaced if it is broken.
+ */
+public class PostgresConnectionPool implements ConnectionProvider, AutoCloseable {
+
+    private static final Logger logger = LoggerFactory.getLogger(PostgresConnectionPool.class);
+
+    /** Seconds to wait for the validation of an idle connection. */
+    private static final int VALIDATION_TIMEOUT = 5;
+
+    private final String dbUrl;
+    private final Properties properties;
+    private final int size;
+    private final long acquireTimeout;
+
+    private final BlockingDeque<Connection> idle = new LinkedBlockingDeque<>();
+    private final Semaphore available;
+    private final AtomicBoolean closed = new AtomicBoolean(false);
+
+    private final AtomicLong opened = new AtomicLong();
+    private final AtomicLong discarded = new AtomicLong();
+    private final AtomicLong acquisitions = new AtomicLong();
+    private final AtomicLong waitNanos = new AtomicLong();
+
+    /**
+     * Creates a pool. No connection is opened until the first one is acquired.
+     *
+     * @param dbUrl          URL of the database to connect
+     * @param properties     connection properties, including the user name and password
+     * @param size           maximum number of open connections
+     * @param acquireTimeout maximum number of milliseconds to wait for a connection
+     */
+    public PostgresConnectionPool(String dbUrl, Properties properties, int size,
+                                  long acquireTimeout) {
+        if (size <= 0) {
+            throw new IllegalArgumentException("The size of the pool must be positive: " + size);
+        }
+        this.dbUrl = dbUrl;
+        this.properties = properties;
+        this.size = size;
+        this.acquireTimeout = acquireTimeout;
+        this.available = new Semaphore(size, true);
+    }
+
+    /**
+     * Opens a first connection, checking that the database can be reached.
+     *
+     * @throws SQLException if the connection could not be opened
+     */
+    public void open() throws SQLException {
+        idle.offerFirst(DriverManager.getConnection(dbUrl, properties));
+        opened.incrementAndGet();
+    }
+
+    @Override
+    public Connection acquire() throws DataAccessException {
+        if (closed.get()) {
+            throw new DataAccessException("The connection pool is closed");
+        }
+        final long start = System.nanoTime();
+        try {
+            if (!available.tryAcquire(acquireTimeout, TimeUnit.MILLISECONDS)) {
+                throw new DataAccessException("No database connection available after "
+                        + acquireTimeout + " ms");
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new DataAccessException("Interrupted while waiting for a connection", e);
+        }
+        waitNanos.addAndGet(System.nanoTime() - start);
+        acquisitions.incrementAndGet();
+        try {
+            Connection connection;
+            while ((connection = idle.pollFirst()) != null) {
+                if (connection.isValid(VALIDATION_TIMEOUT)) {
+                    return connection;
+                }
+                discard(connection);
+            }
+            connection = DriverManager.getConnection(dbUrl, properties);
+            opened.incrementAndGet();
+            return connection;
+        } catch (SQLException | RuntimeException e) {
+            available.release();
+            throw new DataAccessException("Could not open a database connection", e);
+        }
+    }
+
+    @Override
+    public void release(Connection connection) throws DataAccessException {
+        try {
+            if (closed.get() || connection.isClosed()) {
+                discard(connection);
+            } else {
+                if (!connection.getAutoCommit()) {
+                    connection.rollback();
+                    connection.setAutoCommit(true);
+                }
+                // Most recently used connections are handed out first
+                idle.offerFirst(connection);
+            }
+        } catch (SQLException e) {
+            discard(connection);
+        } finally {
+            available.release();
+        }
+    }
+
+    private void discard(Connection connection) {
+        discarded.incrementAndGet();
+        try {
+            connection.close();
+        } catch (SQLException e) {
+            logger.debug("Could not close a discarded connection", e);
+        }
+    }
+
+    /**
+     * Closes the idle connections. Connections in use are closed when they are released.
+     */
+    @Override
+    public void close() {
+        closed.set(true);
+        Connection connection;
+        while ((connection = idle.pollFirst()) != null) {
+            discard(connection);
+        }
+    }
+
+    /**
+     * Returns the maximum number of open connections.
+     *
+     * @return size of the pool
+     */
+    public int getSize() {
+        return size;
+    }
+
+    /**
+     * Returns the number of connections in use.
+     *
+     * @return number of acquired connections that have not been released
+     */
+    public int getActiveConnections() {
+        return size - available.availablePermits();
+    }
+
+    /**
+     * Returns the number of open connections waiting to be acquired.
+     *
+     * @return number of idle connections
+     */
+    public int getIdleConnections() {
+        return idle.size();
+    }
+
+    /**
+     * Returns the number of threads waiting for a connection.
+     *
+     * @return estimated number of waiting threads
+     */
+    public int getWaitingThreads() {
+        return available.getQueueLength();
+    }
+
+    /**
+     * Returns the number of connections opened since the creation of the pool.
+     *
+     * @return number of opened connections
+     */
+    public long getOpenedConnections() {
+        return opened.get();
+    }
+
+    /**
+     * Returns the number of connections closed because they were broken or the pool was closed.
+     *
+     * @return number of discarded connections
+     */
+    public long getDiscardedConnections() {
+        return discarded.get();
+    }
+
+    /**
+     * Returns the number of times a connection has been acquired.
+     *
+     * @return number of acquisitions
+     */
+    public long getAcquisitions() {
+        return acquisitions.get();
+    }
+
+    /**
+     * Returns the total time spent waiting for a connection.
+     *
+     * @return total waiting time in milliseconds
+     */
+    public long getWaitMillis() {
+        return TimeUnit.NANOSECONDS.toMillis(waitNanos.get());
+    }
+
+    @Override
+    public String toString() {
+        return String.format("active=%d, idle=%d, waiting=%d, size=%d, opened=%d, discarded=%d, "
+                        + "acquisitions=%d, waited=%dms", getActiveConnections(),
+                getIdleConnections(), getWaitingThreads(), size, getOpenedConnections(),
+                getDiscardedConnections(), getAcquisitions(), getWaitMillis());
+    }
+}
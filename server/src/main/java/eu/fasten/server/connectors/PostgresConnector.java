@@ -20,13 +20,21 @@ package eu.fasten.server.connectors;
 
 import java.sql.DriverManager;
 import java.sql.SQLException;
+import java.util.Properties;
 import org.jooq.DSLContext;
 import org.jooq.SQLDialect;
+import org.jooq.conf.QueryPoolable;
+import org.jooq.conf.Settings;
+import org.jooq.conf.StatementType;
 import org.jooq.impl.DSL;
 import org.postgresql.Driver;
+import org.postgresql.PGProperty;
 
 public class PostgresConnector {
 
+    /** Milliseconds to wait for a pooled connection before failing. */
+    private static final long ACQUIRE_TIMEOUT = 60_000;
+
     /**
      * Establishes database connection.
      *
@@ -38,6 +46,46 @@ public class PostgresConnector {
      */
     public static DSLContext getDSLContext(String dbUrl, String user)
             throws SQLException, IllegalArgumentException {
+        var connection = DriverManager.getConnection(dbUrl, connectionProperties(dbUrl, user));
+        return DSL.using(connection, SQLDialect.POSTGRES, settings());
+    }
+
+    /**
+     * Creates a pool of database connections. Each query run through the returned DSLContext
+     * borrows a connection from the pool, and each transaction keeps its connection until it
+     * completes, so the context can be shared by several threads.
+     *
+     * @param dbUrl URL of the database to connect
+     * @param user  Database user name
+     * @param size  Maximum number of open connections
+     * @return the pool, whose DSLContext is given by {@link #getDSLContext(PostgresConnectionPool)}
+     * @throws SQLException             if failed to open a first connection
+     * @throws IllegalArgumentException if database URL has incorrect format and cannot be parsed
+     */
+    public static PostgresConnectionPool getConnectionPool(String dbUrl, String user, int size)
+            throws SQLException, IllegalArgumentException {
+        var pool = new PostgresConnectionPool(dbUrl, connectionProperties(dbUrl, user), size,
+                ACQUIRE_TIMEOUT);
+        pool.open();
+        return pool;
+    }
+
+    /**
+     * Returns a DSLContext querying the database through a pool of connections.
+     *
+     * @param pool pool of connections
+     * @return DSLContext for jOOQ to query the database
+     */
+    public static DSLContext getDSLContext(PostgresConnectionPool pool) {
+        return DSL.using(pool, SQLDialect.POSTGRES, settings());
+    }
+
+    /**
+     * Returns the connection properties, making the driver prepare statements on the server
+     * as soon as they are reused, and keep them prepared for the lifetime of the connection.
+     */
+    private static Properties connectionProperties(String dbUrl, String user)
+            throws SQLException {
         if (!new Driver().acceptsURL(dbUrl)) {
             throw new IllegalArgumentException("Could not parse database URI: " + dbUrl);
         }
@@ -47,7 +95,28 @@ public class PostgresConnector {
         if (pass == null) {
             throw new IllegalArgumentException("No password for DB is provided");
         }
-        var connection = DriverManager.getConnection(dbUrl, user, pass);
-        return DSL.using(connection, SQLDialect.POSTGRES);
+        var properties = new Properties();
+        PGProperty.USER.set(properties, user);
+        PGProperty.PASSWORD.set(properties, pass);
+        PGProperty.PREPARE_THRESHOLD.set(properties, 2);
+        PGProperty.PREPARED_STATEMENT_CACHE_QUERIES.set(properties, 1024);
+        PGProperty.PREPARED_STATEMENT_CACHE_SIZE_MIB.set(properties, 16);
+        return properties;
+    }
+
+    /**
+     * Returns the jOOQ settings: bind values are sent as parameters of poolable prepared
+     * statements, and IN lists are padded to powers of two so that queries with lists of
+     * similar sizes share the same prepared statement. Execution logging, which renders every
+     * query with inlined values, is disabled.
+     */
+    private static Settings settings() {
+        return new Settings()
+                .withStatementType(StatementType.PREPARED_STATEMENT)
+                .withQueryPoolable(QueryPoolable.TRUE)
+                .withInListPadding(true)
+                .withReflectionCaching(true)
+                .withCacheRecordMappers(true)
+                .withExecuteLogging(false);
     }
 }
@@ -29,12 +29,15 @@ import java.net.UnknownHostException;
 import java.time.Duration;
 import java.util.ArrayList;
 import java.util.List;
+import java.util.Map;
+import java.util.Optional;
 import java.util.Properties;
 import java.util.concurrent.atomic.AtomicBoolean;
 import org.apache.commons.lang.StringUtils;
 import org.apache.kafka.clients.consumer.CommitFailedException;
 import org.apache.kafka.clients.consumer.ConsumerRecords;
 import org.apache.kafka.clients.consumer.KafkaConsumer;
+import org.apache.kafka.clients.consumer.OffsetAndMetadata;
 import org.apache.kafka.clients.producer.KafkaProducer;
 import org.apache.kafka.clients.producer.ProducerRecord;
 import org.apache.kafka.common.PartitionInfo;
@@ -52,8 +55,8 @@ public class FastenKafkaPlugin implements FastenServerPlugin {
     private final KafkaPlugin plugin;
 
     private final AtomicBoolean closed = new AtomicBoolean(false);
-    private final KafkaConsumer<String, String> connection;
-    private final KafkaProducer<String, String> producer;
+    protected final KafkaConsumer<String, String> connection;
+    protected final KafkaProducer<String, String> producer;
 
     private final int skipOffsets;
 
@@ -113,6 +116,7 @@ public class FastenKafkaPlugin implements FastenServerPlugin {
         } catch (Exception e) {
             logger.error("Error occurred while processing call graphs", e);
         } finally {
+            finishProcessing();
             connection.close();
             logger.info("Plugin {} stopped", plugin.name());
         }
@@ -147,7 +151,7 @@ public class FastenKafkaPlugin implements FastenServerPlugin {
     /**
      * Consumes a message from a Kafka topics and passes it to a plugin.
      */
-    private void handleConsuming() {
+    protected void handleConsuming() {
         ConsumerRecords<String, String> records = connection.poll(Duration.ofSeconds(1));
         for (var r : records) {
             doCommitSync();
@@ -167,21 +171,50 @@ public class FastenKafkaPlugin implements FastenServerPlugin {
                 throw plugin.getPluginError();
             }
 
-            var result = plugin.produce();
-            String payload = result.orElse(null);
-            if (result.isPresent() && writeDirectory != null && !writeDirectory.equals("")) {
-                    payload = writeToFile(payload);
-            }
-
-            emitMessage(this.producer, String.format("fasten.%s.out",
-                    plugin.getClass().getSimpleName()),
-                    getStdOutMsg(input, payload));
+            emitOutput(input, plugin.produce(), plugin.getOutputPath());
 
         } catch (Throwable e) {
-            emitMessage(this.producer, String.format("fasten.%s.err",
-                    plugin.getClass().getSimpleName()),
-                    getStdErrMsg(input, e));
+            emitError(input, e);
+        }
+    }
+
+    /**
+     * Completes the processing of consumed records before the consumer is closed.
+     */
+    protected void finishProcessing() {
+    }
+
+    /**
+     * Writes a message to the stdout topic, writing the result to a file first if an output
+     * directory has been specified.
+     *
+     * @param input      consumed record
+     * @param result     optional result of the plugin
+     * @param outputPath relative path of the file the result should be written to
+     * @throws IOException if the result could not be written
+     */
+    protected void emitOutput(String input, Optional<String> result, String outputPath)
+            throws IOException {
+        String payload = result.orElse(null);
+        if (result.isPresent() && writeDirectory != null && !writeDirectory.equals("")) {
+            payload = writeToFile(outputPath, payload);
         }
+
+        emitMessage(this.producer, String.format("fasten.%s.out",
+                plugin.getClass().getSimpleName()),
+                getStdOutMsg(input, payload));
+    }
+
+    /**
+     * Writes a message to the stderr topic.
+     *
+     * @param input consumed record
+     * @param error error of the plugin
+     */
+    protected void emitError(String input, Throwable error) {
+        emitMessage(this.producer, String.format("fasten.%s.err",
+                plugin.getClass().getSimpleName()),
+                getStdErrMsg(input, error));
     }
 
     /**
@@ -209,12 +242,12 @@ public class FastenKafkaPlugin implements FastenServerPlugin {
      * Writes output or error message to JSON file and return JSON object containing
      * a link to to written file.
      *
+     * @param path   relative path of the file
      * @param result message to write
      * @return Path to a newly written JSON file
      */
-    private String writeToFile(String result)
+    private String writeToFile(String path, String result)
             throws IOException, NullPointerException {
-        var path = plugin.getOutputPath();
         var pathWithoutFilename = path.substring(0, path.lastIndexOf(File.separator));
 
         File directory = new File(this.writeDirectory + pathWithoutFilename);
@@ -293,12 +326,27 @@ public class FastenKafkaPlugin implements FastenServerPlugin {
      * or an unrecoverable error is encountered.
      */
     private void doCommitSync() {
+        doCommitSync(null);
+    }
+
+    /**
+     * This is a synchronous commit of the given offsets, or of the offsets of the last poll
+     * if {@code offsets} is null, and will block until either the commit succeeds
+     * or an unrecoverable error is encountered.
+     *
+     * @param offsets the offsets to commit, or null
+     */
+    protected void doCommitSync(Map<TopicPartition, OffsetAndMetadata> offsets) {
         try {
-            connection.commitSync();
+            if (offsets == null) {
+                connection.commitSync();
+            } else {
+                connection.commitSync(offsets);
+            }
         } catch (WakeupException e) {
             // we're shutting down, but finish the commit first and then
             // rethrow the exception so that the main loop can exit
-            doCommitSync();
+            doCommitSync(offsets);
             throw e;
         } catch (CommitFailedException e) {
             // the commit failed with an unrecoverable error. if there is any
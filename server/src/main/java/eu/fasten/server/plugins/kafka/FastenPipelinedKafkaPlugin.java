@@ -0,0 +1,170 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package eu.fasten.server.plugins.kafka;
+
+import eu.fasten.core.plugins.PipelinedDBConnector;
+import java.time.Duration;
+import java.util.Properties;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import org.apache.kafka.common.TopicPartition;
+import org.jooq.DSLContext;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * A {@link FastenKafkaPlugin} processing several records at the same time.
+ *
+ * <p>Records flow through a bounded pipeline with three stages: the consumer thread polls
+ * records, a pool of threads {@linkplain PipelinedDBConnector#prepare(String) prepares} them,
+ * and a pool of threads {@linkplain PipelinedDBConnector#write(Object, DSLContext) writes}
+ * them. The DSL context used for writing must be backed by a pool with at least as many
+ * connections as writing threads. Parsing the next
+ * records thus overlaps with writing the current ones.
+ *
+ * <p>The consumer is paused while the number of records in flight is at the capacity of the
+ * pipeline, so that it keeps polling (and thus stays in its group) without accumulating
+ * records. Since records complete out of order, the offset of a record is committed only
+ * when the record and all preceding records of the same partition have been processed, that
+ * is, written to the database or reported to the error topic.
+ */
+public class FastenPipelinedKafkaPlugin<T> extends FastenKafkaPlugin {
+    private final Logger logger = LoggerFactory.getLogger(FastenPipelinedKafkaPlugin.class.getName());
+
+    private final PipelinedDBConnector<T> plugin;
+
+    private final ExecutorService preparers;
+    private final ExecutorService writers;
+    private final DSLContext dslContext;
+
+    private final int capacity;
+    private final OffsetTracker offsets = new OffsetTracker();
+
+    /**
+     * Constructs a pipelined FastenKafkaConsumer.
+     *
+     * @param consumerProperties properties of a consumer
+     * @param producerProperties properties of a producer
+     * @param plugin             Kafka plugin
+     * @param skipOffsets        skip offset number
+     * @param writeDirectory     directory where output messages will be stored
+     * @param writeLink          HTTP link to the directory where output messages will be stored
+     * @param dslContext         DSL context used to write records
+     * @param writeThreads       number of threads writing records
+     * @param prepareThreads     number of threads preparing records
+     */
+    public FastenPipelinedKafkaPlugin(Properties consumerProperties, Properties producerProperties,
+                                      PipelinedDBConnector<T> plugin, int skipOffsets,
+                                      String writeDirectory, String writeLink,
+                                      DSLContext dslContext, int writeThreads,
+                                      int prepareThreads) {
+        super(consumerProperties, producerProperties, plugin, skipOffsets, writeDirectory, writeLink);
+        if (writeThreads <= 0 || prepareThreads <= 0) {
+            throw new IllegalArgumentException("At least one thread per stage is needed");
+        }
+        this.plugin = plugin;
+        this.dslContext = dslContext;
+        this.preparers = Executors.newFixedThreadPool(prepareThreads);
+        this.writers = Executors.newFixedThreadPool(writeThreads);
+        this.capacity = 2 * (prepareThreads + writeThreads);
+    }
+
+    /**
+     * Polls records from Kafka topics and passes them to the pipeline.
+     */
+    @Override
+    protected void handleConsuming() {
+        var records = connection.poll(Duration.ofSeconds(1));
+        for (var r : records) {
+            final var partition = new TopicPartition(r.topic(), r.partition());
+            final var input = r.value();
+            offsets.started(partition, r.offset());
+            CompletableFuture.supplyAsync(() -> prepare(input), preparers)
+                    .thenAcceptAsync(prepared -> write(input, prepared), writers)
+                    .whenComplete((result, e) -> {
+                        try {
+                            if (e != null) {
+                                emitError(input, e instanceof CompletionException
+                                        && e.getCause() != null ? e.getCause() : e);
+                            }
+                        } catch (RuntimeException reportError) {
+                            logger.error("Could not report the error of a record at offset "
+                                    + r.offset() + " of " + partition, reportError);
+                        } finally {
+                            // Otherwise, the offset would stay in flight forever
+                            offsets.completed(partition, r.offset());
+                        }
+                    });
+        }
+        commitCompleted();
+        if (offsets.inFlight() >= capacity) {
+            connection.pause(connection.assignment());
+        } else if (!connection.paused().isEmpty()) {
+            connection.resume(connection.paused());
+        }
+    }
+
+    private T prepare(String input) {
+        try {
+            return plugin.prepare(input);
+        } catch (Exception e) {
+            throw new CompletionException(e);
+        }
+    }
+
+    private void write(String input, T prepared) {
+        try {
+            var result = plugin.write(prepared, dslContext);
+            emitOutput(input, result, plugin.getOutputPath(prepared));
+        } catch (Exception e) {
+            throw new CompletionException(e);
+        }
+    }
+
+    /**
+     * Commits the offsets of the records that have been processed.
+     */
+    private void commitCompleted() {
+        var committable = offsets.committable();
+        if (!committable.isEmpty()) {
+            doCommitSync(committable);
+        }
+    }
+
+    /**
+     * Waits for the records in flight and commits their offsets.
+     */
+    @Override
+    protected void finishProcessing() {
+        preparers.shutdown();
+        try {
+            preparers.awaitTermination(Long.MAX_VALUE, TimeUnit.MILLISECONDS);
+            // Once preparers are done, no more records can be submitted to writers
+            writers.shutdown();
+            writers.awaitTermination(Long.MAX_VALUE, TimeUnit.MILLISECONDS);
+        } catch (InterruptedException e) {
+            logger.warn("Interrupted while waiting for records in flight", e);
+            Thread.currentThread().interrupt();
+        }
+        commitCompleted();
+    }
+}
@@ -0,0 +1,104 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package eu.fasten.server.plugins.kafka;
+
+import it.unimi.dsi.fastutil.longs.LongRBTreeSet;
+import it.unimi.dsi.fastutil.longs.LongSortedSet;
+import java.util.HashMap;
+import java.util.Map;
+import org.apache.kafka.clients.consumer.OffsetAndMetadata;
+import org.apache.kafka.common.TopicPartition;
+
+/**
+ * Keeps track of the records in flight in a pipeline processing records out of order, and
+ * computes the offsets that can be committed.
+ *
+ * <p>The committable offset of a partition is the offset of its first record that has been
+ * started but not completed yet, or the offset following its last completed record if no
+ * record is in flight. Thus, committed offsets never skip a record that has not been
+ * processed.
+ */
+class OffsetTracker {
+
+    /** The offsets of the records in flight, for each partition. */
+    private final Map<TopicPartition, LongSortedSet> inFlight = new HashMap<>();
+
+    /** The offset following the last started record, for each partition. */
+    private final Map<TopicPartition, Long> next = new HashMap<>();
+
+    /** The last committable offset returned, for each partition. */
+    private final Map<TopicPartition, Long> committed = new HashMap<>();
+
+    private int size;
+
+    /**
+     * Records that processing of a record has started.
+     *
+     * @param partition the partition of the record
+     * @param offset    the offset of the record
+     */
+    synchronized void started(TopicPartition partition, long offset) {
+        if (inFlight.computeIfAbsent(partition, p -> new LongRBTreeSet()).add(offset)) {
+            size++;
+        }
+        next.merge(partition, offset + 1, Math::max);
+    }
+
+    /**
+     * Records that processing of a record has completed.
+     *
+     * @param partition the partition of the record
+     * @param offset    the offset of the record
+     */
+    synchronized void completed(TopicPartition partition, long offset) {
+        final var offsets = inFlight.get(partition);
+        if (offsets != null && offsets.remove(offset)) {
+            size--;
+        }
+    }
+
+    /**
+     * Returns the number of records in flight.
+     *
+     * @return the number of records started and not completed
+     */
+    synchronized int inFlight() {
+        return size;
+    }
+
+    /**
+     * Returns the offsets that can be committed and have not been returned yet.
+     *
+     * @return a map from partitions to committable offsets, possibly empty
+     */
+    synchronized Map<TopicPartition, OffsetAndMetadata> committable() {
+        final var result = new HashMap<TopicPartition, OffsetAndMetadata>();
+        for (var entry : next.entrySet()) {
+            final var partition = entry.getKey();
+            final var offsets = inFlight.get(partition);
+            final long offset = offsets == null || offsets.isEmpty() ? entry.getValue()
+                    : offsets.firstLong();
+            if (!Long.valueOf(offset).equals(committed.get(partition))) {
+                committed.put(partition, offset);
+                result.put(partition, new OffsetAndMetadata(offset));
+            }
+        }
+        return result;
+    }
+}
@@ -0,0 +1,244 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package eu.fasten.server.connectors;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotSame;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.ArgumentMatchers.anyInt;
+import static org.mockito.Mockito.doThrow;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+import java.sql.Connection;
+import java.sql.Driver;
+import java.sql.DriverManager;
+import java.sql.DriverPropertyInfo;
+import java.sql.SQLException;
+import java.sql.SQLFeatureNotSupportedException;
+import java.util.List;
+import java.util.Properties;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.TimeUnit;
+import java.util.logging.Logger;
+import org.jooq.exception.DataAccessException;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+public class PostgresConnectionPoolTest {
+
+    private static final String URL = "jdbc:stub:pool";
+
+    /**
+     * A driver for {@link #URL} returning mocked connections, which are valid and in auto-commit
+     * mode unless stubbed otherwise.
+     */
+    private static class StubDriver implements Driver {
+
+        private final List<Connection> connections = new CopyOnWriteArrayList<>();
+
+        @Override
+        public Connection connect(String url, Properties info) throws SQLException {
+            if (!acceptsURL(url)) {
+                return null;
+            }
+            final var connection = mock(Connection.class);
+            when(connection.isValid(anyInt())).thenReturn(true);
+            when(connection.getAutoCommit()).thenReturn(true);
+            connections.add(connection);
+            return connection;
+        }
+
+        @Override
+        public boolean acceptsURL(String url) {
+            return url.equals(URL);
+        }
+
+        @Override
+        public DriverPropertyInfo[] getPropertyInfo(String url, Properties info) {
+            return new DriverPropertyInfo[0];
+        }
+
+        @Override
+        public int getMajorVersion() {
+            return 1;
+        }
+
+        @Override
+        public int getMinorVersion() {
+            return 0;
+        }
+
+        @Override
+        public boolean jdbcCompliant() {
+            return false;
+        }
+
+        @Override
+        public Logger getParentLogger() throws SQLFeatureNotSupportedException {
+            throw new SQLFeatureNotSupportedException();
+        }
+    }
+
+    private StubDriver driver;
+
+    @BeforeEach
+    public void setUp() throws SQLException {
+        driver = new StubDriver();
+        DriverManager.registerDriver(driver);
+    }
+
+    @AfterEach
+    public void tearDown() throws SQLException {
+        DriverManager.deregisterDriver(driver);
+    }
+
+    private static PostgresConnectionPool pool(int size, long acquireTimeout) {
+        return new PostgresConnectionPool(URL, new Properties(), size, acquireTimeout);
+    }
+
+    @Test
+    public void acquireTimeoutTest() {
+        final var pool = pool(1, 50);
+        pool.acquire();
+        final long start = System.nanoTime();
+        assertThrows(DataAccessException.class, pool::acquire);
+        assertTrue(System.nanoTime() - start >= TimeUnit.MILLISECONDS.toNanos(50));
+        assertEquals(1, pool.getActiveConnections());
+        assertEquals(1, pool.getOpenedConnections());
+    }
+
+    @Test
+    public void reuseMostRecentlyReleasedFirstTest() {
+        final var pool = pool(2, 1000);
+        final var first = pool.acquire();
+        final var second = pool.acquire();
+        pool.release(first);
+        pool.release(second);
+        assertSame(second, pool.acquire());
+        assertSame(first, pool.acquire());
+        assertEquals(2, pool.getOpenedConnections());
+        assertEquals(2, driver.connections.size());
+    }
+
+    @Test
+    public void releaseRollsBackTest() throws SQLException {
+        final var pool = pool(1, 1000);
+        final var connection = pool.acquire();
+        when(connection.getAutoCommit()).thenReturn(false);
+        pool.release(connection);
+        verify(connection).rollback();
+        verify(connection).setAutoCommit(true);
+        assertEquals(1, pool.getIdleConnections());
+
+        // Connections in auto-commit mode are released as they are
+        when(connection.getAutoCommit()).thenReturn(true);
+        assertSame(connection, pool.acquire());
+        pool.release(connection);
+        verify(connection).rollback();
+    }
+
+    @Test
+    public void failedRollbackDiscardsTest() throws SQLException {
+        final var pool = pool(1, 1000);
+        final var connection = pool.acquire();
+        when(connection.getAutoCommit()).thenReturn(false);
+        doThrow(new SQLException("broken")).when(connection).rollback();
+        pool.release(connection);
+        verify(connection).close();
+        assertEquals(0, pool.getIdleConnections());
+        assertEquals(0, pool.getActiveConnections());
+        assertEquals(1, pool.getDiscardedConnections());
+    }
+
+    @Test
+    public void invalidConnectionIsDiscardedTest() throws SQLException {
+        final var pool = pool(1, 1000);
+        final var broken = pool.acquire();
+        pool.release(broken);
+        when(broken.isValid(anyInt())).thenReturn(false);
+        final var connection = pool.acquire();
+        assertNotSame(broken, connection);
+        verify(broken).close();
+        assertEquals(1, pool.getDiscardedConnections());
+        assertEquals(2, pool.getOpenedConnections());
+        assertEquals(1, pool.getActiveConnections());
+    }
+
+    @Test
+    public void closeWithConnectionsInUseTest() throws SQLException {
+        final var pool = pool(2, 1000);
+        final var inUse = pool.acquire();
+        final var idle = pool.acquire();
+        pool.release(idle);
+
+        pool.close();
+        verify(idle).close();
+        verify(inUse, never()).close();
+        assertEquals(0, pool.getIdleConnections());
+        assertEquals(1, pool.getActiveConnections());
+        assertThrows(DataAccessException.class, pool::acquire);
+
+        // Connections in use are closed when they are released
+        pool.release(inUse);
+        verify(inUse).close();
+        assertEquals(0, pool.getIdleConnections());
+        assertEquals(0, pool.getActiveConnections());
+        assertEquals(2, pool.getDiscardedConnections());
+    }
+
+    @Test
+    public void countersTest() throws Exception {
+        final var pool = pool(2, 10000);
+        pool.open();
+        assertEquals(0, pool.getActiveConnections());
+        assertEquals(1, pool.getIdleConnections());
+
+        final var first = pool.acquire();
+        final var second = pool.acquire();
+        assertEquals(2, pool.getActiveConnections());
+        assertEquals(0, pool.getIdleConnections());
+        assertEquals(0, pool.getWaitingThreads());
+
+        final var waiter = CompletableFuture.supplyAsync(pool::acquire);
+        final long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(10);
+        while (pool.getWaitingThreads() == 0 && System.nanoTime() < deadline) {
+            Thread.sleep(1);
+        }
+        assertEquals(1, pool.getWaitingThreads());
+
+        pool.release(first);
+        assertSame(first, waiter.get(10, TimeUnit.SECONDS));
+        assertEquals(0, pool.getWaitingThreads());
+        assertEquals(2, pool.getActiveConnections());
+
+        pool.release(first);
+        pool.release(second);
+        assertEquals(0, pool.getActiveConnections());
+        assertEquals(2, pool.getIdleConnections());
+        assertEquals(3, pool.getAcquisitions());
+        assertEquals(2, pool.getOpenedConnections());
+    }
+}
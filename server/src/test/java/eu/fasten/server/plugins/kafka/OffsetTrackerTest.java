@@ -0,0 +1,110 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package eu.fasten.server.plugins.kafka;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.Map;
+import org.apache.kafka.clients.consumer.OffsetAndMetadata;
+import org.apache.kafka.common.TopicPartition;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+public class OffsetTrackerTest {
+
+    private static final TopicPartition P0 = new TopicPartition("topic", 0);
+    private static final TopicPartition P1 = new TopicPartition("topic", 1);
+
+    private OffsetTracker offsets;
+
+    @BeforeEach
+    public void setUp() {
+        offsets = new OffsetTracker();
+    }
+
+    @Test
+    public void emptyTrackerTest() {
+        assertEquals(0, offsets.inFlight());
+        assertTrue(offsets.committable().isEmpty());
+    }
+
+    @Test
+    public void inOrderCompletionTest() {
+        offsets.started(P0, 10);
+        offsets.started(P0, 11);
+        assertEquals(2, offsets.inFlight());
+        assertEquals(Map.of(P0, new OffsetAndMetadata(10)), offsets.committable());
+        offsets.completed(P0, 10);
+        offsets.completed(P0, 11);
+        assertEquals(0, offsets.inFlight());
+        assertEquals(Map.of(P0, new OffsetAndMetadata(12)), offsets.committable());
+    }
+
+    @Test
+    public void outOfOrderCompletionTest() {
+        offsets.started(P0, 10);
+        offsets.started(P0, 11);
+        offsets.started(P0, 12);
+        offsets.committable();
+        // Completing later records does not skip the first one
+        offsets.completed(P0, 12);
+        offsets.completed(P0, 11);
+        assertEquals(1, offsets.inFlight());
+        assertTrue(offsets.committable().isEmpty());
+        offsets.completed(P0, 10);
+        assertEquals(Map.of(P0, new OffsetAndMetadata(13)), offsets.committable());
+    }
+
+    @Test
+    public void committableOffsetsAreReturnedOnceTest() {
+        offsets.started(P0, 0);
+        offsets.completed(P0, 0);
+        assertEquals(Map.of(P0, new OffsetAndMetadata(1)), offsets.committable());
+        assertTrue(offsets.committable().isEmpty());
+        offsets.started(P0, 1);
+        assertTrue(offsets.committable().isEmpty());
+        offsets.completed(P0, 1);
+        assertEquals(Map.of(P0, new OffsetAndMetadata(2)), offsets.committable());
+    }
+
+    @Test
+    public void partitionsAreIndependentTest() {
+        offsets.started(P0, 5);
+        offsets.started(P1, 7);
+        offsets.started(P1, 8);
+        offsets.completed(P1, 7);
+        offsets.completed(P1, 8);
+        assertEquals(1, offsets.inFlight());
+        assertEquals(Map.of(P0, new OffsetAndMetadata(5), P1, new OffsetAndMetadata(9)),
+                offsets.committable());
+    }
+
+    @Test
+    public void duplicateEventsTest() {
+        offsets.started(P0, 3);
+        offsets.started(P0, 3);
+        assertEquals(1, offsets.inFlight());
+        offsets.completed(P0, 3);
+        offsets.completed(P0, 3);
+        offsets.completed(P1, 3);
+        assertEquals(0, offsets.inFlight());
+        assertEquals(Map.of(P0, new OffsetAndMetadata(4)), offsets.committable());
+    }
+}